@@ -22,7 +22,6 @@ import org.apache.karaf.cellar.core.event.EventType;
 import org.apache.karaf.features.Feature;
 import org.osgi.framework.BundleEvent;
 import org.osgi.framework.BundleException;
-import org.osgi.service.cm.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -65,6 +64,12 @@ public class BundleEventHandler extends BundleSupport implements EventHandler<Cl
             return;
         }
 
+        // check if the local node already applied this revision of the bundle
+        if (isStale(event, Constants.CATEGORY)) {
+            LOGGER.debug("CELLAR BUNDLE: discarding stale cluster event for bundle {} (revision {})", event.getId(), event.getRevision());
+            return;
+        }
+
         try {
             // check if the pid is marked as local.
             if (isAllowed(event.getSourceGroup(), Constants.CATEGORY, event.getLocation(), EventType.INBOUND)) {
@@ -92,6 +97,7 @@ public class BundleEventHandler extends BundleSupport implements EventHandler<Cl
                     updateBundle(event.getSymbolicName(), event.getVersion());
                     LOGGER.debug("CELLAR BUNDLE: updating {}/{}", event.getSymbolicName(), event.getVersion());
                 }
+                applied(event, Constants.CATEGORY);
             } else LOGGER.trace("CELLAR BUNDLE: bundle {} is marked BLOCKED INBOUND for cluster group {}", event.getSymbolicName(), event.getSourceGroup().getName());
         } catch (BundleException e) {
             LOGGER.error("CELLAR BUNDLE: failed to install bundle {}/{}.", new Object[]{event.getSymbolicName(), event.getVersion()}, e);
@@ -101,11 +107,15 @@ public class BundleEventHandler extends BundleSupport implements EventHandler<Cl
     }
 
     public void init() {
-        // nothing to do
+        if (switchRegistry != null) {
+            switchRegistry.register(eventSwitch, Configurations.HANDLER + "." + this.getClass().getName());
+        }
     }
 
     public void destroy() {
-        // nothing to do
+        if (switchRegistry != null) {
+            switchRegistry.unregister(eventSwitch);
+        }
     }
 
     /**
@@ -115,20 +125,6 @@ public class BundleEventHandler extends BundleSupport implements EventHandler<Cl
      */
     @Override
     public Switch getSwitch() {
-        // load the switch status from the config
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.HANDLER + "." + this.getClass().getName()));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
-            }
-        } catch (Exception e) {
-            // ignore
-        }
         return eventSwitch;
     }
 
@@ -13,12 +13,19 @@
  */
 package org.apache.karaf.cellar.bundle;
 
-import java.io.Serializable;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.CellarSerialization;
+import org.apache.karaf.cellar.core.sync.Digestible;
+import org.apache.karaf.cellar.core.sync.MapDigest;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * Serializable wrapper to store and transport bundle state.
  */
-public class BundleState implements Serializable {
+public class BundleState implements CellarSerializable, Digestible {
 
     private static final long serialVersionUID = 5933673686648413918L;
 
@@ -29,6 +36,7 @@ public class BundleState implements Serializable {
     private String location;
     private int status;
     private byte[] data;
+    private long revision;
 
     public long getId() {
         return id;
@@ -78,6 +86,29 @@ public class BundleState implements Serializable {
         this.status = status;
     }
 
+    /**
+     * Get the revision of the bundle state in the cluster group.
+     *
+     * @return the revision.
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    /**
+     * Digest of the bundle state, ignoring the node specific data (bundle ID) and the revision.
+     *
+     * @return the digest.
+     */
+    @Override
+    public long digest() {
+        return MapDigest.digest(symbolicName, version, location, status);
+    }
+
     public byte[] getData() {
         return data;
     }
@@ -86,4 +117,28 @@ public class BundleState implements Serializable {
         this.data = data.clone();
     }
 
+    @Override
+    public void writeData(DataOutput out) throws IOException {
+        out.writeLong(id);
+        CellarSerialization.writeString(out, name);
+        CellarSerialization.writeString(out, symbolicName);
+        CellarSerialization.writeString(out, version);
+        CellarSerialization.writeString(out, location);
+        out.writeInt(status);
+        CellarSerialization.writeBytes(out, data);
+        out.writeLong(revision);
+    }
+
+    @Override
+    public void readData(DataInput in) throws IOException {
+        id = in.readLong();
+        name = CellarSerialization.readString(in);
+        symbolicName = CellarSerialization.readString(in);
+        version = CellarSerialization.readString(in);
+        location = CellarSerialization.readString(in);
+        status = in.readInt();
+        data = CellarSerialization.readBytes(in);
+        revision = in.readLong();
+    }
+
 }
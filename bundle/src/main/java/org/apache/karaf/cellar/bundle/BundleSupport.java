@@ -22,7 +22,12 @@ import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleException;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Generic Cellar bundle support.
@@ -31,6 +36,8 @@ public class BundleSupport extends CellarSupport {
 
     protected BundleContext bundleContext;
 	private FeaturesService featuresService;
+    private FeaturesBundleIndex featuresBundleIndex;
+    private LocalBundleIndex localBundleIndex;
 
     /**
      * Locally install a bundle.
@@ -50,13 +57,8 @@ public class BundleSupport extends CellarSupport {
      * @throws BundleException in case of un-installation failure.
      */
     public void uninstallBundle(String symbolicName, String version) throws BundleException {
-        Bundle[] bundles = getBundleContext().getBundles();
-        if (bundles != null) {
-            for (Bundle bundle : bundles) {
-                if (bundle.getSymbolicName().equals(symbolicName) && bundle.getVersion().toString().equals(version)) {
-                    bundle.uninstall();
-                }
-            }
+        for (Bundle bundle : findBundles(symbolicName, version)) {
+            bundle.uninstall();
         }
     }
 
@@ -68,13 +70,8 @@ public class BundleSupport extends CellarSupport {
      * @throws BundleException in case of start failure.
      */
     public void startBundle(String symbolicName, String version) throws BundleException {
-        Bundle[] bundles = getBundleContext().getBundles();
-        if (bundles != null) {
-            for (Bundle bundle : bundles) {
-                if (bundle.getSymbolicName().equals(symbolicName) && bundle.getVersion().toString().equals(version)) {
-                    bundle.start();
-                }
-            }
+        for (Bundle bundle : findBundles(symbolicName, version)) {
+            bundle.start();
         }
     }
 
@@ -86,13 +83,8 @@ public class BundleSupport extends CellarSupport {
      * @throws BundleException in case of stop failure.
      */
     public void stopBundle(String symbolicName, String version) throws BundleException {
-        Bundle[] bundles = getBundleContext().getBundles();
-        if (bundles != null) {
-            for (Bundle bundle : bundles) {
-                if (bundle.getSymbolicName().equals(symbolicName) && bundle.getVersion().toString().equals(version)) {
-                    bundle.stop();
-                }
-            }
+        for (Bundle bundle : findBundles(symbolicName, version)) {
+            bundle.stop();
         }
     }
 
@@ -104,24 +96,130 @@ public class BundleSupport extends CellarSupport {
      * @throws BundleException in case of update failure.
      */
     public void updateBundle(String symbolicName, String version) throws BundleException {
+        for (Bundle bundle : findBundles(symbolicName, version)) {
+            bundle.update();
+        }
+    }
+
+    /**
+     * Locally start several bundles in one pass.
+     * A bundle failing to start doesn't prevent the other bundles to start.
+     *
+     * @param ids the bundles IDs (symbolic name/version).
+     * @return the IDs of the bundles which failed to start.
+     */
+    public Set<String> startBundles(Collection<String> ids) {
+        Set<String> failed = new HashSet<String>();
+        Map<String, List<Bundle>> bundles = findBundles(ids);
+        for (String id : ids) {
+            List<Bundle> matching = bundles.get(id);
+            if (matching != null) {
+                for (Bundle bundle : matching) {
+                    try {
+                        bundle.start();
+                    } catch (BundleException e) {
+                        LOGGER.error("CELLAR BUNDLE: failed to start bundle {}", id, e);
+                        failed.add(id);
+                    }
+                }
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Locally stop several bundles in one pass.
+     * A bundle failing to stop doesn't prevent the other bundles to stop.
+     *
+     * @param ids the bundles IDs (symbolic name/version).
+     */
+    public void stopBundles(Collection<String> ids) {
+        Map<String, List<Bundle>> bundles = findBundles(ids);
+        for (String id : ids) {
+            List<Bundle> matching = bundles.get(id);
+            if (matching != null) {
+                for (Bundle bundle : matching) {
+                    try {
+                        bundle.stop();
+                    } catch (BundleException e) {
+                        LOGGER.error("CELLAR BUNDLE: failed to stop bundle {}", id, e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the local bundles matching a symbolic name and version.
+     * The local bundle index is used when available, else all local bundles are scanned.
+     *
+     * @param symbolicName the bundle symbolic name.
+     * @param version the bundle version.
+     * @return the matching local bundles.
+     */
+    protected List<Bundle> findBundles(String symbolicName, String version) {
+        if (localBundleIndex != null) {
+            return localBundleIndex.getBundles(symbolicName, version);
+        }
+        List<Bundle> matching = new ArrayList<Bundle>();
         Bundle[] bundles = getBundleContext().getBundles();
         if (bundles != null) {
             for (Bundle bundle : bundles) {
-                if (bundle.getSymbolicName().equals(symbolicName) && bundle.getVersion().toString().equals(version)) {
-                    bundle.update();
+                if (symbolicName.equals(bundle.getSymbolicName()) && bundle.getVersion().toString().equals(version)) {
+                    matching.add(bundle);
                 }
             }
         }
+        return matching;
+    }
+
+    /**
+     * Get the local bundles matching several bundle IDs, scanning the local bundles at most once.
+     *
+     * @param ids the bundles IDs (symbolic name/version).
+     * @return the matching local bundles by ID.
+     */
+    protected Map<String, List<Bundle>> findBundles(Collection<String> ids) {
+        Map<String, List<Bundle>> matching = new HashMap<String, List<Bundle>>();
+        if (localBundleIndex != null) {
+            for (String id : ids) {
+                String[] tokens = id.split("/");
+                if (tokens.length == 2) {
+                    matching.put(id, localBundleIndex.getBundles(tokens[0], tokens[1]));
+                }
+            }
+            return matching;
+        }
+        Set<String> wanted = new HashSet<String>(ids);
+        Bundle[] bundles = getBundleContext().getBundles();
+        if (bundles != null) {
+            for (Bundle bundle : bundles) {
+                String id = bundle.getSymbolicName() + "/" + bundle.getVersion().toString();
+                if (wanted.contains(id)) {
+                    List<Bundle> list = matching.get(id);
+                    if (list == null) {
+                        list = new ArrayList<Bundle>();
+                        matching.put(id, list);
+                    }
+                    list.add(bundle);
+                }
+            }
+        }
+        return matching;
     }
 
     /**
      * Get the list of features where the bundle is belonging.
+     * The features bundle index is used when available, else all features are scanned.
      *
      * @param bundleLocation the bundle location.
      * @return the list of feature where the bundle is present.
      * @throws Exception in case of retrieval failure.
      */
 	protected List<Feature> retrieveFeature(String bundleLocation) throws Exception {
+        if (featuresBundleIndex != null) {
+            return featuresBundleIndex.getFeatures(bundleLocation);
+        }
 		Feature[] features = featuresService.listFeatures();
 		List<Feature> matchingFeatures = new ArrayList<Feature>();
 		for (Feature feature : features) {
@@ -153,4 +251,20 @@ public class BundleSupport extends CellarSupport {
 		this.featuresService = featureService;
 	}
 
+    public FeaturesBundleIndex getFeaturesBundleIndex() {
+        return featuresBundleIndex;
+    }
+
+    public void setFeaturesBundleIndex(FeaturesBundleIndex featuresBundleIndex) {
+        this.featuresBundleIndex = featuresBundleIndex;
+    }
+
+    public LocalBundleIndex getLocalBundleIndex() {
+        return localBundleIndex;
+    }
+
+    public void setLocalBundleIndex(LocalBundleIndex localBundleIndex) {
+        this.localBundleIndex = localBundleIndex;
+    }
+
 }
@@ -19,6 +19,8 @@ import org.apache.karaf.cellar.core.Synchronizer;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
 import org.apache.karaf.cellar.core.event.EventProducer;
 import org.apache.karaf.cellar.core.event.EventType;
+import org.apache.karaf.cellar.core.sync.IncrementalSync;
+import org.apache.karaf.cellar.core.sync.MapDigest;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleEvent;
@@ -30,6 +32,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -41,6 +46,8 @@ public class BundleSynchronizer extends BundleSupport implements Synchronizer {
 
     private static final transient Logger LOGGER = LoggerFactory.getLogger(BundleSynchronizer.class);
 
+    private IncrementalSync incrementalSync;
+
     public void init() {
         Set<Group> groups = groupManager.listLocalGroups();
         if (groups != null && !groups.isEmpty()) {
@@ -88,13 +95,21 @@ public class BundleSynchronizer extends BundleSupport implements Synchronizer {
         if (group != null) {
             String groupName = group.getName();
             LOGGER.debug("CELLAR BUNDLE: pulling bundles from cluster group {}", groupName);
-            Map<String, BundleState> clusterBundles = clusterManager.getMap(Constants.BUNDLE_MAP + Configurations.SEPARATOR + groupName);
+            String mapName = Constants.BUNDLE_MAP + Configurations.SEPARATOR + groupName;
+            // read the digest first, the changes done during the pull are detected by the next pull
+            MapDigest digest = clusterManager.getDigest(mapName);
+            Map<String, BundleState> clusterBundles = clusterManager.getMap(mapName);
+            MapDigest localDigest = localDigest();
 
             ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
 
             try {
                 Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
-                for (Map.Entry<String, BundleState> entry : clusterBundles.entrySet()) {
+                // install all bundles first, then start them in one pass
+                Map<String, Long> bundlesToStart = new LinkedHashMap<String, Long>();
+                boolean failed = false;
+                // only the bundles changed in the cluster or locally since the last pull
+                for (Map.Entry<String, BundleState> entry : incrementalSync.entries(mapName, clusterBundles, digest, localDigest).entrySet()) {
                     String id = entry.getKey();
                     BundleState state = entry.getValue();
 
@@ -106,25 +121,58 @@ public class BundleSynchronizer extends BundleSupport implements Synchronizer {
                             String bundleLocation = state.getLocation();
                             if (isAllowed(group, Constants.CATEGORY, bundleLocation, EventType.INBOUND)) {
                                 try {
-                                    if (state.getStatus() == BundleEvent.INSTALLED) {
+                                    if (state.getStatus() == BundleEvent.STARTED) {
                                         installBundleFromLocation(state.getLocation());
-                                    } else if (state.getStatus() == BundleEvent.STARTED) {
-                                        installBundleFromLocation(state.getLocation());
-                                        startBundle(symbolicName, version);
+                                        // the revision is applied once the bundle is started
+                                        bundlesToStart.put(id, state.getRevision());
+                                    } else {
+                                        if (state.getStatus() == BundleEvent.INSTALLED) {
+                                            installBundleFromLocation(state.getLocation());
+                                        }
+                                        if (revisionTracker != null) {
+                                            revisionTracker.applied(groupName, Constants.CATEGORY, id, state.getRevision());
+                                        }
                                     }
                                 } catch (BundleException e) {
                                     LOGGER.error("CELLAR BUNDLE: failed to pull bundle {}", id, e);
+                                    failed = true;
                                 }
                             } else LOGGER.trace("CELLAR BUNDLE: bundle {} is marked BLOCKED INBOUND for cluster group {}", bundleLocation, groupName);
                         }
                     }
                 }
+                Set<String> notStarted = startBundles(bundlesToStart.keySet());
+                for (Map.Entry<String, Long> started : bundlesToStart.entrySet()) {
+                    if (notStarted.contains(started.getKey())) {
+                        failed = true;
+                    } else if (revisionTracker != null) {
+                        revisionTracker.applied(groupName, Constants.CATEGORY, started.getKey(), started.getValue());
+                    }
+                }
+                if (failed) {
+                    incrementalSync.reset(mapName);
+                } else {
+                    incrementalSync.synced(mapName, digest, localDigest());
+                }
             } finally {
                 Thread.currentThread().setContextClassLoader(originalClassLoader);
             }
         }
     }
 
+    /**
+     * Get the digest of the local bundles states, keyed by symbolic name and version as the cluster bundles.
+     *
+     * @return the digest of the local bundles states.
+     */
+    private MapDigest localDigest() {
+        Map<String, String> localBundles = new HashMap<String, String>();
+        for (Bundle bundle : bundleContext.getBundles()) {
+            localBundles.put(bundle.getSymbolicName() + "/" + bundle.getVersion(), bundle.getState() + ":" + bundle.getLocation());
+        }
+        return MapDigest.of(localBundles);
+    }
+
     /**
      * Push local bundles states to a cluster group.
      *
@@ -217,4 +265,12 @@ public class BundleSynchronizer extends BundleSupport implements Synchronizer {
         return "disabled";
     }
 
+    public IncrementalSync getIncrementalSync() {
+        return incrementalSync;
+    }
+
+    public void setIncrementalSync(IncrementalSync incrementalSync) {
+        this.incrementalSync = incrementalSync;
+    }
+
 }
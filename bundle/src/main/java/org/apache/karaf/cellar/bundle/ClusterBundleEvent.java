@@ -14,6 +14,11 @@
 package org.apache.karaf.cellar.bundle;
 
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.serialization.CellarSerialization;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * Cluster bundle event.
@@ -33,6 +38,22 @@ public class ClusterBundleEvent extends Event {
         this.type = type;
     }
 
+    /**
+     * Constructor used by the compact serialization.
+     */
+    protected ClusterBundleEvent() {
+    }
+
+    /**
+     * The cluster bundle events are ordered per bundle symbolic name and version.
+     *
+     * @return the routing key.
+     */
+    @Override
+    public String getRoutingKey() {
+        return id;
+    }
+
     public String getSymbolicName() {
         return symbolicName;
     }
@@ -65,4 +86,22 @@ public class ClusterBundleEvent extends Event {
         this.type = type;
     }
 
+    @Override
+    public void writeData(DataOutput out) throws IOException {
+        super.writeData(out);
+        CellarSerialization.writeString(out, symbolicName);
+        CellarSerialization.writeString(out, version);
+        CellarSerialization.writeString(out, location);
+        out.writeInt(type);
+    }
+
+    @Override
+    public void readData(DataInput in) throws IOException {
+        super.readData(in);
+        symbolicName = CellarSerialization.readString(in);
+        version = CellarSerialization.readString(in);
+        location = CellarSerialization.readString(in);
+        type = in.readInt();
+    }
+
 }
@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.bundle;
+
+import org.apache.karaf.features.BundleInfo;
+import org.apache.karaf.features.Feature;
+import org.apache.karaf.features.FeatureEvent;
+import org.apache.karaf.features.FeaturesListener;
+import org.apache.karaf.features.FeaturesService;
+import org.apache.karaf.features.RepositoryEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reverse index from a bundle location to the features containing the bundle.
+ * The index is built from the features service, and rebuilt on the next lookup when a features repository
+ * is added or removed.
+ */
+public class FeaturesBundleIndex implements FeaturesListener {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(FeaturesBundleIndex.class);
+
+    private FeaturesService featuresService;
+
+    private volatile Map<String, List<Feature>> index;
+    private volatile boolean dirty = true;
+
+    /**
+     * Get the features containing a bundle.
+     *
+     * @param bundleLocation the bundle location.
+     * @return the list of features containing the bundle (empty if the bundle doesn't belong to any feature).
+     * @throws Exception in case of features retrieval failure.
+     */
+    public List<Feature> getFeatures(String bundleLocation) throws Exception {
+        Map<String, List<Feature>> current = index;
+        if (dirty || current == null) {
+            current = rebuild();
+        }
+        if (bundleLocation == null) {
+            return Collections.emptyList();
+        }
+        List<Feature> features = current.get(bundleLocation.toLowerCase(Locale.ENGLISH));
+        if (features == null) {
+            return Collections.emptyList();
+        }
+        return features;
+    }
+
+    /**
+     * Mark the index as stale, it will be rebuilt on the next lookup.
+     */
+    public void invalidate() {
+        dirty = true;
+    }
+
+    private synchronized Map<String, List<Feature>> rebuild() throws Exception {
+        if (!dirty && index != null) {
+            return index;
+        }
+        // reset the flag first, a repository change during the build triggers a new build
+        dirty = false;
+        Map<String, List<Feature>> newIndex = new HashMap<String, List<Feature>>();
+        try {
+            Feature[] features = featuresService.listFeatures();
+            if (features != null) {
+                for (Feature feature : features) {
+                    List<BundleInfo> bundles = feature.getBundles();
+                    if (bundles == null) {
+                        continue;
+                    }
+                    for (BundleInfo bundleInfo : bundles) {
+                        if (bundleInfo.getLocation() == null) {
+                            continue;
+                        }
+                        String location = bundleInfo.getLocation().toLowerCase(Locale.ENGLISH);
+                        List<Feature> matchingFeatures = newIndex.get(location);
+                        if (matchingFeatures == null) {
+                            matchingFeatures = new ArrayList<Feature>();
+                            newIndex.put(location, matchingFeatures);
+                        }
+                        if (!matchingFeatures.contains(feature)) {
+                            matchingFeatures.add(feature);
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            dirty = true;
+            throw e;
+        }
+        LOGGER.debug("CELLAR BUNDLE: features index built with {} bundle locations", newIndex.size());
+        index = newIndex;
+        return newIndex;
+    }
+
+    @Override
+    public void featureEvent(FeatureEvent event) {
+        // installing or uninstalling a feature doesn't change the features content
+    }
+
+    @Override
+    public void repositoryEvent(RepositoryEvent event) {
+        invalidate();
+    }
+
+    public FeaturesService getFeaturesService() {
+        return featuresService;
+    }
+
+    public void setFeaturesService(FeaturesService featuresService) {
+        this.featuresService = featuresService;
+    }
+
+}
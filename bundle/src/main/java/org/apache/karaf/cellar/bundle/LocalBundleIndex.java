@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.bundle;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.SynchronousBundleListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the local bundles by symbolic name and version, kept up to date by a bundle listener.
+ */
+public class LocalBundleIndex implements SynchronousBundleListener {
+
+    private BundleContext bundleContext;
+
+    private final Map<String, List<Bundle>> bundles = new HashMap<String, List<Bundle>>();
+    private final Map<Long, String> keys = new HashMap<Long, String>();
+
+    public void init() {
+        // register the listener first to not miss a bundle installed while the index is populated
+        bundleContext.addBundleListener(this);
+        Bundle[] installed = bundleContext.getBundles();
+        if (installed != null) {
+            for (Bundle bundle : installed) {
+                add(bundle);
+            }
+        }
+    }
+
+    public void destroy() {
+        bundleContext.removeBundleListener(this);
+        synchronized (this) {
+            bundles.clear();
+            keys.clear();
+        }
+    }
+
+    @Override
+    public void bundleChanged(BundleEvent event) {
+        Bundle bundle = event.getBundle();
+        if (event.getType() == BundleEvent.UNINSTALLED) {
+            remove(bundle);
+        } else if (event.getType() == BundleEvent.INSTALLED || event.getType() == BundleEvent.UPDATED) {
+            // an update can change the bundle version
+            remove(bundle);
+            add(bundle);
+        }
+    }
+
+    /**
+     * Get the local bundles with the given symbolic name and version.
+     *
+     * @param symbolicName the bundle symbolic name.
+     * @param version the bundle version.
+     * @return the matching local bundles (empty if no local bundle matches).
+     */
+    public synchronized List<Bundle> getBundles(String symbolicName, String version) {
+        List<Bundle> matching = bundles.get(key(symbolicName, version));
+        if (matching == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<Bundle>(matching);
+    }
+
+    private synchronized void add(Bundle bundle) {
+        if (bundle.getSymbolicName() == null || bundle.getState() == Bundle.UNINSTALLED) {
+            return;
+        }
+        String key = key(bundle.getSymbolicName(), bundle.getVersion().toString());
+        List<Bundle> matching = bundles.get(key);
+        if (matching == null) {
+            matching = new ArrayList<Bundle>(1);
+            bundles.put(key, matching);
+        }
+        if (!matching.contains(bundle)) {
+            matching.add(bundle);
+        }
+        keys.put(bundle.getBundleId(), key);
+    }
+
+    private synchronized void remove(Bundle bundle) {
+        String key = keys.remove(bundle.getBundleId());
+        if (key == null) {
+            return;
+        }
+        List<Bundle> matching = bundles.get(key);
+        if (matching != null) {
+            matching.remove(bundle);
+            if (matching.isEmpty()) {
+                bundles.remove(key);
+            }
+        }
+    }
+
+    private static String key(String symbolicName, String version) {
+        return symbolicName + "/" + version;
+    }
+
+    public BundleContext getBundleContext() {
+        return bundleContext;
+    }
+
+    public void setBundleContext(BundleContext bundleContext) {
+        this.bundleContext = bundleContext;
+    }
+
+}
@@ -19,20 +19,31 @@ import org.apache.karaf.cellar.core.control.SwitchStatus;
 import org.apache.karaf.cellar.core.event.EventProducer;
 import org.apache.karaf.cellar.core.event.EventType;
 import org.apache.karaf.features.Feature;
+import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleEvent;
 import org.osgi.framework.SynchronousBundleListener;
 import org.osgi.service.cm.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Dictionary;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * LocalBundleListener is listening for local bundles changes.
  * When a local bundle change occurs, this listener updates the cluster and broadcasts a cluster bundle event.
+ * The successive state changes (resolve, start, stop, ...) of a bundle within a short time window are coalesced: only
+ * the final state is sent to the cluster. The install, update and uninstall changes are always sent, in order.
  */
 public class LocalBundleListener extends BundleSupport implements SynchronousBundleListener {
 
@@ -40,6 +51,11 @@ public class LocalBundleListener extends BundleSupport implements SynchronousBun
 
     private EventProducer eventProducer;
 
+    private long debounce = 200;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> scheduledFlush;
+    private final Map<String, List<LocalBundleChange>> pendingChanges = new LinkedHashMap<String, List<LocalBundleChange>>();
+
     /**
      * Callback method called when a local bundle status change.
      *
@@ -70,72 +86,144 @@ public class LocalBundleListener extends BundleSupport implements SynchronousBun
         }
 
         if (event != null && event.getBundle() != null) {
-            Set<Group> groups = null;
+            // capture the bundle state now, the bundle may change before the cluster is updated
+            LocalBundleChange change = new LocalBundleChange(event);
+            if (debounce <= 0 || scheduler == null) {
+                publish(change);
+                return;
+            }
+            synchronized (pendingChanges) {
+                List<LocalBundleChange> changes = pendingChanges.get(change.key);
+                if (changes == null) {
+                    changes = new ArrayList<LocalBundleChange>();
+                    pendingChanges.put(change.key, changes);
+                }
+                // last state wins for the successive state changes, the install, update and uninstall changes are
+                // required by the other nodes to reach the final state
+                if (change.isStateChange() && !changes.isEmpty() && changes.get(changes.size() - 1).isStateChange()) {
+                    changes.set(changes.size() - 1, change);
+                } else {
+                    changes.add(change);
+                }
+                if (scheduledFlush == null) {
+                    try {
+                        scheduledFlush = scheduler.schedule(new Runnable() {
+                            @Override
+                            public void run() {
+                                flush();
+                            }
+                        }, debounce, TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException e) {
+                        LOGGER.debug("CELLAR BUNDLE: local listener is stopping, bundle change is not sent to the cluster");
+                        pendingChanges.clear();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Update the cluster and broadcast the pending local bundle changes.
+     */
+    public void flush() {
+        List<LocalBundleChange> changes;
+        synchronized (pendingChanges) {
+            scheduledFlush = null;
+            changes = new ArrayList<LocalBundleChange>();
+            for (List<LocalBundleChange> bundleChanges : pendingChanges.values()) {
+                changes.addAll(bundleChanges);
+            }
+            pendingChanges.clear();
+        }
+        for (LocalBundleChange change : changes) {
             try {
-                groups = groupManager.listLocalGroups();
-            } catch (Exception ex) {
-                LOGGER.warn("Failed to list local groups. Is Cellar uninstalling ?");
+                publish(change);
+            } catch (Exception e) {
+                LOGGER.error("CELLAR BUNDLE: failed to publish local bundle change", e);
             }
+        }
+    }
 
-            if (groups != null && !groups.isEmpty()) {
-                for (Group group : groups) {
-
-                    // get the bundle name or location.
-                    String name = (String) event.getBundle().getHeaders().get(org.osgi.framework.Constants.BUNDLE_NAME);
-                    // if there is no name, then default to symbolic name.
-                    name = (name == null) ? event.getBundle().getSymbolicName() : name;
-                    // if there is no symbolic name, resort to location.
-                    name = (name == null) ? event.getBundle().getLocation() : name;
-                    String symbolicName = event.getBundle().getSymbolicName();
-                    String version = event.getBundle().getHeaders().get(org.osgi.framework.Constants.BUNDLE_VERSION);
-                    String bundleLocation = event.getBundle().getLocation();
-                    int type = event.getType();
-
-                    if (isAllowed(group, Constants.CATEGORY, bundleLocation, EventType.OUTBOUND)) {
-
-                        ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
-                        Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
-
-                        try {
-                            // update bundles in the cluster group
-                            Map<String, BundleState> clusterBundles = clusterManager.getMap(Constants.BUNDLE_MAP + Configurations.SEPARATOR + group.getName());
-                            if (type == BundleEvent.UNINSTALLED) {
-                                clusterBundles.remove(symbolicName + "/" + version);
-                            } else {
-                                BundleState state = clusterBundles.get(symbolicName + "/" + version);
-                                if (state == null) {
-                                    state = new BundleState();
+    /**
+     * Update the cluster groups and broadcast a cluster bundle event for a local bundle change.
+     *
+     * @param change the local bundle change.
+     */
+    void publish(LocalBundleChange change) {
+        Set<Group> groups = null;
+        try {
+            groups = groupManager.listLocalGroups();
+        } catch (Exception ex) {
+            LOGGER.warn("Failed to list local groups. Is Cellar uninstalling ?");
+        }
+
+        if (groups != null && !groups.isEmpty()) {
+            for (Group group : groups) {
+
+                String name = change.name;
+                String symbolicName = change.symbolicName;
+                String version = change.version;
+                String bundleLocation = change.location;
+                int type = change.type;
+
+                if (isAllowed(group, Constants.CATEGORY, bundleLocation, EventType.OUTBOUND)) {
+
+                    ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
+                    Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
+
+                    try {
+                        // update bundles in the cluster group
+                        Map<String, BundleState> clusterBundles = clusterManager.getMap(Constants.BUNDLE_MAP + Configurations.SEPARATOR + group.getName());
+                        String key = symbolicName + "/" + version;
+                        long revision;
+                        // the other nodes may update the same bundle at the same time: each update gets its own revision
+                        while (true) {
+                            BundleState previous = clusterBundles.get(key);
+                            revision = nextRevision(group.getName(), Constants.CATEGORY, key, (previous != null) ? previous.getRevision() : 0);
+                            BundleState state = null;
+                            if (type != BundleEvent.UNINSTALLED) {
+                                state = new BundleState();
+                                if (previous != null) {
+                                    state.setData(previous.getData());
                                 }
-                                state.setId(event.getBundle().getBundleId());
+                                state.setRevision(revision);
+                                state.setId(change.id);
                                 state.setName(name);
                                 state.setVersion(version);
                                 state.setSymbolicName(symbolicName);
                                 state.setStatus(type);
                                 state.setLocation(bundleLocation);
-                                clusterBundles.put(symbolicName + "/" + version, state);
                             }
+                            if (compareAndSet(clusterBundles, key, previous, state)) {
+                                break;
+                            }
+                        }
+                        // the local node already has this revision, its own cluster event is discarded
+                        if (revisionTracker != null) {
+                            revisionTracker.applied(group.getName(), Constants.CATEGORY, key, revision);
+                        }
 
-                            // check the features first
-                        	List<Feature> matchingFeatures = retrieveFeature(bundleLocation);
-                        	for (Feature feature : matchingFeatures) {
-            					if (!isAllowed(group, "features", feature.getName(), EventType.OUTBOUND)) {
-            						LOGGER.trace("CELLAR BUNDLE: bundle {} is contained in feature {} marked BLOCKED OUTBOUND for cluster group {}", bundleLocation, feature.getName(), group.getName());
-            						return;
-            					}
-            				}
-                            
-                            // broadcast the cluster event
-                            ClusterBundleEvent clusterBundleEvent = new ClusterBundleEvent(symbolicName, version, bundleLocation, type);
-                            clusterBundleEvent.setSourceGroup(group);
-                            eventProducer.produce(clusterBundleEvent);
-                        } catch (Exception e) {
-                        	LOGGER.error("CELLAR BUNDLE: failed to create bundle event", e);
-						} finally {
-                            Thread.currentThread().setContextClassLoader(originalClassLoader);
+                        // check the features first
+                        List<Feature> matchingFeatures = retrieveFeature(bundleLocation);
+                        for (Feature feature : matchingFeatures) {
+                            if (!isAllowed(group, "features", feature.getName(), EventType.OUTBOUND)) {
+                                LOGGER.trace("CELLAR BUNDLE: bundle {} is contained in feature {} marked BLOCKED OUTBOUND for cluster group {}", bundleLocation, feature.getName(), group.getName());
+                                return;
+                            }
                         }
 
-                    } else LOGGER.trace("CELLAR BUNDLE: bundle {} is marked BLOCKED OUTBOUND for cluster group {}", bundleLocation, group.getName());
-                }
+                        // broadcast the cluster event
+                        ClusterBundleEvent clusterBundleEvent = new ClusterBundleEvent(symbolicName, version, bundleLocation, type);
+                        clusterBundleEvent.setSourceGroup(group);
+                        clusterBundleEvent.setRevision(revision);
+                        eventProducer.produce(clusterBundleEvent);
+                    } catch (Exception e) {
+                        LOGGER.error("CELLAR BUNDLE: failed to create bundle event", e);
+                    } finally {
+                        Thread.currentThread().setContextClassLoader(originalClassLoader);
+                    }
+
+                } else LOGGER.trace("CELLAR BUNDLE: bundle {} is marked BLOCKED OUTBOUND for cluster group {}", bundleLocation, group.getName());
             }
         }
     }
@@ -160,11 +248,25 @@ public class LocalBundleListener extends BundleSupport implements SynchronousBun
     }
 
     public void init() {
+        if (debounce > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "cellar-bundle-listener");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
         getBundleContext().addBundleListener(this);
     }
 
     public void destroy() {
         bundleContext.removeBundleListener(this);
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
     }
 
     public EventProducer getEventProducer() {
@@ -175,4 +277,64 @@ public class LocalBundleListener extends BundleSupport implements SynchronousBun
         this.eventProducer = eventProducer;
     }
 
+    public long getDebounce() {
+        return debounce;
+    }
+
+    /**
+     * Set the time window (in milliseconds) used to coalesce the changes of a local bundle.
+     * The local bundle changes are sent to the cluster immediately when the window is 0.
+     *
+     * @param debounce the coalescing time window.
+     */
+    public void setDebounce(long debounce) {
+        this.debounce = debounce;
+    }
+
+    /**
+     * State of a local bundle, captured when the bundle changed.
+     */
+    static class LocalBundleChange {
+
+        private final String key;
+        private final long id;
+        private final String name;
+        private final String symbolicName;
+        private final String version;
+        private final String location;
+        private final int type;
+
+        LocalBundleChange(BundleEvent event) {
+            Bundle bundle = event.getBundle();
+            // get the bundle name or location.
+            String name = (String) bundle.getHeaders().get(org.osgi.framework.Constants.BUNDLE_NAME);
+            // if there is no name, then default to symbolic name.
+            name = (name == null) ? bundle.getSymbolicName() : name;
+            // if there is no symbolic name, resort to location.
+            name = (name == null) ? bundle.getLocation() : name;
+            this.id = bundle.getBundleId();
+            this.name = name;
+            this.symbolicName = bundle.getSymbolicName();
+            this.version = bundle.getHeaders().get(org.osgi.framework.Constants.BUNDLE_VERSION);
+            this.location = bundle.getLocation();
+            this.type = event.getType();
+            this.key = (symbolicName != null) ? symbolicName + "/" + version : location;
+        }
+
+        int getType() {
+            return type;
+        }
+
+        /**
+         * Check if the change is a state change of the bundle (resolve, start, stop, ...), which can be replaced by a
+         * later state change. The install, update and uninstall changes are never replaced.
+         *
+         * @return true for a state change, false else.
+         */
+        boolean isStateChange() {
+            return type != BundleEvent.INSTALLED && type != BundleEvent.UPDATED && type != BundleEvent.UNINSTALLED;
+        }
+
+    }
+
 }
@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.bundle;
+
+import org.apache.karaf.cellar.core.Configurations;
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.event.EventProducer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
+
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+
+public class LocalBundleListenerTest {
+
+    private final List<Integer> published = new ArrayList<Integer>();
+    private LocalBundleListener listener;
+    private Bundle bundle;
+
+    @Before
+    public void setUp() throws Exception {
+        Dictionary<String, Object> properties = new Hashtable<String, Object>();
+        properties.put(Constants.CATEGORY + Configurations.SEPARATOR + Configurations.LISTENER, "true");
+        Configuration configuration = createNiceMock(Configuration.class);
+        expect(configuration.getProperties()).andReturn(properties).anyTimes();
+        ConfigurationAdmin configurationAdmin = createNiceMock(ConfigurationAdmin.class);
+        expect(configurationAdmin.getConfiguration(Configurations.NODE, null)).andReturn(configuration).anyTimes();
+        EventProducer eventProducer = createNiceMock(EventProducer.class);
+        expect(eventProducer.getSwitch()).andReturn(new BasicSwitch("test")).anyTimes();
+        BundleContext bundleContext = createNiceMock(BundleContext.class);
+
+        Dictionary<String, String> headers = new Hashtable<String, String>();
+        headers.put(org.osgi.framework.Constants.BUNDLE_SYMBOLICNAME, "test");
+        headers.put(org.osgi.framework.Constants.BUNDLE_VERSION, "1.0.0");
+        bundle = createNiceMock(Bundle.class);
+        expect(bundle.getBundleId()).andReturn(42L).anyTimes();
+        expect(bundle.getSymbolicName()).andReturn("test").anyTimes();
+        expect(bundle.getLocation()).andReturn("mvn:test/test/1.0.0").anyTimes();
+        expect(bundle.getHeaders()).andReturn(headers).anyTimes();
+        replay(configuration, configurationAdmin, eventProducer, bundleContext, bundle);
+
+        listener = new LocalBundleListener() {
+            @Override
+            void publish(LocalBundleChange change) {
+                published.add(change.getType());
+            }
+        };
+        listener.setConfigurationAdmin(configurationAdmin);
+        listener.setEventProducer(eventProducer);
+        listener.setBundleContext(bundleContext);
+        listener.setDebounce(60000);
+        listener.init();
+    }
+
+    @After
+    public void tearDown() {
+        listener.destroy();
+    }
+
+    private void change(int type) {
+        listener.bundleChanged(new BundleEvent(type, bundle));
+    }
+
+    @Test
+    public void testInstallAndStartInOneWindow() {
+        change(BundleEvent.INSTALLED);
+        change(BundleEvent.RESOLVED);
+        change(BundleEvent.STARTING);
+        change(BundleEvent.STARTED);
+        listener.flush();
+
+        assertEquals(2, published.size());
+        assertEquals(BundleEvent.INSTALLED, (int) published.get(0));
+        assertEquals(BundleEvent.STARTED, (int) published.get(1));
+    }
+
+    @Test
+    public void testStateChangesCoalesced() {
+        change(BundleEvent.STOPPING);
+        change(BundleEvent.STOPPED);
+        change(BundleEvent.STARTING);
+        change(BundleEvent.STARTED);
+        listener.flush();
+
+        assertEquals(1, published.size());
+        assertEquals(BundleEvent.STARTED, (int) published.get(0));
+    }
+
+    @Test
+    public void testUninstallKept() {
+        change(BundleEvent.STOPPED);
+        change(BundleEvent.UNRESOLVED);
+        change(BundleEvent.UNINSTALLED);
+        change(BundleEvent.INSTALLED);
+        listener.flush();
+
+        assertEquals(3, published.size());
+        assertEquals(BundleEvent.UNRESOLVED, (int) published.get(0));
+        assertEquals(BundleEvent.UNINSTALLED, (int) published.get(1));
+        assertEquals(BundleEvent.INSTALLED, (int) published.get(2));
+    }
+
+}
@@ -14,18 +14,46 @@
 package org.apache.karaf.cellar.config;
 
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.serialization.CellarSerialization;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.Set;
 
 /**
  * Cluster configuration event.
+ * The event may carry a delta (the changed and removed properties), applied by the receiving nodes
+ * when their local configuration matches the base revision of the delta.
  */
 public class ClusterConfigurationEvent extends Event {
 
 	private Integer type;
+    private String baseRevision;
+    private Properties changedProperties;
+    private Set<String> removedProperties;
 
     public ClusterConfigurationEvent(String id) {
         super(id);
     }
 
+    /**
+     * Constructor used by the compact serialization.
+     */
+    protected ClusterConfigurationEvent() {
+    }
+
+    /**
+     * The cluster configuration events are ordered per configuration PID.
+     *
+     * @return the routing key.
+     */
+    @Override
+    public String getRoutingKey() {
+        return id;
+    }
+
     public Integer getType() {
         return type;
     }
@@ -34,9 +62,76 @@ public class ClusterConfigurationEvent extends Event {
         this.type = type;
     }
 
+    /**
+     * Get the revision of the cluster configuration the delta has been computed from.
+     *
+     * @return the base revision, or null if the event doesn't carry a delta.
+     */
+    public String getBaseRevision() {
+        return baseRevision;
+    }
+
+    public void setBaseRevision(String baseRevision) {
+        this.baseRevision = baseRevision;
+    }
+
+    /**
+     * Get the added and changed properties.
+     *
+     * @return the added and changed properties.
+     */
+    public Properties getChangedProperties() {
+        return changedProperties;
+    }
+
+    public void setChangedProperties(Properties changedProperties) {
+        this.changedProperties = changedProperties;
+    }
+
+    /**
+     * Get the keys of the removed properties.
+     *
+     * @return the removed property keys.
+     */
+    public Set<String> getRemovedProperties() {
+        return removedProperties;
+    }
+
+    public void setRemovedProperties(Set<String> removedProperties) {
+        this.removedProperties = removedProperties;
+    }
+
+    /**
+     * Check if the event carries a delta.
+     *
+     * @return true if the event carries a delta, false if the receiving nodes have to read the cluster configuration.
+     */
+    public boolean isDelta() {
+        return baseRevision != null && changedProperties != null && removedProperties != null;
+    }
+
+    @Override
+    public void writeData(DataOutput out) throws IOException {
+        super.writeData(out);
+        CellarSerialization.write(out, type);
+        CellarSerialization.writeString(out, baseRevision);
+        CellarSerialization.write(out, changedProperties);
+        CellarSerialization.write(out, removedProperties);
+    }
+
+    @Override
+    public void readData(DataInput in) throws IOException {
+        super.readData(in);
+        type = (Integer) CellarSerialization.read(in);
+        baseRevision = CellarSerialization.readString(in);
+        changedProperties = (Properties) CellarSerialization.read(in);
+        removedProperties = CellarSerialization.readSet(in);
+    }
+
 	@Override
 	public String toString() {
 		return "ClusterConfigurationEvent [type=" + type + ", id=" + id
+				+ ", baseRevision=" + baseRevision
 				+ ", sourceNode=" + sourceNode + ", sourceGroup=" + sourceGroup
 				+ ", destination=" + destination + ", force=" + force
 				+ ", postPublish=" + postPublish + "]";
@@ -62,6 +62,12 @@ public class ConfigurationEventHandler extends ConfigurationSupport implements E
             return;
         }
 
+        // check if the local node already applied this revision of the configuration
+        if (isStale(event, Constants.CATEGORY)) {
+            LOGGER.debug("CELLAR CONFIG: discarding stale cluster event for configuration PID {} (revision {})", event.getId(), event.getRevision());
+            return;
+        }
+
         Group group = event.getSourceGroup();
         String groupName = group.getName();
 
@@ -71,17 +77,17 @@ public class ConfigurationEventHandler extends ConfigurationSupport implements E
 
         if (isAllowed(event.getSourceGroup(), Constants.CATEGORY, pid, EventType.INBOUND)) {
 
-            Properties clusterDictionary = clusterConfigurations.get(pid);
             try {
-                // update the local configuration
-                Configuration[] localConfigurations = configurationAdmin.listConfigurations("(service.pid=" + pid + ")");
                 if (event.getType() != null && event.getType() == ConfigurationEvent.CM_DELETED) {
                     // delete the configuration
+                    Configuration[] localConfigurations = configurationAdmin.listConfigurations("(service.pid=" + pid + ")");
                     if (localConfigurations != null && localConfigurations.length > 0) {
                         localConfigurations[0].delete();
                         deleteStorage(pid);
                     }
-                } else {
+                } else if (!event.isDelta() || !applyDelta(event)) {
+                    // update the local configuration from the cluster configuration
+                    Properties clusterDictionary = clusterConfigurations.get(pid);
                     if (clusterDictionary != null) {
                         Configuration localConfiguration = configurationAdmin.getConfiguration(pid, null);
                         Dictionary localDictionary = localConfiguration.getProperties();
@@ -94,18 +100,51 @@ public class ConfigurationEventHandler extends ConfigurationSupport implements E
                         }
                     }
                 }
+                applied(event, Constants.CATEGORY);
             } catch (Exception ex) {
                 LOGGER.error("CELLAR CONFIG: failed to read cluster configuration", ex);
             }
         } else LOGGER.trace("CELLAR CONFIG: configuration PID {} is marked BLOCKED INBOUND for cluster group {}", pid, groupName);
     }
 
+    /**
+     * Apply the delta carried by a cluster configuration event on the local configuration.
+     * The delta is applied only if the local configuration matches the base revision of the delta.
+     *
+     * @param event the cluster configuration event.
+     * @return true if the delta has been applied, false if the local configuration doesn't match the base revision.
+     * @throws IOException in case of configuration update failure.
+     */
+    private boolean applyDelta(ClusterConfigurationEvent event) throws IOException {
+        String pid = event.getId();
+        Configuration localConfiguration = configurationAdmin.getConfiguration(pid, null);
+        Dictionary localDictionary = filter(localConfiguration.getProperties());
+        if (!event.getBaseRevision().equals(revision(localDictionary))) {
+            LOGGER.debug("CELLAR CONFIG: configuration PID {} doesn't match the base revision of the delta, reading the cluster configuration", pid);
+            return false;
+        }
+        Properties updatedDictionary = dictionaryToProperties(localDictionary);
+        updatedDictionary.putAll(event.getChangedProperties());
+        for (String key : event.getRemovedProperties()) {
+            updatedDictionary.remove(key);
+        }
+        if (!equals(updatedDictionary, localDictionary)) {
+            localConfiguration.update((Dictionary) updatedDictionary);
+            persistConfiguration(configurationAdmin, pid, updatedDictionary);
+        }
+        return true;
+    }
+
     public void init() {
-        // nothing to do
+        if (switchRegistry != null) {
+            switchRegistry.register(eventSwitch, Configurations.HANDLER + "." + this.getClass().getName());
+        }
     }
 
     public void destroy() {
-        // nothing to do
+        if (switchRegistry != null) {
+            switchRegistry.unregister(eventSwitch);
+        }
     }
 
     /**
@@ -115,20 +154,6 @@ public class ConfigurationEventHandler extends ConfigurationSupport implements E
      */
     @Override
     public Switch getSwitch() {
-        // load the switch status from the config
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.HANDLER + "." + this.getClass().getName()));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
-            }
-        } catch (Exception e) {
-            // nothing to do
-        }
         return eventSwitch;
     }
 
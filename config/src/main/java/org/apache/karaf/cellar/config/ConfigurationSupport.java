@@ -22,6 +22,8 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 /**
@@ -89,6 +91,76 @@ public class ConfigurationSupport extends CellarSupport {
         return true;
     }
 
+    /**
+     * Compute the revision of a dictionary: a digest of its sorted keys and values.
+     * Two dictionaries with the same revision hold the same properties.
+     *
+     * @param dictionary the dictionary.
+     * @return the revision of the dictionary.
+     */
+    public String revision(Dictionary dictionary) {
+        SortedMap<String, String> entries = new TreeMap<String, String>();
+        if (dictionary != null) {
+            Enumeration keys = dictionary.keys();
+            while (keys.hasMoreElements()) {
+                Object key = keys.nextElement();
+                Object value = dictionary.get(key);
+                String valueString;
+                if (value instanceof Object[]) {
+                    valueString = Arrays.deepToString((Object[]) value);
+                } else {
+                    valueString = String.valueOf(value);
+                }
+                entries.put(String.valueOf(key), (value != null ? value.getClass().getName() : "null") + ":" + valueString);
+            }
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                digest.update(entry.getKey().getBytes("UTF-8"));
+                digest.update((byte) '=');
+                digest.update(entry.getValue().getBytes("UTF-8"));
+                digest.update((byte) '\n');
+            }
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest.digest()) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Compute the delta between a base dictionary and a target dictionary.
+     *
+     * @param base the base dictionary.
+     * @param target the target dictionary.
+     * @param changed the properties added or changed in the target dictionary.
+     * @param removed the keys of the properties removed from the target dictionary.
+     */
+    protected void delta(Dictionary base, Dictionary target, Properties changed, Set<String> removed) {
+        Enumeration targetKeys = target.keys();
+        while (targetKeys.hasMoreElements()) {
+            Object key = targetKeys.nextElement();
+            Object value = target.get(key);
+            if (value != null && !value.equals(base.get(key))) {
+                changed.put(key, value);
+            }
+        }
+        Enumeration baseKeys = base.keys();
+        while (baseKeys.hasMoreElements()) {
+            Object key = baseKeys.nextElement();
+            if (target.get(key) == null) {
+                removed.add(String.valueOf(key));
+            }
+        }
+    }
+
     /**
      * Filter a dictionary, and populate a target dictionary.
      *
@@ -19,6 +19,8 @@ import org.apache.karaf.cellar.core.Synchronizer;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
 import org.apache.karaf.cellar.core.event.EventProducer;
 import org.apache.karaf.cellar.core.event.EventType;
+import org.apache.karaf.cellar.core.sync.IncrementalSync;
+import org.apache.karaf.cellar.core.sync.MapDigest;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.service.cm.Configuration;
 import org.slf4j.Logger;
@@ -26,6 +28,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Dictionary;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -38,6 +41,8 @@ public class ConfigurationSynchronizer extends ConfigurationSupport implements S
 
     private static final transient Logger LOGGER = LoggerFactory.getLogger(ConfigurationSynchronizer.class);
 
+    private IncrementalSync incrementalSync;
+
     public ConfigurationSynchronizer() {
         // nothing to do
     }
@@ -89,15 +94,22 @@ public class ConfigurationSynchronizer extends ConfigurationSupport implements S
             String groupName = group.getName();
             LOGGER.debug("CELLAR CONFIG: pulling configurations from cluster group {}", groupName);
 
-            Map<String, Properties> clusterConfigurations = clusterManager.getMap(Constants.CONFIGURATION_MAP + Configurations.SEPARATOR + groupName);
+            String mapName = Constants.CONFIGURATION_MAP + Configurations.SEPARATOR + groupName;
+            // read the digest first, the changes done during the pull are detected by the next pull
+            MapDigest digest = clusterManager.getDigest(mapName);
+            Map<String, Properties> clusterConfigurations = clusterManager.getMap(mapName);
+            MapDigest localDigest = localDigest();
 
             ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
             try {
                 Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
 
-                for (String pid : clusterConfigurations.keySet()) {
+                boolean failed = false;
+                // only the configurations changed in the cluster or locally since the last pull
+                for (Map.Entry<String, Properties> entry : incrementalSync.entries(mapName, clusterConfigurations, digest, localDigest).entrySet()) {
+                    String pid = entry.getKey();
                     if (isAllowed(group, Constants.CATEGORY, pid, EventType.INBOUND)) {
-                        Dictionary clusterDictionary = clusterConfigurations.get(pid);
+                        Dictionary clusterDictionary = entry.getValue();
                         try {
                             // update the local configuration if needed
                             Configuration localConfiguration = configurationAdmin.getConfiguration(pid, null);
@@ -112,15 +124,45 @@ public class ConfigurationSynchronizer extends ConfigurationSupport implements S
                             }
                         } catch (IOException ex) {
                             LOGGER.error("CELLAR CONFIG: failed to read local configuration", ex);
+                            failed = true;
                         }
                     } else  LOGGER.trace("CELLAR CONFIG: configuration with PID {} is marked BLOCKED INBOUND for cluster group {}", pid, groupName);
                 }
+                if (failed || localDigest == null) {
+                    incrementalSync.reset(mapName);
+                } else {
+                    incrementalSync.synced(mapName, digest, localDigest());
+                }
             } finally {
                 Thread.currentThread().setContextClassLoader(originalClassLoader);
             }
         }
     }
 
+    /**
+     * Get the digest of the local configurations, keyed by PID as the cluster configurations.
+     *
+     * @return the digest of the local configurations, or null if they can't be read.
+     */
+    private MapDigest localDigest() {
+        Map<String, Dictionary> localConfigurations = new HashMap<String, Dictionary>();
+        try {
+            Configuration[] configurations = configurationAdmin.listConfigurations(null);
+            if (configurations != null) {
+                for (Configuration configuration : configurations) {
+                    Dictionary properties = configuration.getProperties();
+                    if (properties != null) {
+                        localConfigurations.put(configuration.getPid(), properties);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("CELLAR CONFIG: failed to read the local configurations", e);
+            return null;
+        }
+        return MapDigest.of(localConfigurations);
+    }
+
     /**
      * Push local configurations to a cluster group.
      *
@@ -184,4 +226,12 @@ public class ConfigurationSynchronizer extends ConfigurationSupport implements S
         return "disabled";
     }
 
+    public IncrementalSync getIncrementalSync() {
+        return incrementalSync;
+    }
+
+    public void setIncrementalSync(IncrementalSync incrementalSync) {
+        this.incrementalSync = incrementalSync;
+    }
+
 }
@@ -74,6 +74,7 @@ public class LocalConfigurationListener extends ConfigurationSupport implements
                                 clusterConfigurations.remove(pid);
                                 // broadcast the cluster event
                                 ClusterConfigurationEvent clusterConfigurationEvent = new ClusterConfigurationEvent(pid);
+                                clusterConfigurationEvent.setRevision(updateRevision(group, pid));
                                 clusterConfigurationEvent.setType(event.getType());
                                 clusterConfigurationEvent.setSourceNode(clusterManager.getNode());
                                 clusterConfigurationEvent.setSourceGroup(group);
@@ -95,6 +96,16 @@ public class LocalConfigurationListener extends ConfigurationSupport implements
                                 ClusterConfigurationEvent clusterConfigurationEvent = new ClusterConfigurationEvent(pid);
                                 clusterConfigurationEvent.setSourceGroup(group);
                                 clusterConfigurationEvent.setSourceNode(clusterManager.getNode());
+                                clusterConfigurationEvent.setRevision(updateRevision(group, pid));
+                                if (distributedDictionary != null) {
+                                    // only send the changed properties, the receiving nodes apply them on their local configuration
+                                    Properties changed = new Properties();
+                                    Set<String> removed = new HashSet<String>();
+                                    delta(distributedDictionary, localDictionary, changed, removed);
+                                    clusterConfigurationEvent.setBaseRevision(revision(distributedDictionary));
+                                    clusterConfigurationEvent.setChangedProperties(changed);
+                                    clusterConfigurationEvent.setRemovedProperties(removed);
+                                }
                                 eventProducer.produce(clusterConfigurationEvent);
                             }
                         }
@@ -106,6 +117,31 @@ public class LocalConfigurationListener extends ConfigurationSupport implements
         }
     }
 
+    /**
+     * Increment the revision of a configuration in a cluster group.
+     * The local node already has this revision, so its own cluster event is discarded.
+     *
+     * @param group the cluster group.
+     * @param pid the configuration PID.
+     * @return the new revision of the configuration.
+     */
+    private long updateRevision(Group group, String pid) {
+        Map<String, Long> clusterRevisions = clusterManager.getMap(Constants.CONFIGURATION_REVISION_MAP + Configurations.SEPARATOR + group.getName());
+        long revision;
+        // the other nodes may update the same configuration at the same time: each update gets its own revision
+        while (true) {
+            Long previous = clusterRevisions.get(pid);
+            revision = nextRevision(group.getName(), Constants.CATEGORY, pid, (previous != null) ? previous : 0);
+            if (compareAndSet(clusterRevisions, pid, previous, revision)) {
+                break;
+            }
+        }
+        if (revisionTracker != null) {
+            revisionTracker.applied(group.getName(), Constants.CATEGORY, pid, revision);
+        }
+        return revision;
+    }
+
     /**
      * Check if the local config listener is enabled in the etc/org.apache.karaf.cellar.groups.cfg.
      *
@@ -0,0 +1,123 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+import org.apache.karaf.cellar.core.event.EventType;
+import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.cm.ConfigurationEvent;
+import org.osgi.service.cm.ConfigurationListener;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Basic list matcher index. The lists are compiled on first use and dropped when the cluster groups configuration changes.
+ */
+public class BasicListMatcherIndex implements ListMatcherIndex, ConfigurationListener {
+
+    private final CellarSupport support = new CellarSupport();
+
+    private volatile Map<Key, ListMatcher> matchers = new ConcurrentHashMap<Key, ListMatcher>();
+
+    public void init() {
+        // nothing to do
+    }
+
+    public void destroy() {
+        invalidate();
+    }
+
+    @Override
+    public ListMatcher getMatcher(String listType, String group, String category, EventType type) {
+        if (group == null) {
+            return ListMatcher.EMPTY;
+        }
+        Map<Key, ListMatcher> current = matchers;
+        Key key = new Key(listType, group, category, type);
+        ListMatcher matcher = current.get(key);
+        if (matcher == null) {
+            Set<String> entries = support.getListEntries(listType, group, category, type);
+            matcher = (entries == null || entries.isEmpty()) ? ListMatcher.EMPTY : new ListMatcher(entries);
+            current.put(key, matcher);
+        }
+        return matcher;
+    }
+
+    @Override
+    public void invalidate() {
+        matchers = new ConcurrentHashMap<Key, ListMatcher>();
+    }
+
+    /**
+     * Drop the compiled lists when the cluster groups configuration changes.
+     *
+     * @param event the local configuration event.
+     */
+    @Override
+    public void configurationEvent(ConfigurationEvent event) {
+        if (Configurations.GROUP.equals(event.getPid())) {
+            invalidate();
+        }
+    }
+
+    public ConfigurationAdmin getConfigurationAdmin() {
+        return support.getConfigurationAdmin();
+    }
+
+    public void setConfigurationAdmin(ConfigurationAdmin configurationAdmin) {
+        support.setConfigurationAdmin(configurationAdmin);
+    }
+
+    /**
+     * Compiled list key.
+     */
+    private static class Key {
+
+        private final String listType;
+        private final String group;
+        private final String category;
+        private final EventType type;
+
+        Key(String listType, String group, String category, EventType type) {
+            this.listType = listType;
+            this.group = group;
+            this.category = category;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return equal(listType, key.listType) && equal(group, key.group) && equal(category, key.category) && type == key.type;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = listType != null ? listType.hashCode() : 0;
+            result = 31 * result + (group != null ? group.hashCode() : 0);
+            result = 31 * result + (category != null ? category.hashCode() : 0);
+            result = 31 * result + (type != null ? type.hashCode() : 0);
+            return result;
+        }
+
+        private static boolean equal(Object a, Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Basic in memory revision tracker.
+ */
+public class BasicRevisionTracker implements RevisionTracker {
+
+    private final ConcurrentMap<String, Long> revisions = new ConcurrentHashMap<String, Long>();
+    private final AtomicLong staleCount = new AtomicLong();
+
+    public void init() {
+        // nothing to do
+    }
+
+    public void destroy() {
+        revisions.clear();
+    }
+
+    @Override
+    public boolean isStale(String group, String category, String resource, long revision) {
+        if (revision <= 0) {
+            return false;
+        }
+        Long applied = revisions.get(key(group, category, resource));
+        if (applied != null && revision <= applied) {
+            staleCount.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void applied(String group, String category, String resource, long revision) {
+        if (revision <= 0) {
+            return;
+        }
+        String key = key(group, category, resource);
+        while (true) {
+            Long applied = revisions.get(key);
+            if (applied == null) {
+                if (revisions.putIfAbsent(key, revision) == null) {
+                    return;
+                }
+            } else if (applied >= revision || revisions.replace(key, applied, revision)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public long getRevision(String group, String category, String resource) {
+        Long applied = revisions.get(key(group, category, resource));
+        return (applied != null) ? applied : 0;
+    }
+
+    @Override
+    public long getStaleCount() {
+        return staleCount.get();
+    }
+
+    private String key(String group, String category, String resource) {
+        return group + Configurations.SEPARATOR + category + Configurations.SEPARATOR + resource;
+    }
+
+}
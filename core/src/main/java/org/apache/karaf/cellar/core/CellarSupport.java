@@ -13,6 +13,8 @@
  */
 package org.apache.karaf.cellar.core;
 
+import org.apache.karaf.cellar.core.control.SwitchRegistry;
+import org.apache.karaf.cellar.core.event.Event;
 import org.apache.karaf.cellar.core.event.EventType;
 import org.osgi.service.cm.Configuration;
 import org.osgi.service.cm.ConfigurationAdmin;
@@ -21,6 +23,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -34,6 +37,9 @@ public class CellarSupport {
     protected ClusterManager clusterManager;
     protected GroupManager groupManager;
     protected ConfigurationAdmin configurationAdmin;
+    protected SwitchRegistry switchRegistry;
+    protected ListMatcherIndex listMatcherIndex;
+    protected RevisionTracker revisionTracker;
 
     /**
      * If the entry is not present in the list, add it. If the entry is present in the list, remove it.
@@ -67,6 +73,9 @@ public class CellarSupport {
                 dictionary.put(key, entry);
             }
             configuration.update(dictionary);
+            if (listMatcherIndex != null) {
+                listMatcherIndex.invalidate();
+            }
         }
     }
 
@@ -163,8 +172,82 @@ public class CellarSupport {
         return result;
     }
 
+    /**
+     * Check if a cluster event describes a resource revision older or equal to the one already applied locally.
+     *
+     * @param event the cluster event.
+     * @param category the resource category name.
+     * @return true if the cluster event is stale, false else.
+     */
+    public boolean isStale(Event event, String category) {
+        return revisionTracker != null && event.getSourceGroup() != null
+                && revisionTracker.isStale(event.getSourceGroup().getName(), category, event.getId(), event.getRevision());
+    }
+
+    /**
+     * Compute the next revision of a cluster resource.
+     * The revision is greater than the previous revision of the resource and than the revision applied locally,
+     * and follows the clock so that a resource removed and created again still gets increasing revisions.
+     *
+     * @param group the cluster group name.
+     * @param category the resource category name.
+     * @param resource the resource ID.
+     * @param previous the previous revision of the resource in the cluster group (0 if unknown).
+     * @return the next revision.
+     */
+    public long nextRevision(String group, String category, String resource, long previous) {
+        long revision = previous;
+        if (revisionTracker != null) {
+            revision = Math.max(revision, revisionTracker.getRevision(group, category, resource));
+        }
+        return Math.max(revision + 1, System.currentTimeMillis());
+    }
+
+    /**
+     * Atomically update a cluster map entry if it didn't change since it has been read, so that the concurrent updates
+     * of a resource by several nodes get different revisions.
+     *
+     * @param map the cluster map.
+     * @param key the entry key.
+     * @param previous the entry value read before (null if there was no entry).
+     * @param value the new entry value (null to remove the entry).
+     * @return true if the entry has been updated, false if it changed in the meantime (read it again and retry).
+     */
+    public <K, V> boolean compareAndSet(Map<K, V> map, K key, V previous, V value) {
+        if (!(map instanceof ConcurrentMap)) {
+            // local map, no concurrent update from other nodes
+            if (value == null) {
+                map.remove(key);
+            } else {
+                map.put(key, value);
+            }
+            return true;
+        }
+        ConcurrentMap<K, V> concurrentMap = (ConcurrentMap<K, V>) map;
+        if (previous == null) {
+            return (value == null) ? !concurrentMap.containsKey(key) : concurrentMap.putIfAbsent(key, value) == null;
+        }
+        if (value == null) {
+            return concurrentMap.remove(key, previous);
+        }
+        return concurrentMap.replace(key, previous, value);
+    }
+
+    /**
+     * Record the resource revision described by a cluster event as applied locally.
+     *
+     * @param event the cluster event.
+     * @param category the resource category name.
+     */
+    public void applied(Event event, String category) {
+        if (revisionTracker != null && event.getSourceGroup() != null) {
+            revisionTracker.applied(event.getSourceGroup().getName(), category, event.getId(), event.getRevision());
+        }
+    }
+
     /**
      * Check if a resource is allowed for a type of cluster event.
+     * If a {@code ListMatcherIndex} is available, the compiled lists are used instead of reading the configuration.
      *
      * @param group the cluster group.
      * @param category the resource category name.
@@ -172,6 +255,13 @@ public class CellarSupport {
      * @param type the event type (inbound, outbound).
      */
     public Boolean isAllowed(Group group, String category, String event, EventType type) {
+        if (listMatcherIndex != null && group != null) {
+            ListMatcher whiteList = listMatcherIndex.getMatcher(Configurations.WHITELIST, group.getName(), category, type);
+            ListMatcher blackList = listMatcherIndex.getMatcher(Configurations.BLACKLIST, group.getName(), category, type);
+            // if no white listed items we assume all are accepted, and if any black listed item matches, the resource is denied.
+            return (whiteList.isEmpty() || whiteList.matches(event)) && !blackList.matches(event);
+        }
+
         Boolean result = true;
         Set<String> whiteList = getListEntries(Configurations.WHITELIST, group, category, type);
         Set<String> blackList = getListEntries(Configurations.BLACKLIST, group, category, type);
@@ -237,4 +327,28 @@ public class CellarSupport {
         this.groupManager = groupManager;
     }
 
+    public SwitchRegistry getSwitchRegistry() {
+        return switchRegistry;
+    }
+
+    public void setSwitchRegistry(SwitchRegistry switchRegistry) {
+        this.switchRegistry = switchRegistry;
+    }
+
+    public ListMatcherIndex getListMatcherIndex() {
+        return listMatcherIndex;
+    }
+
+    public void setListMatcherIndex(ListMatcherIndex listMatcherIndex) {
+        this.listMatcherIndex = listMatcherIndex;
+    }
+
+    public RevisionTracker getRevisionTracker() {
+        return revisionTracker;
+    }
+
+    public void setRevisionTracker(RevisionTracker revisionTracker) {
+        this.revisionTracker = revisionTracker;
+    }
+
 }
@@ -13,6 +13,8 @@
  */
 package org.apache.karaf.cellar.core;
 
+import org.apache.karaf.cellar.core.sync.MapDigest;
+
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +33,14 @@ public interface ClusterManager {
      */
     public Map getMap(String mapName);
 
+    /**
+     * Get the digest of a map in the cluster.
+     *
+     * @param mapName the map name in the cluster.
+     * @return the map digest, or null if the map doesn't maintain a digest or if the digest is unknown.
+     */
+    public MapDigest getDigest(String mapName);
+
     /**
      * Get a list in the cluster.
      *
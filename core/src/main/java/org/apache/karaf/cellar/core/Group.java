@@ -13,13 +13,19 @@
  */
 package org.apache.karaf.cellar.core;
 
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.CellarSerialization;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
 
 /**
  * Cellar cluster group.
  */
-public class Group implements MultiNode {
+public class Group implements MultiNode, CellarSerializable {
 
     private String name;
     private Set<Node> nodes = new HashSet<Node>();
@@ -28,6 +34,12 @@ public class Group implements MultiNode {
         this.name = name;
     }
 
+    /**
+     * Constructor used by the compact serialization.
+     */
+    protected Group() {
+    }
+
     public String getName() {
         return name;
     }
@@ -46,6 +58,19 @@ public class Group implements MultiNode {
         this.nodes = nodes;
     }
 
+    @Override
+    public void writeData(DataOutput out) throws IOException {
+        CellarSerialization.writeString(out, name);
+        CellarSerialization.write(out, nodes);
+    }
+
+    @Override
+    public void readData(DataInput in) throws IOException {
+        name = CellarSerialization.readString(in);
+        Set<Node> readNodes = CellarSerialization.readSet(in);
+        nodes = (readNodes != null) ? readNodes : new HashSet<Node>();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,165 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compiled white/black list of resources.
+ * Plain entries are matched with a hash lookup, entries ending with a single {@code *} wildcard are matched with a
+ * prefix tree. Only the other entries (wildcards in the middle, regex constructs) are compiled as regex.
+ */
+public class ListMatcher {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(ListMatcher.class);
+
+    public static final ListMatcher EMPTY = new ListMatcher(null);
+
+    private static final String REGEX_CHARS = "\\[]{}()^$?+|";
+
+    private final Set<String> literals = new HashSet<String>();
+    private final PrefixNode prefixes = new PrefixNode();
+    private final List<Pattern> patterns = new ArrayList<Pattern>();
+    private boolean matchAll = false;
+    private boolean empty = true;
+
+    public ListMatcher(Collection<String> entries) {
+        if (entries != null) {
+            for (String entry : entries) {
+                add(entry);
+            }
+        }
+    }
+
+    private void add(String entry) {
+        if (entry == null || entry.length() == 0) {
+            return;
+        }
+        empty = false;
+        int wildcard = entry.indexOf('*');
+        if (isRegex(entry)) {
+            // update the pattern to have a valid regex pattern
+            try {
+                patterns.add(Pattern.compile(entry.replace("*", ".*")));
+            } catch (PatternSyntaxException e) {
+                LOGGER.warn("CELLAR: invalid pattern {} in the cluster groups configuration", entry, e);
+            }
+        } else if (wildcard < 0) {
+            literals.add(entry);
+        } else if (wildcard == entry.length() - 1) {
+            if (wildcard == 0) {
+                matchAll = true;
+            } else {
+                prefixes.add(entry.substring(0, wildcard));
+            }
+        } else {
+            patterns.add(Pattern.compile(Pattern.quote(entry).replace("*", "\\E.*\\Q")));
+        }
+    }
+
+    private static boolean isRegex(String entry) {
+        for (int i = 0; i < entry.length(); i++) {
+            if (REGEX_CHARS.indexOf(entry.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if the list doesn't contain any entry.
+     *
+     * @return true if the list is empty, false else.
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Check if an item matches one entry of the list.
+     *
+     * @param item the item to check.
+     * @return true if the item matches one of the list entries, false else.
+     */
+    public boolean matches(String item) {
+        if (empty || item == null) {
+            return false;
+        }
+        if (matchAll || literals.contains(item) || prefixes.matches(item)) {
+            return true;
+        }
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(item).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Prefix tree node.
+     */
+    private static class PrefixNode {
+
+        private Map<Character, PrefixNode> children;
+        private boolean terminal;
+
+        void add(String prefix) {
+            PrefixNode node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                if (node.children == null) {
+                    node.children = new HashMap<Character, PrefixNode>();
+                }
+                Character c = prefix.charAt(i);
+                PrefixNode child = node.children.get(c);
+                if (child == null) {
+                    child = new PrefixNode();
+                    node.children.put(c, child);
+                }
+                node = child;
+            }
+            node.terminal = true;
+        }
+
+        boolean matches(String item) {
+            PrefixNode node = this;
+            for (int i = 0; i < item.length(); i++) {
+                if (node.terminal) {
+                    return true;
+                }
+                if (node.children == null) {
+                    return false;
+                }
+                node = node.children.get(item.charAt(i));
+                if (node == null) {
+                    return false;
+                }
+            }
+            return node.terminal;
+        }
+
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+import org.apache.karaf.cellar.core.event.EventType;
+
+/**
+ * Index of the compiled white/black lists defined in the Cellar cluster groups configuration.
+ */
+public interface ListMatcherIndex {
+
+    /**
+     * Get the compiled list of resources for a cluster group, including the entries inherited from the parent groups.
+     *
+     * @param listType the list type (whitelist, blacklist).
+     * @param group the cluster group name.
+     * @param category the resource category name.
+     * @param type the event type (inbound, outbound).
+     * @return the compiled list of resources (never null).
+     */
+    public ListMatcher getMatcher(String listType, String group, String category, EventType type);
+
+    /**
+     * Drop all compiled lists, they will be rebuilt from the cluster groups configuration on next use.
+     */
+    public void invalidate();
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+/**
+ * Registry of the revisions of the cluster resources (configurations, bundles, features) applied on the local node.
+ * The cluster events carrying a revision older or equal to the one already applied are stale and can be discarded.
+ */
+public interface RevisionTracker {
+
+    /**
+     * Check if a revision of a cluster resource is stale.
+     *
+     * @param group the cluster group name.
+     * @param category the resource category name.
+     * @param resource the resource ID.
+     * @param revision the revision to check (0 means unknown, never stale).
+     * @return true if the local node already applied this revision or a newer one, false else.
+     */
+    public boolean isStale(String group, String category, String resource, long revision);
+
+    /**
+     * Record a revision of a cluster resource as applied on the local node.
+     * An older revision than the one already recorded is ignored.
+     *
+     * @param group the cluster group name.
+     * @param category the resource category name.
+     * @param resource the resource ID.
+     * @param revision the applied revision (0 means unknown, ignored).
+     */
+    public void applied(String group, String category, String resource, long revision);
+
+    /**
+     * Get the revision of a cluster resource applied on the local node.
+     *
+     * @param group the cluster group name.
+     * @param category the resource category name.
+     * @param resource the resource ID.
+     * @return the applied revision, or 0 if unknown.
+     */
+    public long getRevision(String group, String category, String resource);
+
+    /**
+     * Get the number of stale revisions detected.
+     *
+     * @return the number of stale revisions.
+     */
+    public long getStaleCount();
+
+}
@@ -15,13 +15,25 @@ package org.apache.karaf.cellar.core.command;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Basic command store.
+ * The command timeouts are handled by a single {@link TimeoutWheel}, shared by all execution contexts.
  */
 public class BasicCommandStore implements CommandStore {
 
     private ConcurrentMap<String, Command> pending = new ConcurrentHashMap<String, Command>();
+    private final ConcurrentMap<String, TimeoutWheel.Timeout> timeouts = new ConcurrentHashMap<String, TimeoutWheel.Timeout>();
+    private final TimeoutWheel timeoutWheel = new TimeoutWheel();
+
+    private final AtomicLong commandCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    public void destroy() {
+        timeoutWheel.stop();
+        timeouts.clear();
+    }
 
     @Override
     public ConcurrentMap<String, Command> getPending() {
@@ -33,4 +45,84 @@ public class BasicCommandStore implements CommandStore {
         this.pending = pending;
     }
 
+    @Override
+    public void addPending(final Command command) {
+        final String id = command.getId();
+        pending.put(id, command);
+        commandCount.incrementAndGet();
+        final TimeoutTask task = new TimeoutTask(command, this);
+        TimeoutWheel.Timeout timeout = timeoutWheel.schedule(new Runnable() {
+            @Override
+            public void run() {
+                timeouts.remove(id);
+                if (task.expire()) {
+                    // reaching the completion policy deadline is not a timeout
+                    if (command.getExpiration() >= command.getTimeout()) {
+                        timeoutCount.incrementAndGet();
+                    }
+                    command.onTimeout();
+                }
+            }
+        }, command.getExpiration());
+        TimeoutWheel.Timeout previous = timeouts.put(id, timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    @Override
+    public Command removePending(String id) {
+        TimeoutWheel.Timeout timeout = timeouts.remove(id);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        return pending.remove(id);
+    }
+
+    /**
+     * Get the number of commands waiting for results.
+     *
+     * @return the number of pending commands.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Get the number of commands added to the store.
+     *
+     * @return the number of commands.
+     */
+    public long getCommandCount() {
+        return commandCount.get();
+    }
+
+    /**
+     * Get the number of commands expired before receiving all results.
+     *
+     * @return the number of timed out commands.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * Get the ratio of timed out commands.
+     *
+     * @return the number of timed out commands divided by the number of commands (0 if no command has been sent).
+     */
+    public double getTimeoutRate() {
+        long commands = commandCount.get();
+        return (commands > 0) ? (double) timeoutCount.get() / commands : 0;
+    }
+
+    /**
+     * Get the number of command timeouts scheduled in the timeout wheel.
+     *
+     * @return the number of scheduled timeouts.
+     */
+    public int getScheduledTimeouts() {
+        return timeoutWheel.getPendingCount();
+    }
+
 }
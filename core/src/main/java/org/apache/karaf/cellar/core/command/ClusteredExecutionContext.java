@@ -19,20 +19,16 @@ import org.apache.karaf.cellar.core.exception.ProducerNotFoundException;
 import org.apache.karaf.cellar.core.exception.StoreNotFoundException;
 
 import java.util.Map;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Clustered execution context.
+ * The command timeouts are handled by the command store.
  */
 public class ClusteredExecutionContext implements ExecutionContext {
 
     private Producer producer;
     private CommandStore commandStore;
 
-    private ScheduledExecutorService timeoutScheduler = new ScheduledThreadPoolExecutor(10);
-
     public ClusteredExecutionContext() {
         // nothing to do
     }
@@ -47,19 +43,58 @@ public class ClusteredExecutionContext implements ExecutionContext {
         if (command == null) {
             throw new StoreNotFoundException("Command store not found");
         } else {
-            commandStore.getPending().put(command.getId(), command);
-            TimeoutTask timeoutTask = new TimeoutTask(command, commandStore);
-            timeoutScheduler.schedule(timeoutTask, command.getTimeout(), TimeUnit.MILLISECONDS);
+            commandStore.addPending(command);
         }
 
         if (producer != null) {
-            producer.produce(command);
-            return command.getResult();
+            try {
+                producer.produce(command);
+            } catch (RuntimeException e) {
+                commandStore.removePending(command.getId());
+                throw e;
+            }
+            Map<Node, R> results = command.getResult();
+            if (results != null) {
+                // the results are there, no need to wait for the command timeout
+                commandStore.removePending(command.getId());
+            }
+            return results;
         } else {
+            commandStore.removePending(command.getId());
             throw new ProducerNotFoundException("Command producer not found");
         }
     }
 
+    @Override
+    public <R extends Result, C extends Command<R>> CommandFuture<R> executeAsync(final C command) throws StoreNotFoundException, ProducerNotFoundException {
+        if (command == null) {
+            throw new StoreNotFoundException("Command store not found");
+        }
+        if (producer == null) {
+            throw new ProducerNotFoundException("Command producer not found");
+        }
+        CommandFuture<R> future = command.getFuture();
+        // the command leaves the store as soon as it's completed, the timeout is handled by the store
+        future.addCallback(new CommandCallback<R>() {
+            @Override
+            public void onResults(Map<Node, R> results) {
+                commandStore.removePending(command.getId());
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                commandStore.removePending(command.getId());
+            }
+        });
+        commandStore.addPending(command);
+        try {
+            producer.produce(command);
+        } catch (RuntimeException e) {
+            future.fail(e);
+        }
+        return future;
+    }
+
     public Producer getProducer() {
         return producer;
     }
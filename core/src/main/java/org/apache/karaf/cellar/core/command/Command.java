@@ -18,6 +18,9 @@ import org.apache.karaf.cellar.core.event.Event;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
@@ -26,6 +29,8 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * Command.
+ * The command is complete when its {@link CompletionPolicy} is satisfied (by default, when all destination nodes
+ * answered), or when its timeout expires.
  */
 public class Command<R extends Result> extends Event {
 
@@ -34,12 +39,23 @@ public class Command<R extends Result> extends Event {
     protected long timeout = 10000;
     protected final BlockingQueue<Map<Node, R>> resultQueue = new LinkedBlockingQueue<Map<Node, R>>();
     protected final Map<Node, R> nodeResults = new HashMap<Node, R>();
+    protected transient CommandFuture<R> future;
+    protected transient CompletionPolicy completionPolicy;
+    protected transient ResultListener<R> resultListener;
+    protected transient boolean completed;
 
     public Command(String id) {
         super(id);
         this.force = true;
     }
 
+    /**
+     * Constructor used by the compact serialization.
+     */
+    protected Command() {
+        this.force = true;
+    }
+
     @Override
     public Boolean getForce() {
         return true;
@@ -49,10 +65,8 @@ public class Command<R extends Result> extends Event {
      * Process the event of timeout.
      */
     public void onTimeout() {
-        try {
-            resultQueue.put(nodeResults);
-        } catch (InterruptedException e) {
-            LOGGER.error("Error adding result to result queue", e);
+        synchronized (nodeResults) {
+            complete();
         }
     }
 
@@ -63,20 +77,42 @@ public class Command<R extends Result> extends Event {
      */
     public void addResults(R... results) {
         if (results != null && results.length > 0) {
-            for (R result : results) {
-                nodeResults.put(result.getSourceNode(), result);
-            }
+            synchronized (nodeResults) {
+                for (R result : results) {
+                    if (resultListener != null) {
+                        try {
+                            resultListener.onResult(result);
+                        } catch (Exception e) {
+                            LOGGER.warn("Error notifying result listener", e);
+                        }
+                    }
+                    // the results of a completed command have been delivered, they don't change anymore
+                    if (!completed) {
+                        nodeResults.put(result.getSourceNode(), result);
+                    }
+                }
 
-            if (getDestination() == null || (nodeResults.size() == getDestination().size())) {
-                try {
-                    resultQueue.put(nodeResults);
-                } catch (InterruptedException e) {
-                    LOGGER.error("Error adding result to result queue", e);
+                if (!completed && getCompletionPolicy().isComplete(nodeResults.size(), getDestination())) {
+                    complete();
                 }
             }
         }
     }
 
+    private void complete() {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        Map<Node, R> results = new HashMap<Node, R>(nodeResults);
+        try {
+            resultQueue.put(results);
+        } catch (InterruptedException e) {
+            LOGGER.error("Error adding result to result queue", e);
+        }
+        getFuture().complete(results);
+    }
+
     /**
      * Return the responses.
      * If no result is found, it returns an empty map.
@@ -92,6 +128,55 @@ public class Command<R extends Result> extends Event {
         return nodeResults;
     }
 
+    /**
+     * Get the future completed when the results arrive or when the command times out.
+     *
+     * @return the command future.
+     */
+    public synchronized CommandFuture<R> getFuture() {
+        if (future == null) {
+            future = new CommandFuture<R>();
+        }
+        return future;
+    }
+
+    public CompletionPolicy getCompletionPolicy() {
+        return (completionPolicy != null) ? completionPolicy : CompletionPolicy.ALL;
+    }
+
+    /**
+     * Set the policy deciding when the command is complete.
+     *
+     * @param completionPolicy the completion policy.
+     */
+    public void setCompletionPolicy(CompletionPolicy completionPolicy) {
+        this.completionPolicy = completionPolicy;
+    }
+
+    public ResultListener<R> getResultListener() {
+        return resultListener;
+    }
+
+    /**
+     * Set a listener notified of each result, as soon as it is received.
+     *
+     * @param resultListener the result listener.
+     */
+    public void setResultListener(ResultListener<R> resultListener) {
+        this.resultListener = resultListener;
+    }
+
+    /**
+     * Get the delay after which the command completes with the results received so far: the completion
+     * policy deadline if any, else the command timeout.
+     *
+     * @return the expiration delay (in milliseconds).
+     */
+    public long getExpiration() {
+        long deadline = getCompletionPolicy().getDeadline();
+        return (deadline >= 0 && deadline < timeout) ? deadline : timeout;
+    }
+
     public long getTimeout() {
         return timeout;
     }
@@ -100,4 +185,16 @@ public class Command<R extends Result> extends Event {
         this.timeout = timeout;
     }
 
+    @Override
+    public void writeData(DataOutput out) throws IOException {
+        super.writeData(out);
+        out.writeLong(timeout);
+    }
+
+    @Override
+    public void readData(DataInput in) throws IOException {
+        super.readData(in);
+        timeout = in.readLong();
+    }
+
 }
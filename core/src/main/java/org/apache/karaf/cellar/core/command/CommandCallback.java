@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.command;
+
+import org.apache.karaf.cellar.core.Node;
+
+import java.util.Map;
+
+/**
+ * Callback notified when a command completes.
+ */
+public interface CommandCallback<R extends Result> {
+
+    /**
+     * Called when all results have been received, or when the command timeout expired.
+     *
+     * @param results the results by node (partial if the command timed out).
+     */
+    public void onResults(Map<Node, R> results);
+
+    /**
+     * Called when the command can't be executed.
+     *
+     * @param cause the failure cause.
+     */
+    public void onFailure(Throwable cause);
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.command;
+
+import org.apache.karaf.cellar.core.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Future result of an asynchronous command execution.
+ * The future is completed when the results arrive or when the command times out, and notifies the registered
+ * {@link CommandCallback}s, so the caller doesn't have to block a thread waiting for the results.
+ */
+public class CommandFuture<R extends Result> implements Future<Map<Node, R>> {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(CommandFuture.class);
+
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final List<CommandCallback<R>> callbacks = new ArrayList<CommandCallback<R>>();
+
+    private Map<Node, R> results;
+    private Throwable failure;
+    private boolean completed;
+    private boolean cancelled;
+
+    /**
+     * Complete the future with the command results.
+     *
+     * @param results the results by node.
+     * @return true if the future has been completed by this call, false if it was already completed.
+     */
+    public boolean complete(Map<Node, R> results) {
+        List<CommandCallback<R>> toNotify;
+        synchronized (this) {
+            if (completed) {
+                return false;
+            }
+            this.results = results;
+            completed = true;
+            toNotify = new ArrayList<CommandCallback<R>>(callbacks);
+            callbacks.clear();
+        }
+        done.countDown();
+        for (CommandCallback<R> callback : toNotify) {
+            notifyResults(callback, results);
+        }
+        return true;
+    }
+
+    /**
+     * Complete the future with a failure.
+     *
+     * @param cause the failure cause.
+     * @return true if the future has been completed by this call, false if it was already completed.
+     */
+    public boolean fail(Throwable cause) {
+        return fail(cause, false);
+    }
+
+    /**
+     * Register a callback, notified when the future completes.
+     * If the future is already completed, the callback is notified immediately in the calling thread.
+     *
+     * @param callback the callback.
+     */
+    public void addCallback(CommandCallback<R> callback) {
+        Map<Node, R> currentResults;
+        Throwable currentFailure;
+        synchronized (this) {
+            if (!completed) {
+                callbacks.add(callback);
+                return;
+            }
+            currentResults = results;
+            currentFailure = failure;
+        }
+        if (currentFailure != null) {
+            notifyFailure(callback, currentFailure);
+        } else {
+            notifyResults(callback, currentResults);
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return fail(new CancellationException("Command cancelled"), true);
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return completed;
+    }
+
+    @Override
+    public Map<Node, R> get() throws InterruptedException, ExecutionException {
+        done.await();
+        return getNow();
+    }
+
+    @Override
+    public Map<Node, R> get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException("Command results not received within " + unit.toMillis(timeout) + "ms");
+        }
+        return getNow();
+    }
+
+    private synchronized Map<Node, R> getNow() throws ExecutionException {
+        if (cancelled) {
+            throw (CancellationException) failure;
+        }
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return results;
+    }
+
+    private boolean fail(Throwable cause, boolean cancel) {
+        List<CommandCallback<R>> toNotify;
+        synchronized (this) {
+            if (completed) {
+                return false;
+            }
+            this.failure = cause;
+            this.cancelled = cancel;
+            completed = true;
+            toNotify = new ArrayList<CommandCallback<R>>(callbacks);
+            callbacks.clear();
+        }
+        done.countDown();
+        for (CommandCallback<R> callback : toNotify) {
+            notifyFailure(callback, cause);
+        }
+        return true;
+    }
+
+    private void notifyResults(CommandCallback<R> callback, Map<Node, R> results) {
+        try {
+            callback.onResults(results);
+        } catch (Exception e) {
+            LOGGER.warn("CELLAR: command callback failed", e);
+        }
+    }
+
+    private void notifyFailure(CommandCallback<R> callback, Throwable cause) {
+        try {
+            callback.onFailure(cause);
+        } catch (Exception e) {
+            LOGGER.warn("CELLAR: command callback failed", e);
+        }
+    }
+
+}
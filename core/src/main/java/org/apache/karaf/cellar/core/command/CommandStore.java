@@ -24,4 +24,19 @@ public interface CommandStore {
 
     public void setPending(ConcurrentMap<String, Command> pending);
 
+    /**
+     * Add a pending command. The command is removed from the store when its timeout (or completion deadline) expires.
+     *
+     * @param command the command waiting for results.
+     */
+    public void addPending(Command command);
+
+    /**
+     * Remove a pending command, and cancel its timeout.
+     *
+     * @param id the command ID.
+     * @return the removed command, or null if the command is not pending.
+     */
+    public Command removePending(String id);
+
 }
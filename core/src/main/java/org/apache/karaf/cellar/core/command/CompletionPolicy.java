@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.command;
+
+import org.apache.karaf.cellar.core.Node;
+
+import java.util.Set;
+
+/**
+ * Policy deciding when a {@link Command} is complete, depending of the results received so far.
+ * When the command timeout (or the policy deadline) expires first, the command completes with the partial results.
+ */
+public abstract class CompletionPolicy {
+
+    /**
+     * Wait for a result from each destination node. Without destination, the first result completes the command.
+     */
+    public static final CompletionPolicy ALL = new CompletionPolicy() {
+        @Override
+        public boolean isComplete(int results, Set<Node> destination) {
+            return destination == null || results >= destination.size();
+        }
+
+        @Override
+        public String toString() {
+            return "all";
+        }
+    };
+
+    /**
+     * Wait for a result from a majority of the destination nodes. Without destination, the first result
+     * completes the command.
+     */
+    public static final CompletionPolicy QUORUM = new CompletionPolicy() {
+        @Override
+        public boolean isComplete(int results, Set<Node> destination) {
+            return destination == null || results >= destination.size() / 2 + 1;
+        }
+
+        @Override
+        public String toString() {
+            return "quorum";
+        }
+    };
+
+    /**
+     * Check if the command is complete.
+     *
+     * @param results the number of results received.
+     * @param destination the command destination nodes (null if the command is sent to all nodes).
+     * @return true if the command is complete, false to wait for more results.
+     */
+    public abstract boolean isComplete(int results, Set<Node> destination);
+
+    /**
+     * Get the delay after which the command completes with the results received so far.
+     *
+     * @return the deadline (in milliseconds), or -1 to wait up to the command timeout.
+     */
+    public long getDeadline() {
+        return -1;
+    }
+
+    /**
+     * Wait for the first results.
+     *
+     * @param count the number of results to wait for.
+     * @return the completion policy.
+     */
+    public static CompletionPolicy firstN(final int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("The number of results must be positive");
+        }
+        return new CompletionPolicy() {
+            @Override
+            public boolean isComplete(int results, Set<Node> destination) {
+                return results >= count || (destination != null && results >= destination.size());
+            }
+
+            @Override
+            public String toString() {
+                return "first-" + count;
+            }
+        };
+    }
+
+    /**
+     * Wait for a result from each destination node, but no longer than the deadline: when the deadline expires,
+     * the command completes with the results received so far.
+     *
+     * @param deadline the deadline (in milliseconds).
+     * @return the completion policy.
+     */
+    public static CompletionPolicy deadline(final long deadline) {
+        return new CompletionPolicy() {
+            @Override
+            public boolean isComplete(int results, Set<Node> destination) {
+                return destination != null && results >= destination.size();
+            }
+
+            @Override
+            public long getDeadline() {
+                return deadline;
+            }
+
+            @Override
+            public String toString() {
+                return "deadline-" + deadline + "ms";
+            }
+        };
+    }
+
+}
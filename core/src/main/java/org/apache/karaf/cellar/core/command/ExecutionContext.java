@@ -33,4 +33,16 @@ public interface ExecutionContext {
      */
     public <R extends Result, C extends Command<R>> Map<Node, R> execute(C command) throws Exception;
 
+    /**
+     * Execute {@link Command} without waiting for the {@link Result}s.
+     * The returned future is completed when the results arrive or when the command times out.
+     *
+     * @param command the command to execute.
+     * @param <R> the result type.
+     * @param <C> the command type.
+     * @return the future results.
+     * @throws Exception in case of execution failure.
+     */
+    public <R extends Result, C extends Command<R>> CommandFuture<R> executeAsync(C command) throws Exception;
+
 }
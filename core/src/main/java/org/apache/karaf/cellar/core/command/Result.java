@@ -15,6 +15,10 @@ package org.apache.karaf.cellar.core.command;
 
 import org.apache.karaf.cellar.core.event.Event;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Result event.
  */
@@ -25,9 +29,26 @@ public class Result extends Event {
         this.force = true;
     }
 
+    /**
+     * Constructor used by the compact serialization.
+     */
+    protected Result() {
+        this.force = true;
+    }
+
     @Override
     public Boolean getForce() {
         return true;
     }
 
+    @Override
+    public void writeData(DataOutput out) throws IOException {
+        super.writeData(out);
+    }
+
+    @Override
+    public void readData(DataInput in) throws IOException {
+        super.readData(in);
+    }
+
 }
@@ -28,14 +28,22 @@ public class TimeoutTask implements Runnable {
 
     /**
      * Runs the timeout task.
+     * If the command is still pending, it's removed from the store and notified of the timeout.
      */
     @Override
     public void run() {
-        // check if command is still pending
-        Boolean pending = store.getPending().containsKey(command);
-        if (pending) {
-            store.getPending().remove(command);
+        if (expire()) {
+            command.onTimeout();
         }
     }
 
+    /**
+     * Remove the command from the store if it's still pending.
+     *
+     * @return true if the command was still pending, false else.
+     */
+    public boolean expire() {
+        return store.getPending().remove(command.getId(), command);
+    }
+
 }
@@ -0,0 +1,268 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.command;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed wheel timer used to expire the pending commands.
+ * A single thread moves along a wheel of time slots, one slot per tick, and runs the expired tasks of the slot.
+ * Scheduling and cancelling a task are O(1) and don't require a thread per task or per execution context.
+ * The timeout precision is the tick duration.
+ */
+public class TimeoutWheel {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(TimeoutWheel.class);
+
+    private static final int INIT = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final long tickDuration;
+    private final List<Set<Timeout>> wheel;
+    private final int mask;
+
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<Timeout>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<Timeout>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private volatile Thread worker;
+    private volatile long startTime;
+    private volatile long tick;
+
+    /**
+     * Create a timeout wheel with a tick of 100ms and 512 slots.
+     */
+    public TimeoutWheel() {
+        this(100, 512);
+    }
+
+    /**
+     * Create a timeout wheel.
+     *
+     * @param tickDuration the duration of a tick (in milliseconds).
+     * @param slots the number of slots in the wheel (rounded to the next power of two).
+     */
+    public TimeoutWheel(long tickDuration, int slots) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        int size = 1;
+        while (size < slots) {
+            size <<= 1;
+        }
+        this.tickDuration = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+        this.mask = size - 1;
+        this.wheel = new ArrayList<Set<Timeout>>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new HashSet<Timeout>());
+        }
+    }
+
+    /**
+     * Schedule a task.
+     *
+     * @param task the task to run when the delay expires.
+     * @param delay the delay (in milliseconds).
+     * @return the scheduled timeout, which can be cancelled.
+     */
+    public Timeout schedule(Runnable task, long delay) {
+        start();
+        Timeout timeout = new Timeout(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(delay, 0)));
+        pending.incrementAndGet();
+        added.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Get the number of scheduled tasks, not yet expired or cancelled.
+     *
+     * @return the number of pending tasks.
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Stop the wheel. The pending tasks are not run.
+     */
+    public synchronized void stop() {
+        Thread thread = worker;
+        worker = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private synchronized void start() {
+        if (worker == null) {
+            startTime = System.nanoTime();
+            tick = 0;
+            worker = new Thread(new Worker(), "cellar-timeout-wheel");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            while (isRunning()) {
+                if (!waitForNextTick()) {
+                    break;
+                }
+                removeCancelled();
+                transferAdded();
+                expire(wheel.get((int) (tick & mask)));
+                tick++;
+            }
+        }
+
+        private boolean isRunning() {
+            return worker == Thread.currentThread();
+        }
+
+        private boolean waitForNextTick() {
+            long deadline = startTime + (tick + 1) * tickDuration;
+            for (; ; ) {
+                long sleep = deadline - System.nanoTime();
+                if (sleep <= 0) {
+                    return true;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (!isRunning()) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        private void removeCancelled() {
+            Timeout timeout;
+            while ((timeout = cancelled.poll()) != null) {
+                if (timeout.bucket != null) {
+                    timeout.bucket.remove(timeout);
+                    timeout.bucket = null;
+                }
+            }
+        }
+
+        private void transferAdded() {
+            Timeout timeout;
+            while ((timeout = added.poll()) != null) {
+                if (timeout.state.get() != INIT) {
+                    continue;
+                }
+                long ticks = (timeout.deadline - startTime) / tickDuration;
+                timeout.rounds = (ticks - tick) / wheel.size();
+                // a deadline in the past expires on the current tick
+                long slot = Math.max(ticks, tick) & mask;
+                timeout.bucket = wheel.get((int) slot);
+                timeout.bucket.add(timeout);
+            }
+        }
+
+        private void expire(Set<Timeout> bucket) {
+            Iterator<Timeout> iterator = bucket.iterator();
+            List<Timeout> expired = null;
+            while (iterator.hasNext()) {
+                Timeout timeout = iterator.next();
+                if (timeout.rounds <= 0) {
+                    iterator.remove();
+                    timeout.bucket = null;
+                    if (expired == null) {
+                        expired = new ArrayList<Timeout>();
+                    }
+                    expired.add(timeout);
+                } else {
+                    timeout.rounds--;
+                }
+            }
+            if (expired != null) {
+                for (Timeout timeout : expired) {
+                    timeout.expire();
+                }
+            }
+        }
+
+    }
+
+    /**
+     * A task scheduled in the wheel.
+     */
+    public class Timeout {
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(INIT);
+
+        // only accessed by the worker thread
+        private long rounds;
+        private Set<Timeout> bucket;
+
+        Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancel the task if it's not yet expired.
+         *
+         * @return true if the task has been cancelled, false if it's already expired or cancelled.
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(INIT, CANCELLED)) {
+                pending.decrementAndGet();
+                cancelled.add(this);
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private void expire() {
+            if (state.compareAndSet(INIT, EXPIRED)) {
+                pending.decrementAndGet();
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    LOGGER.warn("CELLAR: timeout task failed", t);
+                }
+            }
+        }
+
+    }
+
+}
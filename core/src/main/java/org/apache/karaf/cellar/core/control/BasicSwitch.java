@@ -18,7 +18,7 @@ package org.apache.karaf.cellar.core.control;
  */
 public class BasicSwitch implements Switch {
 
-    private SwitchStatus status = SwitchStatus.ON;
+    private volatile SwitchStatus status = SwitchStatus.ON;
     private String name;
 
     public BasicSwitch(String name) {
@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.control;
+
+import org.apache.karaf.cellar.core.Configurations;
+import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.cm.ConfigurationEvent;
+import org.osgi.service.cm.ConfigurationListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Dictionary;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Basic switch registry, backed by the node configuration.
+ * The switch status is loaded when the switch is registered and refreshed each time the
+ * {@code org.apache.karaf.cellar.node} configuration changes.
+ */
+public class BasicSwitchRegistry implements SwitchRegistry, ConfigurationListener {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(BasicSwitchRegistry.class);
+
+    private final Map<Switch, String> switches = new ConcurrentHashMap<Switch, String>();
+
+    private ConfigurationAdmin configurationAdmin;
+
+    public void init() {
+        refresh();
+    }
+
+    public void destroy() {
+        switches.clear();
+    }
+
+    @Override
+    public Switch register(Switch eventSwitch, String property) {
+        switches.put(eventSwitch, property);
+        load(eventSwitch, property, getNodeProperties());
+        return eventSwitch;
+    }
+
+    @Override
+    public void unregister(Switch eventSwitch) {
+        switches.remove(eventSwitch);
+    }
+
+    @Override
+    public Switch getSwitch(String id) {
+        for (Switch eventSwitch : switches.keySet()) {
+            if (eventSwitch.getName().equals(id)) {
+                return eventSwitch;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public SwitchStatus getStatus(String id) {
+        Switch eventSwitch = getSwitch(id);
+        if (eventSwitch != null) {
+            return eventSwitch.getStatus();
+        }
+        return null;
+    }
+
+    /**
+     * Reload all registered switches when the node configuration changes.
+     *
+     * @param event the local configuration event.
+     */
+    @Override
+    public void configurationEvent(ConfigurationEvent event) {
+        if (Configurations.NODE.equals(event.getPid())) {
+            refresh();
+        }
+    }
+
+    @Override
+    public void refresh() {
+        Dictionary nodeProperties = getNodeProperties();
+        for (Map.Entry<Switch, String> entry : switches.entrySet()) {
+            load(entry.getKey(), entry.getValue(), nodeProperties);
+        }
+    }
+
+    private void load(Switch eventSwitch, String property, Dictionary nodeProperties) {
+        if (nodeProperties == null) {
+            return;
+        }
+        Object value = nodeProperties.get(property);
+        if (value != null && Boolean.parseBoolean(value.toString())) {
+            eventSwitch.turnOn();
+        } else {
+            eventSwitch.turnOff();
+        }
+    }
+
+    private Dictionary getNodeProperties() {
+        if (configurationAdmin == null) {
+            return null;
+        }
+        try {
+            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
+            if (configuration != null) {
+                return configuration.getProperties();
+            }
+        } catch (Exception e) {
+            LOGGER.warn("CELLAR: can't load the switches status from the node configuration", e);
+        }
+        return null;
+    }
+
+    public ConfigurationAdmin getConfigurationAdmin() {
+        return configurationAdmin;
+    }
+
+    public void setConfigurationAdmin(ConfigurationAdmin configurationAdmin) {
+        this.configurationAdmin = configurationAdmin;
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.control;
+
+/**
+ * Registry of the {@code Switch}es of the local node.
+ * The registry keeps the status of the switches in sync with the node configuration, so that
+ * producers, consumers and handlers don't have to look up the configuration for each cluster event.
+ */
+public interface SwitchRegistry {
+
+    /**
+     * Register a switch, bound to a property of the node configuration.
+     *
+     * @param eventSwitch the switch to register.
+     * @param property the node configuration property holding the switch status.
+     * @return the registered switch, with the status loaded from the node configuration.
+     */
+    public Switch register(Switch eventSwitch, String property);
+
+    /**
+     * Unregister a switch.
+     *
+     * @param eventSwitch the switch to unregister.
+     */
+    public void unregister(Switch eventSwitch);
+
+    /**
+     * Get a registered switch. If several switches share the same ID, the first one found is returned.
+     *
+     * @param id the switch ID.
+     * @return the switch or null if the switch is not registered.
+     */
+    public Switch getSwitch(String id);
+
+    /**
+     * Get the current status of a registered switch.
+     *
+     * @param id the switch ID.
+     * @return the switch status or null if the switch is not registered.
+     */
+    public SwitchStatus getStatus(String id);
+
+    /**
+     * Reload the status of all registered switches from the node configuration.
+     */
+    public void refresh();
+
+}
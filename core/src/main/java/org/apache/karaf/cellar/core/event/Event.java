@@ -16,14 +16,19 @@ package org.apache.karaf.cellar.core.event;
 import org.apache.karaf.cellar.core.Group;
 import org.apache.karaf.cellar.core.Node;
 
-import java.io.Serializable;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.CellarSerialization;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Set;
 
 /**
  * This class represents an event that is broad-casted to the cluster.
  * The event is always generated by a single node (source) but can have none or multiple destinations.
  */
-public class Event implements Serializable {
+public class Event implements CellarSerializable {
 
     protected String id;
     protected Node sourceNode;
@@ -31,11 +36,18 @@ public class Event implements Serializable {
     protected Set<Node> destination;
     protected Boolean force = Boolean.FALSE;
     protected Boolean postPublish = Boolean.FALSE;
+    protected long revision;
 
     public Event(String id) {
         this.id = id;
     }
 
+    /**
+     * Constructor used by the compact serialization.
+     */
+    protected Event() {
+    }
+
     public String getId() {
         return id;
     }
@@ -44,6 +56,17 @@ public class Event implements Serializable {
         this.id = id;
     }
 
+    /**
+     * Get the routing key of the cluster event.
+     * The cluster events sharing the same routing key are handled in order, one at a time. The cluster events
+     * without routing key (default) are handled concurrently, without ordering guarantee.
+     *
+     * @return the routing key, or null if the cluster event doesn't require ordering.
+     */
+    public String getRoutingKey() {
+        return null;
+    }
+
     public Node getSourceNode() {
         return sourceNode;
     }
@@ -84,4 +107,39 @@ public class Event implements Serializable {
         this.postPublish = postPublish;
     }
 
+    /**
+     * Get the revision of the cluster resource described by the event.
+     *
+     * @return the resource revision, or 0 if unknown.
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    @Override
+    public void writeData(DataOutput out) throws IOException {
+        CellarSerialization.writeString(out, id);
+        CellarSerialization.write(out, sourceNode);
+        CellarSerialization.write(out, sourceGroup);
+        CellarSerialization.write(out, destination);
+        CellarSerialization.writeBoolean(out, force);
+        CellarSerialization.writeBoolean(out, postPublish);
+        out.writeLong(revision);
+    }
+
+    @Override
+    public void readData(DataInput in) throws IOException {
+        id = CellarSerialization.readString(in);
+        sourceNode = (Node) CellarSerialization.read(in);
+        sourceGroup = (Group) CellarSerialization.read(in);
+        destination = CellarSerialization.readSet(in);
+        force = CellarSerialization.readBoolean(in);
+        postPublish = CellarSerialization.readBoolean(in);
+        revision = in.readLong();
+    }
+
 }
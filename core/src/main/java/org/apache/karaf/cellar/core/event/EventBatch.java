@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.apache.karaf.cellar.core.serialization.CellarSerialization;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Envelope carrying several cluster {@code Event}s in a single cluster message.
+ * The consumers unpack the envelope and dispatch the cluster events individually, in order.
+ */
+public class EventBatch extends Event {
+
+    private List<Event> events;
+
+    public EventBatch(List<Event> events) {
+        super(UUID.randomUUID().toString());
+        this.events = new ArrayList<Event>(events);
+    }
+
+    /**
+     * Constructor used by the compact serialization.
+     */
+    protected EventBatch() {
+    }
+
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    public int size() {
+        return events.size();
+    }
+
+    @Override
+    public void writeData(DataOutput out) throws IOException {
+        super.writeData(out);
+        CellarSerialization.write(out, events);
+    }
+
+    @Override
+    public void readData(DataInput in) throws IOException {
+        super.readData(in);
+        events = CellarSerialization.readList(in);
+    }
+
+    @Override
+    public String toString() {
+        return "EventBatch [id=" + id + ", size=" + events.size() + "]";
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.command.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces the cluster {@code Event}s produced within a time window into a single {@link EventBatch}.
+ * A batch is published when it reaches the max size, or when the time window since the first pending
+ * cluster event expires. Commands and results are never batched: the pending batch is published first,
+ * and the command or result right after, so the publication order is preserved.
+ */
+public class EventBatcher {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(EventBatcher.class);
+
+    /**
+     * Publishes a cluster event (or a batch of cluster events) to the cluster.
+     */
+    public interface Publisher {
+
+        public void publish(Event event);
+
+    }
+
+    private final int maxSize;
+    private final long window;
+    private final Publisher publisher;
+    private final ScheduledExecutorService scheduler;
+
+    private List<Event> pending = new ArrayList<Event>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    private final AtomicLong eventCount = new AtomicLong();
+    private final AtomicLong messageCount = new AtomicLong();
+
+    /**
+     * Create a cluster event batcher.
+     *
+     * @param maxSize the max number of cluster events in a batch.
+     * @param window the max time (in milliseconds) a cluster event waits before the batch is published.
+     * @param publisher the publisher of the batches.
+     */
+    public EventBatcher(int maxSize, long window, Publisher publisher) {
+        this.maxSize = maxSize;
+        this.window = window;
+        this.publisher = publisher;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "cellar-event-batcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Add a cluster event to the current batch.
+     *
+     * @param event the cluster event.
+     */
+    public synchronized void add(Event event) {
+        eventCount.incrementAndGet();
+        if (!isBatchable(event)) {
+            flush();
+            send(event);
+            return;
+        }
+        pending.add(event);
+        if (pending.size() >= maxSize) {
+            flush();
+        } else if (scheduledFlush == null) {
+            scheduledFlush = scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        flush();
+                    } catch (Exception e) {
+                        LOGGER.error("CELLAR: failed to publish cluster event batch", e);
+                    }
+                }
+            }, window, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Publish the pending cluster events.
+     */
+    public synchronized void flush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Event> events = pending;
+        pending = new ArrayList<Event>();
+        if (events.size() == 1) {
+            send(events.get(0));
+        } else {
+            EventBatch batch = new EventBatch(events);
+            batch.setSourceNode(events.get(0).getSourceNode());
+            send(batch);
+        }
+    }
+
+    /**
+     * Publish the pending cluster events and stop the batcher.
+     */
+    public void close() {
+        try {
+            flush();
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Get the number of cluster events added to the batcher.
+     *
+     * @return the number of cluster events.
+     */
+    public long getEventCount() {
+        return eventCount.get();
+    }
+
+    /**
+     * Get the number of cluster messages actually published (single cluster events or batches).
+     *
+     * @return the number of cluster messages.
+     */
+    public long getMessageCount() {
+        return messageCount.get();
+    }
+
+    private void send(Event event) {
+        messageCount.incrementAndGet();
+        publisher.publish(event);
+    }
+
+    private boolean isBatchable(Event event) {
+        return !(event instanceof Command) && !(event instanceof Result) && !(event instanceof EventBatch);
+    }
+
+}
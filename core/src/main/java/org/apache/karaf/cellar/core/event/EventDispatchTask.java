@@ -72,6 +72,10 @@ public class EventDispatchTask<E extends Event> implements Runnable {
         }
     }
 
+    public E getEvent() {
+        return event;
+    }
+
     public long getTimeout() {
         return timeout;
     }
@@ -88,4 +92,12 @@ public class EventDispatchTask<E extends Event> implements Runnable {
         this.interval = interval;
     }
 
+    @Override
+    public String toString() {
+        if (event == null) {
+            return super.toString();
+        }
+        return event.getClass().getName() + " (" + event.getId() + ")";
+    }
+
 }
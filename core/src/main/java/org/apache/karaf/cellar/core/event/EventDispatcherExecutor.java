@@ -0,0 +1,294 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.command.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded thread pool used to dispatch the cluster events, with a configurable {@link SaturationPolicy}.
+ * It keeps track of the rejected and dropped cluster events, and of the dispatch latency (time spent in the
+ * queue plus handling time).
+ */
+public class EventDispatcherExecutor extends ThreadPoolExecutor {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(EventDispatcherExecutor.class);
+
+    private final SaturationPolicy saturationPolicy;
+    private final long blockTimeout;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong latencyCount = new AtomicLong();
+    private final AtomicLong latencyTotal = new AtomicLong();
+    private final AtomicLong latencyMax = new AtomicLong();
+
+    /**
+     * Create a cluster event dispatcher thread pool.
+     *
+     * @param threads the max number of dispatcher threads.
+     * @param queueSize the max number of cluster events waiting for a dispatcher thread.
+     * @param saturationPolicy the policy to apply when the queue is full.
+     * @param blockTimeout the max time (in milliseconds) to wait for free space in the queue with the {@code BLOCK} policy.
+     */
+    public EventDispatcherExecutor(int threads, int queueSize, SaturationPolicy saturationPolicy, long blockTimeout) {
+        super(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueSize), new DispatcherThreadFactory());
+        this.saturationPolicy = (saturationPolicy != null) ? saturationPolicy : SaturationPolicy.CALLER_RUNS;
+        this.blockTimeout = blockTimeout;
+        allowCoreThreadTimeOut(true);
+        setRejectedExecutionHandler(new SaturationHandler());
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command instanceof KeyOrderedExecutor.KeyQueue) {
+            // the latency of the keyed cluster events is recorded by the key ordered executor
+            super.execute(command);
+        } else {
+            super.execute(new TimedTask(command));
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable runnable, Throwable throwable) {
+        super.afterExecute(runnable, throwable);
+        if (runnable instanceof TimedTask) {
+            record(((TimedTask) runnable).getLatency());
+        }
+    }
+
+    /**
+     * Record the dispatch latency of a cluster event.
+     *
+     * @param latency the latency in nanoseconds.
+     */
+    void record(long latency) {
+        latencyCount.incrementAndGet();
+        latencyTotal.addAndGet(latency);
+        long max = latencyMax.get();
+        while (latency > max && !latencyMax.compareAndSet(max, latency)) {
+            max = latencyMax.get();
+        }
+    }
+
+    void recordRejected() {
+        rejectedCount.incrementAndGet();
+    }
+
+    void recordDropped() {
+        droppedCount.incrementAndGet();
+    }
+
+    /**
+     * Handle the cluster event in the dispatching thread, if the thread pool is still running.
+     */
+    private void runInCaller(Runnable runnable) {
+        if (!isShutdown()) {
+            runnable.run();
+            if (runnable instanceof TimedTask) {
+                record(((TimedTask) runnable).getLatency());
+            }
+        }
+    }
+
+    /**
+     * Remove the oldest non critical cluster event from the queue.
+     *
+     * @return true if a cluster event has been removed, false else.
+     */
+    private boolean dropOldest() {
+        Iterator<Runnable> iterator = getQueue().iterator();
+        while (iterator.hasNext()) {
+            Runnable queued = iterator.next();
+            if (!isCritical(queued) && getQueue().remove(queued)) {
+                droppedCount.incrementAndGet();
+                LOGGER.warn("CELLAR: cluster event dispatcher is saturated, dropping cluster event {}", queued);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if a task can't be dropped: the commands, results and forced cluster events, and the tasks which are not
+     * cluster event dispatches (such as the pending tasks of a key).
+     *
+     * @param runnable the task.
+     * @return true if the task can't be dropped, false else.
+     */
+    static boolean isCritical(Runnable runnable) {
+        Runnable task = (runnable instanceof TimedTask) ? ((TimedTask) runnable).getTask() : runnable;
+        if (task instanceof EventDispatchTask) {
+            Event event = ((EventDispatchTask) task).getEvent();
+            return event == null || event instanceof Command || event instanceof Result || Boolean.TRUE.equals(event.getForce());
+        }
+        return true;
+    }
+
+    public SaturationPolicy getSaturationPolicy() {
+        return saturationPolicy;
+    }
+
+    public long getBlockTimeout() {
+        return blockTimeout;
+    }
+
+    /**
+     * Get the number of cluster events which have not been queued because the queue was full.
+     *
+     * @return the number of rejected cluster events.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Get the number of cluster events removed from the queue by the {@code DROP_OLDEST} policy.
+     *
+     * @return the number of dropped cluster events.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Get the average dispatch latency (time in the queue plus handling time).
+     *
+     * @return the average latency in milliseconds.
+     */
+    public double getAverageLatency() {
+        long count = latencyCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMicros(latencyTotal.get() / count) / 1000.0;
+    }
+
+    /**
+     * Get the max dispatch latency (time in the queue plus handling time).
+     *
+     * @return the max latency in milliseconds.
+     */
+    public double getMaxLatency() {
+        return TimeUnit.NANOSECONDS.toMicros(latencyMax.get()) / 1000.0;
+    }
+
+    /**
+     * Reset the rejected, dropped and latency counters.
+     */
+    public void resetStatistics() {
+        rejectedCount.set(0);
+        droppedCount.set(0);
+        latencyCount.set(0);
+        latencyTotal.set(0);
+        latencyMax.set(0);
+    }
+
+    /**
+     * Apply the saturation policy when the queue is full.
+     */
+    private class SaturationHandler implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                return;
+            }
+            rejectedCount.incrementAndGet();
+            BlockingQueue<Runnable> queue = executor.getQueue();
+            switch (saturationPolicy) {
+                case BLOCK:
+                    try {
+                        if (queue.offer(runnable, blockTimeout, TimeUnit.MILLISECONDS)) {
+                            return;
+                        }
+                        LOGGER.warn("CELLAR: cluster event dispatcher is still saturated after {}ms, handling the cluster event in the caller thread", blockTimeout);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    break;
+                case DROP_OLDEST:
+                    if (dropOldest() && queue.offer(runnable)) {
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            runInCaller(runnable);
+        }
+
+    }
+
+    /**
+     * Wrapper keeping the time when the task has been submitted.
+     */
+    private static class TimedTask implements Runnable {
+
+        private final Runnable task;
+        private final long submitted = System.nanoTime();
+
+        TimedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        Runnable getTask() {
+            return task;
+        }
+
+        long getLatency() {
+            return System.nanoTime() - submitted;
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+
+    }
+
+    /**
+     * Thread factory naming the cluster event dispatcher threads.
+     */
+    private static class DispatcherThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "cellar-dispatcher-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
@@ -13,20 +13,39 @@
  */
 package org.apache.karaf.cellar.core.event;
 
+import org.apache.karaf.cellar.core.Configurations;
+
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Event handler service registry dispatcher.
+ * By default, the cluster events are dispatched using a bounded {@link EventDispatcherExecutor}.
+ * The cluster events providing a routing key are handled in order for a given key, the number of cluster events
+ * waiting for the previous ones of their key being bounded by the queue size too.
  */
 public class EventHandlerRegistryDispatcher<E extends Event> implements EventDispatcher<E> {
 
     private ExecutorService threadPool;
+    private KeyOrderedExecutor orderedExecutor;
     private EventHandlerRegistry handlerRegistry;
 
+    private int threads = 10;
+    private int queueSize = 1000;
+    private String saturationPolicy = SaturationPolicy.CALLER_RUNS.name();
+    private long blockTimeout = 5000;
+
     public void init() {
+        SaturationPolicy policy = SaturationPolicy.valueOf(saturationPolicy.trim().toUpperCase());
         if (threadPool == null) {
-            threadPool = Executors.newCachedThreadPool();
+            threadPool = new EventDispatcherExecutor(threads, queueSize, policy, blockTimeout);
+        }
+        // the cluster events waiting for the previous ones of their routing key are bounded as well
+        orderedExecutor = new KeyOrderedExecutor(threadPool, queueSize, policy, blockTimeout);
+    }
+
+    public void destroy() {
+        if (threadPool != null) {
+            threadPool.shutdown();
         }
     }
 
@@ -37,7 +56,12 @@ public class EventHandlerRegistryDispatcher<E extends Event> implements EventDis
      */
     public void dispatch(E event) {
         EventDispatchTask task = new EventDispatchTask(event, handlerRegistry);
-        threadPool.execute(task);
+        String routingKey = event.getRoutingKey();
+        if (routingKey != null && orderedExecutor != null) {
+            orderedExecutor.execute(event.getClass().getName() + Configurations.SEPARATOR + routingKey, task);
+        } else {
+            threadPool.execute(task);
+        }
     }
 
     public EventHandlerRegistry getHandlerRegistry() {
@@ -56,4 +80,40 @@ public class EventHandlerRegistryDispatcher<E extends Event> implements EventDis
         this.threadPool = threadPool;
     }
 
+    public KeyOrderedExecutor getOrderedExecutor() {
+        return orderedExecutor;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public String getSaturationPolicy() {
+        return saturationPolicy;
+    }
+
+    public void setSaturationPolicy(String saturationPolicy) {
+        this.saturationPolicy = saturationPolicy;
+    }
+
+    public long getBlockTimeout() {
+        return blockTimeout;
+    }
+
+    public void setBlockTimeout(long blockTimeout) {
+        this.blockTimeout = blockTimeout;
+    }
+
 }
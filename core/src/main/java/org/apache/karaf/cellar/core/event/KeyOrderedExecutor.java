@@ -0,0 +1,307 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Executor running the tasks sharing the same key in submission order, one at a time, whereas the tasks
+ * with different keys run concurrently on the underlying executor.
+ * <p>
+ * The number of pending tasks (all keys) can be bounded. When the bound is reached, the {@link SaturationPolicy}
+ * is applied to the new task. As a task can't overtake the pending tasks of its key, a task only runs in the caller
+ * thread when its key has no pending task; else, the caller waits for free space (up to the block timeout) and the
+ * task is queued.
+ */
+public class KeyOrderedExecutor {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(KeyOrderedExecutor.class);
+
+    /**
+     * Max number of tasks run for a key before giving the thread back to the underlying executor.
+     */
+    private static final int BATCH_SIZE = 100;
+
+    private final Executor executor;
+    private final int maxPending;
+    private final SaturationPolicy saturationPolicy;
+    private final long blockTimeout;
+    private final Map<String, KeyQueue> queues = new HashMap<String, KeyQueue>();
+    private int pending;
+    private int waiting;
+
+    public KeyOrderedExecutor(Executor executor) {
+        this(executor, 0, SaturationPolicy.BLOCK, 0);
+    }
+
+    /**
+     * Create a bounded key ordered executor.
+     *
+     * @param executor the underlying executor.
+     * @param maxPending the max number of pending tasks (all keys), 0 means unbounded.
+     * @param saturationPolicy the policy to apply when the max number of pending tasks is reached.
+     * @param blockTimeout the max time (in milliseconds) to wait for free space.
+     */
+    public KeyOrderedExecutor(Executor executor, int maxPending, SaturationPolicy saturationPolicy, long blockTimeout) {
+        this.executor = executor;
+        this.maxPending = maxPending;
+        this.saturationPolicy = (saturationPolicy != null) ? saturationPolicy : SaturationPolicy.CALLER_RUNS;
+        this.blockTimeout = blockTimeout;
+    }
+
+    /**
+     * Run a task after all the tasks previously submitted with the same key.
+     *
+     * @param key the task key.
+     * @param task the task to run.
+     */
+    public void execute(String key, Runnable task) {
+        PendingTask pendingTask = new PendingTask(task);
+        KeyQueue queue;
+        boolean schedule = false;
+        boolean callerRuns = false;
+        synchronized (queues) {
+            if (maxPending > 0 && pending >= maxPending) {
+                callerRuns = !saturated(key);
+            }
+            queue = queues.get(key);
+            if (queue == null) {
+                queue = new KeyQueue(key);
+                queues.put(key, queue);
+                schedule = !callerRuns;
+            }
+            if (!callerRuns) {
+                queue.tasks.add(pendingTask);
+                pending++;
+            }
+        }
+        if (callerRuns) {
+            // the key is reserved by the caller, the next tasks of the key wait for this one
+            try {
+                run(key, pendingTask);
+            } finally {
+                synchronized (queues) {
+                    if (queue.tasks.isEmpty()) {
+                        queues.remove(key);
+                    } else {
+                        schedule = true;
+                    }
+                }
+                if (schedule) {
+                    schedule(queue);
+                }
+            }
+        } else if (schedule) {
+            schedule(queue);
+        }
+    }
+
+    /**
+     * Apply the saturation policy, holding the queues lock.
+     *
+     * @param key the key of the new task.
+     * @return true if the new task has to be queued, false if it has to run in the caller thread.
+     */
+    private boolean saturated(String key) {
+        if (executor instanceof EventDispatcherExecutor) {
+            ((EventDispatcherExecutor) executor).recordRejected();
+        }
+        if (saturationPolicy == SaturationPolicy.DROP_OLDEST && dropOldest()) {
+            return true;
+        }
+        if (saturationPolicy == SaturationPolicy.BLOCK || queues.containsKey(key)) {
+            if (awaitFreeSpace()) {
+                return true;
+            }
+            if (queues.containsKey(key)) {
+                LOGGER.warn("CELLAR: cluster event dispatcher is still saturated after {}ms, queuing the cluster event after the pending ones of key {}", blockTimeout, key);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wait for free space, holding the queues lock.
+     *
+     * @return true if there is free space, false if the block timeout expired.
+     */
+    private boolean awaitFreeSpace() {
+        long deadline = System.currentTimeMillis() + blockTimeout;
+        waiting++;
+        try {
+            while (pending >= maxPending) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                queues.wait(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waiting--;
+        }
+    }
+
+    /**
+     * Remove the oldest non critical pending task (all keys), holding the queues lock.
+     *
+     * @return true if a task has been removed, false else.
+     */
+    private boolean dropOldest() {
+        KeyQueue oldestQueue = null;
+        PendingTask oldest = null;
+        for (KeyQueue queue : queues.values()) {
+            for (PendingTask candidate : queue.tasks) {
+                if (!EventDispatcherExecutor.isCritical(candidate.task)) {
+                    if (oldest == null || candidate.submitted < oldest.submitted) {
+                        oldest = candidate;
+                        oldestQueue = queue;
+                    }
+                    break;
+                }
+            }
+        }
+        if (oldest == null) {
+            return false;
+        }
+        Iterator<PendingTask> iterator = oldestQueue.tasks.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() == oldest) {
+                iterator.remove();
+                pending--;
+                break;
+            }
+        }
+        if (executor instanceof EventDispatcherExecutor) {
+            ((EventDispatcherExecutor) executor).recordDropped();
+        }
+        LOGGER.warn("CELLAR: cluster event dispatcher is saturated, dropping cluster event {}", oldest.task);
+        return true;
+    }
+
+    /**
+     * Get the number of keys having pending or running tasks.
+     *
+     * @return the number of active keys.
+     */
+    public int getActiveKeys() {
+        synchronized (queues) {
+            return queues.size();
+        }
+    }
+
+    /**
+     * Get the number of pending tasks (all keys).
+     *
+     * @return the number of pending tasks.
+     */
+    public int getPendingTasks() {
+        synchronized (queues) {
+            return pending;
+        }
+    }
+
+    private void schedule(KeyQueue queue) {
+        try {
+            executor.execute(queue);
+        } catch (RuntimeException e) {
+            synchronized (queues) {
+                queues.remove(queue.key);
+                pending -= queue.tasks.size();
+                queue.tasks.clear();
+                if (waiting > 0) {
+                    queues.notifyAll();
+                }
+            }
+            throw e;
+        }
+    }
+
+    private void run(String key, PendingTask pendingTask) {
+        try {
+            pendingTask.task.run();
+        } catch (RuntimeException e) {
+            LOGGER.error("CELLAR: error while running task for key {}", key, e);
+        }
+        if (executor instanceof EventDispatcherExecutor) {
+            ((EventDispatcherExecutor) executor).record(System.nanoTime() - pendingTask.submitted);
+        }
+    }
+
+    /**
+     * Task waiting for the previous tasks of its key, with the time when it has been submitted.
+     */
+    private static class PendingTask {
+
+        private final Runnable task;
+        private final long submitted = System.nanoTime();
+
+        PendingTask(Runnable task) {
+            this.task = task;
+        }
+
+    }
+
+    /**
+     * Pending tasks of a key.
+     */
+    class KeyQueue implements Runnable {
+
+        private final String key;
+        private final LinkedList<PendingTask> tasks = new LinkedList<PendingTask>();
+
+        KeyQueue(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                PendingTask task;
+                synchronized (queues) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        queues.remove(key);
+                        return;
+                    }
+                    pending--;
+                    if (waiting > 0) {
+                        queues.notifyAll();
+                    }
+                }
+                KeyOrderedExecutor.this.run(key, task);
+            }
+            // let the other keys run, the remaining tasks of this key are scheduled again
+            schedule(this);
+        }
+
+        @Override
+        public String toString() {
+            return "tasks for key " + key;
+        }
+
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+/**
+ * Event consumer replaying the cluster events missed by the local node (while the node was stopped, disconnected or
+ * while the consumer was switched off), from the last cluster event applied by the local node.
+ */
+public interface ReplayableEventConsumer<E extends Event> extends EventConsumer<E> {
+
+    /**
+     * Get the offset of the last cluster event applied by the local node.
+     *
+     * @return the offset of the last applied cluster event.
+     */
+    public long getOffset();
+
+    /**
+     * Check if the consumer resumed from the last cluster event applied by the local node. In that case, the missed
+     * cluster events are replayed and a full synchronization of the cluster group is not needed.
+     *
+     * @return true if the consumer resumed, false if the missed cluster events are not available anymore (or if the
+     * local node never consumed the cluster events).
+     */
+    public boolean isResumed();
+
+}
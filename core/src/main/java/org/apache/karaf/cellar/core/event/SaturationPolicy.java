@@ -0,0 +1,38 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+/**
+ * Policy applied by the cluster event dispatcher when its queue is full.
+ */
+public enum SaturationPolicy {
+
+    /**
+     * The cluster event is handled by the thread dispatching the event (the cluster transport thread).
+     */
+    CALLER_RUNS,
+
+    /**
+     * The thread dispatching the event waits for free space in the queue, up to a timeout.
+     * When the timeout expires, the cluster event is handled by the dispatching thread.
+     */
+    BLOCK,
+
+    /**
+     * The oldest non critical cluster event is removed from the queue.
+     * Forced events, commands and results are considered as critical and never dropped.
+     */
+    DROP_OLDEST;
+
+}
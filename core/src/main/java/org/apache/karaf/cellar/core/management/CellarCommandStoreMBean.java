@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.management;
+
+/**
+ * Describe the attributes on the Cellar command store MBean.
+ */
+public interface CellarCommandStoreMBean {
+
+    /**
+     * Get the number of commands waiting for results.
+     *
+     * @return the number of pending commands.
+     */
+    int getPendingCommands();
+
+    /**
+     * Get the number of command timeouts scheduled.
+     *
+     * @return the number of scheduled timeouts.
+     */
+    int getScheduledTimeouts();
+
+    /**
+     * Get the number of commands sent by the local node.
+     *
+     * @return the number of commands.
+     */
+    long getCommands();
+
+    /**
+     * Get the number of commands expired before receiving all results.
+     *
+     * @return the number of timed out commands.
+     */
+    long getTimeouts();
+
+    /**
+     * Get the ratio of timed out commands.
+     *
+     * @return the number of timed out commands divided by the number of commands.
+     */
+    double getTimeoutRate();
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.management;
+
+/**
+ * Describe the operations and attributes on the Cellar cluster event dispatcher MBean.
+ */
+public interface CellarDispatcherMBean {
+
+    /**
+     * Get the saturation policy applied when the dispatcher queue is full.
+     *
+     * @return the saturation policy.
+     */
+    String getSaturationPolicy();
+
+    /**
+     * Get the max number of dispatcher threads.
+     *
+     * @return the max number of threads.
+     */
+    int getMaxThreads();
+
+    /**
+     * Get the current number of dispatcher threads.
+     *
+     * @return the number of threads in the pool.
+     */
+    int getPoolSize();
+
+    /**
+     * Get the number of dispatcher threads currently handling a cluster event.
+     *
+     * @return the number of active threads.
+     */
+    int getActiveThreads();
+
+    /**
+     * Get the number of cluster events waiting in the dispatcher queue.
+     *
+     * @return the queue depth.
+     */
+    int getQueueDepth();
+
+    /**
+     * Get the max number of cluster events in the dispatcher queue.
+     *
+     * @return the queue capacity.
+     */
+    int getQueueCapacity();
+
+    /**
+     * Get the number of cluster events handled by the dispatcher threads.
+     *
+     * @return the number of completed tasks.
+     */
+    long getCompletedTasks();
+
+    /**
+     * Get the number of cluster events rejected because the dispatcher queue was full.
+     *
+     * @return the number of rejected cluster events.
+     */
+    long getRejectedTasks();
+
+    /**
+     * Get the number of cluster events dropped from the dispatcher queue.
+     *
+     * @return the number of dropped cluster events.
+     */
+    long getDroppedTasks();
+
+    /**
+     * Get the average dispatch latency (time in the queue plus handling time).
+     *
+     * @return the average latency in milliseconds.
+     */
+    double getAverageLatency();
+
+    /**
+     * Get the max dispatch latency (time in the queue plus handling time).
+     *
+     * @return the max latency in milliseconds.
+     */
+    double getMaxLatency();
+
+    /**
+     * Reset the rejected, dropped and latency statistics.
+     */
+    void resetStatistics();
+
+}
@@ -27,6 +27,22 @@ public interface CellarMBean {
      */
     void sync() throws Exception;
 
+    /**
+     * Get the status of the latest synchronization of the cluster groups resources.
+     *
+     * @return the synchronization status and duration of each cluster group resource.
+     * @throws Exception in case of retrieval failure.
+     */
+    TabularData syncStatus() throws Exception;
+
+    /**
+     * Get the compression statistics of the cluster payloads written and read by the local node.
+     *
+     * @return the compression ratio and time of each payload type.
+     * @throws Exception in case of retrieval failure.
+     */
+    TabularData compressionStatistics() throws Exception;
+
     /**
      * Get the status of the cluster event consumers.
      *
@@ -0,0 +1,148 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Compression layer of the Cellar payloads (cluster events and cluster map values).
+ * <p>
+ * The payloads larger than the threshold are compressed with the configured codec, the smaller ones are written as is.
+ * The codec is written in front of each payload, so a node reads the payloads of all the other nodes whatever their
+ * own codec. Compression statistics are kept per payload type.
+ */
+public class CellarCompression {
+
+    public static final int DEFAULT_THRESHOLD = 4096;
+
+    private CompressionCodec codec = CompressionCodec.DEFLATE;
+    private int threshold = DEFAULT_THRESHOLD;
+
+    private final ConcurrentMap<String, CompressionStatistics> statistics = new ConcurrentHashMap<String, CompressionStatistics>();
+
+    /**
+     * Write an object, compressed if its serialized form is larger than the threshold.
+     *
+     * @param out the output.
+     * @param value the object to write, may be null.
+     * @throws IOException in case of write failure.
+     */
+    public void write(DataOutput out, Object value) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(buffer);
+        CellarSerialization.write(data, value);
+        data.flush();
+        byte[] bytes = buffer.toByteArray();
+
+        CompressionCodec codec = this.codec;
+        byte[] compressed = null;
+        long time = 0;
+        if (codec != CompressionCodec.NONE && bytes.length >= threshold) {
+            long start = System.nanoTime();
+            compressed = codec.compress(bytes);
+            time = System.nanoTime() - start;
+            if (compressed.length >= bytes.length) {
+                compressed = null;
+            }
+        }
+        if (compressed != null) {
+            out.writeByte(codec.getId());
+            CellarSerialization.writeSize(out, bytes.length);
+            CellarSerialization.writeBytes(out, compressed);
+        } else {
+            out.writeByte(CompressionCodec.NONE.getId());
+            out.write(bytes);
+        }
+        if (value != null) {
+            getStatistics(value.getClass().getName()).written(bytes.length,
+                    (compressed != null) ? compressed.length : bytes.length, compressed != null, time);
+        }
+    }
+
+    /**
+     * Read an object written by {@link #write(DataOutput, Object)}.
+     *
+     * @param in the input.
+     * @param classLoader the class loader used to load the classes of the objects (the thread context class loader if null).
+     * @return the object, may be null.
+     * @throws IOException in case of read failure.
+     */
+    public Object read(DataInput in, ClassLoader classLoader) throws IOException {
+        CompressionCodec codec = CompressionCodec.fromId(in.readByte());
+        if (codec == CompressionCodec.NONE) {
+            return CellarSerialization.read(in, classLoader);
+        }
+        int length = CellarSerialization.readSize(in);
+        byte[] compressed = CellarSerialization.readBytes(in);
+        if (length < 0 || compressed == null) {
+            throw new IOException("Malformed compressed payload");
+        }
+        long start = System.nanoTime();
+        byte[] bytes = codec.decompress(compressed, length);
+        long time = System.nanoTime() - start;
+        Object value = CellarSerialization.read(new DataInputStream(new ByteArrayInputStream(bytes)), classLoader);
+        if (value != null) {
+            getStatistics(value.getClass().getName()).decompressed(time);
+        }
+        return value;
+    }
+
+    private CompressionStatistics getStatistics(String type) {
+        CompressionStatistics typeStatistics = statistics.get(type);
+        if (typeStatistics == null) {
+            typeStatistics = new CompressionStatistics(type);
+            CompressionStatistics existing = statistics.putIfAbsent(type, typeStatistics);
+            if (existing != null) {
+                typeStatistics = existing;
+            }
+        }
+        return typeStatistics;
+    }
+
+    /**
+     * Get the compression statistics of the payload types written or read by the local node.
+     *
+     * @return the statistics per payload type.
+     */
+    public Collection<CompressionStatistics> getStatistics() {
+        return new ArrayList<CompressionStatistics>(statistics.values());
+    }
+
+    public String getCodec() {
+        return codec.name();
+    }
+
+    public void setCodec(String codec) {
+        this.codec = CompressionCodec.valueOf(codec.trim().toUpperCase());
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.serialization;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Object with a compact binary form, written by the Cellar serializers instead of the Java serialization.
+ * <p>
+ * A class uses the compact form only if it declares both {@code writeData()} and {@code readData()}, and a no-arg
+ * constructor (of any visibility). A subclass which doesn't declare its own methods is written with the Java
+ * serialization, so that its fields are never lost.
+ */
+public interface CellarSerializable extends Serializable {
+
+    /**
+     * Write the object fields.
+     *
+     * @param out the output.
+     * @throws IOException in case of write failure.
+     */
+    public void writeData(DataOutput out) throws IOException;
+
+    /**
+     * Read the object fields, in the order written by {@link #writeData(DataOutput)}.
+     *
+     * @param in the input.
+     * @throws IOException in case of read failure.
+     */
+    public void readData(DataInput in) throws IOException;
+
+}
@@ -0,0 +1,628 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Compact binary encoding of the Cellar objects.
+ * <p>
+ * Each value starts with a tag. The common JDK types (strings, boxed primitives, arrays, lists, sets, maps and
+ * properties) are written inline. The {@link CellarSerializable} objects are written with their own fields, preceded
+ * by a short type ID for the well known Cellar types, or by the class name for the others. Like the Java serialization,
+ * the class names and the objects are written once per stream, the next occurrences refer to them by index (the events
+ * of a batch typically share the same group and nodes). Any other serializable object falls back to the Java
+ * serialization.
+ */
+public final class CellarSerialization {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte FLOAT = 6;
+    private static final byte SHORT = 7;
+    private static final byte BYTE = 8;
+    private static final byte CHARACTER = 9;
+    private static final byte STRING_ARRAY = 10;
+    private static final byte BYTE_ARRAY = 11;
+    private static final byte LIST = 12;
+    private static final byte SET = 13;
+    private static final byte MAP = 14;
+    private static final byte PROPERTIES = 15;
+    private static final byte KNOWN_TYPE = 16;
+    private static final byte COMPACT_TYPE = 17;
+    private static final byte JAVA = 18;
+    private static final byte COMPACT_TYPE_REFERENCE = 19;
+    private static final byte OBJECT_REFERENCE = 20;
+
+    /**
+     * The well known Cellar types, the type ID is the index in the array.
+     * The array is shared by all the cluster nodes: new types are appended, existing types are never moved.
+     */
+    private static final String[] KNOWN_TYPES = {
+            "org.apache.karaf.cellar.core.Group",
+            "org.apache.karaf.cellar.hazelcast.HazelcastNode",
+            "org.apache.karaf.cellar.core.event.Event",
+            "org.apache.karaf.cellar.core.command.Command",
+            "org.apache.karaf.cellar.core.command.Result",
+            "org.apache.karaf.cellar.bundle.BundleState",
+            "org.apache.karaf.cellar.bundle.ClusterBundleEvent",
+            "org.apache.karaf.cellar.features.FeatureState",
+            "org.apache.karaf.cellar.config.ClusterConfigurationEvent",
+            "org.apache.karaf.cellar.event.ClusterEvent",
+            "org.apache.karaf.cellar.dosgi.EndpointDescription",
+            "org.apache.karaf.cellar.core.event.EventBatch"
+    };
+
+    private static final Map<String, Short> KNOWN_TYPE_IDS = new HashMap<String, Short>();
+
+    static {
+        for (short i = 0; i < KNOWN_TYPES.length; i++) {
+            KNOWN_TYPE_IDS.put(KNOWN_TYPES[i], i);
+        }
+    }
+
+    private static final Map<Class<?>, Boolean> COMPACT_TYPES = Collections.synchronizedMap(new WeakHashMap<Class<?>, Boolean>());
+
+    private static final ThreadLocal<ClassLoader> CLASS_LOADER = new ThreadLocal<ClassLoader>();
+
+    private static final ThreadLocal<StreamTable> STREAM_TABLE = new ThreadLocal<StreamTable>();
+
+    private CellarSerialization() {
+        // utility class
+    }
+
+    /**
+     * Write an object.
+     *
+     * @param out the output.
+     * @param value the object to write, may be null.
+     * @throws IOException in case of write failure.
+     */
+    public static void write(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        StreamTable table = enter(out);
+        try {
+            write(out, value, table);
+        } finally {
+            exit(table);
+        }
+    }
+
+    private static void write(DataOutput out, Object value, StreamTable table) throws IOException {
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (type == Integer.class) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (type == Long.class) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (type == Boolean.class) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (type == Double.class) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (type == Float.class) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (type == Short.class) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (type == Byte.class) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (type == Character.class) {
+            out.writeByte(CHARACTER);
+            out.writeChar((Character) value);
+        } else if (type == String[].class) {
+            String[] array = (String[]) value;
+            out.writeByte(STRING_ARRAY);
+            writeSize(out, array.length);
+            for (String element : array) {
+                writeString(out, element);
+            }
+        } else if (type == byte[].class) {
+            out.writeByte(BYTE_ARRAY);
+            writeBytes(out, (byte[]) value);
+        } else if (type == ArrayList.class) {
+            out.writeByte(LIST);
+            writeElements(out, (Collection<?>) value);
+        } else if (type == HashSet.class || type == LinkedHashSet.class) {
+            out.writeByte(SET);
+            writeElements(out, (Collection<?>) value);
+        } else if (type == HashMap.class || type == LinkedHashMap.class) {
+            out.writeByte(MAP);
+            writeEntries(out, (Map<?, ?>) value);
+        } else if (type == Properties.class) {
+            out.writeByte(PROPERTIES);
+            writeEntries(out, (Map<?, ?>) value);
+        } else if (value instanceof CellarSerializable && isCompact(type)) {
+            Integer reference = table.objectIndexes.get(value);
+            if (reference != null) {
+                out.writeByte(OBJECT_REFERENCE);
+                writeSize(out, reference);
+                return;
+            }
+            table.objectIndexes.put(value, table.objectIndexes.size());
+            Short id = KNOWN_TYPE_IDS.get(type.getName());
+            if (id != null) {
+                out.writeByte(KNOWN_TYPE);
+                out.writeShort(id);
+            } else {
+                Integer index = table.typeIndexes.get(type.getName());
+                if (index != null) {
+                    out.writeByte(COMPACT_TYPE_REFERENCE);
+                    writeSize(out, index);
+                } else {
+                    out.writeByte(COMPACT_TYPE);
+                    writeString(out, type.getName());
+                    table.addType(type.getName());
+                }
+            }
+            ((CellarSerializable) value).writeData(out);
+        } else if (value instanceof Serializable) {
+            out.writeByte(JAVA);
+            writeBytes(out, javaSerialize(value));
+        } else {
+            throw new IOException("Can't serialize " + type.getName() + ": not serializable");
+        }
+    }
+
+    /**
+     * Read an object written by {@link #write(DataOutput, Object)}.
+     *
+     * @param in the input.
+     * @param classLoader the class loader used to load the classes of the objects (the thread context class loader if null).
+     * @return the object, may be null.
+     * @throws IOException in case of read failure.
+     */
+    public static Object read(DataInput in, ClassLoader classLoader) throws IOException {
+        ClassLoader previous = CLASS_LOADER.get();
+        CLASS_LOADER.set(classLoader);
+        try {
+            return read(in);
+        } finally {
+            CLASS_LOADER.set(previous);
+        }
+    }
+
+    /**
+     * Read an object written by {@link #write(DataOutput, Object)}, typically a field in a
+     * {@link CellarSerializable#readData(DataInput)} implementation.
+     *
+     * @param in the input.
+     * @return the object, may be null.
+     * @throws IOException in case of read failure.
+     */
+    public static Object read(DataInput in) throws IOException {
+        StreamTable table = enter(in);
+        try {
+            return read(in, table);
+        } finally {
+            exit(table);
+        }
+    }
+
+    private static Object read(DataInput in, StreamTable table) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case BOOLEAN:
+                return in.readBoolean();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            case CHARACTER:
+                return in.readChar();
+            case STRING_ARRAY: {
+                String[] array = new String[readSize(in)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readString(in);
+                }
+                return array;
+            }
+            case BYTE_ARRAY:
+                return readBytes(in);
+            case LIST:
+                return readElements(in, new ArrayList<Object>());
+            case SET:
+                return readElements(in, new LinkedHashSet<Object>());
+            case MAP:
+                return readEntries(in, new LinkedHashMap<Object, Object>());
+            case PROPERTIES:
+                return readEntries(in, new Properties());
+            case KNOWN_TYPE: {
+                short id = in.readShort();
+                if (id < 0 || id >= KNOWN_TYPES.length) {
+                    throw new IOException("Unknown Cellar type ID " + id);
+                }
+                return readCompact(in, KNOWN_TYPES[id], table);
+            }
+            case COMPACT_TYPE: {
+                String className = readString(in);
+                table.addType(className);
+                return readCompact(in, className, table);
+            }
+            case COMPACT_TYPE_REFERENCE: {
+                int index = readSize(in);
+                if (index < 0 || index >= table.types.size()) {
+                    throw new IOException("Unknown class name reference " + index);
+                }
+                return readCompact(in, table.types.get(index), table);
+            }
+            case OBJECT_REFERENCE: {
+                int index = readSize(in);
+                if (index < 0 || index >= table.objects.size()) {
+                    throw new IOException("Unknown object reference " + index);
+                }
+                return table.objects.get(index);
+            }
+            case JAVA:
+                return javaDeserialize(readBytes(in));
+            default:
+                throw new IOException("Unknown serialization tag " + tag);
+        }
+    }
+
+    /**
+     * Read the elements of a list written by {@link #write(DataOutput, Object)}.
+     *
+     * @param in the input.
+     * @return the list, or null.
+     * @throws IOException in case of read failure.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> List<T> readList(DataInput in) throws IOException {
+        return (List<T>) read(in);
+    }
+
+    /**
+     * Read a set written by {@link #write(DataOutput, Object)}.
+     *
+     * @param in the input.
+     * @return the set, or null.
+     * @throws IOException in case of read failure.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Set<T> readSet(DataInput in) throws IOException {
+        return (Set<T>) read(in);
+    }
+
+    /**
+     * Read a map written by {@link #write(DataOutput, Object)}.
+     *
+     * @param in the input.
+     * @return the map, or null.
+     * @throws IOException in case of read failure.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> Map<K, V> readMap(DataInput in) throws IOException {
+        return (Map<K, V>) read(in);
+    }
+
+    /**
+     * Write a string, without the 64KB limit of {@link DataOutput#writeUTF(String)}.
+     *
+     * @param out the output.
+     * @param value the string, may be null.
+     * @throws IOException in case of write failure.
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeSize(out, -1);
+            return;
+        }
+        writeBytes(out, value.getBytes("UTF-8"));
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return (bytes != null) ? new String(bytes, "UTF-8") : null;
+    }
+
+    /**
+     * Write a nullable boolean.
+     *
+     * @param out the output.
+     * @param value the boolean, may be null.
+     * @throws IOException in case of write failure.
+     */
+    public static void writeBoolean(DataOutput out, Boolean value) throws IOException {
+        out.writeByte((value == null) ? -1 : (value ? 1 : 0));
+    }
+
+    public static Boolean readBoolean(DataInput in) throws IOException {
+        byte value = in.readByte();
+        return (value < 0) ? null : Boolean.valueOf(value == 1);
+    }
+
+    public static void writeBytes(DataOutput out, byte[] value) throws IOException {
+        if (value == null) {
+            writeSize(out, -1);
+            return;
+        }
+        writeSize(out, value.length);
+        out.write(value);
+    }
+
+    public static byte[] readBytes(DataInput in) throws IOException {
+        int size = readSize(in);
+        if (size < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[size];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Write a size (or -1 for null) as a variable length integer: the small sizes take a single byte.
+     *
+     * @param out the output.
+     * @param size the size, -1 for null.
+     * @throws IOException in case of write failure.
+     */
+    public static void writeSize(DataOutput out, int size) throws IOException {
+        int value = size + 1;
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public static int readSize(DataInput in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) {
+                throw new IOException("Malformed size");
+            }
+            b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value - 1;
+    }
+
+    /**
+     * Check if a class is written with its compact form: the class declares its own {@code writeData()},
+     * {@code readData()} and no-arg constructor.
+     *
+     * @param type the class.
+     * @return true if the class uses the compact form, false else.
+     */
+    public static boolean isCompact(Class<?> type) {
+        Boolean compact = COMPACT_TYPES.get(type);
+        if (compact == null) {
+            try {
+                type.getDeclaredMethod("writeData", DataOutput.class);
+                type.getDeclaredMethod("readData", DataInput.class);
+                type.getDeclaredConstructor();
+                compact = CellarSerializable.class.isAssignableFrom(type);
+            } catch (NoSuchMethodException e) {
+                compact = false;
+            }
+            COMPACT_TYPES.put(type, compact);
+        }
+        return compact;
+    }
+
+    /**
+     * Enter a (possibly nested) write or read of an object on a stream.
+     * The table is shared by all the objects written on the same stream, and dropped when the outermost object is done.
+     */
+    private static StreamTable enter(Object stream) {
+        StreamTable table = STREAM_TABLE.get();
+        if (table == null || table.stream != stream) {
+            table = new StreamTable(stream, table);
+            STREAM_TABLE.set(table);
+        }
+        table.depth++;
+        return table;
+    }
+
+    private static void exit(StreamTable table) {
+        if (--table.depth == 0) {
+            if (table.previous != null) {
+                STREAM_TABLE.set(table.previous);
+            } else {
+                STREAM_TABLE.remove();
+            }
+        }
+    }
+
+    private static void writeElements(DataOutput out, Collection<?> collection) throws IOException {
+        writeSize(out, collection.size());
+        for (Object element : collection) {
+            write(out, element);
+        }
+    }
+
+    private static <C extends Collection<Object>> C readElements(DataInput in, C collection) throws IOException {
+        int size = readSize(in);
+        for (int i = 0; i < size; i++) {
+            collection.add(read(in));
+        }
+        return collection;
+    }
+
+    private static void writeEntries(DataOutput out, Map<?, ?> map) throws IOException {
+        writeSize(out, map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            write(out, entry.getKey());
+            write(out, entry.getValue());
+        }
+    }
+
+    private static <M extends Map<Object, Object>> M readEntries(DataInput in, M map) throws IOException {
+        int size = readSize(in);
+        for (int i = 0; i < size; i++) {
+            Object key = read(in);
+            map.put(key, read(in));
+        }
+        return map;
+    }
+
+    private static Object readCompact(DataInput in, String className, StreamTable table) throws IOException {
+        Class<?> type;
+        try {
+            type = loadClass(className);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Can't load class " + className, e);
+        }
+        CellarSerializable object;
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            object = (CellarSerializable) constructor.newInstance();
+        } catch (Exception e) {
+            throw new IOException("Can't create an instance of " + className, e);
+        }
+        table.objects.add(object);
+        object.readData(in);
+        return object;
+    }
+
+    private static Class<?> loadClass(String className) throws ClassNotFoundException {
+        ClassLoader classLoader = getClassLoader();
+        if (classLoader != null) {
+            try {
+                return Class.forName(className, false, classLoader);
+            } catch (ClassNotFoundException e) {
+                // try with the Cellar core class loader
+            }
+        }
+        return Class.forName(className, false, CellarSerialization.class.getClassLoader());
+    }
+
+    private static ClassLoader getClassLoader() {
+        ClassLoader classLoader = CLASS_LOADER.get();
+        return (classLoader != null) ? classLoader : Thread.currentThread().getContextClassLoader();
+    }
+
+    private static byte[] javaSerialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        try {
+            out.writeObject(value);
+        } finally {
+            out.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object javaDeserialize(byte[] bytes) throws IOException {
+        ObjectInputStream in = new ClassLoaderObjectInputStream(new ByteArrayInputStream(bytes));
+        try {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Can't deserialize object", e);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Class names and compact objects already written on (or read from) a stream.
+     */
+    private static class StreamTable {
+
+        private final Object stream;
+        private final StreamTable previous;
+        private final Map<String, Integer> typeIndexes = new HashMap<String, Integer>();
+        private final List<String> types = new ArrayList<String>();
+        private final Map<Object, Integer> objectIndexes = new IdentityHashMap<Object, Integer>();
+        private final List<Object> objects = new ArrayList<Object>();
+        private int depth;
+
+        StreamTable(Object stream, StreamTable previous) {
+            this.stream = stream;
+            this.previous = previous;
+        }
+
+        void addType(String className) {
+            typeIndexes.put(className, types.size());
+            types.add(className);
+        }
+
+    }
+
+    /**
+     * Object input stream loading the classes with the Cellar class loader.
+     */
+    private static class ClassLoaderObjectInputStream extends ObjectInputStream {
+
+        ClassLoaderObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return loadClass(desc.getName());
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+
+    }
+
+}
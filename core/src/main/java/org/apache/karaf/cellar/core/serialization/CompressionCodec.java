@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression algorithms of the Cellar payloads.
+ * The codec ID is written in front of each payload: the IDs are shared by all the cluster nodes and never change.
+ */
+public enum CompressionCodec {
+
+    /**
+     * No compression.
+     */
+    NONE(0) {
+        @Override
+        public byte[] compress(byte[] data) {
+            return data;
+        }
+
+        @Override
+        public byte[] decompress(byte[] data, int length) {
+            return data;
+        }
+    },
+
+    /**
+     * Deflate (zlib) compression, at the fastest level: better ratio, slower than LZ4.
+     */
+    DEFLATE(1) {
+        @Override
+        public byte[] compress(byte[] data) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(data);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+                byte[] buffer = new byte[4096];
+                while (!deflater.finished()) {
+                    int count = deflater.deflate(buffer);
+                    out.write(buffer, 0, count);
+                }
+                return out.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+
+        @Override
+        public byte[] decompress(byte[] data, int length) throws IOException {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(data);
+                byte[] result = new byte[length];
+                int count = 0;
+                while (count < length && !inflater.finished()) {
+                    int inflated = inflater.inflate(result, count, length - count);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    count += inflated;
+                }
+                if (count != length) {
+                    throw new IOException("Malformed deflate payload: " + count + " bytes decompressed, " + length + " expected");
+                }
+                return result;
+            } catch (DataFormatException e) {
+                throw new IOException("Malformed deflate payload", e);
+            } finally {
+                inflater.end();
+            }
+        }
+    },
+
+    /**
+     * LZ4 compression: very fast, lower ratio than deflate.
+     */
+    LZ4(2) {
+        @Override
+        public byte[] compress(byte[] data) {
+            return Lz4.compress(data);
+        }
+
+        @Override
+        public byte[] decompress(byte[] data, int length) throws IOException {
+            return Lz4.decompress(data, length);
+        }
+    };
+
+    private final byte id;
+
+    private CompressionCodec(int id) {
+        this.id = (byte) id;
+    }
+
+    public byte getId() {
+        return id;
+    }
+
+    /**
+     * Compress a payload.
+     *
+     * @param data the payload.
+     * @return the compressed payload.
+     */
+    public abstract byte[] compress(byte[] data);
+
+    /**
+     * Decompress a payload.
+     *
+     * @param data the compressed payload.
+     * @param length the length of the original payload.
+     * @return the original payload.
+     * @throws IOException if the compressed payload is malformed.
+     */
+    public abstract byte[] decompress(byte[] data, int length) throws IOException;
+
+    /**
+     * Get a codec by ID.
+     *
+     * @param id the codec ID.
+     * @return the codec.
+     * @throws IOException if the codec ID is unknown.
+     */
+    public static CompressionCodec fromId(byte id) throws IOException {
+        for (CompressionCodec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        throw new IOException("Unknown compression codec " + id);
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.serialization;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compression statistics of a payload type.
+ */
+public class CompressionStatistics {
+
+    private final String type;
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong compressedMessages = new AtomicLong();
+    private final AtomicLong originalBytes = new AtomicLong();
+    private final AtomicLong writtenBytes = new AtomicLong();
+    private final AtomicLong compressionTime = new AtomicLong();
+    private final AtomicLong decompressedMessages = new AtomicLong();
+    private final AtomicLong decompressionTime = new AtomicLong();
+
+    public CompressionStatistics(String type) {
+        this.type = type;
+    }
+
+    void written(int original, int written, boolean compressed, long time) {
+        messages.incrementAndGet();
+        originalBytes.addAndGet(original);
+        writtenBytes.addAndGet(written);
+        if (compressed) {
+            compressedMessages.incrementAndGet();
+        }
+        compressionTime.addAndGet(time);
+    }
+
+    void decompressed(long time) {
+        decompressedMessages.incrementAndGet();
+        decompressionTime.addAndGet(time);
+    }
+
+    /**
+     * Get the payload type (the class name of the serialized object).
+     *
+     * @return the payload type.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Get the number of payloads written.
+     *
+     * @return the number of payloads written.
+     */
+    public long getMessages() {
+        return messages.get();
+    }
+
+    /**
+     * Get the number of payloads written compressed (larger than the threshold, and smaller once compressed).
+     *
+     * @return the number of compressed payloads.
+     */
+    public long getCompressedMessages() {
+        return compressedMessages.get();
+    }
+
+    public long getOriginalBytes() {
+        return originalBytes.get();
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes.get();
+    }
+
+    /**
+     * Get the compression ratio: written bytes / original bytes.
+     *
+     * @return the compression ratio, 1 when nothing has been written.
+     */
+    public double getRatio() {
+        long original = originalBytes.get();
+        return (original > 0) ? (double) writtenBytes.get() / original : 1.0;
+    }
+
+    /**
+     * Get the total time spent compressing the payloads.
+     *
+     * @return the compression time in nanoseconds.
+     */
+    public long getCompressionTime() {
+        return compressionTime.get();
+    }
+
+    public long getDecompressedMessages() {
+        return decompressedMessages.get();
+    }
+
+    /**
+     * Get the total time spent decompressing the payloads.
+     *
+     * @return the decompression time in nanoseconds.
+     */
+    public long getDecompressionTime() {
+        return decompressionTime.get();
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.serialization;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * LZ4 block format encoder and decoder.
+ * The encoder uses a single hash table of the previous 4 bytes sequences (fast mode, no match search), favouring the
+ * speed over the compression ratio.
+ */
+final class Lz4 {
+
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MATCH_FIND_LIMIT = 12;
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_LOG = 12;
+    private static final int RUN_MASK = 15;
+
+    private Lz4() {
+        // utility class
+    }
+
+    /**
+     * Compress a buffer.
+     *
+     * @param src the buffer to compress.
+     * @return the LZ4 block.
+     */
+    static byte[] compress(byte[] src) {
+        int length = src.length;
+        byte[] dest = new byte[length + length / 255 + 16];
+        int d = 0;
+        int anchor = 0;
+        if (length > MATCH_FIND_LIMIT) {
+            int[] table = new int[1 << HASH_LOG];
+            Arrays.fill(table, -1);
+            int matchLimit = length - MATCH_FIND_LIMIT;
+            int end = length - LAST_LITERALS;
+            int s = 0;
+            while (s < matchLimit) {
+                int sequence = readInt(src, s);
+                int h = hash(sequence);
+                int ref = table[h];
+                table[h] = s;
+                if (ref < 0 || s - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                    s++;
+                    continue;
+                }
+                while (s > anchor && ref > 0 && src[s - 1] == src[ref - 1]) {
+                    s--;
+                    ref--;
+                }
+                int matchLength = MIN_MATCH;
+                while (s + matchLength < end && src[s + matchLength] == src[ref + matchLength]) {
+                    matchLength++;
+                }
+                d = writeSequence(src, anchor, s - anchor, dest, d, s - ref, matchLength);
+                s += matchLength;
+                anchor = s;
+            }
+        }
+        d = writeSequence(src, anchor, length - anchor, dest, d, 0, 0);
+        return Arrays.copyOf(dest, d);
+    }
+
+    /**
+     * Decompress a LZ4 block.
+     *
+     * @param src the LZ4 block.
+     * @param length the length of the decompressed buffer.
+     * @return the decompressed buffer.
+     * @throws IOException if the block is malformed.
+     */
+    static byte[] decompress(byte[] src, int length) throws IOException {
+        byte[] dest = new byte[length];
+        int s = 0;
+        int d = 0;
+        try {
+            while (true) {
+                int token = src[s++] & 0xFF;
+                int literalLength = token >>> 4;
+                if (literalLength == RUN_MASK) {
+                    int b;
+                    do {
+                        b = src[s++] & 0xFF;
+                        literalLength += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(src, s, dest, d, literalLength);
+                s += literalLength;
+                d += literalLength;
+                if (s == src.length) {
+                    break;
+                }
+                int offset = (src[s++] & 0xFF) | ((src[s++] & 0xFF) << 8);
+                int matchLength = token & RUN_MASK;
+                if (matchLength == RUN_MASK) {
+                    int b;
+                    do {
+                        b = src[s++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+                int ref = d - offset;
+                if (offset == 0 || ref < 0) {
+                    throw new IOException("Malformed LZ4 block: invalid offset " + offset);
+                }
+                if (offset >= matchLength) {
+                    System.arraycopy(dest, ref, dest, d, matchLength);
+                    d += matchLength;
+                } else {
+                    // the match overlaps the bytes being written
+                    for (int i = 0; i < matchLength; i++) {
+                        dest[d++] = dest[ref + i];
+                    }
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Malformed LZ4 block", e);
+        }
+        if (d != length) {
+            throw new IOException("Malformed LZ4 block: " + d + " bytes decompressed, " + length + " expected");
+        }
+        return dest;
+    }
+
+    /**
+     * Write a sequence: the literals, then the match (if any).
+     */
+    private static int writeSequence(byte[] src, int literalStart, int literalLength, byte[] dest, int d, int offset, int matchLength) {
+        int token = d++;
+        if (literalLength >= RUN_MASK) {
+            dest[token] = (byte) (RUN_MASK << 4);
+            d = writeLength(dest, d, literalLength - RUN_MASK);
+        } else {
+            dest[token] = (byte) (literalLength << 4);
+        }
+        System.arraycopy(src, literalStart, dest, d, literalLength);
+        d += literalLength;
+        if (matchLength == 0) {
+            return d;
+        }
+        dest[d++] = (byte) offset;
+        dest[d++] = (byte) (offset >>> 8);
+        int length = matchLength - MIN_MATCH;
+        if (length >= RUN_MASK) {
+            dest[token] |= RUN_MASK;
+            d = writeLength(dest, d, length - RUN_MASK);
+        } else {
+            dest[token] |= length;
+        }
+        return d;
+    }
+
+    private static int writeLength(byte[] dest, int d, int length) {
+        while (length >= 255) {
+            dest[d++] = (byte) 255;
+            length -= 255;
+        }
+        dest[d++] = (byte) length;
+        return d;
+    }
+
+    private static int readInt(byte[] buffer, int index) {
+        return (buffer[index] & 0xFF) | ((buffer[index + 1] & 0xFF) << 8)
+                | ((buffer[index + 2] & 0xFF) << 16) | ((buffer[index + 3] & 0xFF) << 24);
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+}
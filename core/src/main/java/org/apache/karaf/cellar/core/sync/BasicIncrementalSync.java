@@ -0,0 +1,142 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.sync;
+
+import org.apache.karaf.cellar.core.Configurations;
+import org.osgi.service.cm.ConfigurationEvent;
+import org.osgi.service.cm.ConfigurationListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Basic incremental synchronization support, keeping the baselines in memory.
+ * <p>
+ * The entries read from a cluster map are checked against the buckets of its digest: a mismatch means that the
+ * entries changed during the synchronization or that a stale value has been read (from the near cache), the baseline
+ * is then dropped so that the next synchronization reads all entries again.
+ * The baselines of a cluster group are dropped when a full synchronization is requested (explicit sync, cluster group
+ * join), and all baselines are dropped when the cluster groups configuration (white/black lists) changes, so that
+ * the entries previously skipped are synchronized again.
+ */
+public class BasicIncrementalSync implements IncrementalSync, ConfigurationListener {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(BasicIncrementalSync.class);
+
+    private final Map<String, Baseline> baselines = new ConcurrentHashMap<String, Baseline>();
+    private final Set<String> inconsistent = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    @Override
+    public <K, V> Map<K, V> entries(String mapName, Map<K, V> clusterMap, MapDigest digest, MapDigest localDigest) {
+        inconsistent.remove(mapName);
+        Baseline baseline = baselines.get(mapName);
+        // null means all buckets
+        Set<Integer> buckets = null;
+        if (digest != null && baseline != null) {
+            buckets = digest.diff(baseline.digest);
+            if (localDigest != null) {
+                buckets.addAll(localDigest.diff(baseline.localDigest));
+            }
+        }
+        Map<K, V> entries = new HashMap<K, V>();
+        if (buckets != null && buckets.isEmpty()) {
+            return entries;
+        }
+        long[] hashes = new long[MapDigest.BUCKETS];
+        for (K key : clusterMap.keySet()) {
+            int bucket = MapDigest.bucket(key);
+            if (buckets == null || buckets.contains(bucket)) {
+                V value = clusterMap.get(key);
+                if (value != null) {
+                    entries.put(key, value);
+                    hashes[bucket] ^= MapDigest.hash(key, value);
+                }
+            }
+        }
+        if (digest != null) {
+            for (int bucket = 0; bucket < MapDigest.BUCKETS; bucket++) {
+                if ((buckets == null || buckets.contains(bucket)) && hashes[bucket] != digest.getBucket(bucket)) {
+                    LOGGER.debug("CELLAR SYNC: entries of {} don't match the digest, the next sync reads all entries", mapName);
+                    inconsistent.add(mapName);
+                    break;
+                }
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public void synced(String mapName, MapDigest digest, MapDigest localDigest) {
+        if (!inconsistent.remove(mapName) && digest != null) {
+            baselines.put(mapName, new Baseline(digest, localDigest));
+        } else {
+            baselines.remove(mapName);
+        }
+    }
+
+    @Override
+    public void reset(String mapName) {
+        baselines.remove(mapName);
+    }
+
+    @Override
+    public void resetGroup(String groupName) {
+        String suffix = Configurations.SEPARATOR + groupName;
+        Iterator<String> iterator = baselines.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().endsWith(suffix)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public void resetAll() {
+        baselines.clear();
+    }
+
+    /**
+     * Drop all baselines when the cluster groups configuration changes, as the white/black lists may have changed.
+     *
+     * @param event the local configuration event.
+     */
+    @Override
+    public void configurationEvent(ConfigurationEvent event) {
+        if (Configurations.GROUP.equals(event.getPid())) {
+            resetAll();
+        }
+    }
+
+    /**
+     * Digests of a cluster map and of the local state at the last synchronization.
+     */
+    private static class Baseline {
+
+        private final MapDigest digest;
+        private final MapDigest localDigest;
+
+        Baseline(MapDigest digest, MapDigest localDigest) {
+            this.digest = digest;
+            this.localDigest = localDigest;
+        }
+
+    }
+
+}
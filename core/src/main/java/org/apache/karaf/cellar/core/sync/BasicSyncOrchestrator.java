@@ -0,0 +1,399 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.sync;
+
+import org.apache.karaf.cellar.core.Configurations;
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.Synchronizer;
+import org.apache.karaf.cellar.core.event.KeyOrderedExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Default synchronization orchestrator.
+ * Each cluster group is synchronized by a task of a bounded thread pool. The tasks of the same cluster group
+ * run one at a time, in submission order.
+ */
+public class BasicSyncOrchestrator implements SyncOrchestrator {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(BasicSyncOrchestrator.class);
+
+    /**
+     * Service property of the synchronizers giving the synchronized resource.
+     */
+    public static final String RESOURCE_PROPERTY = "resource";
+
+    /**
+     * Resource of the synchronizers without resource service property.
+     */
+    public static final String OTHER_RESOURCE = "other";
+
+    /**
+     * The resources in dependency order: the OBR URLs provide the bundles of the features repositories, the features
+     * install bundles, and the bundles provide the configurations. The other resources are synchronized last.
+     */
+    public static final List<String> RESOURCES = Collections.unmodifiableList(Arrays.asList("obr.urls", "feature", "bundle", "config"));
+
+    private static final Comparator<String> RESOURCE_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String resource1, String resource2) {
+            int index1 = RESOURCES.indexOf(resource1);
+            int index2 = RESOURCES.indexOf(resource2);
+            if (index1 < 0) {
+                index1 = RESOURCES.size();
+            }
+            if (index2 < 0) {
+                index2 = RESOURCES.size();
+            }
+            if (index1 != index2) {
+                return index1 < index2 ? -1 : 1;
+            }
+            return resource1.compareTo(resource2);
+        }
+    };
+
+    private final Map<Synchronizer, String> synchronizers = new LinkedHashMap<Synchronizer, String>();
+    private final Map<String, SyncStatus> status = new ConcurrentHashMap<String, SyncStatus>();
+    private final Set<GroupSyncTask> tasks = new HashSet<GroupSyncTask>();
+
+    private ThreadPoolExecutor threadPool;
+    private KeyOrderedExecutor orderedExecutor;
+    private IncrementalSync incrementalSync;
+    private int threads = 4;
+
+    public void init() {
+        threadPool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new SyncThreadFactory());
+        threadPool.allowCoreThreadTimeOut(true);
+        orderedExecutor = new KeyOrderedExecutor(threadPool);
+    }
+
+    public void destroy() {
+        if (threadPool != null) {
+            threadPool.shutdownNow();
+        }
+        // the tasks dropped by the shutdown never run: cancel them to release the waiting sync calls
+        List<GroupSyncTask> pending;
+        synchronized (tasks) {
+            pending = new ArrayList<GroupSyncTask>(tasks);
+        }
+        for (GroupSyncTask task : pending) {
+            task.cancel("sync orchestrator stopped");
+        }
+    }
+
+    public void bind(Synchronizer synchronizer, Map properties) {
+        if (synchronizer != null) {
+            Object resource = (properties != null) ? properties.get(RESOURCE_PROPERTY) : null;
+            synchronized (synchronizers) {
+                synchronizers.put(synchronizer, (resource != null) ? resource.toString() : OTHER_RESOURCE);
+            }
+        }
+    }
+
+    public void unbind(Synchronizer synchronizer, Map properties) {
+        if (synchronizer != null) {
+            synchronized (synchronizers) {
+                synchronizers.remove(synchronizer);
+            }
+        }
+    }
+
+    @Override
+    public List<SyncStatus> sync(Collection<Group> groups, Collection<String> resources, SyncListener listener) throws InterruptedException {
+        List<SyncStatus> result = new ArrayList<SyncStatus>();
+        if (groups == null || groups.isEmpty()) {
+            return result;
+        }
+        CountDownLatch latch = new CountDownLatch(groups.size());
+        List<GroupSyncTask> tasks = new ArrayList<GroupSyncTask>();
+        for (Group group : groups) {
+            tasks.add(schedule(group, resources, true, listener, latch));
+        }
+        latch.await();
+        for (GroupSyncTask task : tasks) {
+            result.addAll(task.getResult());
+        }
+        return result;
+    }
+
+    @Override
+    public void submit(Collection<Group> groups) {
+        submit(groups, false);
+    }
+
+    @Override
+    public void submit(Collection<Group> groups, boolean full) {
+        if (groups != null) {
+            for (Group group : groups) {
+                schedule(group, null, full, null, null);
+            }
+        }
+    }
+
+    @Override
+    public List<SyncStatus> getStatus() {
+        List<SyncStatus> result = new ArrayList<SyncStatus>(status.values());
+        Collections.sort(result, new Comparator<SyncStatus>() {
+            @Override
+            public int compare(SyncStatus status1, SyncStatus status2) {
+                int result = status1.getGroup().compareTo(status2.getGroup());
+                if (result != 0) {
+                    return result;
+                }
+                return RESOURCE_ORDER.compare(status1.getResource(), status2.getResource());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Get the synchronizers of the given resources, in dependency order.
+     *
+     * @param resources the resources to synchronize, null for all.
+     * @return the synchronizers by resource.
+     */
+    protected Map<String, List<Synchronizer>> plan(Collection<String> resources) {
+        Map<String, List<Synchronizer>> plan = new TreeMap<String, List<Synchronizer>>(RESOURCE_ORDER);
+        synchronized (synchronizers) {
+            for (Map.Entry<Synchronizer, String> entry : synchronizers.entrySet()) {
+                String resource = entry.getValue();
+                if (resources != null && !resources.contains(resource)) {
+                    continue;
+                }
+                List<Synchronizer> list = plan.get(resource);
+                if (list == null) {
+                    list = new ArrayList<Synchronizer>();
+                    plan.put(resource, list);
+                }
+                list.add(entry.getKey());
+            }
+        }
+        return plan;
+    }
+
+    private GroupSyncTask schedule(Group group, Collection<String> resources, boolean full, SyncListener listener, CountDownLatch latch) {
+        Map<String, List<Synchronizer>> plan = plan(resources);
+        for (String resource : plan.keySet()) {
+            String key = group.getName() + Configurations.SEPARATOR + resource;
+            SyncStatus current = status.get(key);
+            if (current == null || current.isCompleted()) {
+                update(new SyncStatus(group.getName(), resource, SyncStatus.State.PENDING, 0, 0, null), listener);
+            }
+        }
+        GroupSyncTask task = new GroupSyncTask(group, plan, full, listener, latch);
+        synchronized (tasks) {
+            tasks.add(task);
+        }
+        if (orderedExecutor != null) {
+            try {
+                orderedExecutor.execute(group.getName(), task);
+            } catch (RuntimeException e) {
+                task.cancel("sync rejected");
+                throw e;
+            }
+        } else {
+            task.run();
+        }
+        return task;
+    }
+
+    private void update(SyncStatus syncStatus, SyncListener listener) {
+        status.put(syncStatus.getGroup() + Configurations.SEPARATOR + syncStatus.getResource(), syncStatus);
+        if (listener != null) {
+            try {
+                listener.statusChanged(syncStatus);
+            } catch (Exception e) {
+                LOGGER.debug("CELLAR SYNC: sync listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * Synchronization of the resources of a cluster group, in dependency order.
+     */
+    private class GroupSyncTask implements Runnable {
+
+        private final Group group;
+        private final Map<String, List<Synchronizer>> plan;
+        private final boolean full;
+        private final SyncListener listener;
+        private final CountDownLatch latch;
+        private final List<SyncStatus> result = new ArrayList<SyncStatus>();
+
+        GroupSyncTask(Group group, Map<String, List<Synchronizer>> plan, boolean full, SyncListener listener, CountDownLatch latch) {
+            this.group = group;
+            this.plan = plan;
+            this.full = full;
+            this.listener = listener;
+            this.latch = latch;
+        }
+
+        private boolean completed;
+
+        @Override
+        public void run() {
+            try {
+                if (isCompleted()) {
+                    return;
+                }
+                if (full && incrementalSync != null) {
+                    incrementalSync.resetGroup(group.getName());
+                }
+                for (Map.Entry<String, List<Synchronizer>> entry : plan.entrySet()) {
+                    if (isCompleted()) {
+                        return;
+                    }
+                    String resource = entry.getKey();
+                    long start = System.currentTimeMillis();
+                    update(new SyncStatus(group.getName(), resource, SyncStatus.State.RUNNING, start, 0, null), listener);
+                    String error = null;
+                    for (Synchronizer synchronizer : entry.getValue()) {
+                        try {
+                            synchronizer.sync(group);
+                        } catch (Exception e) {
+                            LOGGER.warn("CELLAR SYNC: failed to sync {} in cluster group {}", resource, group.getName(), e);
+                            error = (e.getMessage() != null) ? e.getMessage() : e.getClass().getName();
+                        }
+                    }
+                    long duration = System.currentTimeMillis() - start;
+                    LOGGER.debug("CELLAR SYNC: {} synced in cluster group {} in {} ms", resource, group.getName(), duration);
+                    SyncStatus done = new SyncStatus(group.getName(), resource, (error == null) ? SyncStatus.State.DONE : SyncStatus.State.FAILED, start, duration, error);
+                    synchronized (result) {
+                        if (completed) {
+                            return;
+                        }
+                        result.add(done);
+                    }
+                    update(done, listener);
+                }
+            } finally {
+                complete();
+            }
+        }
+
+        /**
+         * Mark the resources not synchronized yet as failed and release the waiting sync call.
+         *
+         * @param error the cancellation reason.
+         */
+        void cancel(String error) {
+            List<SyncStatus> cancelled = new ArrayList<SyncStatus>();
+            synchronized (result) {
+                if (completed) {
+                    return;
+                }
+                for (String resource : plan.keySet()) {
+                    boolean synced = false;
+                    for (SyncStatus syncStatus : result) {
+                        if (syncStatus.getResource().equals(resource)) {
+                            synced = true;
+                            break;
+                        }
+                    }
+                    if (!synced) {
+                        SyncStatus failed = new SyncStatus(group.getName(), resource, SyncStatus.State.FAILED, System.currentTimeMillis(), 0, error);
+                        result.add(failed);
+                        cancelled.add(failed);
+                    }
+                }
+                completed = true;
+            }
+            LOGGER.warn("CELLAR SYNC: sync of cluster group {} cancelled ({})", group.getName(), error);
+            for (SyncStatus failed : cancelled) {
+                update(failed, listener);
+            }
+            complete();
+        }
+
+        private boolean isCompleted() {
+            synchronized (result) {
+                return completed;
+            }
+        }
+
+        private void complete() {
+            synchronized (result) {
+                completed = true;
+            }
+            // the task leaves the tasks set once, the latch is counted down once
+            synchronized (tasks) {
+                if (!tasks.remove(this)) {
+                    return;
+                }
+            }
+            if (latch != null) {
+                latch.countDown();
+            }
+        }
+
+        List<SyncStatus> getResult() {
+            synchronized (result) {
+                return new ArrayList<SyncStatus>(result);
+            }
+        }
+
+    }
+
+    /**
+     * Thread factory naming the synchronization threads.
+     */
+    private static class SyncThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "cellar-sync-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public IncrementalSync getIncrementalSync() {
+        return incrementalSync;
+    }
+
+    public void setIncrementalSync(IncrementalSync incrementalSync) {
+        this.incrementalSync = incrementalSync;
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.sync;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cluster map wrapper, keeping the digest of the map up to date on each change.
+ * The views (keys, values, entries) are read only: the changes have to go through the map methods.
+ * The atomic operations require a concurrent cluster map.
+ */
+public class DigestMap<K, V> implements ConcurrentMap<K, V> {
+
+    private final Map<K, V> delegate;
+    private final ConcurrentMap<String, MapDigest> digests;
+    private final String name;
+
+    /**
+     * Wrap a cluster map.
+     *
+     * @param delegate the cluster map.
+     * @param digests the cluster map holding the digests.
+     * @param name the cluster map name.
+     */
+    public DigestMap(Map<K, V> delegate, ConcurrentMap<String, MapDigest> digests, String name) {
+        this.delegate = delegate;
+        this.digests = digests;
+        this.name = name;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        V oldValue = delegate.put(key, value);
+        updateDigest(key, oldValue, value);
+        return oldValue;
+    }
+
+    @Override
+    public V remove(Object key) {
+        V oldValue = delegate.remove(key);
+        if (oldValue != null) {
+            updateDigest(key, oldValue, null);
+        }
+        return oldValue;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Object key : delegate.keySet().toArray()) {
+            remove(key);
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        V oldValue = concurrentMap().putIfAbsent(key, value);
+        if (oldValue == null) {
+            updateDigest(key, null, value);
+        }
+        return oldValue;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (concurrentMap().remove(key, value)) {
+            updateDigest(key, value, null);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (concurrentMap().replace(key, oldValue, newValue)) {
+            updateDigest(key, oldValue, newValue);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        V oldValue = concurrentMap().replace(key, value);
+        if (oldValue != null) {
+            updateDigest(key, oldValue, value);
+        }
+        return oldValue;
+    }
+
+    private ConcurrentMap<K, V> concurrentMap() {
+        if (!(delegate instanceof ConcurrentMap)) {
+            throw new UnsupportedOperationException("The cluster map " + name + " is not a concurrent map");
+        }
+        return (ConcurrentMap<K, V>) delegate;
+    }
+
+    private void updateDigest(Object key, Object oldValue, Object newValue) {
+        if (MapDigest.hash(key, oldValue) == MapDigest.hash(key, newValue)) {
+            return;
+        }
+        while (true) {
+            MapDigest current = digests.get(name);
+            if (current == null) {
+                if (digests.putIfAbsent(name, MapDigest.EMPTY.update(key, oldValue, newValue)) == null) {
+                    return;
+                }
+            } else if (digests.replace(name, current, current.update(key, oldValue, newValue))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegate.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return delegate.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return delegate.containsValue(value);
+    }
+
+    @Override
+    public V get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return Collections.unmodifiableSet(delegate.keySet());
+    }
+
+    @Override
+    public Collection<V> values() {
+        return Collections.unmodifiableCollection(delegate.values());
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return Collections.unmodifiableSet(delegate.entrySet());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return delegate.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return delegate.hashCode();
+    }
+
+}
@@ -0,0 +1,30 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.sync;
+
+/**
+ * A cluster map value able to provide a digest of its content.
+ * The digest only covers the content relevant for the synchronization (not the node specific data),
+ * and has to be the same on all nodes for the same content.
+ */
+public interface Digestible {
+
+    /**
+     * Get the digest of the content.
+     *
+     * @return the digest.
+     */
+    public long digest();
+
+}
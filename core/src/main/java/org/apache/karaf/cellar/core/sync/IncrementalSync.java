@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.sync;
+
+import java.util.Map;
+
+/**
+ * Incremental synchronization support.
+ * The digest of each cluster map synchronized by the local node is kept as a baseline. On the next synchronization,
+ * only the entries of the buckets differing between the baseline and the current cluster digest are read.
+ * The digest of the local state (keyed as the cluster map) is kept as well, so that the buckets of the resources
+ * changed locally since the last synchronization are read again.
+ */
+public interface IncrementalSync {
+
+    /**
+     * Get the cluster map entries to synchronize.
+     *
+     * @param mapName the cluster map name.
+     * @param clusterMap the cluster map.
+     * @param digest the current digest of the cluster map (read before the entries), null if unknown.
+     * @param localDigest the current digest of the local state, null if the local state is not tracked.
+     * @return all cluster map entries if there is no baseline, else the entries of the buckets changed in the cluster
+     * or locally.
+     */
+    public <K, V> Map<K, V> entries(String mapName, Map<K, V> clusterMap, MapDigest digest, MapDigest localDigest);
+
+    /**
+     * Record the digest of a cluster map as synchronized. The baseline is dropped if the entries read didn't match the
+     * digest (entry changed during the synchronization, or stale value read from a near cache).
+     *
+     * @param mapName the cluster map name.
+     * @param digest the digest of the cluster map read before the synchronization.
+     * @param localDigest the digest of the local state after the synchronization, null if not tracked.
+     */
+    public void synced(String mapName, MapDigest digest, MapDigest localDigest);
+
+    /**
+     * Drop the baseline of a cluster map, the next synchronization reads all entries.
+     *
+     * @param mapName the cluster map name.
+     */
+    public void reset(String mapName);
+
+    /**
+     * Drop the baselines of all cluster maps of a cluster group.
+     *
+     * @param groupName the cluster group name.
+     */
+    public void resetGroup(String groupName);
+
+    /**
+     * Drop all baselines, the next synchronizations read all entries.
+     */
+    public void resetAll();
+
+}
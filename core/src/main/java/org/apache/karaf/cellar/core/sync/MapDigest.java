@@ -0,0 +1,226 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.sync;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Digest of a cluster map: the entries are spread in a fixed number of buckets, each bucket holding the
+ * XOR of the hashes of its entries, and the root holding the XOR of all buckets.
+ * The digest can be updated incrementally when an entry changes, without reading the other entries.
+ * Two nodes compare the roots first, then only the differing buckets have to be read.
+ */
+public final class MapDigest implements Serializable {
+
+    private static final long serialVersionUID = -3520375484315186346L;
+
+    public static final int BUCKETS = 64;
+
+    public static final MapDigest EMPTY = new MapDigest(0, new long[BUCKETS]);
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long root;
+    private final long[] buckets;
+
+    private MapDigest(long root, long[] buckets) {
+        this.root = root;
+        this.buckets = buckets;
+    }
+
+    public long getRoot() {
+        return root;
+    }
+
+    public long getBucket(int bucket) {
+        return buckets[bucket];
+    }
+
+    /**
+     * Get a new digest, updated with an entry change.
+     *
+     * @param key the entry key.
+     * @param oldValue the previous entry value (null if the entry is added).
+     * @param newValue the new entry value (null if the entry is removed).
+     * @return the updated digest.
+     */
+    public MapDigest update(Object key, Object oldValue, Object newValue) {
+        long delta = hash(key, oldValue) ^ hash(key, newValue);
+        if (delta == 0) {
+            return this;
+        }
+        long[] updated = buckets.clone();
+        updated[bucket(key)] ^= delta;
+        return new MapDigest(root ^ delta, updated);
+    }
+
+    /**
+     * Get the digest of a set of entries, for instance the local state of the resources of a cluster map.
+     *
+     * @param entries the entries.
+     * @return the digest.
+     */
+    public static MapDigest of(Map<?, ?> entries) {
+        long root = 0;
+        long[] buckets = new long[BUCKETS];
+        for (Map.Entry<?, ?> entry : entries.entrySet()) {
+            long hash = hash(entry.getKey(), entry.getValue());
+            buckets[bucket(entry.getKey())] ^= hash;
+            root ^= hash;
+        }
+        return new MapDigest(root, buckets);
+    }
+
+    /**
+     * Get the buckets differing between this digest and another one.
+     *
+     * @param other the other digest.
+     * @return the indexes of the differing buckets.
+     */
+    public Set<Integer> diff(MapDigest other) {
+        Set<Integer> result = new HashSet<Integer>();
+        if (other == null || other.root != root || !Arrays.equals(other.buckets, buckets)) {
+            for (int i = 0; i < BUCKETS; i++) {
+                if (other == null || other.buckets[i] != buckets[i]) {
+                    result.add(i);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the bucket of a key.
+     *
+     * @param key the entry key.
+     * @return the bucket index.
+     */
+    public static int bucket(Object key) {
+        int h = String.valueOf(key).hashCode();
+        h ^= (h >>> 16);
+        return h & (BUCKETS - 1);
+    }
+
+    /**
+     * Get the hash of an entry.
+     *
+     * @param key the entry key.
+     * @param value the entry value.
+     * @return the entry hash, 0 if the value is null.
+     */
+    public static long hash(Object key, Object value) {
+        if (value == null) {
+            return 0;
+        }
+        return mix(fnv(FNV_OFFSET, String.valueOf(key)) * 31 + valueHash(value));
+    }
+
+    /**
+     * Get the digest of a set of values, to be used by the {@link Digestible} implementations.
+     *
+     * @param values the values.
+     * @return the digest.
+     */
+    public static long digest(Object... values) {
+        long h = FNV_OFFSET;
+        for (Object value : values) {
+            h = fnv(h, String.valueOf(value));
+            h = (h ^ 0x1f) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    private static long valueHash(Object value) {
+        if (value instanceof Digestible) {
+            return ((Digestible) value).digest();
+        }
+        if (value instanceof Dictionary) {
+            SortedMap<String, Long> sorted = new TreeMap<String, Long>();
+            Dictionary dictionary = (Dictionary) value;
+            Enumeration keys = dictionary.keys();
+            while (keys.hasMoreElements()) {
+                Object key = keys.nextElement();
+                sorted.put(String.valueOf(key), valueHash(dictionary.get(key)));
+            }
+            return sortedHash(sorted);
+        }
+        if (value instanceof Map) {
+            SortedMap<String, Long> sorted = new TreeMap<String, Long>();
+            for (Object entry : ((Map) value).entrySet()) {
+                Map.Entry mapEntry = (Map.Entry) entry;
+                sorted.put(String.valueOf(mapEntry.getKey()), valueHash(mapEntry.getValue()));
+            }
+            return sortedHash(sorted);
+        }
+        if (value instanceof Object[]) {
+            return fnv(FNV_OFFSET, Arrays.deepToString((Object[]) value));
+        }
+        // values without a stable string representation just never match, forcing the synchronization
+        return fnv(FNV_OFFSET, (value == null ? "null" : value.getClass().getName()) + ":" + value);
+    }
+
+    private static long sortedHash(SortedMap<String, Long> sorted) {
+        long h = FNV_OFFSET;
+        for (Map.Entry<String, Long> entry : sorted.entrySet()) {
+            h = fnv(h, entry.getKey());
+            h = (h ^ entry.getValue()) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    private static long fnv(long h, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= FNV_PRIME;
+        }
+        return h;
+    }
+
+    private static long mix(long h) {
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= (h >>> 33);
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MapDigest that = (MapDigest) o;
+        return root == that.root && Arrays.equals(buckets, that.buckets);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (root ^ (root >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "MapDigest [root=" + Long.toHexString(root) + "]";
+    }
+
+}
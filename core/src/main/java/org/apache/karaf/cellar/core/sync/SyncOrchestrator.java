@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.sync;
+
+import org.apache.karaf.cellar.core.Group;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Orchestrator of the cluster synchronizers.
+ * The cluster groups are synchronized concurrently, whereas the resources of a cluster group are synchronized
+ * one after the other, following the dependencies between the resources (OBR URLs, features repositories and
+ * features, bundles, configurations).
+ */
+public interface SyncOrchestrator {
+
+    /**
+     * Synchronize cluster groups and wait for the end of the synchronization.
+     * It's a full synchronization: all entries of the cluster maps are compared with the local state.
+     *
+     * @param groups the cluster groups to synchronize.
+     * @param resources the resources to synchronize (as defined by the synchronizers resource service property), null for all.
+     * @param listener the listener notified of the synchronization progress, may be null.
+     * @return the status of each synchronized resource.
+     * @throws InterruptedException if the thread is interrupted while waiting for the synchronization.
+     */
+    public List<SyncStatus> sync(Collection<Group> groups, Collection<String> resources, SyncListener listener) throws InterruptedException;
+
+    /**
+     * Synchronize cluster groups in the background.
+     * It's an incremental synchronization: only the cluster map entries changed since the previous synchronization
+     * are compared with the local state.
+     *
+     * @param groups the cluster groups to synchronize.
+     */
+    public void submit(Collection<Group> groups);
+
+    /**
+     * Synchronize cluster groups in the background.
+     *
+     * @param groups the cluster groups to synchronize.
+     * @param full true to compare all entries of the cluster maps with the local state (for instance when the node
+     *             joins a cluster group), false for an incremental synchronization.
+     */
+    public void submit(Collection<Group> groups, boolean full);
+
+    /**
+     * Get the status of the latest synchronization of each cluster group resource.
+     *
+     * @return the list of synchronization status, in cluster group and resource order.
+     */
+    public List<SyncStatus> getStatus();
+
+}
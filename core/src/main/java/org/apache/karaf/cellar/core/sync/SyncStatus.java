@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.sync;
+
+import java.io.Serializable;
+
+/**
+ * Status of the synchronization of a resource in a cluster group.
+ */
+public class SyncStatus implements Serializable {
+
+    public enum State {
+        PENDING, RUNNING, DONE, FAILED
+    }
+
+    private final String group;
+    private final String resource;
+    private final State state;
+    private final long startTime;
+    private final long duration;
+    private final String error;
+
+    public SyncStatus(String group, String resource, State state, long startTime, long duration, String error) {
+        this.group = group;
+        this.resource = resource;
+        this.state = state;
+        this.startTime = startTime;
+        this.duration = duration;
+        this.error = error;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Get the synchronization start time.
+     *
+     * @return the start time in milliseconds, 0 if the synchronization is pending.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Get the synchronization duration.
+     *
+     * @return the duration in milliseconds, 0 if the synchronization is not completed.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isCompleted() {
+        return state == State.DONE || state == State.FAILED;
+    }
+
+    @Override
+    public String toString() {
+        return "SyncStatus{" +
+                "group='" + group + '\'' +
+                ", resource='" + resource + '\'' +
+                ", state=" + state +
+                ", duration=" + duration +
+                (error != null ? ", error='" + error + '\'' : "") +
+                '}';
+    }
+
+}
@@ -3,7 +3,7 @@
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
  *
- *      http://www.apache.org/licenses/LICENSE-2.0
+ *       http://www.apache.org/licenses/LICENSE-2.0
  *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
@@ -14,50 +14,173 @@
 package org.apache.karaf.cellar.core.utils;
 
 import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A class loader which combines multiple bundle class loaders.
  * A bundle can add itself for to this class loader, so that the class loader can load classes from the bundle.
  * It is meant to be used together with the extender pattern in order to extends Cellar class space.
+ * <p>
+ * The class lookups are cached: the bundle which loaded a class, and the classes not found (bounded). The bundles
+ * exporting the package of a class are tried before the other bundles. The caches are invalidated when the bundles
+ * change.
  */
 public class CombinedClassLoader extends ClassLoader {
 
+    public static final int DEFAULT_MISSING_CLASSES_CACHE_SIZE = 1000;
+
     private final ConcurrentMap<Long, Bundle> bundles = new ConcurrentHashMap<Long, Bundle>();
 
+    private final ConcurrentMap<String, Bundle> classBundles = new ConcurrentHashMap<String, Bundle>();
+    private final ConcurrentMap<String, List<Bundle>> packageExporters = new ConcurrentHashMap<String, List<Bundle>>();
+    private final Set<String> missingClasses = Collections.synchronizedSet(Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > missingClassesCacheSize;
+        }
+    }));
+
+    private int missingClassesCacheSize = DEFAULT_MISSING_CLASSES_CACHE_SIZE;
+
     public void init() {
         bundles.clear();
+        invalidate();
+        packageExporters.clear();
     }
 
     public void destroy() {
         bundles.clear();
+        invalidate();
+        packageExporters.clear();
     }
 
     public void addBundle(Bundle bundle) {
-        bundles.put(bundle.getBundleId(), bundle);
+        Bundle previous = bundles.put(bundle.getBundleId(), bundle);
+        if (previous != null) {
+            removeExporter(previous);
+        }
+        for (String exportedPackage : getExportedPackages(bundle)) {
+            List<Bundle> exporters = packageExporters.get(exportedPackage);
+            if (exporters == null) {
+                exporters = new CopyOnWriteArrayList<Bundle>();
+                List<Bundle> existing = packageExporters.putIfAbsent(exportedPackage, exporters);
+                if (existing != null) {
+                    exporters = existing;
+                }
+            }
+            exporters.add(bundle);
+        }
+        // a class missing so far may be provided by the new bundle
+        missingClasses.clear();
     }
 
     public void removeBundle(Bundle bundle) {
-        bundles.remove(bundle.getBundleId());
+        Bundle removed = bundles.remove(bundle.getBundleId());
+        if (removed != null) {
+            removeExporter(removed);
+        }
+        for (Iterator<Bundle> iterator = classBundles.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().getBundleId() == bundle.getBundleId()) {
+                iterator.remove();
+            }
+        }
+        missingClasses.clear();
+    }
+
+    /**
+     * Invalidate the class lookup caches, typically when a bundle state changes.
+     */
+    public void invalidate() {
+        classBundles.clear();
+        missingClasses.clear();
     }
 
     @Override
     public Class findClass(String name) throws ClassNotFoundException {
-        for (Map.Entry<Long, Bundle> entry : bundles.entrySet()) {
-            try {
-                Bundle bundle = entry.getValue();
-                if (bundle.getState() == Bundle.ACTIVE || bundle.getState() == Bundle.STARTING) {
-                    return bundle.loadClass(name);
+        Bundle cached = classBundles.get(name);
+        if (cached != null) {
+            if (isAvailable(cached)) {
+                try {
+                    return cached.loadClass(name);
+                } catch (ClassNotFoundException cnfe) {
+                    // the bundle doesn't provide the class anymore, look up again
                 }
+            }
+            classBundles.remove(name);
+        }
+        if (missingClasses.contains(name)) {
+            throw new ClassNotFoundException(name);
+        }
+
+        List<Bundle> exporters = null;
+        int index = name.lastIndexOf('.');
+        if (index > 0) {
+            exporters = packageExporters.get(name.substring(0, index));
+        }
+        if (exporters != null) {
+            for (Bundle bundle : exporters) {
+                Class clazz = loadClass(bundle, name);
+                if (clazz != null) {
+                    return clazz;
+                }
+            }
+        }
+        for (Bundle bundle : bundles.values()) {
+            if (exporters == null || !exporters.contains(bundle)) {
+                Class clazz = loadClass(bundle, name);
+                if (clazz != null) {
+                    return clazz;
+                }
+            }
+        }
+        missingClasses.add(name);
+        throw new ClassNotFoundException(name);
+    }
+
+    /**
+     * Load a class from a bundle, and cache the bundle for this class.
+     *
+     * @return the class, or null if the bundle is not active or doesn't provide the class.
+     */
+    private Class loadClass(Bundle bundle, String name) {
+        if (isAvailable(bundle)) {
+            try {
+                Class clazz = bundle.loadClass(name);
+                classBundles.put(name, bundle);
+                return clazz;
             } catch (ClassNotFoundException cnfe) {
                 // Try next
             }
         }
-        throw new ClassNotFoundException(name);
+        return null;
+    }
+
+    private boolean isAvailable(Bundle bundle) {
+        return bundles.containsKey(bundle.getBundleId())
+                && (bundle.getState() == Bundle.ACTIVE || bundle.getState() == Bundle.STARTING);
+    }
+
+    private void removeExporter(Bundle bundle) {
+        for (Map.Entry<String, List<Bundle>> entry : packageExporters.entrySet()) {
+            List<Bundle> exporters = entry.getValue();
+            exporters.remove(bundle);
+            if (exporters.isEmpty()) {
+                packageExporters.remove(entry.getKey(), exporters);
+            }
+        }
     }
 
     @Override
@@ -74,4 +197,64 @@ public class CombinedClassLoader extends ClassLoader {
         return null;
     }
 
-}
\ No newline at end of file
+    public int getMissingClassesCacheSize() {
+        return missingClassesCacheSize;
+    }
+
+    public void setMissingClassesCacheSize(int missingClassesCacheSize) {
+        this.missingClassesCacheSize = missingClassesCacheSize;
+    }
+
+    /**
+     * Get the packages exported by a bundle.
+     *
+     * @param bundle the bundle.
+     * @return the exported packages names.
+     */
+    private static List<String> getExportedPackages(Bundle bundle) {
+        Dictionary headers = bundle.getHeaders();
+        if (headers == null) {
+            return Collections.emptyList();
+        }
+        return parseExportedPackages((String) headers.get(Constants.EXPORT_PACKAGE));
+    }
+
+    /**
+     * Parse an {@code Export-Package} header.
+     * A clause contains one or more packages separated by semicolons, followed by the directives and attributes
+     * (possibly quoted, containing commas).
+     *
+     * @param header the header value, may be null.
+     * @return the exported packages names.
+     */
+    static List<String> parseExportedPackages(String header) {
+        List<String> packages = new ArrayList<String>();
+        if (header == null) {
+            return packages;
+        }
+        boolean quoted = false;
+        boolean parameters = false;
+        int start = 0;
+        for (int i = 0; i <= header.length(); i++) {
+            char c = (i < header.length()) ? header.charAt(i) : ',';
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && (c == ';' || c == ',')) {
+                if (!parameters) {
+                    String element = header.substring(start, i).trim();
+                    if (element.indexOf('=') >= 0) {
+                        parameters = true;
+                    } else if (element.length() > 0) {
+                        packages.add(element);
+                    }
+                }
+                if (c == ',') {
+                    parameters = false;
+                }
+                start = i + 1;
+            }
+        }
+        return packages;
+    }
+
+}
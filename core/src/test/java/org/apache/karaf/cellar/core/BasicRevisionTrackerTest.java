@@ -0,0 +1,54 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BasicRevisionTrackerTest {
+
+    @Test
+    public void testStaleRevisions() {
+        BasicRevisionTracker tracker = new BasicRevisionTracker();
+        assertFalse(tracker.isStale("default", "bundle", "org.example/1.0.0", 1));
+        tracker.applied("default", "bundle", "org.example/1.0.0", 3);
+        assertTrue(tracker.isStale("default", "bundle", "org.example/1.0.0", 2));
+        assertTrue(tracker.isStale("default", "bundle", "org.example/1.0.0", 3));
+        assertFalse(tracker.isStale("default", "bundle", "org.example/1.0.0", 4));
+        assertFalse(tracker.isStale("other", "bundle", "org.example/1.0.0", 2));
+        assertFalse(tracker.isStale("default", "features", "org.example/1.0.0", 2));
+        assertEquals(2, tracker.getStaleCount());
+    }
+
+    @Test
+    public void testUnknownRevision() {
+        BasicRevisionTracker tracker = new BasicRevisionTracker();
+        tracker.applied("default", "config", "org.example", 0);
+        assertEquals(0, tracker.getRevision("default", "config", "org.example"));
+        tracker.applied("default", "config", "org.example", 5);
+        assertFalse(tracker.isStale("default", "config", "org.example", 0));
+    }
+
+    @Test
+    public void testOlderRevisionIgnored() {
+        BasicRevisionTracker tracker = new BasicRevisionTracker();
+        tracker.applied("default", "config", "org.example", 5);
+        tracker.applied("default", "config", "org.example", 2);
+        assertEquals(5, tracker.getRevision("default", "config", "org.example"));
+    }
+
+}
@@ -14,9 +14,16 @@
 package org.apache.karaf.cellar.core;
 
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.Dictionary;
+import java.util.HashSet;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.apache.karaf.cellar.core.event.EventType;
+import org.apache.karaf.cellar.core.sync.DigestMap;
+import org.apache.karaf.cellar.core.sync.MapDigest;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Before;
@@ -30,6 +37,7 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 public class CellarSupportTest {
 
@@ -79,4 +87,61 @@ public class CellarSupportTest {
         assertEquals("Instance config should be allowed",expectedResult,result);
     }
 
+    @Test
+    public void testIsAllowedWithListMatcherIndex() {
+        BasicListMatcherIndex index = new BasicListMatcherIndex();
+        index.setConfigurationAdmin(configurationAdmin);
+        CellarSupport support = new CellarSupport();
+        support.setConfigurationAdmin(configurationAdmin);
+        support.setListMatcherIndex(index);
+
+        assertEquals("Shell should not be allowed", false, support.isAllowed(defaultGroup, "config", "org.apache.karaf.shell", EventType.INBOUND));
+        assertEquals("Group config should be allowed", true, support.isAllowed(defaultGroup, "config", "org.apache.karaf.cellar.group", EventType.INBOUND));
+        assertEquals("Node config should not be allowed", false, support.isAllowed(defaultGroup, "config", "org.apache.karaf.cellar.node", EventType.OUTBOUND));
+        assertEquals("Cellar feature should not be allowed", false, support.isAllowed(defaultGroup, "features", "cellar", EventType.INBOUND));
+        assertEquals("Bundle should be allowed", true, support.isAllowed(defaultGroup, "bundle", "mvn:org.foo/bar/1.0", EventType.OUTBOUND));
+    }
+
+    @Test
+    public void testConcurrentRevisions() throws Exception {
+        final ConcurrentHashMap<String, Long> revisions = new ConcurrentHashMap<String, Long>();
+        ConcurrentMap<String, MapDigest> digests = new ConcurrentHashMap<String, MapDigest>();
+        final DigestMap<String, Long> clusterRevisions = new DigestMap<String, Long>(revisions, digests, "revisions");
+        final Set<Long> applied = Collections.synchronizedSet(new HashSet<Long>());
+        final Set<Long> duplicates = Collections.synchronizedSet(new HashSet<Long>());
+        Thread[] nodes = new Thread[4];
+        for (int i = 0; i < nodes.length; i++) {
+            final CellarSupport support = new CellarSupport();
+            nodes[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 500; j++) {
+                        long revision;
+                        while (true) {
+                            Long previous = clusterRevisions.get("pid");
+                            revision = support.nextRevision("default", "config", "pid", (previous != null) ? previous : 0);
+                            if (support.compareAndSet(clusterRevisions, "pid", previous, revision)) {
+                                break;
+                            }
+                        }
+                        if (!applied.add(revision)) {
+                            duplicates.add(revision);
+                        }
+                    }
+                }
+            };
+            nodes[i].start();
+        }
+        for (Thread node : nodes) {
+            node.join();
+        }
+
+        // each update got its own revision, the last one is in the cluster map
+        assertEquals(Collections.emptySet(), duplicates);
+        assertEquals(Collections.max(applied), revisions.get("pid"));
+        assertEquals(MapDigest.of(revisions), digests.get("revisions"));
+
+        assertFalse(new CellarSupport().compareAndSet(clusterRevisions, "pid", 0L, 1L));
+    }
+
 }
@@ -0,0 +1,53 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ListMatcherTest {
+
+    @Test
+    public void testMatches() {
+        ListMatcher matcher = new ListMatcher(Arrays.asList("org.apache.karaf.shell", "org.apache.karaf.cellar*", "mvn:*/1.0", "org.ops4j.pax.(logging|url)"));
+
+        assertFalse(matcher.isEmpty());
+        // literal
+        assertTrue(matcher.matches("org.apache.karaf.shell"));
+        assertFalse(matcher.matches("org.apache.karaf.shell.core"));
+        // prefix
+        assertTrue(matcher.matches("org.apache.karaf.cellar"));
+        assertTrue(matcher.matches("org.apache.karaf.cellar.node"));
+        assertFalse(matcher.matches("org.apache.karaf.cella"));
+        // wildcard in the middle
+        assertTrue(matcher.matches("mvn:org.foo/bar/1.0"));
+        assertFalse(matcher.matches("mvn:org.foo/bar/1.0.1"));
+        // regex
+        assertTrue(matcher.matches("org.ops4j.pax.logging"));
+        assertFalse(matcher.matches("org.ops4j.pax.web"));
+    }
+
+    @Test
+    public void testMatchAll() {
+        ListMatcher matcher = new ListMatcher(Arrays.asList("*"));
+        assertTrue(matcher.matches("anything"));
+        assertFalse(ListMatcher.EMPTY.matches("anything"));
+        assertTrue(ListMatcher.EMPTY.isEmpty());
+    }
+
+}
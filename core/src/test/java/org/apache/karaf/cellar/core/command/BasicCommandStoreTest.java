@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.command;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BasicCommandStoreTest {
+
+    private BasicCommandStore store;
+
+    @Before
+    public void setUp() {
+        store = new BasicCommandStore();
+    }
+
+    @After
+    public void tearDown() {
+        store.destroy();
+    }
+
+    @Test
+    public void testExpiredCommandIsEvicted() throws Exception {
+        final CountDownLatch timedOut = new CountDownLatch(1);
+        Command command = new Command("command") {
+            @Override
+            public void onTimeout() {
+                super.onTimeout();
+                timedOut.countDown();
+            }
+        };
+        command.setTimeout(100);
+        store.addPending(command);
+        assertEquals(1, store.getPendingCount());
+
+        assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+        assertNull(store.getPending().get("command"));
+        assertEquals(0, store.getPendingCount());
+        assertEquals(1, store.getTimeoutCount());
+        assertEquals(1.0, store.getTimeoutRate(), 0.0);
+        // the waiting caller is released with the partial results
+        assertNotNull(command.getResult());
+    }
+
+    @Test
+    public void testRemovedCommandDoesNotTimeout() throws Exception {
+        Command command = new Command("command");
+        command.setTimeout(100);
+        store.addPending(command);
+        assertEquals(1, store.getScheduledTimeouts());
+        assertTrue(store.removePending("command") == command);
+        assertEquals(0, store.getScheduledTimeouts());
+
+        Thread.sleep(400);
+        assertEquals(0, store.getTimeoutCount());
+        assertEquals(1, store.getCommandCount());
+    }
+
+    @Test
+    public void testTimeoutWheelCancel() throws Exception {
+        TimeoutWheel wheel = new TimeoutWheel(10, 8);
+        try {
+            final CountDownLatch fired = new CountDownLatch(1);
+            TimeoutWheel.Timeout cancelled = wheel.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    throw new IllegalStateException("cancelled timeout must not run");
+                }
+            }, 50);
+            // longer than a full round of the wheel
+            TimeoutWheel.Timeout timeout = wheel.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    fired.countDown();
+                }
+            }, 200);
+            assertTrue(cancelled.cancel());
+            assertFalse(cancelled.cancel());
+            assertTrue(fired.await(5, TimeUnit.SECONDS));
+            assertTrue(timeout.isExpired());
+            assertTrue(cancelled.isCancelled());
+            assertEquals(0, wheel.getPendingCount());
+        } finally {
+            wheel.stop();
+        }
+    }
+
+}
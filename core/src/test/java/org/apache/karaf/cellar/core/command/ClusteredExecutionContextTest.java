@@ -0,0 +1,147 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.command;
+
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.Producer;
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.easymock.EasyMock.createMock;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ClusteredExecutionContextTest {
+
+    private final Node node = createMock(Node.class);
+
+    private BasicCommandStore commandStore;
+    private ClusteredExecutionContext executionContext;
+    private boolean reply = true;
+
+    @Before
+    public void setUp() {
+        commandStore = new BasicCommandStore();
+        Producer<Command> producer = new Producer<Command>() {
+            @Override
+            public void produce(Command command) {
+                if (!reply) {
+                    return;
+                }
+                Result result = new Result(command.getId());
+                result.setSourceNode(node);
+                command.addResults(result);
+            }
+
+            @Override
+            public Switch getSwitch() {
+                return new BasicSwitch("test");
+            }
+        };
+        executionContext = new ClusteredExecutionContext(producer, commandStore);
+    }
+
+    @After
+    public void tearDown() {
+        commandStore.destroy();
+    }
+
+    @Test
+    public void testExecuteAsyncCompletedByResults() throws Exception {
+        Command<Result> command = new Command<Result>("command");
+        command.setDestination(Collections.singleton(node));
+
+        final AtomicReference<Map<Node, Result>> notified = new AtomicReference<Map<Node, Result>>();
+        CommandFuture<Result> future = executionContext.executeAsync(command);
+        future.addCallback(new CommandCallback<Result>() {
+            @Override
+            public void onResults(Map<Node, Result> results) {
+                notified.set(results);
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                fail("unexpected failure");
+            }
+        });
+
+        assertTrue(future.isDone());
+        assertEquals(1, future.get().size());
+        assertSame(future.get(), notified.get());
+        assertNull(commandStore.getPending().get("command"));
+        assertEquals(0, commandStore.getScheduledTimeouts());
+    }
+
+    @Test
+    public void testExecuteAsyncCompletedByTimeout() throws Exception {
+        reply = false;
+        Command<Result> command = new Command<Result>("command");
+        command.setDestination(Collections.singleton(node));
+        command.setTimeout(100);
+
+        final CountDownLatch completed = new CountDownLatch(1);
+        CommandFuture<Result> future = executionContext.executeAsync(command);
+        future.addCallback(new CommandCallback<Result>() {
+            @Override
+            public void onResults(Map<Node, Result> results) {
+                completed.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                fail("unexpected failure");
+            }
+        });
+        assertFalse(future.isDone());
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertTrue(future.get().isEmpty());
+        assertEquals(1, commandStore.getTimeoutCount());
+        assertNull(commandStore.getPending().get("command"));
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        reply = false;
+        Command<Result> command = new Command<Result>("command");
+        CommandFuture<Result> future = executionContext.executeAsync(command);
+        assertTrue(future.cancel(false));
+        assertTrue(future.isCancelled());
+        assertNull(commandStore.getPending().get("command"));
+        try {
+            future.get();
+            fail("cancelled future must not return results");
+        } catch (ExecutionException e) {
+            fail("cancelled future must throw a cancellation exception");
+        } catch (CancellationException e) {
+            // expected
+        }
+    }
+
+}
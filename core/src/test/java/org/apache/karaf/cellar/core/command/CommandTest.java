@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.command;
+
+import org.apache.karaf.cellar.core.Node;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.easymock.EasyMock.createMock;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CommandTest {
+
+    private final List<Node> nodes = new ArrayList<Node>();
+
+    private Command<Result> createCommand(int destinations) {
+        Set<Node> destination = new HashSet<Node>();
+        for (int i = 0; i < destinations; i++) {
+            Node node = createMock(Node.class);
+            nodes.add(node);
+            destination.add(node);
+        }
+        Command<Result> command = new Command<Result>("command");
+        command.setDestination(destination);
+        return command;
+    }
+
+    private Result result(int node) {
+        Result result = new Result("command");
+        result.setSourceNode(nodes.get(node));
+        return result;
+    }
+
+    @Test
+    public void testAllPolicy() throws Exception {
+        Command<Result> command = createCommand(3);
+        command.addResults(result(0));
+        command.addResults(result(1));
+        assertFalse(command.getFuture().isDone());
+        command.addResults(result(2));
+        assertTrue(command.getFuture().isDone());
+        assertEquals(3, command.getResult().size());
+    }
+
+    @Test
+    public void testFirstNPolicy() throws Exception {
+        Command<Result> command = createCommand(5);
+        command.setCompletionPolicy(CompletionPolicy.firstN(2));
+        command.addResults(result(0));
+        assertFalse(command.getFuture().isDone());
+        command.addResults(result(1));
+        assertTrue(command.getFuture().isDone());
+        // late results don't change the delivered results
+        command.addResults(result(2));
+        assertEquals(2, command.getFuture().get().size());
+        assertEquals(2, command.getResult().size());
+    }
+
+    @Test
+    public void testQuorumPolicy() throws Exception {
+        Command<Result> command = createCommand(4);
+        command.setCompletionPolicy(CompletionPolicy.QUORUM);
+        command.addResults(result(0), result(1));
+        assertFalse(command.getFuture().isDone());
+        command.addResults(result(2));
+        assertTrue(command.getFuture().isDone());
+        assertEquals(3, command.getResult().size());
+    }
+
+    @Test
+    public void testDeadlinePolicy() throws Exception {
+        Command<Result> command = createCommand(3);
+        command.setCompletionPolicy(CompletionPolicy.deadline(500));
+        assertEquals(500, command.getExpiration());
+        command.addResults(result(0));
+        assertFalse(command.getFuture().isDone());
+        // the command store expires the command at the deadline
+        command.onTimeout();
+        Map<Node, Result> results = command.getResult();
+        assertEquals(1, results.size());
+        assertTrue(command.getFuture().isDone());
+    }
+
+    @Test
+    public void testResultListener() throws Exception {
+        final List<Result> streamed = new ArrayList<Result>();
+        Command<Result> command = createCommand(2);
+        command.setCompletionPolicy(CompletionPolicy.firstN(1));
+        command.setResultListener(new ResultListener<Result>() {
+            @Override
+            public void onResult(Result result) {
+                streamed.add(result);
+            }
+        });
+        command.addResults(result(0));
+        command.addResults(result(1));
+        assertEquals(2, streamed.size());
+        assertEquals(1, command.getFuture().get().size());
+    }
+
+}
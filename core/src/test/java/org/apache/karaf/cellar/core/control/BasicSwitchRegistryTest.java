@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.control;
+
+import org.apache.karaf.cellar.core.Configurations;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.cm.ConfigurationEvent;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class BasicSwitchRegistryTest {
+
+    ConfigurationAdmin configurationAdmin = createMock(ConfigurationAdmin.class);
+    Configuration configuration = createMock(Configuration.class);
+    Dictionary<String, Object> properties = new Hashtable<String, Object>();
+
+    BasicSwitchRegistry registry = new BasicSwitchRegistry();
+
+    @Before
+    public void setUp() throws Exception {
+        expect(configurationAdmin.getConfiguration(EasyMock.<String>anyObject(), EasyMock.<String>anyObject())).andReturn(configuration).anyTimes();
+        expect(configuration.getProperties()).andReturn(properties).anyTimes();
+        replay(configuration);
+        replay(configurationAdmin);
+        registry.setConfigurationAdmin(configurationAdmin);
+    }
+
+    @Test
+    public void testRegister() {
+        properties.put(Configurations.PRODUCER, "false");
+        Switch producerSwitch = registry.register(new BasicSwitch("producer"), Configurations.PRODUCER);
+        assertEquals(SwitchStatus.OFF, producerSwitch.getStatus());
+        assertSame(producerSwitch, registry.getSwitch("producer"));
+
+        // a missing property turns the switch off
+        Switch handlerSwitch = registry.register(new BasicSwitch("handler"), Configurations.HANDLER + ".test");
+        assertEquals(SwitchStatus.OFF, handlerSwitch.getStatus());
+
+        registry.unregister(producerSwitch);
+        assertNull(registry.getSwitch("producer"));
+        assertNull(registry.getStatus("producer"));
+    }
+
+    @Test
+    public void testConfigurationEvent() {
+        properties.put(Configurations.CONSUMER, "true");
+        Switch consumerSwitch = new BasicSwitch("consumer");
+        Switch otherConsumerSwitch = new BasicSwitch("consumer");
+        registry.register(consumerSwitch, Configurations.CONSUMER);
+        registry.register(otherConsumerSwitch, Configurations.CONSUMER);
+        assertEquals(SwitchStatus.ON, registry.getStatus("consumer"));
+
+        properties.put(Configurations.CONSUMER, "false");
+        ServiceReference reference = createMock(ServiceReference.class);
+        registry.configurationEvent(new ConfigurationEvent(reference, ConfigurationEvent.CM_UPDATED, null, "other.pid"));
+        assertEquals(SwitchStatus.ON, consumerSwitch.getStatus());
+
+        registry.configurationEvent(new ConfigurationEvent(reference, ConfigurationEvent.CM_UPDATED, null, Configurations.NODE));
+        assertEquals(SwitchStatus.OFF, consumerSwitch.getStatus());
+        assertEquals(SwitchStatus.OFF, otherConsumerSwitch.getStatus());
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.control;
+
+import org.apache.karaf.cellar.core.Configurations;
+import org.easymock.EasyMock;
+import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+/**
+ * Micro benchmark comparing the switch check done by the producers and consumers for each cluster event:
+ * a ConfigurationAdmin lookup (as done before the switch registry) versus a registered switch.
+ * It's not executed by the build, run it with: java -cp ... org.apache.karaf.cellar.core.control.SwitchRegistryBenchmark [calls]
+ */
+public class SwitchRegistryBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int calls = (args.length > 0) ? Integer.parseInt(args[0]) : 5000000;
+
+        ConfigurationAdmin configurationAdmin = createMock(ConfigurationAdmin.class);
+        Configuration configuration = createMock(Configuration.class);
+        Dictionary<String, Object> properties = new Hashtable<String, Object>();
+        properties.put(Configurations.PRODUCER, "true");
+        expect(configurationAdmin.getConfiguration(EasyMock.<String>anyObject(), EasyMock.<String>anyObject())).andReturn(configuration).anyTimes();
+        expect(configuration.getProperties()).andReturn(properties).anyTimes();
+        replay(configuration);
+        replay(configurationAdmin);
+
+        BasicSwitchRegistry registry = new BasicSwitchRegistry();
+        registry.setConfigurationAdmin(configurationAdmin);
+        Switch registeredSwitch = registry.register(new BasicSwitch("registered"), Configurations.PRODUCER);
+        Switch lookupSwitch = new BasicSwitch("lookup");
+
+        // warm up
+        lookup(configurationAdmin, lookupSwitch, calls / 10);
+        registered(registeredSwitch, calls / 10);
+
+        long start = System.nanoTime();
+        int on = lookup(configurationAdmin, lookupSwitch, calls);
+        long lookupTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        on += registered(registeredSwitch, calls);
+        long registeredTime = System.nanoTime() - start;
+
+        System.out.println("Switch checks: " + calls + " (" + on + " ON)");
+        System.out.println("ConfigurationAdmin lookup: " + (calls * 1000000000L / Math.max(lookupTime, 1)) + " calls/s");
+        System.out.println("Switch registry:           " + (calls * 1000000000L / Math.max(registeredTime, 1)) + " calls/s");
+    }
+
+    private static int lookup(ConfigurationAdmin configurationAdmin, Switch eventSwitch, int calls) throws Exception {
+        int on = 0;
+        for (int i = 0; i < calls; i++) {
+            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
+            Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.PRODUCER));
+            if (status) {
+                eventSwitch.turnOn();
+            } else {
+                eventSwitch.turnOff();
+            }
+            if (eventSwitch.getStatus().equals(SwitchStatus.ON)) {
+                on++;
+            }
+        }
+        return on;
+    }
+
+    private static int registered(Switch eventSwitch, int calls) {
+        int on = 0;
+        for (int i = 0; i < calls; i++) {
+            if (eventSwitch.getStatus().equals(SwitchStatus.ON)) {
+                on++;
+            }
+        }
+        return on;
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.apache.karaf.cellar.core.command.Command;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EventBatcherTest {
+
+    private final List<Event> published = new CopyOnWriteArrayList<Event>();
+    private final CountDownLatch publication = new CountDownLatch(1);
+
+    private EventBatcher batcher;
+
+    @Before
+    public void setUp() {
+        batcher = new EventBatcher(3, 100, new EventBatcher.Publisher() {
+            @Override
+            public void publish(Event event) {
+                published.add(event);
+                publication.countDown();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        batcher.close();
+    }
+
+    @Test
+    public void testBatchPublishedWhenFull() {
+        for (int i = 0; i < 6; i++) {
+            batcher.add(new Event("event" + i));
+        }
+        assertEquals(2, published.size());
+        List<Event> events = ((EventBatch) published.get(0)).getEvents();
+        assertEquals(3, events.size());
+        assertEquals("event0", events.get(0).getId());
+        assertEquals("event2", events.get(2).getId());
+        assertEquals(6, batcher.getEventCount());
+        assertEquals(2, batcher.getMessageCount());
+    }
+
+    @Test
+    public void testBatchPublishedAfterWindow() throws Exception {
+        batcher.add(new Event("event0"));
+        batcher.add(new Event("event1"));
+        assertTrue(published.isEmpty());
+        assertTrue(publication.await(5, TimeUnit.SECONDS));
+        assertEquals(1, published.size());
+        assertEquals(2, ((EventBatch) published.get(0)).size());
+    }
+
+    @Test
+    public void testSingleEventNotWrapped() {
+        Event event = new Event("event0");
+        batcher.add(event);
+        batcher.flush();
+        assertEquals(1, published.size());
+        assertSame(event, published.get(0));
+    }
+
+    @Test
+    public void testCommandNotBatchedAndOrderPreserved() {
+        Event event = new Event("event0");
+        Command command = new Command("command");
+        batcher.add(event);
+        batcher.add(command);
+        assertEquals(2, published.size());
+        assertSame(event, published.get(0));
+        assertSame(command, published.get(1));
+    }
+
+}
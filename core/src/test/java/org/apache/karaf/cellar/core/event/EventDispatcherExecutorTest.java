@@ -0,0 +1,157 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventDispatcherExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> handled = new CopyOnWriteArrayList<String>();
+    private final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+    private final EventHandlerServiceRegistry<Event> registry = new EventHandlerServiceRegistry<Event>();
+
+    private EventDispatcherExecutor executor;
+
+    @Before
+    public void setUp() {
+        registry.bind(new EventHandler<Event>() {
+            @Override
+            public void handle(Event event) {
+                handled.add(event.getId());
+                threads.add(Thread.currentThread());
+            }
+
+            @Override
+            public Class<Event> getType() {
+                return Event.class;
+            }
+
+            @Override
+            public Switch getSwitch() {
+                return new BasicSwitch("test");
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void saturate() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // nothing to do
+                }
+            }
+        });
+        started.await(10, TimeUnit.SECONDS);
+    }
+
+    private EventDispatchTask<Event> task(String id, boolean force) {
+        Event event = new Event(id);
+        event.setForce(force);
+        return new EventDispatchTask<Event>(event, registry);
+    }
+
+    @Test
+    public void testCallerRuns() throws Exception {
+        executor = new EventDispatcherExecutor(1, 1, SaturationPolicy.CALLER_RUNS, 0);
+        saturate();
+        executor.execute(task("queued", false));
+        executor.execute(task("rejected", false));
+
+        assertEquals(1, executor.getRejectedCount());
+        assertEquals("rejected", handled.get(0));
+        assertEquals(Thread.currentThread(), threads.get(0));
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        executor = new EventDispatcherExecutor(1, 2, SaturationPolicy.DROP_OLDEST, 0);
+        saturate();
+        executor.execute(task("critical", true));
+        executor.execute(task("oldest", false));
+        executor.execute(task("newest", false));
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1, executor.getRejectedCount());
+        assertEquals(1, executor.getDroppedCount());
+        assertEquals(2, handled.size());
+        assertTrue(handled.contains("critical"));
+        assertTrue(handled.contains("newest"));
+        assertTrue(executor.getMaxLatency() > 0);
+    }
+
+    @Test
+    public void testDropOldestKeepsResults() throws Exception {
+        registry.bind(new EventHandler<Result>() {
+            @Override
+            public void handle(Result result) {
+                handled.add(result.getId());
+            }
+
+            @Override
+            public Class<Result> getType() {
+                return Result.class;
+            }
+
+            @Override
+            public Switch getSwitch() {
+                return new BasicSwitch("test");
+            }
+        });
+        Result result = new Result("result");
+        result.setForce(false);
+        executor = new EventDispatcherExecutor(1, 2, SaturationPolicy.DROP_OLDEST, 0);
+        saturate();
+        executor.execute(new EventDispatchTask<Event>(result, registry));
+        executor.execute(task("oldest", false));
+        executor.execute(task("newest", false));
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1, executor.getDroppedCount());
+        assertEquals(2, handled.size());
+        assertTrue(handled.contains("result"));
+        assertTrue(handled.contains("newest"));
+    }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeyOrderedExecutorTest {
+
+    private ExecutorService threadPool;
+    private KeyOrderedExecutor executor;
+
+    @Before
+    public void setUp() {
+        threadPool = Executors.newFixedThreadPool(8);
+        executor = new KeyOrderedExecutor(threadPool);
+    }
+
+    @After
+    public void tearDown() {
+        threadPool.shutdownNow();
+    }
+
+    @Test
+    public void testSameKeyInOrder() throws Exception {
+        final int count = 1000;
+        final List<Integer> first = new ArrayList<Integer>();
+        final List<Integer> second = new ArrayList<Integer>();
+        final CountDownLatch done = new CountDownLatch(2 * count);
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            executor.execute("first", new Runnable() {
+                @Override
+                public void run() {
+                    first.add(index);
+                    done.countDown();
+                }
+            });
+            executor.execute("second", new Runnable() {
+                @Override
+                public void run() {
+                    second.add(index);
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < count; i++) {
+            assertEquals(Integer.valueOf(i), first.get(i));
+            assertEquals(Integer.valueOf(i), second.get(i));
+        }
+    }
+
+    @Test
+    public void testDifferentKeysInParallel() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2);
+        executor.execute("blocked", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }
+        });
+        final AtomicInteger other = new AtomicInteger();
+        executor.execute("other", new Runnable() {
+            @Override
+            public void run() {
+                other.incrementAndGet();
+                release.countDown();
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, other.get());
+    }
+
+    @Test
+    public void testFailingTaskDoesNotBlockKey() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute("key", new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("expected");
+            }
+        });
+        executor.execute("key", new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBoundedDropOldest() throws Exception {
+        EventDispatcherExecutor pool = new EventDispatcherExecutor(1, 10, SaturationPolicy.DROP_OLDEST, 0);
+        KeyOrderedExecutor bounded = new KeyOrderedExecutor(pool, 2, SaturationPolicy.DROP_OLDEST, 0);
+        final List<String> handled = new CopyOnWriteArrayList<String>();
+        EventHandlerServiceRegistry<Event> registry = new EventHandlerServiceRegistry<Event>();
+        registry.bind(new EventHandler<Event>() {
+            @Override
+            public void handle(Event event) {
+                handled.add(event.getId());
+            }
+
+            @Override
+            public Class<Event> getType() {
+                return Event.class;
+            }
+
+            @Override
+            public Switch getSwitch() {
+                return new BasicSwitch("test");
+            }
+        });
+        try {
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            bounded.execute("key", blocker(started, release));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            bounded.execute("key", new EventDispatchTask<Event>(new Event("oldest"), registry));
+            bounded.execute("key", new EventDispatchTask<Event>(new Event("second"), registry));
+            bounded.execute("key", new EventDispatchTask<Event>(new Event("newest"), registry));
+            assertEquals(2, bounded.getPendingTasks());
+            assertEquals(1, pool.getRejectedCount());
+            assertEquals(1, pool.getDroppedCount());
+
+            release.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+            assertEquals(2, handled.size());
+            assertEquals("second", handled.get(0));
+            assertEquals("newest", handled.get(1));
+            assertTrue(pool.getMaxLatency() > 0);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBoundedCallerRuns() throws Exception {
+        KeyOrderedExecutor bounded = new KeyOrderedExecutor(threadPool, 1, SaturationPolicy.CALLER_RUNS, 0);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                threads.add(Thread.currentThread());
+            }
+        };
+        try {
+            bounded.execute("busy", blocker(started, release));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            bounded.execute("busy", task);
+            // saturated, no pending task for the key: the task runs in the caller thread
+            bounded.execute("idle", task);
+            assertEquals(1, threads.size());
+            assertEquals(Thread.currentThread(), threads.get(0));
+            // saturated, pending tasks for the key: the task is queued after them
+            bounded.execute("busy", task);
+            assertEquals(2, bounded.getPendingTasks());
+        } finally {
+            release.countDown();
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while ((threads.size() < 3 || bounded.getActiveKeys() > 0) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, threads.size());
+        assertEquals(0, bounded.getActiveKeys());
+    }
+
+    private Runnable blocker(final CountDownLatch started, final CountDownLatch release) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Properties;
+
+/**
+ * Micro benchmark comparing the compressed size and the cost of the compression codecs on a cluster configuration.
+ * It's not executed by the build, run it with: java -cp ... org.apache.karaf.cellar.core.serialization.CellarCompressionBenchmark [messages] [properties]
+ */
+public class CellarCompressionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int messages = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+        int size = (args.length > 1) ? Integer.parseInt(args[1]) : 500;
+
+        Properties configuration = new Properties();
+        for (int i = 0; i < size; i++) {
+            configuration.put("org.apache.karaf.cellar.property" + i, "value of the property " + i + " in the cluster configuration");
+        }
+
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            CellarCompression compression = new CellarCompression();
+            compression.setCodec(codec.name());
+            for (int i = 0; i < messages; i++) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                compression.write(out, configuration);
+                out.flush();
+                compression.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), CellarCompressionBenchmark.class.getClassLoader());
+            }
+            CompressionStatistics statistics = compression.getStatistics().iterator().next();
+            System.out.println("Compression of configuration with " + codec + ": " + statistics.getOriginalBytes() / statistics.getMessages()
+                    + " bytes compressed to " + statistics.getWrittenBytes() / statistics.getMessages() + " bytes, "
+                    + statistics.getCompressionTime() / statistics.getMessages() + " ns compression, "
+                    + statistics.getDecompressionTime() / Math.max(1, statistics.getDecompressedMessages()) + " ns decompression");
+        }
+    }
+
+}
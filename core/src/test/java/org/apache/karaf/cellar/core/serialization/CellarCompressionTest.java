@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.serialization;
+
+import org.apache.karaf.cellar.core.event.Event;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CellarCompressionTest {
+
+    @Test
+    public void testCodecs() throws Exception {
+        Random random = new Random(42);
+        byte[] incompressible = new byte[10000];
+        random.nextBytes(incompressible);
+        byte[] repetitive = new byte[100000];
+        for (int i = 0; i < repetitive.length; i++) {
+            repetitive[i] = (byte) ('a' + (i % 7));
+        }
+        byte[] mixed = createConfiguration(200).toString().getBytes("UTF-8");
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            for (byte[] data : new byte[][]{new byte[0], new byte[]{1, 2, 3}, incompressible, repetitive, mixed}) {
+                byte[] compressed = codec.compress(data);
+                assertArrayEquals(codec.name(), data, codec.decompress(compressed, data.length));
+            }
+            if (codec != CompressionCodec.NONE) {
+                assertTrue(codec.name(), codec.compress(repetitive).length < repetitive.length / 10);
+                assertTrue(codec.name(), codec.compress(mixed).length < mixed.length / 2);
+            }
+        }
+    }
+
+    @Test
+    public void testMalformedLz4Block() throws Exception {
+        byte[] compressed = CompressionCodec.LZ4.compress(createConfiguration(10).toString().getBytes("UTF-8"));
+        try {
+            CompressionCodec.LZ4.decompress(Arrays.copyOf(compressed, compressed.length / 2), 1000);
+            fail("malformed block not detected");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testThreshold() throws Exception {
+        CellarCompression compression = new CellarCompression();
+        compression.setCodec("lz4");
+        compression.setThreshold(1024);
+
+        Properties large = createConfiguration(100);
+        byte[] data = write(compression, large);
+        assertEquals(CompressionCodec.LZ4.getId(), data[0]);
+        assertEquals(large, read(compression, data));
+
+        Event small = new Event("small");
+        data = write(compression, small);
+        assertEquals(CompressionCodec.NONE.getId(), data[0]);
+        assertEquals("small", ((Event) read(compression, data)).getId());
+
+        CompressionStatistics statistics = null;
+        for (CompressionStatistics typeStatistics : compression.getStatistics()) {
+            if (Properties.class.getName().equals(typeStatistics.getType())) {
+                statistics = typeStatistics;
+            }
+        }
+        assertEquals(1, statistics.getMessages());
+        assertEquals(1, statistics.getCompressedMessages());
+        assertEquals(1, statistics.getDecompressedMessages());
+        assertTrue(statistics.getRatio() < 0.5);
+        assertEquals(2, compression.getStatistics().size());
+    }
+
+    @Test
+    public void testReadOtherCodec() throws Exception {
+        CellarCompression deflate = new CellarCompression();
+        deflate.setCodec("DEFLATE");
+        CellarCompression none = new CellarCompression();
+        none.setCodec("NONE");
+        Properties configuration = createConfiguration(100);
+        assertEquals(configuration, read(none, write(deflate, configuration)));
+        assertEquals(configuration, read(deflate, write(none, configuration)));
+    }
+
+    private static Properties createConfiguration(int size) {
+        Properties properties = new Properties();
+        for (int i = 0; i < size; i++) {
+            properties.put("org.apache.karaf.cellar.property" + i, "value of the property " + i + " in the cluster configuration");
+        }
+        return properties;
+    }
+
+    private static byte[] write(CellarCompression compression, Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        compression.write(out, value);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Object read(CellarCompression compression, byte[] data) throws IOException {
+        return compression.read(new DataInputStream(new ByteArrayInputStream(data)), CellarCompressionTest.class.getClassLoader());
+    }
+
+}
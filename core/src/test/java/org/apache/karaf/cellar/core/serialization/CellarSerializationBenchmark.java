@@ -0,0 +1,137 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.serialization;
+
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventBatch;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Micro benchmark comparing the size and the cost of the Java serialization and of the compact serialization of the
+ * cluster events.
+ * It's not executed by the build, run it with: java -cp ... org.apache.karaf.cellar.core.serialization.CellarSerializationBenchmark [iterations]
+ */
+public class CellarSerializationBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 5000;
+
+        Group group = createGroup();
+        measure("event", createEvent(0, group), iterations);
+
+        Command<Result> command = new Command<Result>("command");
+        command.setSourceNode(group.getNodes().iterator().next());
+        command.setSourceGroup(group);
+        command.setDestination(group.getNodes());
+        measure("command", command, iterations);
+
+        List<Event> events = new ArrayList<Event>();
+        for (int i = 0; i < 20; i++) {
+            events.add(createEvent(i, group));
+        }
+        measure("event batch", new EventBatch(events), iterations);
+    }
+
+    private static Group createGroup() {
+        Group group = new Group("default");
+        for (int i = 0; i < 3; i++) {
+            group.getNodes().add(new TestNode("192.168.0." + (i + 1), 5701));
+        }
+        return group;
+    }
+
+    private static Event createEvent(int index, Group group) {
+        Event event = new Event("event" + index);
+        event.setSourceNode(group.getNodes().iterator().next());
+        event.setSourceGroup(group);
+        event.setRevision(index);
+        return event;
+    }
+
+    private static void measure(String name, Object message, int iterations) throws Exception {
+        byte[] java = javaSerialize(message);
+        byte[] compact = compactSerialize(message);
+        // warm up
+        for (int i = 0; i < iterations / 2; i++) {
+            javaDeserialize(javaSerialize(message));
+            compactDeserialize(compactSerialize(message));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            javaSerialize(message);
+        }
+        long javaWrite = (System.nanoTime() - start) / iterations;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            javaDeserialize(java);
+        }
+        long javaRead = (System.nanoTime() - start) / iterations;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            compactSerialize(message);
+        }
+        long compactWrite = (System.nanoTime() - start) / iterations;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            compactDeserialize(compact);
+        }
+        long compactRead = (System.nanoTime() - start) / iterations;
+
+        System.out.println("Serialization of " + name + ": java " + java.length + " bytes, " + javaWrite + " ns write, "
+                + javaRead + " ns read; compact " + compact.length + " bytes, " + compactWrite + " ns write, "
+                + compactRead + " ns read");
+    }
+
+    private static byte[] javaSerialize(Object message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(message);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static Object javaDeserialize(byte[] data) throws Exception {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data));
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static byte[] compactSerialize(Object message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        CellarSerialization.write(out, message);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Object compactDeserialize(byte[] data) throws IOException {
+        return CellarSerialization.read(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+}
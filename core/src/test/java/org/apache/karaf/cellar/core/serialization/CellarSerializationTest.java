@@ -0,0 +1,227 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.serialization;
+
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventBatch;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CellarSerializationTest {
+
+    @Test
+    public void testEvent() throws Exception {
+        Event event = new Event("test");
+        event.setSourceNode(new TestNode("node1", 5701));
+        Group group = new Group("default");
+        group.getNodes().add(new TestNode("node1", 5701));
+        event.setSourceGroup(group);
+        Set<Node> destination = new HashSet<Node>();
+        destination.add(new TestNode("node2", 5702));
+        event.setDestination(destination);
+        event.setForce(true);
+        event.setRevision(42);
+
+        Event copy = (Event) roundTrip(event);
+
+        assertEquals("test", copy.getId());
+        assertEquals(new TestNode("node1", 5701), copy.getSourceNode());
+        assertEquals("default", copy.getSourceGroup().getName());
+        assertEquals(group.getNodes(), copy.getSourceGroup().getNodes());
+        assertEquals(destination, copy.getDestination());
+        assertTrue(copy.getForce());
+        assertFalse(copy.getPostPublish());
+        assertEquals(42, copy.getRevision());
+    }
+
+    @Test
+    public void testCommandAndResult() throws Exception {
+        Command<Result> command = new Command<Result>("command");
+        command.setTimeout(1234);
+        Command<Result> commandCopy = (Command<Result>) roundTrip(command);
+        assertEquals("command", commandCopy.getId());
+        assertEquals(1234, commandCopy.getTimeout());
+        assertTrue(commandCopy.getForce());
+
+        Result resultCopy = (Result) roundTrip(new Result("result"));
+        assertEquals("result", resultCopy.getId());
+    }
+
+    @Test
+    public void testEventBatch() throws Exception {
+        List<Event> events = new ArrayList<Event>();
+        events.add(new Event("first"));
+        events.add(new Event("second"));
+        EventBatch copy = (EventBatch) roundTrip(new EventBatch(events));
+        assertEquals(2, copy.size());
+        assertEquals("first", copy.getEvents().get(0).getId());
+        assertEquals("second", copy.getEvents().get(1).getId());
+    }
+
+    @Test
+    public void testSharedObjectsWrittenOnce() throws Exception {
+        Group group = new Group("default");
+        group.getNodes().add(new TestNode("node1", 5701));
+        List<Event> events = new ArrayList<Event>();
+        for (int i = 0; i < 2; i++) {
+            Event event = new Event("event" + i);
+            event.setSourceGroup(group);
+            event.setSourceNode(group.getNodes().iterator().next());
+            events.add(event);
+        }
+        EventBatch copy = (EventBatch) roundTrip(new EventBatch(events));
+        Event first = copy.getEvents().get(0);
+        Event second = copy.getEvents().get(1);
+        assertEquals("event1", second.getId());
+        assertSame(first.getSourceGroup(), second.getSourceGroup());
+        assertSame(first.getSourceNode(), second.getSourceNode());
+        assertSame(first.getSourceNode(), first.getSourceGroup().getNodes().iterator().next());
+    }
+
+    @Test
+    public void testSubclassFallsBackToJavaSerialization() throws Exception {
+        assertFalse(CellarSerialization.isCompact(CustomEvent.class));
+        CustomEvent event = new CustomEvent("custom");
+        event.payload = "payload";
+        CustomEvent copy = (CustomEvent) roundTrip(event);
+        assertEquals("custom", copy.getId());
+        assertEquals("payload", copy.payload);
+    }
+
+    @Test
+    public void testClassNameWrittenOnce() throws Exception {
+        List<Node> nodes = new ArrayList<Node>();
+        for (int i = 0; i < 10; i++) {
+            nodes.add(new TestNode("node" + i, 5701));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CellarSerialization.write(new DataOutputStream(bytes), nodes);
+        String data = new String(bytes.toByteArray(), "UTF-8");
+        assertEquals(data.indexOf(TestNode.class.getName()), data.lastIndexOf(TestNode.class.getName()));
+        assertEquals(nodes, roundTrip(nodes));
+    }
+
+    @Test
+    public void testValues() throws Exception {
+        Properties properties = new Properties();
+        properties.put("string", "value");
+        properties.put("integer", 12);
+        properties.put("array", new String[]{"a", "b"});
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("properties", properties);
+        map.put("list", new ArrayList<Object>(Arrays.asList(1L, 2.5d, 'c', (short) 3, (byte) 4, 1.5f, Boolean.TRUE, null)));
+        map.put("bytes", new byte[]{1, 2, 3});
+
+        Map<String, Object> copy = (Map<String, Object>) roundTrip(map);
+
+        Properties propertiesCopy = (Properties) copy.get("properties");
+        assertEquals("value", propertiesCopy.get("string"));
+        assertEquals(12, propertiesCopy.get("integer"));
+        assertArrayEquals(new String[]{"a", "b"}, (String[]) propertiesCopy.get("array"));
+        assertEquals(map.get("list"), copy.get("list"));
+        assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) copy.get("bytes"));
+        assertNull(roundTrip(null));
+    }
+
+    @Test
+    public void testLargeString() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            builder.append((char) ('a' + (i % 26)));
+        }
+        // larger than the 64KB limit of writeUTF
+        assertEquals(builder.toString(), roundTrip(builder.toString()));
+    }
+
+    @Test
+    public void testSize() throws Exception {
+        for (int size : new int[]{-1, 0, 1, 126, 127, 128, 16384, 1 << 20, Integer.MAX_VALUE - 1}) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            CellarSerialization.writeSize(new DataOutputStream(bytes), size);
+            assertEquals(size, CellarSerialization.readSize(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+        }
+    }
+
+    @Test
+    public void testSmallerThanJavaSerialization() throws Exception {
+        Group group = new Group("default");
+        for (int i = 0; i < 3; i++) {
+            group.getNodes().add(new TestNode("192.168.0." + (i + 1), 5701));
+        }
+        List<Event> events = new ArrayList<Event>();
+        for (int i = 0; i < 20; i++) {
+            Event event = new Event("event" + i);
+            event.setSourceNode(group.getNodes().iterator().next());
+            event.setSourceGroup(group);
+            event.setRevision(i);
+            events.add(event);
+        }
+        Command<Result> command = new Command<Result>("command");
+        command.setSourceNode(group.getNodes().iterator().next());
+        command.setSourceGroup(group);
+        command.setDestination(group.getNodes());
+
+        for (Object message : new Object[]{events.get(0), command, new EventBatch(events)}) {
+            ByteArrayOutputStream compact = new ByteArrayOutputStream();
+            CellarSerialization.write(new DataOutputStream(compact), message);
+            ByteArrayOutputStream java = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(java);
+            out.writeObject(message);
+            out.close();
+            assertTrue(message.getClass().getName(), compact.size() < java.size());
+        }
+    }
+
+    private static Object roundTrip(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CellarSerialization.write(new DataOutputStream(bytes), object);
+        return CellarSerialization.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), CellarSerializationTest.class.getClassLoader());
+    }
+
+    public static class CustomEvent extends Event {
+
+        private String payload;
+
+        public CustomEvent(String id) {
+            super(id);
+        }
+
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.serialization;
+
+import org.apache.karaf.cellar.core.Node;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Node with a compact form, similar to the Hazelcast node.
+ */
+public class TestNode implements Node, CellarSerializable {
+
+    private String id;
+    private String host;
+    private int port;
+
+    public TestNode(String host, int port) {
+        this.host = host;
+        this.port = port;
+        this.id = host + ":" + port;
+    }
+
+    protected TestNode() {
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getHost() {
+        return host;
+    }
+
+    @Override
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public void writeData(DataOutput out) throws IOException {
+        CellarSerialization.writeString(out, id);
+        CellarSerialization.writeString(out, host);
+        out.writeInt(port);
+    }
+
+    @Override
+    public void readData(DataInput in) throws IOException {
+        id = CellarSerialization.readString(in);
+        host = CellarSerialization.readString(in);
+        port = in.readInt();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TestNode && id.equals(((TestNode) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+
+}
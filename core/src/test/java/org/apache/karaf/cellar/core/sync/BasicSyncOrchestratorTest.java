@@ -0,0 +1,248 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.sync;
+
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.Synchronizer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BasicSyncOrchestratorTest {
+
+    private BasicSyncOrchestrator orchestrator;
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() {
+        orchestrator = new BasicSyncOrchestrator();
+        orchestrator.setThreads(4);
+        orchestrator.init();
+    }
+
+    @After
+    public void tearDown() {
+        orchestrator.destroy();
+    }
+
+    @Test
+    public void testDependencyOrder() throws Exception {
+        bind("config", new RecordingSynchronizer("config"));
+        bind("bundle", new RecordingSynchronizer("bundle"));
+        bind("feature", new RecordingSynchronizer("feature"));
+        bind("obr.urls", new RecordingSynchronizer("obr.urls"));
+
+        List<SyncStatus> result = orchestrator.sync(Collections.singleton(new Group("default")), null, null);
+
+        assertEquals(Arrays.asList("default/obr.urls", "default/feature", "default/bundle", "default/config"), calls);
+        assertEquals(4, result.size());
+        for (SyncStatus status : result) {
+            assertEquals(SyncStatus.State.DONE, status.getState());
+        }
+    }
+
+    @Test
+    public void testResourcesFilter() throws Exception {
+        bind("bundle", new RecordingSynchronizer("bundle"));
+        bind("config", new RecordingSynchronizer("config"));
+
+        orchestrator.sync(Collections.singleton(new Group("default")), Collections.singleton("config"), null);
+
+        assertEquals(Collections.singletonList("default/config"), calls);
+    }
+
+    @Test
+    public void testGroupsInParallel() throws Exception {
+        final CountDownLatch started = new CountDownLatch(2);
+        bind("bundle", new Synchronizer() {
+            @Override
+            public void sync(Group group) {
+                started.countDown();
+                try {
+                    // both cluster groups have to be synchronized at the same time to release the latch
+                    assertTrue(started.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void push(Group group) {
+            }
+
+            @Override
+            public void pull(Group group) {
+            }
+
+            @Override
+            public String getSyncPolicy(Group group) {
+                return "cluster";
+            }
+        });
+
+        List<SyncStatus> result = orchestrator.sync(Arrays.asList(new Group("first"), new Group("second")), null, null);
+
+        assertEquals(2, result.size());
+        assertEquals(0, started.getCount());
+        for (SyncStatus status : result) {
+            assertEquals(SyncStatus.State.DONE, status.getState());
+        }
+    }
+
+    @Test
+    public void testFailureAndProgress() throws Exception {
+        bind("feature", new RecordingSynchronizer("feature") {
+            @Override
+            public void sync(Group group) {
+                throw new IllegalStateException("expected");
+            }
+        });
+        bind("bundle", new RecordingSynchronizer("bundle"));
+
+        final List<String> progress = Collections.synchronizedList(new ArrayList<String>());
+        List<SyncStatus> result = orchestrator.sync(Collections.singleton(new Group("default")), null, new SyncListener() {
+            @Override
+            public void statusChanged(SyncStatus status) {
+                progress.add(status.getResource() + ":" + status.getState());
+            }
+        });
+
+        assertEquals(SyncStatus.State.FAILED, result.get(0).getState());
+        assertEquals("expected", result.get(0).getError());
+        // the failure of a resource doesn't prevent the sync of the next resources
+        assertEquals(SyncStatus.State.DONE, result.get(1).getState());
+        assertEquals(Arrays.asList("feature:PENDING", "bundle:PENDING", "feature:RUNNING", "feature:FAILED", "bundle:RUNNING", "bundle:DONE"), progress);
+
+        List<SyncStatus> status = orchestrator.getStatus();
+        assertEquals(2, status.size());
+        assertEquals("feature", status.get(0).getResource());
+        assertEquals("bundle", status.get(1).getResource());
+    }
+
+    @Test
+    public void testSubmit() throws Exception {
+        bind("bundle", new RecordingSynchronizer("bundle"));
+
+        orchestrator.submit(Collections.singleton(new Group("default")));
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!isCompleted() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(isCompleted());
+        assertEquals(Collections.singletonList("default/bundle"), calls);
+    }
+
+    @Test
+    public void testDestroyReleasesSync() throws Exception {
+        orchestrator.destroy();
+        orchestrator = new BasicSyncOrchestrator();
+        orchestrator.setThreads(1);
+        orchestrator.init();
+
+        final CountDownLatch started = new CountDownLatch(1);
+        bind("bundle", new RecordingSynchronizer("bundle") {
+            @Override
+            public void sync(Group group) {
+                super.sync(group);
+                started.countDown();
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        // the single thread is busy with the first group, the second group is queued
+        final List<SyncStatus> result = Collections.synchronizedList(new ArrayList<SyncStatus>());
+        Thread sync = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    result.addAll(orchestrator.sync(Arrays.asList(new Group("first"), new Group("second")), null, null));
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        };
+        sync.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        orchestrator.destroy();
+        sync.join(10000);
+
+        assertFalse(sync.isAlive());
+        assertEquals(2, result.size());
+        for (SyncStatus status : result) {
+            if (status.getGroup().equals("second")) {
+                assertEquals(SyncStatus.State.FAILED, status.getState());
+            }
+        }
+        assertEquals(Collections.singletonList("first/bundle"), calls);
+    }
+
+    private boolean isCompleted() {
+        List<SyncStatus> status = orchestrator.getStatus();
+        return !status.isEmpty() && status.get(0).isCompleted();
+    }
+
+    private void bind(String resource, Synchronizer synchronizer) {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(BasicSyncOrchestrator.RESOURCE_PROPERTY, resource);
+        orchestrator.bind(synchronizer, properties);
+    }
+
+    private class RecordingSynchronizer implements Synchronizer {
+
+        private final String resource;
+
+        RecordingSynchronizer(String resource) {
+            this.resource = resource;
+        }
+
+        @Override
+        public void sync(Group group) {
+            calls.add(group.getName() + "/" + resource);
+        }
+
+        @Override
+        public void push(Group group) {
+        }
+
+        @Override
+        public void pull(Group group) {
+        }
+
+        @Override
+        public String getSyncPolicy(Group group) {
+            return "cluster";
+        }
+
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.sync;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class DigestMapTest {
+
+    private ConcurrentMap<String, MapDigest> digests;
+    private DigestMap<String, Object> map;
+
+    @Before
+    public void setUp() {
+        digests = new ConcurrentHashMap<String, MapDigest>();
+        map = new DigestMap<String, Object>(new HashMap<String, Object>(), digests, "test");
+    }
+
+    @Test
+    public void testDigestIndependentOfOrder() {
+        map.put("a", "1");
+        map.put("b", "2");
+        ConcurrentMap<String, MapDigest> otherDigests = new ConcurrentHashMap<String, MapDigest>();
+        DigestMap<String, Object> other = new DigestMap<String, Object>(new HashMap<String, Object>(), otherDigests, "test");
+        other.put("b", "2");
+        other.put("a", "1");
+        assertEquals(digests.get("test"), otherDigests.get("test"));
+    }
+
+    @Test
+    public void testRemoveRestoresDigest() {
+        map.put("a", "1");
+        MapDigest digest = digests.get("test");
+        map.put("b", "2");
+        assertFalse(digest.equals(digests.get("test")));
+        map.remove("b");
+        assertEquals(digest, digests.get("test"));
+        map.clear();
+        assertEquals(MapDigest.EMPTY, digests.get("test"));
+    }
+
+    @Test
+    public void testUpdateChangesOneBucket() {
+        for (int i = 0; i < 100; i++) {
+            map.put("key" + i, "value" + i);
+        }
+        MapDigest before = digests.get("test");
+        map.put("key42", "changed");
+        MapDigest after = digests.get("test");
+        assertEquals(1, after.diff(before).size());
+        assertTrue(after.diff(before).contains(MapDigest.bucket("key42")));
+    }
+
+    @Test
+    public void testDictionaryDigest() {
+        Properties first = new Properties();
+        first.put("a", "1");
+        first.put("b", "2");
+        Properties second = new Properties();
+        second.put("b", "2");
+        second.put("a", "1");
+        assertEquals(MapDigest.hash("pid", first), MapDigest.hash("pid", second));
+        second.put("c", "3");
+        assertFalse(MapDigest.hash("pid", first) == MapDigest.hash("pid", second));
+    }
+
+    @Test
+    public void testIncrementalSync() {
+        for (int i = 0; i < 100; i++) {
+            map.put("key" + i, "value" + i);
+        }
+        IncrementalSync sync = new BasicIncrementalSync();
+        MapDigest digest = digests.get("test");
+        // no baseline, all entries
+        assertEquals(100, sync.entries("test", map, digest, null).size());
+        sync.synced("test", digest, null);
+        // nothing changed
+        assertTrue(sync.entries("test", map, digests.get("test"), null).isEmpty());
+        map.put("key7", "changed");
+        Map<String, Object> entries = sync.entries("test", map, digests.get("test"), null);
+        assertNotNull(entries.get("key7"));
+        assertTrue(entries.size() < 10);
+        // unknown digest, all entries
+        assertEquals(100, sync.entries("test", map, null, null).size());
+        sync.reset("test");
+        assertEquals(100, sync.entries("test", map, digests.get("test"), null).size());
+    }
+
+    @Test
+    public void testIncrementalSyncLocalChanges() {
+        Map<String, Object> local = new HashMap<String, Object>();
+        for (int i = 0; i < 100; i++) {
+            map.put("key" + i, "value" + i);
+            local.put("key" + i, "value" + i);
+        }
+        IncrementalSync sync = new BasicIncrementalSync();
+        sync.synced("test", digests.get("test"), MapDigest.of(local));
+        assertTrue(sync.entries("test", map, digests.get("test"), MapDigest.of(local)).isEmpty());
+        // the local state changed, the cluster map didn't
+        local.remove("key7");
+        Map<String, Object> entries = sync.entries("test", map, digests.get("test"), MapDigest.of(local));
+        assertNotNull(entries.get("key7"));
+        assertTrue(entries.size() < 10);
+    }
+
+    @Test
+    public void testIncrementalSyncStaleRead() {
+        for (int i = 0; i < 100; i++) {
+            map.put("key" + i, "value" + i);
+        }
+        IncrementalSync sync = new BasicIncrementalSync();
+        MapDigest digest = digests.get("test");
+        // stale value read (near cache not invalidated yet)
+        Map<String, Object> stale = new HashMap<String, Object>(map);
+        stale.put("key7", "stale");
+        assertEquals(100, sync.entries("test", stale, digest, null).size());
+        sync.synced("test", digest, null);
+        // the baseline is not recorded, all entries are read again
+        assertEquals(100, sync.entries("test", map, digest, null).size());
+        sync.synced("test", digest, null);
+        assertTrue(sync.entries("test", map, digest, null).isEmpty());
+    }
+
+    @Test
+    public void testIncrementalSyncResetGroup() {
+        DigestMap<String, Object> other = new DigestMap<String, Object>(new HashMap<String, Object>(), digests, "bundles.other");
+        DigestMap<String, Object> group = new DigestMap<String, Object>(new HashMap<String, Object>(), digests, "bundles.group");
+        other.put("key", "value");
+        group.put("key", "value");
+        IncrementalSync sync = new BasicIncrementalSync();
+        sync.synced("bundles.other", digests.get("bundles.other"), null);
+        sync.synced("bundles.group", digests.get("bundles.group"), null);
+
+        sync.resetGroup("group");
+        assertTrue(sync.entries("bundles.other", other, digests.get("bundles.other"), null).isEmpty());
+        assertEquals(1, sync.entries("bundles.group", group, digests.get("bundles.group"), null).size());
+
+        sync.resetAll();
+        assertEquals(1, sync.entries("bundles.other", other, digests.get("bundles.other"), null).size());
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.utils;
+
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
+
+import java.util.Arrays;
+import java.util.Hashtable;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CombinedClassLoaderTest {
+
+    @Test
+    public void testParseExportedPackages() {
+        assertEquals(Arrays.asList("org.a", "org.b", "org.c", "org.d"),
+                CombinedClassLoader.parseExportedPackages("org.a;org.b;version=\"1.0\",org.c;uses:=\"org.a,org.b\";version=2, org.d"));
+        assertEquals(0, CombinedClassLoader.parseExportedPackages(null).size());
+    }
+
+    @Test
+    public void testExportingBundleFirst() throws Exception {
+        Bundle other = createBundle(1, null);
+        Bundle exporter = createBundle(2, "org.test;version=1.0");
+        expect(exporter.loadClass("org.test.Event")).andReturn((Class) String.class).times(2);
+        replay(other, exporter);
+
+        CombinedClassLoader classLoader = new CombinedClassLoader();
+        classLoader.addBundle(other);
+        classLoader.addBundle(exporter);
+        assertEquals(String.class, classLoader.findClass("org.test.Event"));
+        assertEquals(String.class, classLoader.findClass("org.test.Event"));
+        verify(other, exporter);
+    }
+
+    @Test
+    public void testCachedBundle() throws Exception {
+        Bundle first = createBundle(1, null);
+        Bundle second = createBundle(2, null);
+        expect(first.loadClass("org.test.Event")).andThrow(new ClassNotFoundException()).times(0, 1);
+        expect(second.loadClass("org.test.Event")).andReturn((Class) String.class).times(1, 3);
+        replay(first, second);
+
+        CombinedClassLoader classLoader = new CombinedClassLoader();
+        classLoader.addBundle(first);
+        classLoader.addBundle(second);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(String.class, classLoader.findClass("org.test.Event"));
+        }
+        verify(first, second);
+    }
+
+    @Test
+    public void testMissingClass() throws Exception {
+        Bundle first = createBundle(1, null);
+        Bundle second = createBundle(2, null);
+        expect(first.loadClass("org.test.Missing")).andThrow(new ClassNotFoundException()).times(2);
+        expect(second.loadClass("org.test.Missing")).andThrow(new ClassNotFoundException()).times(2);
+        replay(first, second);
+
+        CombinedClassLoader classLoader = new CombinedClassLoader();
+        classLoader.addBundle(first);
+        classLoader.addBundle(second);
+        assertMissing(classLoader, "org.test.Missing");
+        // found in the negative cache, the bundles are not called
+        assertMissing(classLoader, "org.test.Missing");
+        classLoader.invalidate();
+        assertMissing(classLoader, "org.test.Missing");
+        verify(first, second);
+    }
+
+    @Test
+    public void testRemovedBundle() throws Exception {
+        Bundle exporter = createBundle(1, "org.test");
+        expect(exporter.loadClass("org.test.Event")).andReturn((Class) String.class).once();
+        replay(exporter);
+
+        CombinedClassLoader classLoader = new CombinedClassLoader();
+        classLoader.addBundle(exporter);
+        assertEquals(String.class, classLoader.findClass("org.test.Event"));
+        classLoader.removeBundle(exporter);
+        assertMissing(classLoader, "org.test.Event");
+        verify(exporter);
+    }
+
+    private static Bundle createBundle(long id, String exportPackage) {
+        Bundle bundle = createMock(Bundle.class);
+        Hashtable<String, String> headers = new Hashtable<String, String>();
+        if (exportPackage != null) {
+            headers.put(Constants.EXPORT_PACKAGE, exportPackage);
+        }
+        expect(bundle.getBundleId()).andReturn(id).anyTimes();
+        expect(bundle.getState()).andReturn(Bundle.ACTIVE).anyTimes();
+        expect(bundle.getHeaders()).andReturn(headers).anyTimes();
+        return bundle;
+    }
+
+    private static void assertMissing(CombinedClassLoader classLoader, String name) {
+        try {
+            classLoader.findClass(name);
+            fail(name + " should not be found");
+        } catch (ClassNotFoundException e) {
+            // expected
+        }
+    }
+
+}
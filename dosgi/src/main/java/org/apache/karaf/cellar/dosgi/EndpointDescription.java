@@ -15,10 +15,15 @@ package org.apache.karaf.cellar.dosgi;
 
 import org.apache.karaf.cellar.core.MultiNode;
 import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.CellarSerialization;
 import org.osgi.framework.Filter;
 import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.InvalidSyntaxException;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
@@ -29,9 +34,9 @@ import java.util.Set;
 /**
  * Description of an endpoint.
  */
-public class EndpointDescription implements MultiNode {
+public class EndpointDescription implements MultiNode, CellarSerializable {
 
-    private final String id;
+    private String id;
     private final Set<Node> nodes = new LinkedHashSet<Node>();
     private final Map<String, Object> properties = new HashMap<String, Object>();
 
@@ -47,6 +52,11 @@ public class EndpointDescription implements MultiNode {
         properties.put(org.osgi.framework.Constants.OBJECTCLASS,getServiceClass());
     }
 
+    /**
+     * Constructor used by the compact serialization.
+     */
+    protected EndpointDescription() {
+    }
 
     /**
      * Tests the properties of this <code>EndpointDescription</code> against
@@ -114,6 +124,28 @@ public class EndpointDescription implements MultiNode {
         return result;
     }
 
+    @Override
+    public void writeData(DataOutput out) throws IOException {
+        CellarSerialization.writeString(out, id);
+        CellarSerialization.write(out, nodes);
+        CellarSerialization.write(out, properties);
+    }
+
+    @Override
+    public void readData(DataInput in) throws IOException {
+        id = CellarSerialization.readString(in);
+        nodes.clear();
+        Set<Node> readNodes = CellarSerialization.readSet(in);
+        if (readNodes != null) {
+            nodes.addAll(readNodes);
+        }
+        properties.clear();
+        Map<String, Object> readProperties = CellarSerialization.readMap(in);
+        if (readProperties != null) {
+            properties.putAll(readProperties);
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
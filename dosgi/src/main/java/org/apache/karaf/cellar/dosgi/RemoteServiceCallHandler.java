@@ -24,7 +24,6 @@ import org.apache.karaf.cellar.core.event.EventTransportFactory;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
-import org.osgi.service.cm.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -120,6 +119,18 @@ public class RemoteServiceCallHandler extends CellarSupport implements EventHand
         return RemoteServiceCall.class;
     }
 
+    public void init() {
+        if (switchRegistry != null) {
+            switchRegistry.register(dosgiSwitch, Configurations.HANDLER + "." + this.getClass().getName());
+        }
+    }
+
+    public void destroy() {
+        if (switchRegistry != null) {
+            switchRegistry.unregister(dosgiSwitch);
+        }
+    }
+
     /**
      * Get the handler switch.
      *
@@ -127,20 +138,6 @@ public class RemoteServiceCallHandler extends CellarSupport implements EventHand
      */
     @Override
     public Switch getSwitch() {
-        // load the switch status from the config
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.HANDLER + "." + this.getClass().getName()));
-                if (status) {
-                    dosgiSwitch.turnOn();
-                } else {
-                    dosgiSwitch.turnOff();
-                }
-            }
-        } catch (Exception e) {
-            // ignore
-        }
         return dosgiSwitch;
     }
 
@@ -14,7 +14,11 @@
 package org.apache.karaf.cellar.event;
 
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.serialization.CellarSerialization;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Map;
 
@@ -32,6 +36,12 @@ public class ClusterEvent extends Event {
         this.properties = properties;
     }
 
+    /**
+     * Constructor used by the compact serialization.
+     */
+    protected ClusterEvent() {
+    }
+
     public String getTopicName() {
         return this.topicName;
     }
@@ -48,4 +58,18 @@ public class ClusterEvent extends Event {
         this.properties = properties;
     }
 
+    @Override
+    public void writeData(DataOutput out) throws IOException {
+        super.writeData(out);
+        CellarSerialization.writeString(out, topicName);
+        CellarSerialization.write(out, properties);
+    }
+
+    @Override
+    public void readData(DataInput in) throws IOException {
+        super.readData(in);
+        topicName = CellarSerialization.readString(in);
+        properties = CellarSerialization.readMap(in);
+    }
+
 }
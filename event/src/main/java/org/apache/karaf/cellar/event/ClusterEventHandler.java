@@ -19,7 +19,6 @@ import org.apache.karaf.cellar.core.control.Switch;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
 import org.apache.karaf.cellar.core.event.EventHandler;
 import org.apache.karaf.cellar.core.event.EventType;
-import org.osgi.service.cm.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -71,11 +70,15 @@ public class ClusterEventHandler extends EventSupport implements EventHandler<Cl
     }
 
     public void init() {
-        // nothing to do
+        if (switchRegistry != null) {
+            switchRegistry.register(eventSwitch, Configurations.HANDLER + "." + this.getClass().getName());
+        }
     }
 
     public void destroy() {
-        // nothing to do
+        if (switchRegistry != null) {
+            switchRegistry.unregister(eventSwitch);
+        }
     }
 
     /**
@@ -85,20 +88,6 @@ public class ClusterEventHandler extends EventSupport implements EventHandler<Cl
      */
     @Override
     public Switch getSwitch() {
-        // load the switch status from the config
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.HANDLER + "." + this.getClass().getName()));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
-            }
-        } catch (Exception e) {
-            // ignore
-        }
         return eventSwitch;
     }
 
@@ -47,6 +47,16 @@ public class ClusterFeaturesEvent extends Event {
         this.type = type;
     }
 
+    /**
+     * The cluster features events are ordered per feature name.
+     *
+     * @return the routing key.
+     */
+    @Override
+    public String getRoutingKey() {
+        return name;
+    }
+
     public String getName() {
         return name;
     }
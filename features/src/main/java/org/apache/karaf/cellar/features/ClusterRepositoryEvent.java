@@ -30,6 +30,16 @@ public class ClusterRepositoryEvent extends Event {
         this.type = type;
     }
 
+    /**
+     * The cluster features repository events are ordered per repository URL.
+     *
+     * @return the routing key.
+     */
+    @Override
+    public String getRoutingKey() {
+        return id;
+    }
+
     public EventType getType() {
         return type;
     }
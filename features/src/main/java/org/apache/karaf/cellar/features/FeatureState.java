@@ -13,16 +13,24 @@
  */
 package org.apache.karaf.cellar.features;
 
-import java.io.Serializable;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.CellarSerialization;
+import org.apache.karaf.cellar.core.sync.Digestible;
+import org.apache.karaf.cellar.core.sync.MapDigest;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * Feature info to store in the cluster.
  */
-public class FeatureState implements Serializable {
+public class FeatureState implements CellarSerializable, Digestible {
 
     private String name;
     private String version;
     private Boolean installed;
+    private long revision;
 
     public FeatureState() { }
 
@@ -50,4 +58,43 @@ public class FeatureState implements Serializable {
         this.installed = installed;
     }
 
+    /**
+     * Digest of the feature state, ignoring the revision.
+     *
+     * @return the digest.
+     */
+    @Override
+    public long digest() {
+        return MapDigest.digest(name, version, installed);
+    }
+
+    /**
+     * Get the revision of the feature state in the cluster group.
+     *
+     * @return the revision.
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    @Override
+    public void writeData(DataOutput out) throws IOException {
+        CellarSerialization.writeString(out, name);
+        CellarSerialization.writeString(out, version);
+        CellarSerialization.writeBoolean(out, installed);
+        out.writeLong(revision);
+    }
+
+    @Override
+    public void readData(DataInput in) throws IOException {
+        name = CellarSerialization.readString(in);
+        version = CellarSerialization.readString(in);
+        installed = CellarSerialization.readBoolean(in);
+        revision = in.readLong();
+    }
+
 }
@@ -21,7 +21,6 @@ import org.apache.karaf.cellar.core.event.EventHandler;
 import org.apache.karaf.cellar.core.event.EventType;
 import org.apache.karaf.features.FeatureEvent;
 import org.apache.karaf.features.FeaturesService;
-import org.osgi.service.cm.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,13 +37,21 @@ public class FeaturesEventHandler extends FeaturesSupport implements EventHandle
 
     private final Switch eventSwitch = new BasicSwitch(SWITCH_ID);
 
+    private FeaturesInstaller featuresInstaller;
+
     @Override
     public void init() {
         super.init();
+        if (switchRegistry != null) {
+            switchRegistry.register(eventSwitch, Configurations.HANDLER + "." + this.getClass().getName());
+        }
     }
 
     @Override
     public void destroy() {
+        if (switchRegistry != null) {
+            switchRegistry.unregister(eventSwitch);
+        }
         super.destroy();
     }
 
@@ -72,11 +79,28 @@ public class FeaturesEventHandler extends FeaturesSupport implements EventHandle
             return;
         }
 
+        // check if the local node already applied this revision of the feature
+        if (isStale(event, Constants.CATEGORY)) {
+            LOGGER.debug("CELLAR FEATURE: discarding stale cluster event for feature {} (revision {})", event.getId(), event.getRevision());
+            return;
+        }
+
         String name = event.getName();
         String version = event.getVersion();
         if (isAllowed(event.getSourceGroup(), Constants.CATEGORY, name, EventType.INBOUND) || event.getForce()) {
             FeatureEvent.EventType type = event.getType();
+            String feature = (version != null) ? name + "/" + version : name;
+            // an operation of the feature still pending in the installer would make the local state out of date
+            featuresInstaller.flush(feature);
             Boolean isInstalled = isFeatureInstalledLocally(name, version);
+            final ClusterFeaturesEvent handledEvent = event;
+            // the features are installed or uninstalled with the other features received in the same time window
+            Runnable callback = new Runnable() {
+                @Override
+                public void run() {
+                    applied(handledEvent, Constants.CATEGORY);
+                }
+            };
             try {
                 if (FeatureEvent.EventType.FeatureInstalled.equals(type) && !isInstalled) {
                     boolean noRefresh = event.getNoRefresh();
@@ -88,26 +112,18 @@ public class FeaturesEventHandler extends FeaturesSupport implements EventHandle
                     if (noStart) {
                         options.add(FeaturesService.Option.NoAutoStartBundles);
                     }
-                    if (version != null) {
-                        LOGGER.debug("CELLAR FEATURE: installing feature {}/{}", name, version);
-                        featuresService.installFeature(name, version, options);
-                    } else {
-                        LOGGER.debug("CELLAR FEATURE: installing feature {}", name);
-                        featuresService.installFeature(name, options);
-                    }
+                    LOGGER.debug("CELLAR FEATURE: installing feature {}", feature);
+                    featuresInstaller.submit(true, feature, options, callback);
                 } else if (FeatureEvent.EventType.FeatureUninstalled.equals(type) && isInstalled) {
                     boolean noRefresh = event.getNoRefresh();
                     EnumSet<FeaturesService.Option> options = EnumSet.noneOf(FeaturesService.Option.class);
                     if (noRefresh) {
                         options.add(FeaturesService.Option.NoAutoRefreshBundles);
                     }
-                    if (version != null) {
-                        LOGGER.debug("CELLAR FEATURE: uninstalling feature {}/{}", name, version);
-                        featuresService.uninstallFeature(name, version, options);
-                    } else {
-                        LOGGER.debug("CELLAR FEATURE: uninstalling feature {}", name);
-                        featuresService.uninstallFeature(name, options);
-                    }
+                    LOGGER.debug("CELLAR FEATURE: uninstalling feature {}", feature);
+                    featuresInstaller.submit(false, feature, options, callback);
+                } else {
+                    applied(event, Constants.CATEGORY);
                 }
             } catch (Exception e) {
                 LOGGER.error("CELLAR FEATURE: failed to handle cluster feature event", e);
@@ -132,21 +148,15 @@ public class FeaturesEventHandler extends FeaturesSupport implements EventHandle
      */
     @Override
     public Switch getSwitch() {
-        // load the switch status from the config
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.HANDLER + "." + this.getClass().getName()));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
-            }
-        } catch (Exception e) {
-            // ignore
-        }
         return eventSwitch;
     }
 
+    public FeaturesInstaller getFeaturesInstaller() {
+        return featuresInstaller;
+    }
+
+    public void setFeaturesInstaller(FeaturesInstaller featuresInstaller) {
+        this.featuresInstaller = featuresInstaller;
+    }
+
 }
@@ -0,0 +1,280 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.features;
+
+import org.apache.karaf.features.FeaturesService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Installs and uninstalls a set of features with a single features service call, so that the features service
+ * resolves and refreshes the bundles once for the whole set.
+ * The features submitted within a time window with the same operation and options are applied together. A submission
+ * with another operation or options applies the pending features first, so the submission order is preserved.
+ * The batches and the direct installs and uninstalls are applied one at a time.
+ */
+public class FeaturesInstaller {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(FeaturesInstaller.class);
+
+    private FeaturesService featuresService;
+    private long window = 100;
+
+    private ScheduledExecutorService scheduler;
+    private Batch pending;
+    private ScheduledFuture<?> scheduledFlush;
+    private final Set<String> applying = new LinkedHashSet<String>();
+    private final Object applyLock = new Object();
+
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "cellar-features-installer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public void destroy() {
+        try {
+            flush();
+        } finally {
+            if (scheduler != null) {
+                scheduler.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Install features with a single resolution.
+     *
+     * @param features the features to install (name or name/version).
+     * @param options the features service options.
+     * @return the features which failed to install.
+     */
+    public Set<String> install(Set<String> features, EnumSet<FeaturesService.Option> options) {
+        synchronized (applyLock) {
+            return apply(true, features, options);
+        }
+    }
+
+    /**
+     * Uninstall features with a single resolution.
+     *
+     * @param features the features to uninstall (name or name/version).
+     * @param options the features service options.
+     * @return the features which failed to uninstall.
+     */
+    public Set<String> uninstall(Set<String> features, EnumSet<FeaturesService.Option> options) {
+        synchronized (applyLock) {
+            return apply(false, features, options);
+        }
+    }
+
+    /**
+     * Submit a feature to install or uninstall with the next batch.
+     *
+     * @param install true to install the feature, false to uninstall it.
+     * @param feature the feature (name or name/version).
+     * @param options the features service options.
+     * @param callback called once the feature is successfully installed or uninstalled, may be null.
+     */
+    public void submit(boolean install, String feature, EnumSet<FeaturesService.Option> options, Runnable callback) {
+        while (true) {
+            synchronized (this) {
+                if (pending == null || pending.accepts(install, options)) {
+                    if (pending == null) {
+                        pending = new Batch(install, options);
+                    }
+                    pending.add(feature, callback);
+                    if (scheduledFlush == null && scheduler != null) {
+                        scheduledFlush = scheduler.schedule(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    flush();
+                                } catch (Exception e) {
+                                    LOGGER.error("CELLAR FEATURE: failed to apply features batch", e);
+                                }
+                            }
+                        }, window, TimeUnit.MILLISECONDS);
+                    }
+                    if (scheduler != null) {
+                        return;
+                    }
+                }
+            }
+            // the pending batch doesn't accept the feature (or there is no scheduler), apply it now
+            flush();
+            if (scheduler == null) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Apply the pending features.
+     */
+    public void flush() {
+        synchronized (applyLock) {
+            Batch batch;
+            synchronized (this) {
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+                batch = pending;
+                pending = null;
+                if (batch != null) {
+                    applying.addAll(batch.features);
+                }
+            }
+            if (batch != null) {
+                try {
+                    batch.apply();
+                } finally {
+                    synchronized (this) {
+                        applying.clear();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply the pending operation of a feature, or wait for it if it's being applied, so that the local state of the
+     * feature is up to date.
+     *
+     * @param feature the feature (name or name/version).
+     */
+    public void flush(String feature) {
+        synchronized (this) {
+            if (!applying.contains(feature) && (pending == null || !pending.features.contains(feature))) {
+                return;
+            }
+        }
+        flush();
+    }
+
+    private Set<String> apply(boolean install, Set<String> features, EnumSet<FeaturesService.Option> options) {
+        Set<String> failed = new LinkedHashSet<String>();
+        if (features == null || features.isEmpty()) {
+            return failed;
+        }
+        String operation = install ? "install" : "uninstall";
+        try {
+            LOGGER.debug("CELLAR FEATURE: {} features {}", operation, features);
+            if (install) {
+                featuresService.installFeatures(features, options);
+            } else {
+                featuresService.uninstallFeatures(features, options);
+            }
+        } catch (Exception e) {
+            if (features.size() == 1) {
+                LOGGER.error("CELLAR FEATURE: failed to {} feature {}", operation, features.iterator().next(), e);
+                failed.addAll(features);
+                return failed;
+            }
+            // find out the failing features
+            LOGGER.warn("CELLAR FEATURE: failed to {} features {} at once, retrying one by one", operation, features, e);
+            for (String feature : features) {
+                try {
+                    if (install) {
+                        featuresService.installFeatures(Collections.singleton(feature), options);
+                    } else {
+                        featuresService.uninstallFeatures(Collections.singleton(feature), options);
+                    }
+                } catch (Exception ex) {
+                    LOGGER.error("CELLAR FEATURE: failed to {} feature {}", operation, feature, ex);
+                    failed.add(feature);
+                }
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Features pending with the same operation and options.
+     */
+    private class Batch {
+
+        private final boolean install;
+        private final EnumSet<FeaturesService.Option> options;
+        private final Set<String> features = new LinkedHashSet<String>();
+        private final List<String> callbackFeatures = new ArrayList<String>();
+        private final List<Runnable> callbacks = new ArrayList<Runnable>();
+
+        Batch(boolean install, EnumSet<FeaturesService.Option> options) {
+            this.install = install;
+            this.options = options;
+        }
+
+        boolean accepts(boolean install, EnumSet<FeaturesService.Option> options) {
+            return this.install == install && this.options.equals(options);
+        }
+
+        void add(String feature, Runnable callback) {
+            features.add(feature);
+            if (callback != null) {
+                callbackFeatures.add(feature);
+                callbacks.add(callback);
+            }
+        }
+
+        void apply() {
+            Set<String> failed = FeaturesInstaller.this.apply(install, features, options);
+            for (int i = 0; i < callbacks.size(); i++) {
+                if (!failed.contains(callbackFeatures.get(i))) {
+                    try {
+                        callbacks.get(i).run();
+                    } catch (Exception e) {
+                        LOGGER.warn("CELLAR FEATURE: features batch callback failed", e);
+                    }
+                }
+            }
+        }
+
+    }
+
+    public FeaturesService getFeaturesService() {
+        return featuresService;
+    }
+
+    public void setFeaturesService(FeaturesService featuresService) {
+        this.featuresService = featuresService;
+    }
+
+    public long getWindow() {
+        return window;
+    }
+
+    public void setWindow(long window) {
+        this.window = window;
+    }
+
+}
@@ -34,6 +34,7 @@ public class FeaturesSupport extends CellarSupport {
     private static final transient Logger LOGGER = LoggerFactory.getLogger(FeaturesSupport.class);
 
     protected FeaturesService featuresService;
+    protected LocalFeaturesIndex localFeaturesIndex;
 
     public void init() {
         // nothing to do
@@ -51,6 +52,9 @@ public class FeaturesSupport extends CellarSupport {
      * @return true if the feature is already installed locally, false else.
      */
     public Boolean isFeatureInstalledLocally(String name, String version) {
+        if (localFeaturesIndex != null) {
+            return localFeaturesIndex.isInstalled(name, version);
+        }
         if (featuresService != null) {
             try {
                 Feature[] localFeatures = featuresService.listInstalledFeatures();
@@ -75,6 +79,9 @@ public class FeaturesSupport extends CellarSupport {
      * @return true if the features repository is already registered locally, false else.
      */
     public Boolean isRepositoryRegisteredLocally(String uri) {
+        if (localFeaturesIndex != null) {
+            return localFeaturesIndex.isRegistered(uri);
+        }
         try {
             Repository[] localRepositories = featuresService.listRepositories();
             for (Repository localRepository : localRepositories) {
@@ -96,4 +103,12 @@ public class FeaturesSupport extends CellarSupport {
         this.featuresService = featuresService;
     }
 
+    public LocalFeaturesIndex getLocalFeaturesIndex() {
+        return localFeaturesIndex;
+    }
+
+    public void setLocalFeaturesIndex(LocalFeaturesIndex localFeaturesIndex) {
+        this.localFeaturesIndex = localFeaturesIndex;
+    }
+
 }
@@ -17,7 +17,10 @@ import org.apache.karaf.cellar.core.Configurations;
 import org.apache.karaf.cellar.core.Group;
 import org.apache.karaf.cellar.core.Synchronizer;
 import org.apache.karaf.cellar.core.event.EventType;
+import org.apache.karaf.cellar.core.sync.IncrementalSync;
+import org.apache.karaf.cellar.core.sync.MapDigest;
 import org.apache.karaf.features.Feature;
+import org.apache.karaf.features.FeaturesService;
 import org.apache.karaf.features.Repository;
 import org.osgi.service.cm.Configuration;
 import org.slf4j.Logger;
@@ -27,6 +30,9 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.util.Dictionary;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -37,6 +43,10 @@ public class FeaturesSynchronizer extends FeaturesSupport implements Synchronize
 
     private static final transient Logger LOGGER = LoggerFactory.getLogger(FeaturesSynchronizer.class);
 
+    private IncrementalSync incrementalSync;
+
+    private FeaturesInstaller featuresInstaller;
+
     @Override
     public void init() {
         Set<Group> groups = groupManager.listLocalGroups();
@@ -90,12 +100,19 @@ public class FeaturesSynchronizer extends FeaturesSupport implements Synchronize
             try {
                 Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
 
-                Map<String, String> clusterRepositories = clusterManager.getMap(Constants.REPOSITORIES_MAP + Configurations.SEPARATOR + groupName);
-                Map<String, FeatureState> clusterFeatures = clusterManager.getMap(Constants.FEATURES_MAP + Configurations.SEPARATOR + groupName);
+                String repositoriesMapName = Constants.REPOSITORIES_MAP + Configurations.SEPARATOR + groupName;
+                String featuresMapName = Constants.FEATURES_MAP + Configurations.SEPARATOR + groupName;
+                // read the digests first, the changes done during the pull are detected by the next pull
+                MapDigest repositoriesDigest = clusterManager.getDigest(repositoriesMapName);
+                MapDigest featuresDigest = clusterManager.getDigest(featuresMapName);
+                Map<String, String> clusterRepositories = clusterManager.getMap(repositoriesMapName);
+                Map<String, FeatureState> clusterFeatures = clusterManager.getMap(featuresMapName);
+                MapDigest localRepositoriesDigest = localRepositoriesDigest();
 
-                // get the features repositories URLs from the cluster group
+                // get the features repositories URLs from the cluster group (only the ones changed since the last pull)
+                boolean failed = false;
                 if (clusterRepositories != null && !clusterRepositories.isEmpty()) {
-                    for (String url : clusterRepositories.keySet()) {
+                    for (String url : incrementalSync.entries(repositoriesMapName, clusterRepositories, repositoriesDigest, localRepositoriesDigest).keySet()) {
                         try {
                             if (!isRepositoryRegisteredLocally(url)) {
                                 LOGGER.debug("CELLAR FEATURE: adding repository {}", url);
@@ -103,15 +120,25 @@ public class FeaturesSynchronizer extends FeaturesSupport implements Synchronize
                             }
                         } catch (MalformedURLException e) {
                             LOGGER.error("CELLAR FEATURE: failed to add repository URL {} (malformed)", url, e);
+                            failed = true;
                         } catch (Exception e) {
                             LOGGER.error("CELLAR FEATURE: failed to add repository URL {}", url, e);
+                            failed = true;
                         }
                     }
                 }
+                if (failed || localRepositoriesDigest == null) {
+                    incrementalSync.reset(repositoriesMapName);
+                } else {
+                    incrementalSync.synced(repositoriesMapName, repositoriesDigest, localRepositoriesDigest());
+                }
 
-                // get the features from the cluster group
+                // get the features from the cluster group (only the ones changed since the last pull)
+                // the missing features are installed all at once, with a single resolution
+                Map<String, FeatureState> toInstall = new LinkedHashMap<String, FeatureState>();
+                MapDigest localFeaturesDigest = localFeaturesDigest();
                 if (clusterFeatures != null && !clusterFeatures.isEmpty()) {
-                    for (FeatureState state : clusterFeatures.values()) {
+                    for (FeatureState state : incrementalSync.entries(featuresMapName, clusterFeatures, featuresDigest, localFeaturesDigest).values()) {
                         String name = state.getName();
                         // check if feature is blocked
                         if (isAllowed(group, Constants.CATEGORY, name, EventType.INBOUND)) {
@@ -128,22 +155,70 @@ public class FeaturesSynchronizer extends FeaturesSupport implements Synchronize
 
                             // if feature has to be installed locally
                             if (clusterInstalled && !locallyInstalled) {
-                                try {
-                                    LOGGER.debug("CELLAR FEATURE: installing feature {}/{}", state.getName(), state.getVersion());
-                                    featuresService.installFeature(state.getName(), state.getVersion());
-                                } catch (Exception e) {
-                                    LOGGER.error("CELLAR FEATURE: failed to install feature {}/{} ", new Object[]{state.getName(), state.getVersion()}, e);
-                                }
+                                LOGGER.debug("CELLAR FEATURE: feature {}/{} has to be installed", state.getName(), state.getVersion());
+                                toInstall.put(state.getName() + "/" + state.getVersion(), state);
+                            } else if (revisionTracker != null) {
+                                revisionTracker.applied(groupName, Constants.CATEGORY, state.getName() + "/" + state.getVersion(), state.getRevision());
                             }
                         } else LOGGER.trace("CELLAR FEATURE: feature {} is marked BLOCKED INBOUND for cluster group {}", name, groupName);
                     }
                 }
+                Set<String> failedFeatures = featuresInstaller.install(toInstall.keySet(), EnumSet.noneOf(FeaturesService.Option.class));
+                failed = !failedFeatures.isEmpty();
+                if (revisionTracker != null) {
+                    for (Map.Entry<String, FeatureState> entry : toInstall.entrySet()) {
+                        if (!failedFeatures.contains(entry.getKey())) {
+                            revisionTracker.applied(groupName, Constants.CATEGORY, entry.getKey(), entry.getValue().getRevision());
+                        }
+                    }
+                }
+                if (failed || localFeaturesDigest == null) {
+                    incrementalSync.reset(featuresMapName);
+                } else {
+                    incrementalSync.synced(featuresMapName, featuresDigest, localFeaturesDigest());
+                }
             } finally {
                 Thread.currentThread().setContextClassLoader(originalClassLoader);
             }
         }
     }
 
+    /**
+     * Get the digest of the local features repositories, keyed by URI as the cluster features repositories.
+     *
+     * @return the digest of the local features repositories, or null if they can't be read.
+     */
+    private MapDigest localRepositoriesDigest() {
+        Map<String, String> localRepositories = new HashMap<String, String>();
+        try {
+            for (Repository repository : featuresService.listRepositories()) {
+                localRepositories.put(repository.getURI().toString(), repository.getName());
+            }
+        } catch (Exception e) {
+            LOGGER.warn("CELLAR FEATURE: failed to read the local features repositories", e);
+            return null;
+        }
+        return MapDigest.of(localRepositories);
+    }
+
+    /**
+     * Get the digest of the locally installed features, keyed by name and version as the cluster features.
+     *
+     * @return the digest of the locally installed features, or null if they can't be read.
+     */
+    private MapDigest localFeaturesDigest() {
+        Map<String, Boolean> localFeatures = new HashMap<String, Boolean>();
+        try {
+            for (Feature feature : featuresService.listInstalledFeatures()) {
+                localFeatures.put(feature.getName() + "/" + feature.getVersion(), Boolean.TRUE);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("CELLAR FEATURE: failed to read the local features", e);
+            return null;
+        }
+        return MapDigest.of(localFeatures);
+    }
+
     /**
      * Push features repositories and features local states to a cluster group.
      *
@@ -232,4 +307,20 @@ public class FeaturesSynchronizer extends FeaturesSupport implements Synchronize
         return "disabled";
     }
 
+    public FeaturesInstaller getFeaturesInstaller() {
+        return featuresInstaller;
+    }
+
+    public void setFeaturesInstaller(FeaturesInstaller featuresInstaller) {
+        this.featuresInstaller = featuresInstaller;
+    }
+
+    public IncrementalSync getIncrementalSync() {
+        return incrementalSync;
+    }
+
+    public void setIncrementalSync(IncrementalSync incrementalSync) {
+        this.incrementalSync = incrementalSync;
+    }
+
 }
@@ -0,0 +1,160 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.features;
+
+import org.apache.karaf.features.Feature;
+import org.apache.karaf.features.FeatureEvent;
+import org.apache.karaf.features.FeaturesListener;
+import org.apache.karaf.features.FeaturesService;
+import org.apache.karaf.features.Repository;
+import org.apache.karaf.features.RepositoryEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the locally installed features (by name and version) and of the locally registered features
+ * repositories (by URI), kept up to date by a features listener.
+ */
+public class LocalFeaturesIndex implements FeaturesListener {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(LocalFeaturesIndex.class);
+
+    private FeaturesService featuresService;
+
+    private final Map<String, Set<String>> installedFeatures = new HashMap<String, Set<String>>();
+    private final Set<String> repositories = new HashSet<String>();
+
+    public void init() {
+        // register the listener first to not miss a change done while the index is populated
+        featuresService.registerListener(this);
+        try {
+            Repository[] localRepositories = featuresService.listRepositories();
+            if (localRepositories != null) {
+                for (Repository repository : localRepositories) {
+                    addRepository(repository);
+                }
+            }
+            Feature[] localFeatures = featuresService.listInstalledFeatures();
+            if (localFeatures != null) {
+                for (Feature feature : localFeatures) {
+                    addFeature(feature);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("CELLAR FEATURE: failed to populate the local features index", e);
+        }
+    }
+
+    public void destroy() {
+        featuresService.unregisterListener(this);
+        synchronized (this) {
+            installedFeatures.clear();
+            repositories.clear();
+        }
+    }
+
+    @Override
+    public void featureEvent(FeatureEvent event) {
+        if (FeatureEvent.EventType.FeatureInstalled.equals(event.getType())) {
+            addFeature(event.getFeature());
+        } else if (FeatureEvent.EventType.FeatureUninstalled.equals(event.getType())) {
+            removeFeature(event.getFeature());
+        }
+    }
+
+    @Override
+    public void repositoryEvent(RepositoryEvent event) {
+        if (RepositoryEvent.EventType.RepositoryAdded.equals(event.getType())) {
+            addRepository(event.getRepository());
+        } else if (RepositoryEvent.EventType.RepositoryRemoved.equals(event.getType())) {
+            removeRepository(event.getRepository());
+        }
+    }
+
+    /**
+     * Check if a feature is installed locally.
+     *
+     * @param name the feature name.
+     * @param version the feature version, null for any version.
+     * @return true if the feature is installed locally, false else.
+     */
+    public synchronized boolean isInstalled(String name, String version) {
+        Set<String> versions = installedFeatures.get(name);
+        if (versions == null) {
+            return false;
+        }
+        return version == null || versions.contains(version);
+    }
+
+    /**
+     * Check if a features repository is registered locally.
+     *
+     * @param uri the features repository URI.
+     * @return true if the features repository is registered locally, false else.
+     */
+    public synchronized boolean isRegistered(String uri) {
+        return repositories.contains(uri);
+    }
+
+    private synchronized void addFeature(Feature feature) {
+        if (feature == null) {
+            return;
+        }
+        Set<String> versions = installedFeatures.get(feature.getName());
+        if (versions == null) {
+            versions = new HashSet<String>(1);
+            installedFeatures.put(feature.getName(), versions);
+        }
+        versions.add(feature.getVersion());
+    }
+
+    private synchronized void removeFeature(Feature feature) {
+        if (feature == null) {
+            return;
+        }
+        Set<String> versions = installedFeatures.get(feature.getName());
+        if (versions != null) {
+            versions.remove(feature.getVersion());
+            if (versions.isEmpty()) {
+                installedFeatures.remove(feature.getName());
+            }
+        }
+    }
+
+    private synchronized void addRepository(Repository repository) {
+        if (repository != null && repository.getURI() != null) {
+            repositories.add(repository.getURI().toString());
+        }
+    }
+
+    private synchronized void removeRepository(Repository repository) {
+        if (repository != null && repository.getURI() != null) {
+            repositories.remove(repository.getURI().toString());
+        }
+    }
+
+    public FeaturesService getFeaturesService() {
+        return featuresService;
+    }
+
+    public void setFeaturesService(FeaturesService featuresService) {
+        this.featuresService = featuresService;
+    }
+
+}
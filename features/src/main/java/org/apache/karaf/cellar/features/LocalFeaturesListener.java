@@ -82,19 +82,34 @@ public class LocalFeaturesListener extends FeaturesSupport implements org.apache
 
                         // update the features in the cluster group
                         Map<String, FeatureState> clusterFeatures = clusterManager.getMap(Constants.FEATURES_MAP + Configurations.SEPARATOR + group.getName());
-                        FeatureState clusterFeatureState = new FeatureState();
-                        clusterFeatureState.setName(event.getFeature().getName());
-                        clusterFeatureState.setVersion(event.getFeature().getVersion());
-                        if (FeatureEvent.EventType.FeatureInstalled.equals(event.getType())) {
-                            clusterFeatureState.setInstalled(Boolean.TRUE);
-                        } else {
-                            clusterFeatureState.setInstalled(Boolean.FALSE);
+                        String key = event.getFeature().getName() + "/" + event.getFeature().getVersion();
+                        long revision;
+                        // the other nodes may update the same feature at the same time: each update gets its own revision
+                        while (true) {
+                            FeatureState previousFeatureState = clusterFeatures.get(key);
+                            revision = nextRevision(group.getName(), Constants.CATEGORY, key, (previousFeatureState != null) ? previousFeatureState.getRevision() : 0);
+                            FeatureState clusterFeatureState = new FeatureState();
+                            clusterFeatureState.setName(event.getFeature().getName());
+                            clusterFeatureState.setVersion(event.getFeature().getVersion());
+                            if (FeatureEvent.EventType.FeatureInstalled.equals(event.getType())) {
+                                clusterFeatureState.setInstalled(Boolean.TRUE);
+                            } else {
+                                clusterFeatureState.setInstalled(Boolean.FALSE);
+                            }
+                            clusterFeatureState.setRevision(revision);
+                            if (compareAndSet(clusterFeatures, key, previousFeatureState, clusterFeatureState)) {
+                                break;
+                            }
+                        }
+                        // the local node already has this revision, its own cluster event is discarded
+                        if (revisionTracker != null) {
+                            revisionTracker.applied(group.getName(), Constants.CATEGORY, key, revision);
                         }
-                        clusterFeatures.put(event.getFeature().getName() + "/" + event.getFeature().getVersion(), clusterFeatureState);
 
                         // broadcast the event
                         ClusterFeaturesEvent featureEvent = new ClusterFeaturesEvent(name, version, type);
                         featureEvent.setSourceGroup(group);
+                        featureEvent.setRevision(revision);
                         eventProducer.produce(featureEvent);
                     } else LOGGER.trace("CELLAR FEATURE: feature {} is marked BLOCKED OUTBOUND for cluster group {}", name, group.getName());
                 }
@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.features;
+
+import org.apache.karaf.cellar.core.BasicRevisionTracker;
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.GroupManager;
+import org.apache.karaf.cellar.core.event.EventType;
+import org.apache.karaf.features.FeatureEvent;
+import org.apache.karaf.features.FeaturesService;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.createStrictMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class FeaturesEventHandlerTest {
+
+    private static final EnumSet<FeaturesService.Option> NO_OPTIONS = EnumSet.noneOf(FeaturesService.Option.class);
+
+    private final Set<String> installed = Collections.synchronizedSet(new HashSet<String>());
+    private final BasicRevisionTracker revisionTracker = new BasicRevisionTracker();
+    private FeaturesService featuresService;
+    private FeaturesInstaller installer;
+    private FeaturesEventHandler handler;
+
+    @Before
+    public void setUp() {
+        featuresService = createStrictMock(FeaturesService.class);
+        GroupManager groupManager = createNiceMock(GroupManager.class);
+        expect(groupManager.isLocalGroup("default")).andReturn(true).anyTimes();
+        replay(groupManager);
+
+        installer = new FeaturesInstaller();
+        installer.setFeaturesService(featuresService);
+        // the batches are applied by the tests
+        installer.setWindow(60000);
+        installer.init();
+
+        handler = new FeaturesEventHandler() {
+            @Override
+            public Boolean isAllowed(Group group, String category, String event, EventType type) {
+                return true;
+            }
+
+            @Override
+            public Boolean isFeatureInstalledLocally(String name, String version) {
+                return installed.contains(name + "/" + version);
+            }
+        };
+        handler.setGroupManager(groupManager);
+        handler.setRevisionTracker(revisionTracker);
+        handler.setFeaturesInstaller(installer);
+    }
+
+    @After
+    public void tearDown() {
+        installer.destroy();
+    }
+
+    @Test
+    public void testInstallThenUninstallInOneWindow() throws Exception {
+        featuresService.installFeatures(Collections.singleton("test/1.0.0"), NO_OPTIONS);
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() {
+                installed.add("test/1.0.0");
+                return null;
+            }
+        });
+        featuresService.uninstallFeatures(Collections.singleton("test/1.0.0"), NO_OPTIONS);
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() {
+                installed.remove("test/1.0.0");
+                return null;
+            }
+        });
+        replay(featuresService);
+
+        handler.handle(event(FeatureEvent.EventType.FeatureInstalled, 1));
+        // the pending install is applied before checking the local state of the feature
+        handler.handle(event(FeatureEvent.EventType.FeatureUninstalled, 2));
+        installer.flush();
+
+        verify(featuresService);
+        assertFalse(installed.contains("test/1.0.0"));
+        assertEquals(2, revisionTracker.getRevision("default", Constants.CATEGORY, "test/1.0.0"));
+    }
+
+    private static ClusterFeaturesEvent event(FeatureEvent.EventType type, long revision) {
+        ClusterFeaturesEvent event = new ClusterFeaturesEvent("test", "1.0.0", type);
+        event.setSourceGroup(new Group("default"));
+        event.setRevision(revision);
+        return event;
+    }
+
+}
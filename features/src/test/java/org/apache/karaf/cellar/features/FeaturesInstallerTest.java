@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.features;
+
+import org.apache.karaf.features.FeaturesService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.easymock.EasyMock.createStrictMock;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+public class FeaturesInstallerTest {
+
+    private static final EnumSet<FeaturesService.Option> NO_OPTIONS = EnumSet.noneOf(FeaturesService.Option.class);
+    private static final EnumSet<FeaturesService.Option> NO_REFRESH = EnumSet.of(FeaturesService.Option.NoAutoRefreshBundles);
+
+    private final List<String> applied = Collections.synchronizedList(new ArrayList<String>());
+    private FeaturesService featuresService;
+    private FeaturesInstaller installer;
+
+    @Before
+    public void setUp() {
+        featuresService = createStrictMock(FeaturesService.class);
+        installer = new FeaturesInstaller();
+        installer.setFeaturesService(featuresService);
+        // the batches are applied by the tests
+        installer.setWindow(60000);
+        installer.init();
+    }
+
+    @After
+    public void tearDown() {
+        installer.destroy();
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        featuresService.installFeatures(features("a", "b", "c"), NO_OPTIONS);
+        replay(featuresService);
+
+        installer.submit(true, "a", NO_OPTIONS, callback("a"));
+        installer.submit(true, "b", NO_OPTIONS, callback("b"));
+        installer.submit(true, "c", NO_OPTIONS, callback("c"));
+        installer.flush();
+
+        verify(featuresService);
+        assertEquals(Arrays.asList("a", "b", "c"), applied);
+    }
+
+    @Test
+    public void testBatchSplit() throws Exception {
+        featuresService.installFeatures(features("a"), NO_OPTIONS);
+        featuresService.installFeatures(features("b"), NO_REFRESH);
+        featuresService.uninstallFeatures(features("c"), NO_REFRESH);
+        replay(featuresService);
+
+        installer.submit(true, "a", NO_OPTIONS, callback("a"));
+        // other options, the pending install is applied first
+        installer.submit(true, "b", NO_REFRESH, callback("b"));
+        // other operation, the pending install is applied first
+        installer.submit(false, "c", NO_REFRESH, callback("c"));
+        installer.flush();
+
+        verify(featuresService);
+        assertEquals(Arrays.asList("a", "b", "c"), applied);
+    }
+
+    @Test
+    public void testRetryOneByOne() throws Exception {
+        featuresService.installFeatures(features("a", "b"), NO_OPTIONS);
+        expectLastCall().andThrow(new Exception("b can't be resolved"));
+        featuresService.installFeatures(features("a"), NO_OPTIONS);
+        featuresService.installFeatures(features("b"), NO_OPTIONS);
+        expectLastCall().andThrow(new Exception("b can't be resolved"));
+        replay(featuresService);
+
+        installer.submit(true, "a", NO_OPTIONS, callback("a"));
+        installer.submit(true, "b", NO_OPTIONS, callback("b"));
+        installer.flush();
+
+        verify(featuresService);
+        // the callback of the failed feature is not called
+        assertEquals(Collections.singletonList("a"), applied);
+    }
+
+    @Test
+    public void testUninstallFailures() throws Exception {
+        featuresService.uninstallFeatures(features("a", "b"), NO_OPTIONS);
+        expectLastCall().andThrow(new Exception("a can't be uninstalled"));
+        featuresService.uninstallFeatures(features("a"), NO_OPTIONS);
+        expectLastCall().andThrow(new Exception("a can't be uninstalled"));
+        featuresService.uninstallFeatures(features("b"), NO_OPTIONS);
+        replay(featuresService);
+
+        assertEquals(features("a"), installer.uninstall(features("a", "b"), NO_OPTIONS));
+
+        verify(featuresService);
+    }
+
+    @Test
+    public void testFlushFeature() throws Exception {
+        featuresService.installFeatures(features("a", "b"), NO_OPTIONS);
+        replay(featuresService);
+
+        installer.submit(true, "a", NO_OPTIONS, callback("a"));
+        installer.submit(true, "b", NO_OPTIONS, callback("b"));
+        // no pending operation for c
+        installer.flush("c");
+        assertEquals(Collections.<String>emptyList(), applied);
+        installer.flush("a");
+
+        verify(featuresService);
+        assertEquals(Arrays.asList("a", "b"), applied);
+    }
+
+    private Runnable callback(final String feature) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                applied.add(feature);
+            }
+        };
+    }
+
+    private static Set<String> features(String... features) {
+        return new LinkedHashSet<String>(Arrays.asList(features));
+    }
+
+}
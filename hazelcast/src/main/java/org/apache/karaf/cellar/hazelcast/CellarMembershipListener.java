@@ -17,6 +17,7 @@ import com.hazelcast.core.*;
 import org.apache.karaf.cellar.core.Group;
 import org.apache.karaf.cellar.core.GroupManager;
 import org.apache.karaf.cellar.core.Synchronizer;
+import org.apache.karaf.cellar.core.sync.SyncOrchestrator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,6 +33,7 @@ public class CellarMembershipListener extends HazelcastInstanceAware implements
 
     private GroupManager groupManager;
     private List<? extends Synchronizer> synchronizers;
+    private SyncOrchestrator syncOrchestrator;
 
     public CellarMembershipListener(HazelcastInstance instance) {
         this.instance = instance;
@@ -46,7 +48,10 @@ public class CellarMembershipListener extends HazelcastInstanceAware implements
 
             if (local.equals(member) && synchronizers != null && !synchronizers.isEmpty()) {
                 Set<Group> groups = groupManager.listLocalGroups();
-                if (groups != null && !groups.isEmpty()) {
+                if (groups != null && !groups.isEmpty() && syncOrchestrator != null) {
+                    // don't block the Hazelcast event thread during the sync
+                    syncOrchestrator.submit(groups);
+                } else if (groups != null && !groups.isEmpty()) {
                     for (Group group : groups) {
                         for (Synchronizer synchronizer : synchronizers) {
                             synchronizer.sync(group);
@@ -85,4 +90,12 @@ public class CellarMembershipListener extends HazelcastInstanceAware implements
         this.synchronizers = synchronizers;
     }
 
+    public SyncOrchestrator getSyncOrchestrator() {
+        return syncOrchestrator;
+    }
+
+    public void setSyncOrchestrator(SyncOrchestrator syncOrchestrator) {
+        this.syncOrchestrator = syncOrchestrator;
+    }
+
 }
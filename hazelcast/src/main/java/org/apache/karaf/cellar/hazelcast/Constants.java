@@ -22,5 +22,7 @@ public class Constants {
     public static final String CONFIG = "config";
     public static final String TOPIC = "org.apache.karaf.cellar.event.topic";
     public static final String QUEUE = "org.apache.karaf.cellar.event.queue";
+    public static final String EVENT_LOG = "org.apache.karaf.cellar.event.log";
+    public static final String EVENT_LOG_OFFSETS = "org.apache.karaf.cellar.event.offsets";
 
 }
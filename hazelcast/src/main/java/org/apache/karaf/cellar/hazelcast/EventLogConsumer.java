@@ -0,0 +1,459 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast;
+
+import com.hazelcast.core.EntryAdapter;
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.core.IAtomicLong;
+import com.hazelcast.core.IMap;
+import org.apache.karaf.cellar.core.Configurations;
+import org.apache.karaf.cellar.core.Dispatcher;
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.control.SwitchRegistry;
+import org.apache.karaf.cellar.core.control.SwitchStatus;
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventBatch;
+import org.apache.karaf.cellar.core.event.ReplayableEventConsumer;
+import org.apache.karaf.cellar.core.sync.SyncOrchestrator;
+import org.apache.karaf.cellar.core.utils.CombinedClassLoader;
+import org.osgi.service.cm.ConfigurationAdmin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Consumes the cluster events from the event log of a cluster group and calls the {@code EventDispatcher}.
+ * <p>
+ * The consumer applies the cluster events in offset order, and stores the offset of the last applied cluster event
+ * in a cluster map. When the consumer starts (node restart, cluster group re-join), it resumes from this offset and
+ * replays the missed cluster events. While the consumer switch is OFF, the cluster events are kept in the log (only
+ * the forced cluster events are dispatched) and they are replayed when the switch is turned ON. When the missed
+ * cluster events are not in the log anymore, a full synchronization of the cluster group is requested.
+ */
+public class EventLogConsumer<E extends Event> implements ReplayableEventConsumer<E> {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(EventLogConsumer.class);
+
+    public static final String SWITCH_ID = "org.apache.karaf.cellar.log.consumer";
+
+    private final Switch eventSwitch = new BasicSwitch(SWITCH_ID);
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean pending = new AtomicBoolean();
+    // forced cluster events dispatched while the switch was OFF, not replayed when the switch is turned ON
+    private final Set<Long> dispatchedAhead = new HashSet<Long>();
+
+    private String groupName;
+    private IMap<Long, E> log;
+    private IAtomicLong sequence;
+    private IMap<String, Long> offsets;
+    private Dispatcher dispatcher;
+    private Node node;
+    private CombinedClassLoader combinedClassLoader;
+    private ConfigurationAdmin configurationAdmin;
+    private SwitchRegistry switchRegistry;
+    private SyncOrchestrator syncOrchestrator;
+    private ScheduledExecutorService executor;
+
+    private int retention = 1000;
+    private int batchSize = 100;
+    private long interval = 1000;
+    private long inFlightTimeout = 5000;
+
+    private volatile boolean isConsuming;
+    private volatile boolean resumed;
+    private volatile long offset;
+    private long scanned;
+    private long missingSince;
+    private String registrationId;
+    private ScheduledFuture<?> tick;
+
+    public void init() {
+        if (switchRegistry != null) {
+            switchRegistry.register(eventSwitch, Configurations.CONSUMER);
+        }
+        start();
+    }
+
+    public void destroy() {
+        if (switchRegistry != null) {
+            switchRegistry.unregister(eventSwitch);
+        }
+        stop();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (isConsuming) {
+            return;
+        }
+        Long stored = offsets.get(getOffsetKey());
+        long head = sequence.get();
+        if (stored != null && stored <= head && head - stored <= retention) {
+            LOGGER.debug("CELLAR HAZELCAST: resuming cluster group {} events from offset {} ({} events to replay)", groupName, stored, head - stored);
+            offset = stored;
+            resumed = true;
+        } else {
+            if (stored != null) {
+                LOGGER.info("CELLAR HAZELCAST: cluster group {} events missed since offset {} are not in the event log anymore", groupName, stored);
+            }
+            offset = head;
+            resumed = false;
+            offsets.set(getOffsetKey(), head);
+        }
+        scanned = offset;
+        dispatchedAhead.clear();
+        missingSince = 0;
+
+        isConsuming = true;
+        registrationId = log.addEntryListener(new EntryAdapter<Long, E>() {
+            @Override
+            public void entryAdded(EntryEvent<Long, E> event) {
+                signal();
+            }
+        }, false);
+        tick = executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                signal();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        signal();
+    }
+
+    @Override
+    public synchronized void stop() {
+        isConsuming = false;
+        if (registrationId != null) {
+            log.removeEntryListener(registrationId);
+            registrationId = null;
+        }
+        if (tick != null) {
+            tick.cancel(false);
+            tick = null;
+        }
+    }
+
+    @Override
+    public Boolean isConsuming() {
+        return isConsuming;
+    }
+
+    @Override
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * Schedule a catch up of the event log, unless a catch up is already running.
+     */
+    private void signal() {
+        pending.set(true);
+        if (isConsuming && scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        drain();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+            }
+        }
+    }
+
+    private void drain() {
+        ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            if (combinedClassLoader != null) {
+                Thread.currentThread().setContextClassLoader(combinedClassLoader);
+            }
+            while (pending.getAndSet(false) && isConsuming) {
+                catchUp();
+            }
+        } catch (Exception e) {
+            LOGGER.warn("CELLAR HAZELCAST: failed to consume the cluster group {} event log", groupName, e);
+        } finally {
+            Thread.currentThread().setContextClassLoader(originalClassLoader);
+            scheduled.set(false);
+        }
+        if (pending.get() && isConsuming) {
+            signal();
+        }
+    }
+
+    /**
+     * Apply the cluster events added to the log since the last applied cluster event.
+     */
+    synchronized void catchUp() {
+        if (!isConsuming) {
+            return;
+        }
+        long head = sequence.get();
+        if (head < offset) {
+            reset(head, "the event log has been reset");
+            return;
+        }
+        if (head - offset > retention) {
+            reset(head, (head - offset) + " cluster events missed, more than the event log retention");
+            return;
+        }
+        boolean on = eventSwitch.getStatus().equals(SwitchStatus.ON);
+        long applied = offset;
+        long from = (on ? offset : Math.max(offset, scanned)) + 1;
+        while (from <= head) {
+            long to = Math.min(head, from + batchSize - 1);
+            Set<Long> keys = new HashSet<Long>();
+            for (long i = from; i <= to; i++) {
+                keys.add(i);
+            }
+            Map<Long, E> events = log.getAll(keys);
+            for (long i = from; i <= to; i++) {
+                E event = events.get(i);
+                if (event == null) {
+                    long current = sequence.get();
+                    if (i <= current - retention) {
+                        reset(current, "cluster events removed from the event log before being applied");
+                        return;
+                    }
+                    if (missingSince == 0) {
+                        missingSince = System.currentTimeMillis();
+                    }
+                    if (System.currentTimeMillis() - missingSince < inFlightTimeout) {
+                        // the offset is allocated, the cluster event is being written in the log: retry later
+                        applied(applied);
+                        return;
+                    }
+                    LOGGER.warn("CELLAR HAZELCAST: cluster group {} event {} is missing in the event log, skipping it", groupName, i);
+                } else if (on) {
+                    if (!dispatchedAhead.remove(i)) {
+                        consume(event);
+                    }
+                } else if (event.getForce() && !(event instanceof EventBatch) && dispatchedAhead.add(i)) {
+                    consume(event);
+                }
+                missingSince = 0;
+                if (on) {
+                    applied = i;
+                } else {
+                    scanned = i;
+                }
+            }
+            from = to + 1;
+        }
+        applied(applied);
+    }
+
+    private void applied(long applied) {
+        if (applied != offset) {
+            offset = applied;
+            offsets.set(getOffsetKey(), applied);
+        }
+    }
+
+    /**
+     * Skip the cluster events missing in the log, and request a full synchronization of the cluster group.
+     * The consumer starting without the missed cluster events doesn't reset: the cluster group join does the full
+     * synchronization.
+     */
+    private void reset(long head, String reason) {
+        LOGGER.warn("CELLAR HAZELCAST: cluster group {}: {}, requesting a full sync", groupName, reason);
+        offset = head;
+        scanned = head;
+        dispatchedAhead.clear();
+        missingSince = 0;
+        offsets.set(getOffsetKey(), head);
+        if (syncOrchestrator != null) {
+            syncOrchestrator.submit(Collections.singleton(new Group(groupName)), true);
+        }
+    }
+
+    private String getOffsetKey() {
+        return groupName + Configurations.SEPARATOR + node.getId();
+    }
+
+    @Override
+    public void consume(E event) {
+        if (event instanceof EventBatch) {
+            for (Event batched : ((EventBatch) event).getEvents()) {
+                consume((E) batched);
+            }
+            return;
+        }
+        // check if event has a specified destination.
+        if ((event.getDestination() == null || event.getDestination().contains(node)) && (this.getSwitch().getStatus().equals(SwitchStatus.ON) || event.getForce())) {
+            dispatcher.dispatch(event);
+        } else {
+            if (eventSwitch.getStatus().equals(SwitchStatus.OFF)) {
+                LOGGER.debug("CELLAR HAZELCAST: {} switch is OFF, cluster event is not consumed", SWITCH_ID);
+            }
+        }
+    }
+
+    @Override
+    public Switch getSwitch() {
+        return eventSwitch;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public void setGroupName(String groupName) {
+        this.groupName = groupName;
+    }
+
+    public IMap<Long, E> getLog() {
+        return log;
+    }
+
+    public void setLog(IMap<Long, E> log) {
+        this.log = log;
+    }
+
+    public IAtomicLong getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(IAtomicLong sequence) {
+        this.sequence = sequence;
+    }
+
+    public IMap<String, Long> getOffsets() {
+        return offsets;
+    }
+
+    public void setOffsets(IMap<String, Long> offsets) {
+        this.offsets = offsets;
+    }
+
+    public Dispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    public void setDispatcher(Dispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    public Node getNode() {
+        return node;
+    }
+
+    public void setNode(Node node) {
+        this.node = node;
+    }
+
+    public CombinedClassLoader getCombinedClassLoader() {
+        return combinedClassLoader;
+    }
+
+    public void setCombinedClassLoader(CombinedClassLoader combinedClassLoader) {
+        this.combinedClassLoader = combinedClassLoader;
+    }
+
+    public ConfigurationAdmin getConfigurationAdmin() {
+        return configurationAdmin;
+    }
+
+    public void setConfigurationAdmin(ConfigurationAdmin configurationAdmin) {
+        this.configurationAdmin = configurationAdmin;
+    }
+
+    public SwitchRegistry getSwitchRegistry() {
+        return switchRegistry;
+    }
+
+    public void setSwitchRegistry(SwitchRegistry switchRegistry) {
+        this.switchRegistry = switchRegistry;
+    }
+
+    public SyncOrchestrator getSyncOrchestrator() {
+        return syncOrchestrator;
+    }
+
+    public void setSyncOrchestrator(SyncOrchestrator syncOrchestrator) {
+        this.syncOrchestrator = syncOrchestrator;
+    }
+
+    public ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public int getRetention() {
+        return retention;
+    }
+
+    public void setRetention(int retention) {
+        this.retention = retention;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Set the interval (in milliseconds) of the periodic check of the event log, in addition to the notifications of
+     * the new cluster events.
+     *
+     * @param interval the check interval.
+     */
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+
+    public long getInFlightTimeout() {
+        return inFlightTimeout;
+    }
+
+    /**
+     * Set the time (in milliseconds) the consumer waits for a cluster event whose offset is allocated but which is not
+     * in the log yet, before skipping it (the producer failed while writing the cluster event).
+     *
+     * @param inFlightTimeout the in flight cluster event timeout.
+     */
+    public void setInFlightTimeout(long inFlightTimeout) {
+        this.inFlightTimeout = inFlightTimeout;
+    }
+
+}
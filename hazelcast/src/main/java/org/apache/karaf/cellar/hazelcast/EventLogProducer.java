@@ -0,0 +1,184 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast;
+
+import com.hazelcast.core.IAtomicLong;
+import com.hazelcast.core.IMap;
+import org.apache.karaf.cellar.core.Configurations;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.control.SwitchRegistry;
+import org.apache.karaf.cellar.core.control.SwitchStatus;
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventBatcher;
+import org.apache.karaf.cellar.core.event.EventProducer;
+import org.osgi.service.cm.ConfigurationAdmin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Produces cluster {@code Event}s into the event log of a cluster group.
+ * Each cluster event gets the next offset of the cluster group sequence, and is stored in the log with this offset.
+ * The log keeps the latest {@code retention} cluster events: the producer of an event removes the event
+ * {@code retention} offsets older.
+ */
+public class EventLogProducer<E extends Event> implements EventProducer<E> {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(EventLogProducer.class);
+
+    public static final String SWITCH_ID = "org.apache.karaf.cellar.log.producer";
+
+    private final Switch eventSwitch = new BasicSwitch(SWITCH_ID);
+
+    private IMap<Long, Event> log;
+    private IAtomicLong sequence;
+    private Node node;
+    private ConfigurationAdmin configurationAdmin;
+    private SwitchRegistry switchRegistry;
+
+    private int retention = 1000;
+    private int batchSize = 0;
+    private long batchWindow = 50;
+    private EventBatcher batcher;
+
+    public void init() {
+        if (switchRegistry != null) {
+            switchRegistry.register(eventSwitch, Configurations.PRODUCER);
+        }
+        if (batchSize > 1) {
+            batcher = new EventBatcher(batchSize, batchWindow, new EventBatcher.Publisher() {
+                @Override
+                public void publish(Event event) {
+                    append(event);
+                }
+            });
+        }
+    }
+
+    public void destroy() {
+        if (switchRegistry != null) {
+            switchRegistry.unregister(eventSwitch);
+        }
+        if (batcher != null) {
+            batcher.close();
+            batcher = null;
+        }
+    }
+
+    @Override
+    public void produce(E event) {
+        if (this.getSwitch().getStatus().equals(SwitchStatus.ON) || event.getForce() || event instanceof Result) {
+            event.setSourceNode(node);
+            if (batcher != null) {
+                batcher.add(event);
+            } else {
+                append(event);
+            }
+        } else {
+            if (eventSwitch.getStatus().equals(SwitchStatus.OFF)) {
+                LOGGER.debug("CELLAR HAZELCAST: {} switch is OFF, don't produce the cluster event", SWITCH_ID);
+            }
+        }
+    }
+
+    /**
+     * Append a cluster event to the log.
+     *
+     * @param event the cluster event.
+     */
+    private void append(Event event) {
+        long offset = sequence.incrementAndGet();
+        log.set(offset, event);
+        if (offset > retention) {
+            log.delete(offset - retention);
+        }
+    }
+
+    @Override
+    public Switch getSwitch() {
+        return eventSwitch;
+    }
+
+    public IMap<Long, Event> getLog() {
+        return log;
+    }
+
+    public void setLog(IMap<Long, Event> log) {
+        this.log = log;
+    }
+
+    public IAtomicLong getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(IAtomicLong sequence) {
+        this.sequence = sequence;
+    }
+
+    public Node getNode() {
+        return node;
+    }
+
+    public void setNode(Node node) {
+        this.node = node;
+    }
+
+    public ConfigurationAdmin getConfigurationAdmin() {
+        return configurationAdmin;
+    }
+
+    public void setConfigurationAdmin(ConfigurationAdmin configurationAdmin) {
+        this.configurationAdmin = configurationAdmin;
+    }
+
+    public SwitchRegistry getSwitchRegistry() {
+        return switchRegistry;
+    }
+
+    public void setSwitchRegistry(SwitchRegistry switchRegistry) {
+        this.switchRegistry = switchRegistry;
+    }
+
+    public int getRetention() {
+        return retention;
+    }
+
+    /**
+     * Set the number of cluster events kept in the log.
+     *
+     * @param retention the number of cluster events kept in the log.
+     */
+    public void setRetention(int retention) {
+        this.retention = retention;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getBatchWindow() {
+        return batchWindow;
+    }
+
+    public void setBatchWindow(long batchWindow) {
+        this.batchWindow = batchWindow;
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast;
+
+import org.apache.karaf.cellar.core.event.EventConsumer;
+import org.apache.karaf.cellar.core.event.EventProducer;
+import org.apache.karaf.cellar.core.sync.SyncOrchestrator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An event transport factory powered by Hazelcast, with a replayable event log for the cluster groups.
+ * When the event log is enabled, the cluster group events are appended to a bounded log instead of being published
+ * on a topic, so that the nodes replay the cluster events missed while they were away. The queues (point to point)
+ * are not changed. The event log producer of a cluster group is shared: the resource cluster events published on the
+ * global producer are routed to the event log of their source cluster group (see {@link #getGroupEventProducer}).
+ */
+public class EventLogTransportFactory extends HazelcastEventTransportFactory {
+
+    private boolean enabled = false;
+    private int retention = 1000;
+    private int threads = 2;
+    private SyncOrchestrator syncOrchestrator;
+    private ScheduledExecutorService executor;
+    private final ConcurrentMap<String, EventLogProducer> producers = new ConcurrentHashMap<String, EventLogProducer>();
+
+    public void init() {
+        executor = Executors.newScheduledThreadPool(threads, new EventLogThreadFactory());
+    }
+
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        for (EventLogProducer producer : producers.values()) {
+            producer.destroy();
+        }
+        producers.clear();
+    }
+
+    @Override
+    public EventProducer getEventProducer(String name, Boolean pubsub) {
+        if (!enabled || !pubsub) {
+            return super.getEventProducer(name, pubsub);
+        }
+        return getGroupEventProducer(name);
+    }
+
+    /**
+     * Get the producer appending the cluster events to the event log of a cluster group.
+     *
+     * @param name the cluster group name.
+     * @return the event log producer of the cluster group, or null if the event log is disabled.
+     */
+    public EventProducer getGroupEventProducer(String name) {
+        if (!enabled || name == null) {
+            return null;
+        }
+        EventLogProducer producer = producers.get(name);
+        if (producer != null) {
+            return producer;
+        }
+        producer = new EventLogProducer();
+        producer.setLog(instance.getMap(Constants.EVENT_LOG + Constants.SEPARATOR + name));
+        producer.setSequence(instance.getAtomicLong(Constants.EVENT_LOG + Constants.SEPARATOR + name));
+        producer.setNode(getNode());
+        producer.setConfigurationAdmin(getConfigurationAdmin());
+        producer.setSwitchRegistry(getSwitchRegistry());
+        producer.setRetention(retention);
+        producer.setBatchSize(getBatchSize());
+        producer.setBatchWindow(getBatchWindow());
+        EventLogProducer existing = producers.putIfAbsent(name, producer);
+        if (existing != null) {
+            return existing;
+        }
+        producer.init();
+        return producer;
+    }
+
+    @Override
+    public EventConsumer getEventConsumer(String name, Boolean pubsub) {
+        if (!enabled || !pubsub) {
+            return super.getEventConsumer(name, pubsub);
+        }
+        EventLogConsumer consumer = new EventLogConsumer();
+        consumer.setGroupName(name);
+        consumer.setLog(instance.getMap(Constants.EVENT_LOG + Constants.SEPARATOR + name));
+        consumer.setSequence(instance.getAtomicLong(Constants.EVENT_LOG + Constants.SEPARATOR + name));
+        consumer.setOffsets(instance.getMap(Constants.EVENT_LOG_OFFSETS));
+        consumer.setNode(getNode());
+        consumer.setDispatcher(getDispatcher());
+        consumer.setCombinedClassLoader(getCombinedClassLoader());
+        consumer.setConfigurationAdmin(getConfigurationAdmin());
+        consumer.setSwitchRegistry(getSwitchRegistry());
+        consumer.setSyncOrchestrator(syncOrchestrator);
+        consumer.setExecutor(executor);
+        consumer.setRetention(retention);
+        consumer.init();
+        return consumer;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getRetention() {
+        return retention;
+    }
+
+    /**
+     * Set the number of cluster events kept in the event log of each cluster group.
+     *
+     * @param retention the number of cluster events kept in the event log.
+     */
+    public void setRetention(int retention) {
+        this.retention = retention;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public SyncOrchestrator getSyncOrchestrator() {
+        return syncOrchestrator;
+    }
+
+    public void setSyncOrchestrator(SyncOrchestrator syncOrchestrator) {
+        this.syncOrchestrator = syncOrchestrator;
+    }
+
+    private static class EventLogThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "cellar-event-log-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
@@ -58,6 +58,8 @@ public class HazelcastBundleListener implements SynchronousBundleListener {
                 }
                 break;
         }
+        // the classes visible from the bundles may have changed (new exports, refreshed wiring)
+        combinedClassLoader.invalidate();
     }
 
     public boolean isBundleEligible(Bundle bundle) {
@@ -19,6 +19,8 @@ import com.hazelcast.core.Member;
 import org.apache.karaf.cellar.core.ClusterManager;
 import org.apache.karaf.cellar.core.Group;
 import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.sync.DigestMap;
+import org.apache.karaf.cellar.core.sync.MapDigest;
 import org.apache.karaf.cellar.core.utils.CombinedClassLoader;
 import org.osgi.service.cm.ConfigurationAdmin;
 
@@ -35,6 +37,18 @@ public class HazelcastClusterManager extends HazelcastInstanceAware implements C
 
     private static final String GENERATOR_ID = "org.apache.karaf.cellar.idgen";
 
+    private static final String DIGEST_MAP = "org.apache.karaf.cellar.digest";
+
+    /**
+     * Prefixes of the synchronized maps, maintaining a digest.
+     */
+    private static final String[] DIGEST_MAP_PREFIXES = new String[]{
+            "org.apache.karaf.cellar.bundle.map.",
+            "org.apache.karaf.cellar.features.",
+            "org.apache.karaf.cellar.repositories.",
+            "org.apache.karaf.cellar.configuration.map."
+    };
+
     private IdGenerator idgenerator;
 
     private ConfigurationAdmin configurationAdmin;
@@ -48,9 +62,36 @@ public class HazelcastClusterManager extends HazelcastInstanceAware implements C
      */
     @Override
     public Map getMap(String mapName) {
+        if (isDigested(mapName)) {
+            return new DigestMap(instance.getMap(mapName), instance.<String, MapDigest>getMap(DIGEST_MAP), mapName);
+        }
         return instance.getMap(mapName);
     }
 
+    /**
+     * Get the digest of a synchronized map.
+     *
+     * @param mapName the map name.
+     * @return the map digest, or null if the map doesn't maintain a digest or if the map is still empty.
+     */
+    @Override
+    public MapDigest getDigest(String mapName) {
+        if (!isDigested(mapName)) {
+            return null;
+        }
+        Map<String, MapDigest> digests = instance.getMap(DIGEST_MAP);
+        return digests.get(mapName);
+    }
+
+    private boolean isDigested(String mapName) {
+        for (String prefix : DIGEST_MAP_PREFIXES) {
+            if (mapName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Get a List in Hazelcast.
      *
@@ -80,6 +121,9 @@ public class HazelcastClusterManager extends HazelcastInstanceAware implements C
      */
     @Override
     public Set<Node> listNodes() {
+        if (nodeCache != null) {
+            return new HashSet<Node>(nodeCache.listNodes());
+        }
         Set<Node> nodes = new HashSet<Node>();
 
         Cluster cluster = instance.getCluster();
@@ -103,6 +147,9 @@ public class HazelcastClusterManager extends HazelcastInstanceAware implements C
      */
     @Override
     public Set<Node> listNodes(Collection<String> ids) {
+        if (nodeCache != null) {
+            return nodeCache.listNodes(ids);
+        }
         Set<Node> nodes = new HashSet<Node>();
         if (ids != null && !ids.isEmpty()) {
             Cluster cluster = instance.getCluster();
@@ -129,6 +176,9 @@ public class HazelcastClusterManager extends HazelcastInstanceAware implements C
      */
     @Override
     public Node findNodeById(String id) {
+        if (nodeCache != null) {
+            return nodeCache.findNodeById(id);
+        }
         if (id != null) {
             Cluster cluster = instance.getCluster();
             if (cluster != null) {
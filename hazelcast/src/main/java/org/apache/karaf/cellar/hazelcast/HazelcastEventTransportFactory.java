@@ -16,6 +16,7 @@ package org.apache.karaf.cellar.hazelcast;
 import com.hazelcast.core.IQueue;
 import com.hazelcast.core.ITopic;
 import org.apache.karaf.cellar.core.Dispatcher;
+import org.apache.karaf.cellar.core.control.SwitchRegistry;
 import org.apache.karaf.cellar.core.event.EventConsumer;
 import org.apache.karaf.cellar.core.event.EventProducer;
 import org.apache.karaf.cellar.core.event.EventTransportFactory;
@@ -30,6 +31,10 @@ public class HazelcastEventTransportFactory extends HazelcastInstanceAware imple
     private Dispatcher dispatcher;
     private CombinedClassLoader combinedClassLoader;
     private ConfigurationAdmin configurationAdmin;
+    private SwitchRegistry switchRegistry;
+    private QueueConsumerPool queueConsumerPool;
+    private int batchSize = 0;
+    private long batchWindow = 50;
 
     @Override
     public EventProducer getEventProducer(String name, Boolean pubsub) {
@@ -40,6 +45,9 @@ public class HazelcastEventTransportFactory extends HazelcastInstanceAware imple
             producer.setTopic(topic);
             producer.setNode(getNode());
             producer.setConfigurationAdmin(configurationAdmin);
+            producer.setSwitchRegistry(switchRegistry);
+            producer.setBatchSize(batchSize);
+            producer.setBatchWindow(batchWindow);
             producer.init();
             return producer;
         } else {
@@ -48,6 +56,9 @@ public class HazelcastEventTransportFactory extends HazelcastInstanceAware imple
             producer.setQueue(queue);
             producer.setNode(getNode());
             producer.setConfigurationAdmin(configurationAdmin);
+            producer.setSwitchRegistry(switchRegistry);
+            producer.setBatchSize(batchSize);
+            producer.setBatchWindow(batchWindow);
             producer.init();
             return producer;
         }
@@ -63,16 +74,18 @@ public class HazelcastEventTransportFactory extends HazelcastInstanceAware imple
             consumer.setNode(getNode());
             consumer.setDispatcher(dispatcher);
             consumer.setConfigurationAdmin(configurationAdmin);
+            consumer.setSwitchRegistry(switchRegistry);
             consumer.init();
             return consumer;
         } else {
-
             IQueue queue = instance.getQueue(Constants.QUEUE + Constants.SEPARATOR + name);
             QueueConsumer consumer = new QueueConsumer(combinedClassLoader);
             consumer.setQueue(queue);
             consumer.setNode(getNode());
             consumer.setDispatcher(dispatcher);
             consumer.setConfigurationAdmin(configurationAdmin);
+            consumer.setSwitchRegistry(switchRegistry);
+            consumer.setQueueConsumerPool(queueConsumerPool);
             consumer.init();
             return consumer;
         }
@@ -102,4 +115,36 @@ public class HazelcastEventTransportFactory extends HazelcastInstanceAware imple
         this.configurationAdmin = configurationAdmin;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getBatchWindow() {
+        return batchWindow;
+    }
+
+    public void setBatchWindow(long batchWindow) {
+        this.batchWindow = batchWindow;
+    }
+
+    public QueueConsumerPool getQueueConsumerPool() {
+        return queueConsumerPool;
+    }
+
+    public void setQueueConsumerPool(QueueConsumerPool queueConsumerPool) {
+        this.queueConsumerPool = queueConsumerPool;
+    }
+
+    public SwitchRegistry getSwitchRegistry() {
+        return switchRegistry;
+    }
+
+    public void setSwitchRegistry(SwitchRegistry switchRegistry) {
+        this.switchRegistry = switchRegistry;
+    }
+
 }
@@ -24,7 +24,9 @@ import org.apache.karaf.cellar.core.Node;
 import org.apache.karaf.cellar.core.Synchronizer;
 import org.apache.karaf.cellar.core.event.EventConsumer;
 import org.apache.karaf.cellar.core.event.EventProducer;
+import org.apache.karaf.cellar.core.event.ReplayableEventConsumer;
 import org.apache.karaf.cellar.core.event.EventTransportFactory;
+import org.apache.karaf.cellar.core.sync.SyncOrchestrator;
 import org.apache.karaf.cellar.core.utils.CombinedClassLoader;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
@@ -58,15 +60,27 @@ public class HazelcastGroupManager implements GroupManager, EntryListener, Confi
     private BundleContext bundleContext;
 
     private HazelcastInstance instance;
+    private HazelcastNodeCache nodeCache;
     private ConfigurationAdmin configurationAdmin;
 
     private EventTransportFactory eventTransportFactory;
     private CombinedClassLoader combinedClassLoader;
+    private SyncOrchestrator syncOrchestrator;
+
+    // local view of the cluster groups where the local node is member
+    private final Object localGroupsLock = new Object();
+    private final Map<String, Group> localGroupsByName = new HashMap<String, Group>();
+    private volatile LocalGroups localGroups;
+    private String groupsListenerId;
 
     public void init() {
         // create a listener for group configuration.
         IMap groupConfiguration = instance.getMap(GROUPS_CONFIG);
         groupConfiguration.addEntryListener(this, true);
+        // create a listener for groups membership, keeping the local groups view up to date
+        IMap groups = instance.getMap(GROUPS);
+        groupsListenerId = groups.addEntryListener(new GroupsListener(), false);
+        refreshLocalGroups();
         try {
             // create group stored in configuration admin
             Configuration configuration = configurationAdmin.getConfiguration(Configurations.GROUP, null);
@@ -111,6 +125,10 @@ public class HazelcastGroupManager implements GroupManager, EntryListener, Confi
         ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
         try {
             Thread.currentThread().setContextClassLoader(combinedClassLoader);
+            if (groupsListenerId != null && instance.getLifecycleService().isRunning()) {
+                instance.getMap(GROUPS).removeEntryListener(groupsListenerId);
+            }
+            groupsListenerId = null;
             // update the group
             Node local = this.getNode();
             Set<Group> groups = this.listGroups(local);
@@ -133,6 +151,9 @@ public class HazelcastGroupManager implements GroupManager, EntryListener, Confi
 
     @Override
     public Node getNode() {
+        if (nodeCache != null) {
+            return nodeCache.getNode();
+        }
         ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
         try {
             Thread.currentThread().setContextClassLoader(combinedClassLoader);
@@ -180,6 +201,7 @@ public class HazelcastGroupManager implements GroupManager, EntryListener, Confi
             Thread.currentThread().setContextClassLoader(combinedClassLoader);
             if (!groupName.equals(Configurations.DEFAULT_GROUP_NAME)) {
                 listGroups().remove(groupName);
+                updateLocalGroup(groupName, null);
                 try {
                     // store the group list to configuration admin
                     persist(listGroups());
@@ -210,34 +232,88 @@ public class HazelcastGroupManager implements GroupManager, EntryListener, Confi
         }
     }
 
+    /**
+     * Get the cluster groups where the local node is member.
+     * The groups come from the local view, kept up to date by the groups listener.
+     *
+     * @return an immutable set of the local cluster groups.
+     */
     @Override
     public Set<Group> listLocalGroups() {
+        return getLocalGroups().groups;
+    }
+
+    @Override
+    public boolean isLocalGroup(String groupName) {
+        return getLocalGroups().names.contains(groupName);
+    }
+
+    private LocalGroups getLocalGroups() {
+        LocalGroups current = localGroups;
+        if (current == null) {
+            refreshLocalGroups();
+            current = localGroups;
+        }
+        return current;
+    }
+
+    /**
+     * Rebuild the local groups view from the cluster groups.
+     */
+    private void refreshLocalGroups() {
         ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
         try {
             Thread.currentThread().setContextClassLoader(combinedClassLoader);
-            return listGroups(getNode());
+            Node local = getNode();
+            synchronized (localGroupsLock) {
+                localGroupsByName.clear();
+                Map<String, Group> groupMap = instance.getMap(GROUPS);
+                for (Group group : groupMap.values()) {
+                    if (group.getNodes().contains(local)) {
+                        localGroupsByName.put(group.getName(), group);
+                    }
+                }
+                localGroups = new LocalGroups(localGroupsByName);
+            }
         } finally {
             Thread.currentThread().setContextClassLoader(originalClassLoader);
         }
     }
 
-    @Override
-    public boolean isLocalGroup(String groupName) {
+    /**
+     * Update the local groups view with the current state of a cluster group.
+     *
+     * @param groupName the cluster group name.
+     */
+    private void refreshLocalGroup(String groupName) {
         ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
         try {
             Thread.currentThread().setContextClassLoader(combinedClassLoader);
-            Set<Group> localGroups = this.listLocalGroups();
-            for (Group localGroup : localGroups) {
-                if (localGroup.getName().equals(groupName)) {
-                    return true;
-                }
-            }
-            return false;
+            Map<String, Group> groupMap = instance.getMap(GROUPS);
+            updateLocalGroup(groupName, groupMap.get(groupName));
         } finally {
             Thread.currentThread().setContextClassLoader(originalClassLoader);
         }
     }
 
+    /**
+     * Update the local groups view with a cluster group.
+     *
+     * @param groupName the cluster group name.
+     * @param group the cluster group, or null if the cluster group has been removed.
+     */
+    private void updateLocalGroup(String groupName, Group group) {
+        Node local = getNode();
+        synchronized (localGroupsLock) {
+            if (group != null && group.getNodes().contains(local)) {
+                localGroupsByName.put(groupName, group);
+            } else if (localGroupsByName.remove(groupName) == null) {
+                return;
+            }
+            localGroups = new LocalGroups(localGroupsByName);
+        }
+    }
+
     @Override
     public Set<Group> listAllGroups() {
         ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
@@ -354,6 +430,7 @@ public class HazelcastGroupManager implements GroupManager, EntryListener, Confi
                 producerRegistrations.put(groupName, producerRegistration);
             }
 
+            boolean resumed = false;
             if (!consumerRegistrations.containsKey(groupName)) {
                 EventConsumer consumer = groupConsumer.get(groupName);
                 if (consumer == null) {
@@ -362,12 +439,14 @@ public class HazelcastGroupManager implements GroupManager, EntryListener, Confi
                 } else if (!consumer.isConsuming()) {
                     consumer.start();
                 }
+                resumed = consumer instanceof ReplayableEventConsumer && ((ReplayableEventConsumer) consumer).isResumed();
                 ServiceRegistration consumerRegistration = bundleContext.registerService(EventConsumer.class.getCanonicalName(), consumer, (Dictionary) serviceProperties);
                 consumerRegistrations.put(groupName, consumerRegistration);
             }
 
             group.getNodes().add(getNode());
             listGroups().put(groupName, group);
+            updateLocalGroup(groupName, group);
 
             // add group to configuration
             try {
@@ -396,19 +475,28 @@ public class HazelcastGroupManager implements GroupManager, EntryListener, Confi
             }
 
             // launch the synchronization on the group
-            try {
-                ServiceReference[] serviceReferences = bundleContext.getAllServiceReferences("org.apache.karaf.cellar.core.Synchronizer", null);
-                if (serviceReferences != null && serviceReferences.length > 0) {
-                    for (ServiceReference ref : serviceReferences) {
-                        Synchronizer synchronizer = (Synchronizer) bundleContext.getService(ref);
-                        if (synchronizer != null) {
-                            synchronizer.sync(group);
+            // when the consumer resumed from the event log, the missed cluster events are replayed: only an
+            // incremental synchronization is done to catch up the changes not coming from cluster events
+            if (resumed) {
+                LOGGER.debug("CELLAR HAZELCAST: cluster group {} events replayed from the event log", groupName);
+            }
+            if (syncOrchestrator != null) {
+                syncOrchestrator.submit(Collections.singleton(group), !resumed);
+            } else if (!resumed) {
+                try {
+                    ServiceReference[] serviceReferences = bundleContext.getAllServiceReferences("org.apache.karaf.cellar.core.Synchronizer", null);
+                    if (serviceReferences != null && serviceReferences.length > 0) {
+                        for (ServiceReference ref : serviceReferences) {
+                            Synchronizer synchronizer = (Synchronizer) bundleContext.getService(ref);
+                            if (synchronizer != null) {
+                                synchronizer.sync(group);
+                            }
+                            bundleContext.ungetService(ref);
                         }
-                        bundleContext.ungetService(ref);
                     }
+                } catch (InvalidSyntaxException e) {
+                    LOGGER.error("CELLAR HAZELCAST: failed to look for synchronizers", e);
                 }
-            } catch (InvalidSyntaxException e) {
-                LOGGER.error("CELLAR HAZELCAST: failed to look for synchronizers", e);
             }
         } finally {
             Thread.currentThread().setContextClassLoader(originalClassLoader);
@@ -450,6 +538,7 @@ public class HazelcastGroupManager implements GroupManager, EntryListener, Confi
             // remove local node from cluster group
             group.getNodes().remove(getNode());
             listGroups().put(groupName, group);
+            updateLocalGroup(groupName, group);
 
             // un-register cluster group consumers
             if (consumerRegistrations != null && !consumerRegistrations.isEmpty()) {
@@ -678,6 +767,60 @@ public class HazelcastGroupManager implements GroupManager, EntryListener, Confi
         // nothing to do
     }
 
+    /**
+     * Listener on the cluster groups, updating the local groups view.
+     * The listener doesn't get the entry values: the view is updated with the current state of the cluster group,
+     * so an event delivered late can't revert the view.
+     */
+    private class GroupsListener implements EntryListener {
+
+        @Override
+        public void entryAdded(EntryEvent entryEvent) {
+            refreshLocalGroup((String) entryEvent.getKey());
+        }
+
+        @Override
+        public void entryRemoved(EntryEvent entryEvent) {
+            refreshLocalGroup((String) entryEvent.getKey());
+        }
+
+        @Override
+        public void entryUpdated(EntryEvent entryEvent) {
+            refreshLocalGroup((String) entryEvent.getKey());
+        }
+
+        @Override
+        public void entryEvicted(EntryEvent entryEvent) {
+            refreshLocalGroup((String) entryEvent.getKey());
+        }
+
+        @Override
+        public void mapCleared(MapEvent mapEvent) {
+            refreshLocalGroups();
+        }
+
+        @Override
+        public void mapEvicted(MapEvent mapEvent) {
+            refreshLocalGroups();
+        }
+
+    }
+
+    /**
+     * Immutable snapshot of the local cluster groups.
+     */
+    private static final class LocalGroups {
+
+        private final Set<String> names;
+        private final Set<Group> groups;
+
+        LocalGroups(Map<String, Group> groupsByName) {
+            this.names = Collections.unmodifiableSet(new HashSet<String>(groupsByName.keySet()));
+            this.groups = Collections.unmodifiableSet(new HashSet<Group>(groupsByName.values()));
+        }
+
+    }
+
     public HazelcastInstance getInstance() {
         return instance;
     }
@@ -686,6 +829,22 @@ public class HazelcastGroupManager implements GroupManager, EntryListener, Confi
         this.instance = instance;
     }
 
+    public HazelcastNodeCache getNodeCache() {
+        return nodeCache;
+    }
+
+    public void setNodeCache(HazelcastNodeCache nodeCache) {
+        this.nodeCache = nodeCache;
+    }
+
+    public SyncOrchestrator getSyncOrchestrator() {
+        return syncOrchestrator;
+    }
+
+    public void setSyncOrchestrator(SyncOrchestrator syncOrchestrator) {
+        this.syncOrchestrator = syncOrchestrator;
+    }
+
     public BundleContext getBundleContext() {
         return bundleContext;
     }
@@ -24,6 +24,7 @@ import org.apache.karaf.cellar.core.Node;
 public class HazelcastInstanceAware {
 
     protected HazelcastInstance instance;
+    protected HazelcastNodeCache nodeCache;
 
     public void bind(HazelcastInstance instance) {
         this.instance = instance;
@@ -39,6 +40,9 @@ public class HazelcastInstanceAware {
      * @return the local node.
      */
     public Node getNode() {
+        if (nodeCache != null) {
+            return nodeCache.getNode();
+        }
         Cluster cluster = instance.getCluster();
         if (cluster != null) {
             Member member = cluster.getLocalMember();
@@ -56,4 +60,12 @@ public class HazelcastInstanceAware {
         this.instance = instance;
     }
 
+    public HazelcastNodeCache getNodeCache() {
+        return nodeCache;
+    }
+
+    public void setNodeCache(HazelcastNodeCache nodeCache) {
+        this.nodeCache = nodeCache;
+    }
+
 }
@@ -14,11 +14,17 @@
 package org.apache.karaf.cellar.hazelcast;
 
 import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.CellarSerialization;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * Cluster node powered by Hazelcast.
  */
-public class HazelcastNode implements Node {
+public class HazelcastNode implements Node, CellarSerializable {
 
     private String id;
 
@@ -32,6 +38,12 @@ public class HazelcastNode implements Node {
         this.id = builder.append(host).append(":").append(port).toString();
     }
 
+    /**
+     * Constructor used by the compact serialization.
+     */
+    protected HazelcastNode() {
+    }
+
     @Override
     public String getId() {
         return id;
@@ -55,6 +67,20 @@ public class HazelcastNode implements Node {
         this.port = port;
     }
 
+    @Override
+    public void writeData(DataOutput out) throws IOException {
+        CellarSerialization.writeString(out, id);
+        CellarSerialization.writeString(out, host);
+        out.writeInt(port);
+    }
+
+    @Override
+    public void readData(DataInput in) throws IOException {
+        id = CellarSerialization.readString(in);
+        host = CellarSerialization.readString(in);
+        port = in.readInt();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
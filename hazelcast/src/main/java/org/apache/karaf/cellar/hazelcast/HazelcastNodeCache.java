@@ -0,0 +1,193 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast;
+
+import com.hazelcast.core.Cluster;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.Member;
+import com.hazelcast.core.MemberAttributeEvent;
+import com.hazelcast.core.MembershipEvent;
+import com.hazelcast.core.MembershipListener;
+import org.apache.karaf.cellar.core.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache of the cluster nodes, rebuilt only when the cluster membership changes.
+ * The nodes are resolved (including the host name, which can require a reverse DNS lookup) once per member,
+ * so looking up the nodes doesn't cost anything on the cluster event path.
+ */
+public class HazelcastNodeCache extends HazelcastInstanceAware implements MembershipListener {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(HazelcastNodeCache.class);
+
+    private String registrationId;
+    private volatile Snapshot snapshot;
+
+    public void init() {
+        registrationId = instance.getCluster().addMembershipListener(this);
+        refresh();
+    }
+
+    public void destroy() {
+        if (registrationId != null && instance != null && instance.getLifecycleService().isRunning()) {
+            instance.getCluster().removeMembershipListener(registrationId);
+        }
+        registrationId = null;
+        snapshot = null;
+    }
+
+    /**
+     * Get the local node.
+     *
+     * @return the local node.
+     */
+    @Override
+    public Node getNode() {
+        return getSnapshot().local;
+    }
+
+    /**
+     * Get all cluster nodes.
+     *
+     * @return an immutable set of nodes.
+     */
+    public Set<Node> listNodes() {
+        return getSnapshot().nodes;
+    }
+
+    /**
+     * Get a node by ID.
+     *
+     * @param id the node ID.
+     * @return the node, or null if no member has this ID.
+     */
+    public Node findNodeById(String id) {
+        if (id == null) {
+            return null;
+        }
+        return getSnapshot().nodesById.get(id);
+    }
+
+    /**
+     * Get the nodes with the given IDs.
+     *
+     * @param ids the node IDs.
+     * @return the nodes found.
+     */
+    public Set<Node> listNodes(Collection<String> ids) {
+        Set<Node> nodes = new HashSet<Node>();
+        if (ids != null) {
+            Map<String, Node> nodesById = getSnapshot().nodesById;
+            for (String id : ids) {
+                Node node = nodesById.get(id);
+                if (node != null) {
+                    nodes.add(node);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Rebuild the nodes snapshot from the current cluster members.
+     * The nodes of the members already known are reused.
+     */
+    public synchronized void refresh() {
+        Snapshot previous = snapshot;
+        Map<String, HazelcastNode> nodesByMember = new HashMap<String, HazelcastNode>();
+        Map<String, Node> nodesById = new HashMap<String, Node>();
+        Node local = null;
+        Cluster cluster = instance.getCluster();
+        if (cluster != null) {
+            Set<Member> members = cluster.getMembers();
+            if (members != null) {
+                for (Member member : members) {
+                    HazelcastNode node = (previous != null) ? previous.nodesByMember.get(member.getUuid()) : null;
+                    if (node == null) {
+                        node = createNode(member);
+                    }
+                    nodesByMember.put(member.getUuid(), node);
+                    nodesById.put(node.getId(), node);
+                }
+            }
+            Member localMember = cluster.getLocalMember();
+            if (localMember != null) {
+                local = nodesByMember.get(localMember.getUuid());
+                if (local == null) {
+                    local = createNode(localMember);
+                }
+            }
+        }
+        snapshot = new Snapshot(nodesByMember, nodesById, local);
+        LOGGER.debug("CELLAR HAZELCAST: cluster nodes cache refreshed with {} nodes", nodesById.size());
+    }
+
+    private HazelcastNode createNode(Member member) {
+        InetSocketAddress address = member.getInetSocketAddress();
+        return new HazelcastNode(address.getHostName(), address.getPort());
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            refresh();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    @Override
+    public void memberAdded(MembershipEvent membershipEvent) {
+        refresh();
+    }
+
+    @Override
+    public void memberRemoved(MembershipEvent membershipEvent) {
+        refresh();
+    }
+
+    @Override
+    public void memberAttributeChanged(MemberAttributeEvent memberAttributeEvent) {
+        // nothing to do
+    }
+
+    /**
+     * Immutable view of the cluster nodes.
+     */
+    private static final class Snapshot {
+
+        private final Map<String, HazelcastNode> nodesByMember;
+        private final Map<String, Node> nodesById;
+        private final Set<Node> nodes;
+        private final Node local;
+
+        Snapshot(Map<String, HazelcastNode> nodesByMember, Map<String, Node> nodesById, Node local) {
+            this.nodesByMember = nodesByMember;
+            this.nodesById = nodesById;
+            this.nodes = Collections.unmodifiableSet(new HashSet<Node>(nodesById.values()));
+            this.local = local;
+        }
+
+    }
+
+}
@@ -22,21 +22,27 @@ import org.apache.karaf.cellar.core.Dispatcher;
 import org.apache.karaf.cellar.core.Node;
 import org.apache.karaf.cellar.core.control.BasicSwitch;
 import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.control.SwitchRegistry;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventBatch;
 import org.apache.karaf.cellar.core.event.EventConsumer;
 import org.apache.karaf.cellar.core.utils.CombinedClassLoader;
-import org.osgi.service.cm.Configuration;
 import org.osgi.service.cm.ConfigurationAdmin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Consumes cluster events from the Hazelcast {@code IQueue} and calls the {@code EventDispatcher}.
+ * With a {@link QueueConsumerPool}, the queue is drained by batches by the shared workers of the pool when items are
+ * added, else the queue is polled by a dedicated thread.
  */
 public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemListener<E>, Runnable {
 
@@ -47,7 +53,10 @@ public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemLis
     private final Switch eventSwitch = new BasicSwitch(SWITCH_ID);
     private final ExecutorService executorService = Executors.newSingleThreadExecutor();
 
-    private Boolean isConsuming = Boolean.TRUE;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    private volatile Boolean isConsuming = Boolean.TRUE;
 
     private String registrationId;
     private HazelcastInstance instance;
@@ -56,6 +65,8 @@ public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemLis
     private Node node;
     private CombinedClassLoader combinedClassLoader;
     private ConfigurationAdmin configurationAdmin;
+    private SwitchRegistry switchRegistry;
+    private QueueConsumerPool queueConsumerPool;
 
     public QueueConsumer() {
         // nothing to do
@@ -66,17 +77,29 @@ public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemLis
     }
 
     public void init() {
-        if (queue != null) {
-            registrationId = queue.addItemListener(this, true);
-        } else {
+        if (switchRegistry != null) {
+            switchRegistry.register(eventSwitch, Configurations.CONSUMER);
+        }
+        if (queue == null) {
             queue = instance.getQueue(Constants.QUEUE);
-            registrationId = queue.addItemListener(this, true);
         }
-        executorService.execute(this);
+        // the listener only signals the new items, the items are drained from the queue
+        registrationId = queue.addItemListener(this, false);
+        if (queueConsumerPool != null) {
+            queueConsumerPool.register(this);
+        } else {
+            executorService.execute(this);
+        }
     }
 
     public void destroy() {
+        if (switchRegistry != null) {
+            switchRegistry.unregister(eventSwitch);
+        }
         isConsuming = false;
+        if (queueConsumerPool != null) {
+            queueConsumerPool.unregister(this);
+        }
         if (queue != null) {
             queue.removeItemListener(registrationId);
         }
@@ -87,10 +110,8 @@ public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemLis
     public void run() {
         ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
         try {
+            setContextClassLoader();
             while (isConsuming) {
-                if (combinedClassLoader != null) {
-                    Thread.currentThread().setContextClassLoader(combinedClassLoader);
-                } else Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
                 E e = null;
                 try {
                     e = getQueue().poll(10, TimeUnit.SECONDS);
@@ -108,6 +129,65 @@ public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemLis
         }
     }
 
+    /**
+     * Signal that items have been added to the queue.
+     *
+     * @return true if the caller has to schedule a drain of the queue, false if a drain is already scheduled.
+     */
+    boolean signal() {
+        pending.set(true);
+        return scheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Drain the queue by batches, and dispatch the cluster events, until the queue is empty.
+     *
+     * @param batchSize the max number of items taken from the queue at once.
+     * @return true if items have been signalled during the drain, so the queue has to be drained again.
+     */
+    boolean drain(int batchSize) {
+        ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            setContextClassLoader();
+            List<E> batch = new ArrayList<E>(batchSize);
+            while (isConsuming) {
+                pending.set(false);
+                if (getQueue().drainTo(batch, batchSize) == 0) {
+                    break;
+                }
+                consume(batch);
+                batch.clear();
+            }
+        } finally {
+            Thread.currentThread().setContextClassLoader(originalClassLoader);
+            scheduled.set(false);
+        }
+        return isConsuming && pending.get();
+    }
+
+    /**
+     * Consume a batch of cluster events drained from the queue.
+     *
+     * @param events the cluster events.
+     */
+    protected void consume(List<E> events) {
+        for (E event : events) {
+            try {
+                consume(event);
+            } catch (Exception e) {
+                LOGGER.error("CELLAR HAZELCAST: failed to consume cluster event {}", event, e);
+            }
+        }
+    }
+
+    private void setContextClassLoader() {
+        if (combinedClassLoader != null) {
+            Thread.currentThread().setContextClassLoader(combinedClassLoader);
+        } else {
+            Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
+        }
+    }
+
     /**
      * Consume a cluster event.
      *
@@ -115,6 +195,12 @@ public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemLis
      */
     @Override
     public void consume(E event) {
+        if (event instanceof EventBatch) {
+            for (Event batched : ((EventBatch) event).getEvents()) {
+                consume((E) batched);
+            }
+            return;
+        }
         if (event != null && (this.getSwitch().getStatus().equals(SwitchStatus.ON) || event.getForce())) {
             dispatcher.dispatch(event);
         } else {
@@ -127,7 +213,11 @@ public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemLis
     @Override
     public void start() {
         isConsuming = true;
-        executorService.execute(this);
+        if (queueConsumerPool != null) {
+            queueConsumerPool.signal(this);
+        } else {
+            executorService.execute(this);
+        }
     }
 
     @Override
@@ -142,7 +232,9 @@ public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemLis
 
     @Override
     public void itemAdded(ItemEvent<E> event) {
-        // nothing to do
+        if (queueConsumerPool != null && isConsuming) {
+            queueConsumerPool.signal(this);
+        }
     }
 
     @Override
@@ -176,20 +268,6 @@ public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemLis
 
     @Override
     public Switch getSwitch() {
-        // load the switch status from the config
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.CONSUMER));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
-            }
-        } catch (Exception e) {
-            // ignore
-        }
         return eventSwitch;
     }
 
@@ -209,4 +287,20 @@ public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemLis
         this.configurationAdmin = configurationAdmin;
     }
 
+    public QueueConsumerPool getQueueConsumerPool() {
+        return queueConsumerPool;
+    }
+
+    public void setQueueConsumerPool(QueueConsumerPool queueConsumerPool) {
+        this.queueConsumerPool = queueConsumerPool;
+    }
+
+    public SwitchRegistry getSwitchRegistry() {
+        return switchRegistry;
+    }
+
+    public void setSwitchRegistry(SwitchRegistry switchRegistry) {
+        this.switchRegistry = switchRegistry;
+    }
+
 }
@@ -0,0 +1,162 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared worker pool of the {@link QueueConsumer}s.
+ * The queues are not polled by a thread per queue: the queue consumers signal the pool when items are added to
+ * their queue, and a worker drains the queue by batches. The number of workers depends on the number of cores,
+ * not on the number of queues. A periodic sweep catches the items that were not signalled (for instance, added
+ * while the consumer was stopped).
+ */
+public class QueueConsumerPool {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(QueueConsumerPool.class);
+
+    private final Set<QueueConsumer> consumers = new CopyOnWriteArraySet<QueueConsumer>();
+
+    private ScheduledExecutorService workers;
+    private int threads = 0;
+    private int batchSize = 100;
+    private long sweepInterval = 10000;
+
+    public void init() {
+        int count = (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+        workers = Executors.newScheduledThreadPool(count, new QueueConsumerThreadFactory());
+        workers.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                sweep();
+            }
+        }, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public void destroy() {
+        consumers.clear();
+        if (workers != null) {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Register a queue consumer, and drain the items already in its queue.
+     *
+     * @param consumer the queue consumer.
+     */
+    public void register(QueueConsumer consumer) {
+        consumers.add(consumer);
+        signal(consumer);
+    }
+
+    public void unregister(QueueConsumer consumer) {
+        consumers.remove(consumer);
+    }
+
+    /**
+     * Signal that items are available in the queue of a consumer.
+     * A single worker at a time drains a given queue, so the items of a queue are consumed in order.
+     *
+     * @param consumer the queue consumer.
+     */
+    public void signal(final QueueConsumer consumer) {
+        if (!consumer.signal()) {
+            // a worker is already draining the queue
+            return;
+        }
+        try {
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    drain(consumer);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("CELLAR HAZELCAST: queue consumer pool is stopped");
+        }
+    }
+
+    private void drain(QueueConsumer consumer) {
+        boolean again = false;
+        try {
+            again = consumer.drain(batchSize);
+        } catch (Exception e) {
+            LOGGER.error("CELLAR HAZELCAST: failed to consume from queue", e);
+        }
+        if (again && consumers.contains(consumer)) {
+            signal(consumer);
+        }
+    }
+
+    private void sweep() {
+        for (QueueConsumer consumer : consumers) {
+            try {
+                if (consumer.isConsuming() && !consumer.getQueue().isEmpty()) {
+                    signal(consumer);
+                }
+            } catch (Exception e) {
+                LOGGER.debug("CELLAR HAZELCAST: can't check the queue of the consumer", e);
+            }
+        }
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getSweepInterval() {
+        return sweepInterval;
+    }
+
+    public void setSweepInterval(long sweepInterval) {
+        this.sweepInterval = sweepInterval;
+    }
+
+    private static class QueueConsumerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "cellar-queue-consumer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
@@ -34,16 +34,18 @@ import org.apache.karaf.cellar.core.Node;
 import org.apache.karaf.cellar.core.command.Result;
 import org.apache.karaf.cellar.core.control.BasicSwitch;
 import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.control.SwitchRegistry;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventBatcher;
 import org.apache.karaf.cellar.core.event.EventProducer;
-import org.osgi.service.cm.Configuration;
 import org.osgi.service.cm.ConfigurationAdmin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Produces cluster {@code Event}s into the Hazelcast {@code IQueue}.
+ * When batching is enabled, the cluster events are coalesced into {@code EventBatch} envelopes.
  */
 public class QueueProducer<E extends Event> implements EventProducer<E> {
 
@@ -57,25 +59,47 @@ public class QueueProducer<E extends Event> implements EventProducer<E> {
     private IQueue<E> queue;
     private Node node;
     private ConfigurationAdmin configurationAdmin;
+    private SwitchRegistry switchRegistry;
+
+    private int batchSize = 0;
+    private long batchWindow = 50;
+    private EventBatcher batcher;
 
     public void init() {
+        if (switchRegistry != null) {
+            switchRegistry.register(eventSwitch, Configurations.PRODUCER);
+        }
         if (queue == null) {
             queue = instance.getQueue(Constants.QUEUE);
         }
+        if (batchSize > 1) {
+            batcher = new EventBatcher(batchSize, batchWindow, new EventBatcher.Publisher() {
+                @Override
+                public void publish(Event event) {
+                    put(event);
+                }
+            });
+        }
     }
 
     public void destroy() {
-        // nothing to do
+        if (switchRegistry != null) {
+            switchRegistry.unregister(eventSwitch);
+        }
+        if (batcher != null) {
+            batcher.close();
+            batcher = null;
+        }
     }
 
     @Override
     public void produce(E event) {
         if (this.getSwitch().getStatus().equals(SwitchStatus.ON) || event.getForce() || event instanceof Result) {
             event.setSourceNode(node);
-            try {
-                queue.put(event);
-            } catch (InterruptedException e) {
-                LOGGER.error("CELLAR HAZELCAST: queue producer interrupted", e);
+            if (batcher != null) {
+                batcher.add(event);
+            } else {
+                put(event);
             }
         } else {
             if (eventSwitch.getStatus().equals(SwitchStatus.OFF)) {
@@ -84,22 +108,16 @@ public class QueueProducer<E extends Event> implements EventProducer<E> {
         }
     }
 
-    @Override
-    public Switch getSwitch() {
-        // load the switch status from the config
+    private void put(Event event) {
         try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.PRODUCER));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
-            }
-        } catch (Exception e) {
-            // ignore
+            ((IQueue) queue).put(event);
+        } catch (InterruptedException e) {
+            LOGGER.error("CELLAR HAZELCAST: queue producer interrupted", e);
         }
+    }
+
+    @Override
+    public Switch getSwitch() {
         return eventSwitch;
     }
 
@@ -135,4 +153,43 @@ public class QueueProducer<E extends Event> implements EventProducer<E> {
         this.configurationAdmin = configurationAdmin;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the max number of cluster events published in a single cluster message.
+     * The batching is disabled when the size is lower than 2.
+     *
+     * @param batchSize the max number of cluster events in a batch.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getBatchWindow() {
+        return batchWindow;
+    }
+
+    /**
+     * Set the max time (in milliseconds) a cluster event waits for other cluster events before being published.
+     *
+     * @param batchWindow the batch time window.
+     */
+    public void setBatchWindow(long batchWindow) {
+        this.batchWindow = batchWindow;
+    }
+
+    public EventBatcher getBatcher() {
+        return batcher;
+    }
+
+    public SwitchRegistry getSwitchRegistry() {
+        return switchRegistry;
+    }
+
+    public void setSwitchRegistry(SwitchRegistry switchRegistry) {
+        this.switchRegistry = switchRegistry;
+    }
+
 }
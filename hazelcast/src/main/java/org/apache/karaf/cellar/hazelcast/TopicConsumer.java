@@ -22,10 +22,11 @@ import org.apache.karaf.cellar.core.Dispatcher;
 import org.apache.karaf.cellar.core.Node;
 import org.apache.karaf.cellar.core.control.BasicSwitch;
 import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.control.SwitchRegistry;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventBatch;
 import org.apache.karaf.cellar.core.event.EventConsumer;
-import org.osgi.service.cm.Configuration;
 import org.osgi.service.cm.ConfigurationAdmin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,10 +48,14 @@ public class TopicConsumer<E extends Event> implements EventConsumer<E>, Message
     private Dispatcher dispatcher;
     private Node node;
     private ConfigurationAdmin configurationAdmin;
+    private SwitchRegistry switchRegistry;
 
     private boolean isConsuming;
 
     public void init() {
+        if (switchRegistry != null) {
+            switchRegistry.register(eventSwitch, Configurations.CONSUMER);
+        }
         if (topic == null) {
             topic = instance.getTopic(Constants.TOPIC);
         }
@@ -58,11 +63,20 @@ public class TopicConsumer<E extends Event> implements EventConsumer<E>, Message
     }
 
     public void destroy() {
+        if (switchRegistry != null) {
+            switchRegistry.unregister(eventSwitch);
+        }
         stop();
     }
 
     @Override
     public void consume(E event) {
+        if (event instanceof EventBatch) {
+            for (Event batched : ((EventBatch) event).getEvents()) {
+                consume((E) batched);
+            }
+            return;
+        }
         // check if event has a specified destination.
         if ((event.getDestination() == null || event.getDestination().contains(node)) && (this.getSwitch().getStatus().equals(SwitchStatus.ON) || event.getForce())) {
             dispatcher.dispatch(event);
@@ -129,20 +143,6 @@ public class TopicConsumer<E extends Event> implements EventConsumer<E>, Message
 
     @Override
     public Switch getSwitch() {
-        // load the switch status from the config
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.CONSUMER));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
-            }
-        } catch (Exception e) {
-            // ignore
-        }
         return eventSwitch;
     }
 
@@ -162,4 +162,12 @@ public class TopicConsumer<E extends Event> implements EventConsumer<E>, Message
         this.configurationAdmin = configurationAdmin;
     }
 
+    public SwitchRegistry getSwitchRegistry() {
+        return switchRegistry;
+    }
+
+    public void setSwitchRegistry(SwitchRegistry switchRegistry) {
+        this.switchRegistry = switchRegistry;
+    }
+
 }
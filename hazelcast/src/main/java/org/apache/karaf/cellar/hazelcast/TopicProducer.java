@@ -17,19 +17,24 @@ import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.ITopic;
 import org.apache.karaf.cellar.core.Configurations;
 import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.command.Command;
 import org.apache.karaf.cellar.core.command.Result;
 import org.apache.karaf.cellar.core.control.BasicSwitch;
 import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.control.SwitchRegistry;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventBatcher;
 import org.apache.karaf.cellar.core.event.EventProducer;
-import org.osgi.service.cm.Configuration;
 import org.osgi.service.cm.ConfigurationAdmin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Produces cluster {@code Event}s into the distributed {@code ITopic}.
+ * When batching is enabled, the cluster events are coalesced into {@code EventBatch} envelopes.
+ * When the event log is enabled, the cluster events of a cluster group are appended to the event log of the cluster
+ * group instead of being published on the topic.
  */
 public class TopicProducer<E extends Event> implements EventProducer<E> {
 
@@ -43,22 +48,52 @@ public class TopicProducer<E extends Event> implements EventProducer<E> {
     private ITopic topic;
     private Node node;
     private ConfigurationAdmin configurationAdmin;
+    private SwitchRegistry switchRegistry;
+    private EventLogTransportFactory eventLog;
+
+    private int batchSize = 0;
+    private long batchWindow = 50;
+    private EventBatcher batcher;
 
     public void init() {
+        if (switchRegistry != null) {
+            switchRegistry.register(eventSwitch, Configurations.PRODUCER);
+        }
         if (topic == null) {
             topic = instance.getTopic(Constants.TOPIC);
         }
+        if (batchSize > 1) {
+            batcher = new EventBatcher(batchSize, batchWindow, new EventBatcher.Publisher() {
+                @Override
+                public void publish(Event event) {
+                    topic.publish(event);
+                }
+            });
+        }
     }
 
     public void destroy() {
-        // nothing to do
+        if (switchRegistry != null) {
+            switchRegistry.unregister(eventSwitch);
+        }
+        if (batcher != null) {
+            batcher.close();
+            batcher = null;
+        }
     }
 
     @Override
     public void produce(E event) {
         if (this.getSwitch().getStatus().equals(SwitchStatus.ON) || event.getForce() || event instanceof Result) {
             event.setSourceNode(node);
-            topic.publish(event);
+            EventProducer groupProducer = getGroupProducer(event);
+            if (groupProducer != null) {
+                groupProducer.produce(event);
+            } else if (batcher != null) {
+                batcher.add(event);
+            } else {
+                topic.publish(event);
+            }
         } else {
             if (eventSwitch.getStatus().equals(SwitchStatus.OFF)) {
                 LOGGER.debug("CELLAR HAZELCAST: {} switch is OFF, don't produce the cluster event", SWITCH_ID);
@@ -66,22 +101,22 @@ public class TopicProducer<E extends Event> implements EventProducer<E> {
         }
     }
 
+    /**
+     * Get the event log producer of the source cluster group of a cluster event.
+     * The commands and results are always published on the topic.
+     *
+     * @param event the cluster event.
+     * @return the event log producer, or null if the cluster event is published on the topic.
+     */
+    private EventProducer getGroupProducer(E event) {
+        if (eventLog == null || event.getSourceGroup() == null || event instanceof Command || event instanceof Result) {
+            return null;
+        }
+        return eventLog.getGroupEventProducer(event.getSourceGroup().getName());
+    }
+
     @Override
     public Switch getSwitch() {
-        // load the switch status from the config
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.PRODUCER));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
-            }
-        } catch (Exception e) {
-            // ignore
-        }
         return eventSwitch;
     }
 
@@ -117,4 +152,51 @@ public class TopicProducer<E extends Event> implements EventProducer<E> {
         this.configurationAdmin = configurationAdmin;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the max number of cluster events published in a single cluster message.
+     * The batching is disabled when the size is lower than 2.
+     *
+     * @param batchSize the max number of cluster events in a batch.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getBatchWindow() {
+        return batchWindow;
+    }
+
+    /**
+     * Set the max time (in milliseconds) a cluster event waits for other cluster events before being published.
+     *
+     * @param batchWindow the batch time window.
+     */
+    public void setBatchWindow(long batchWindow) {
+        this.batchWindow = batchWindow;
+    }
+
+    public EventBatcher getBatcher() {
+        return batcher;
+    }
+
+    public SwitchRegistry getSwitchRegistry() {
+        return switchRegistry;
+    }
+
+    public void setSwitchRegistry(SwitchRegistry switchRegistry) {
+        this.switchRegistry = switchRegistry;
+    }
+
+    public EventLogTransportFactory getEventLog() {
+        return eventLog;
+    }
+
+    public void setEventLog(EventLogTransportFactory eventLog) {
+        this.eventLog = eventLog;
+    }
+
 }
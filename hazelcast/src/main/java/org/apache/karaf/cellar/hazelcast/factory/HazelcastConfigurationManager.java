@@ -14,15 +14,23 @@
 package org.apache.karaf.cellar.hazelcast.factory;
 
 import com.hazelcast.config.Config;
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.NearCacheConfig;
+import com.hazelcast.config.SerializerConfig;
 import com.hazelcast.config.TcpIpConfig;
 import com.hazelcast.config.XmlConfigBuilder;
 import org.apache.karaf.cellar.core.discovery.Discovery;
+import org.apache.karaf.cellar.core.serialization.CellarCompression;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
 import org.apache.karaf.cellar.core.utils.CellarUtils;
+import org.apache.karaf.cellar.hazelcast.serialization.CellarStreamSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
 /**
@@ -33,10 +41,34 @@ public class HazelcastConfigurationManager {
 
     private static final transient Logger LOGGER = LoggerFactory.getLogger(HazelcastServiceFactory.class);
 
+    /**
+     * Name patterns of the read-mostly Cellar maps, using a near cache by default.
+     */
+    public static final String[] NEAR_CACHED_MAPS = new String[]{
+            "org.apache.karaf.cellar.groups",
+            "org.apache.karaf.cellar.groups.config",
+            "org.apache.karaf.cellar.bundle.map.*",
+            "org.apache.karaf.cellar.features.*",
+            "org.apache.karaf.cellar.repositories.*",
+            "org.apache.karaf.cellar.configuration.map.*"
+    };
+
+    private static final int NEAR_CACHE_MAX_SIZE = 10000;
+
+    /**
+     * Types written by the Cellar serializer: the Cellar objects, and the configurations stored in the cluster maps.
+     */
+    private static final Class<?>[] SERIALIZED_TYPES = new Class<?>[]{
+            CellarSerializable.class,
+            Properties.class
+    };
+
     private String xmlConfigLocation = System.getProperty("karaf.home") + "/etc/hazelcast.xml";
 
     private Set<String> discoveredMemberSet = new LinkedHashSet<String>();
 
+    private CellarCompression compression = new CellarCompression();
+
     /**
      * Build a Hazelcast {@link com.hazelcast.config.Config}.
      *
@@ -49,9 +81,83 @@ public class HazelcastConfigurationManager {
             TcpIpConfig tcpIpConfig = config.getNetworkConfig().getJoin().getTcpIpConfig();
             tcpIpConfig.getMembers().addAll(discoveredMemberSet);
         }
+        applyNearCacheDefaults(config);
+        registerSerializers(config);
         return config;
     }
 
+    /**
+     * Register the compact serializer of the Cellar objects and configurations, unless hazelcast.xml defines a
+     * serializer for them. The other objects keep the Hazelcast default serialization.
+     *
+     * @param config the Hazelcast configuration.
+     */
+    protected void registerSerializers(Config config) {
+        // a single instance, registered for all the types with the same type ID
+        CellarStreamSerializer serializer = new CellarStreamSerializer(compression);
+        for (Class<?> type : SERIALIZED_TYPES) {
+            if (hasSerializer(config, type)) {
+                LOGGER.debug("CELLAR HAZELCAST: serializer of {} is defined in hazelcast.xml", type.getName());
+                continue;
+            }
+            SerializerConfig serializerConfig = new SerializerConfig();
+            serializerConfig.setTypeClass(type);
+            serializerConfig.setImplementation(serializer);
+            config.getSerializationConfig().addSerializerConfig(serializerConfig);
+        }
+    }
+
+    private boolean hasSerializer(Config config, Class<?> type) {
+        for (SerializerConfig serializerConfig : config.getSerializationConfig().getSerializerConfigs()) {
+            if (type.equals(serializerConfig.getTypeClass()) || type.getName().equals(serializerConfig.getTypeClassName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add a near cache to the read-mostly Cellar maps.
+     * The near cache is invalidated when an entry is updated on any node. A map configuration
+     * explicitly defined in hazelcast.xml for one of these names takes precedence over the defaults.
+     *
+     * @param config the Hazelcast configuration.
+     */
+    protected void applyNearCacheDefaults(Config config) {
+        Map<String, MapConfig> mapConfigs = config.getMapConfigs();
+        for (String name : NEAR_CACHED_MAPS) {
+            if (mapConfigs.containsKey(name)) {
+                LOGGER.debug("CELLAR HAZELCAST: map {} is defined in hazelcast.xml, keeping its near cache configuration", name);
+                continue;
+            }
+            MapConfig mapConfig = new MapConfig(config.getMapConfig("default"));
+            mapConfig.setName(name);
+            mapConfig.setNearCacheConfig(createNearCacheConfig());
+            config.addMapConfig(mapConfig);
+        }
+    }
+
+    private NearCacheConfig createNearCacheConfig() {
+        NearCacheConfig nearCacheConfig = new NearCacheConfig();
+        // binary format: the map values (groups, ...) are updated in place by the callers before being put back
+        nearCacheConfig.setInMemoryFormat(InMemoryFormat.BINARY);
+        nearCacheConfig.setInvalidateOnChange(true);
+        nearCacheConfig.setCacheLocalEntries(false);
+        nearCacheConfig.setMaxSize(NEAR_CACHE_MAX_SIZE);
+        nearCacheConfig.setEvictionPolicy("LRU");
+        nearCacheConfig.setTimeToLiveSeconds(0);
+        nearCacheConfig.setMaxIdleSeconds(0);
+        return nearCacheConfig;
+    }
+
+    public CellarCompression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(CellarCompression compression) {
+        this.compression = compression;
+    }
+
     /**
      * Update configuration of a Hazelcast instance.
      *
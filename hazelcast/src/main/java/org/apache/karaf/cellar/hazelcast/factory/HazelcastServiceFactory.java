@@ -18,6 +18,7 @@ import java.util.concurrent.CountDownLatch;
 
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
+import org.apache.karaf.cellar.core.serialization.CellarCompression;
 import org.apache.karaf.cellar.core.utils.CombinedClassLoader;
 import org.osgi.framework.BundleContext;
 
@@ -85,6 +86,14 @@ public class HazelcastServiceFactory {
         this.bundleContext = bundleContext;
     }
 
+    public CellarCompression getCompression() {
+        return configurationManager.getCompression();
+    }
+
+    public void setCompression(CellarCompression compression) {
+        configurationManager.setCompression(compression);
+    }
+
     public CombinedClassLoader getCombinedClassLoader() {
         return combinedClassLoader;
     }
@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast.management.internal;
+
+import org.apache.karaf.cellar.core.command.BasicCommandStore;
+import org.apache.karaf.cellar.core.management.CellarCommandStoreMBean;
+
+import javax.management.NotCompliantMBeanException;
+import javax.management.StandardMBean;
+
+/**
+ * Implementation of the Cellar command store MBean.
+ */
+public class CellarCommandStoreMBeanImpl extends StandardMBean implements CellarCommandStoreMBean {
+
+    private BasicCommandStore commandStore;
+
+    public CellarCommandStoreMBeanImpl() throws NotCompliantMBeanException {
+        super(CellarCommandStoreMBean.class);
+    }
+
+    public BasicCommandStore getCommandStore() {
+        return this.commandStore;
+    }
+
+    public void setCommandStore(BasicCommandStore commandStore) {
+        this.commandStore = commandStore;
+    }
+
+    @Override
+    public int getPendingCommands() {
+        return commandStore.getPendingCount();
+    }
+
+    @Override
+    public int getScheduledTimeouts() {
+        return commandStore.getScheduledTimeouts();
+    }
+
+    @Override
+    public long getCommands() {
+        return commandStore.getCommandCount();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return commandStore.getTimeoutCount();
+    }
+
+    @Override
+    public double getTimeoutRate() {
+        return commandStore.getTimeoutRate();
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast.management.internal;
+
+import org.apache.karaf.cellar.core.event.EventDispatcherExecutor;
+import org.apache.karaf.cellar.core.event.EventHandlerRegistryDispatcher;
+import org.apache.karaf.cellar.core.management.CellarDispatcherMBean;
+
+import javax.management.NotCompliantMBeanException;
+import javax.management.StandardMBean;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Implementation of the Cellar cluster event dispatcher MBean.
+ */
+public class CellarDispatcherMBeanImpl extends StandardMBean implements CellarDispatcherMBean {
+
+    private EventHandlerRegistryDispatcher dispatcher;
+
+    public CellarDispatcherMBeanImpl() throws NotCompliantMBeanException {
+        super(CellarDispatcherMBean.class);
+    }
+
+    public EventHandlerRegistryDispatcher getDispatcher() {
+        return this.dispatcher;
+    }
+
+    public void setDispatcher(EventHandlerRegistryDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    private ThreadPoolExecutor getThreadPool() {
+        ExecutorService threadPool = dispatcher.getThreadPool();
+        if (threadPool instanceof ThreadPoolExecutor) {
+            return (ThreadPoolExecutor) threadPool;
+        }
+        return null;
+    }
+
+    private EventDispatcherExecutor getDispatcherExecutor() {
+        ExecutorService threadPool = dispatcher.getThreadPool();
+        if (threadPool instanceof EventDispatcherExecutor) {
+            return (EventDispatcherExecutor) threadPool;
+        }
+        return null;
+    }
+
+    @Override
+    public String getSaturationPolicy() {
+        EventDispatcherExecutor executor = getDispatcherExecutor();
+        return (executor != null) ? executor.getSaturationPolicy().name() : null;
+    }
+
+    @Override
+    public int getMaxThreads() {
+        ThreadPoolExecutor threadPool = getThreadPool();
+        return (threadPool != null) ? threadPool.getMaximumPoolSize() : -1;
+    }
+
+    @Override
+    public int getPoolSize() {
+        ThreadPoolExecutor threadPool = getThreadPool();
+        return (threadPool != null) ? threadPool.getPoolSize() : -1;
+    }
+
+    @Override
+    public int getActiveThreads() {
+        ThreadPoolExecutor threadPool = getThreadPool();
+        return (threadPool != null) ? threadPool.getActiveCount() : -1;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        ThreadPoolExecutor threadPool = getThreadPool();
+        return (threadPool != null) ? threadPool.getQueue().size() : -1;
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        ThreadPoolExecutor threadPool = getThreadPool();
+        return (threadPool != null) ? threadPool.getQueue().size() + threadPool.getQueue().remainingCapacity() : -1;
+    }
+
+    @Override
+    public long getCompletedTasks() {
+        ThreadPoolExecutor threadPool = getThreadPool();
+        return (threadPool != null) ? threadPool.getCompletedTaskCount() : -1;
+    }
+
+    @Override
+    public long getRejectedTasks() {
+        EventDispatcherExecutor executor = getDispatcherExecutor();
+        return (executor != null) ? executor.getRejectedCount() : -1;
+    }
+
+    @Override
+    public long getDroppedTasks() {
+        EventDispatcherExecutor executor = getDispatcherExecutor();
+        return (executor != null) ? executor.getDroppedCount() : -1;
+    }
+
+    @Override
+    public double getAverageLatency() {
+        EventDispatcherExecutor executor = getDispatcherExecutor();
+        return (executor != null) ? executor.getAverageLatency() : -1;
+    }
+
+    @Override
+    public double getMaxLatency() {
+        EventDispatcherExecutor executor = getDispatcherExecutor();
+        return (executor != null) ? executor.getMaxLatency() : -1;
+    }
+
+    @Override
+    public void resetStatistics() {
+        EventDispatcherExecutor executor = getDispatcherExecutor();
+        if (executor != null) {
+            executor.resetStatistics();
+        }
+    }
+
+}
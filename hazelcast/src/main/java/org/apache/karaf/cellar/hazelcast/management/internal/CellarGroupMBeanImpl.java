@@ -123,7 +123,7 @@ public class CellarGroupMBeanImpl extends StandardMBean implements CellarGroupMB
         command.setGroupName(groupName);
         command.setDestination(nodes);
 
-        executionContext.execute(command);
+        executionContext.executeAsync(command);
     }
 
     @Override
@@ -145,7 +145,7 @@ public class CellarGroupMBeanImpl extends StandardMBean implements CellarGroupMB
         command.setAction(ManageGroupAction.QUIT);
         command.setGroupName(groupName);
         command.setDestination(nodes);
-        executionContext.execute(command);
+        executionContext.executeAsync(command);
     }
 
     @Override
@@ -28,9 +28,14 @@
 package org.apache.karaf.cellar.hazelcast.management.internal;
 
 import org.apache.karaf.cellar.core.*;
+import org.apache.karaf.cellar.core.command.CompletionPolicy;
 import org.apache.karaf.cellar.core.command.ExecutionContext;
 import org.apache.karaf.cellar.core.control.*;
 import org.apache.karaf.cellar.core.management.CellarMBean;
+import org.apache.karaf.cellar.core.serialization.CellarCompression;
+import org.apache.karaf.cellar.core.serialization.CompressionStatistics;
+import org.apache.karaf.cellar.core.sync.SyncOrchestrator;
+import org.apache.karaf.cellar.core.sync.SyncStatus;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
@@ -49,6 +54,8 @@ public class CellarMBeanImpl extends StandardMBean implements CellarMBean {
     private ClusterManager clusterManager;
     private ExecutionContext executionContext;
     private GroupManager groupManager;
+    private SyncOrchestrator syncOrchestrator;
+    private CellarCompression compression;
 
     public CellarMBeanImpl() throws NotCompliantMBeanException {
         super(CellarMBean.class);
@@ -86,9 +93,40 @@ public class CellarMBeanImpl extends StandardMBean implements CellarMBean {
         this.groupManager = groupManager;
     }
 
+    public SyncOrchestrator getSyncOrchestrator() {
+        return syncOrchestrator;
+    }
+
+    public void setSyncOrchestrator(SyncOrchestrator syncOrchestrator) {
+        this.syncOrchestrator = syncOrchestrator;
+    }
+
+    public CellarCompression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(CellarCompression compression) {
+        this.compression = compression;
+    }
+
     @Override
     public void sync() throws Exception {
         Set<Group> localGroups = groupManager.listLocalGroups();
+        if (syncOrchestrator != null) {
+            StringBuilder failures = new StringBuilder();
+            for (SyncStatus status : syncOrchestrator.sync(localGroups, null, null)) {
+                if (status.getState() == SyncStatus.State.FAILED) {
+                    if (failures.length() > 0) {
+                        failures.append(", ");
+                    }
+                    failures.append(status.getGroup()).append("/").append(status.getResource()).append(": ").append(status.getError());
+                }
+            }
+            if (failures.length() > 0) {
+                throw new IllegalStateException("Cluster synchronization failed (" + failures + ")");
+            }
+            return;
+        }
         for (Group group : localGroups) {
             try {
                 ServiceReference[] serviceReferences = bundleContext.getAllServiceReferences("org.apache.karaf.cellar.core.Synchronizer", null);
@@ -105,6 +143,52 @@ public class CellarMBeanImpl extends StandardMBean implements CellarMBean {
         }
     }
 
+    @Override
+    public TabularData syncStatus() throws Exception {
+        CompositeType compositeType = new CompositeType("Sync Status", "Karaf Cellar cluster group resource synchronization",
+                new String[]{"group", "resource", "state", "start", "duration", "error"},
+                new String[]{"Cluster group name", "Synchronized resource", "Synchronization state", "Synchronization start time", "Synchronization duration in milliseconds", "Synchronization error"},
+                new OpenType[]{SimpleType.STRING, SimpleType.STRING, SimpleType.STRING, SimpleType.DATE, SimpleType.LONG, SimpleType.STRING});
+        TabularType tableType = new TabularType("Sync Status", "Table of Karaf Cellar cluster group resources synchronization",
+                compositeType, new String[]{"group", "resource"});
+        TabularDataSupport table = new TabularDataSupport(tableType);
+
+        if (syncOrchestrator != null) {
+            for (SyncStatus status : syncOrchestrator.getStatus()) {
+                CompositeDataSupport data = new CompositeDataSupport(compositeType,
+                        new String[]{"group", "resource", "state", "start", "duration", "error"},
+                        new Object[]{status.getGroup(), status.getResource(), status.getState().name(),
+                                (status.getStartTime() > 0) ? new Date(status.getStartTime()) : null,
+                                status.getDuration(), status.getError()});
+                table.put(data);
+            }
+        }
+        return table;
+    }
+
+    @Override
+    public TabularData compressionStatistics() throws Exception {
+        CompositeType compositeType = new CompositeType("Compression Statistics", "Karaf Cellar cluster payloads compression",
+                new String[]{"type", "messages", "compressed", "original", "written", "ratio", "compressionTime", "decompressed", "decompressionTime"},
+                new String[]{"Payload type", "Number of payloads written", "Number of payloads written compressed", "Original size in bytes", "Written size in bytes", "Compression ratio (written/original)", "Compression time in nanoseconds", "Number of payloads decompressed", "Decompression time in nanoseconds"},
+                new OpenType[]{SimpleType.STRING, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.DOUBLE, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG});
+        TabularType tableType = new TabularType("Compression Statistics", "Table of Karaf Cellar cluster payloads compression",
+                compositeType, new String[]{"type"});
+        TabularDataSupport table = new TabularDataSupport(tableType);
+
+        if (compression != null) {
+            for (CompressionStatistics statistics : compression.getStatistics()) {
+                CompositeDataSupport data = new CompositeDataSupport(compositeType,
+                        new String[]{"type", "messages", "compressed", "original", "written", "ratio", "compressionTime", "decompressed", "decompressionTime"},
+                        new Object[]{statistics.getType(), statistics.getMessages(), statistics.getCompressedMessages(),
+                                statistics.getOriginalBytes(), statistics.getWrittenBytes(), statistics.getRatio(),
+                                statistics.getCompressionTime(), statistics.getDecompressedMessages(), statistics.getDecompressionTime()});
+                table.put(data);
+            }
+        }
+        return table;
+    }
+
     @Override
     public TabularData handlerStatus() throws Exception {
         ManageHandlersCommand command = new ManageHandlersCommand(clusterManager.generateId());
@@ -112,6 +196,7 @@ public class CellarMBeanImpl extends StandardMBean implements CellarMBean {
         command.setDestination(clusterManager.listNodes());
         command.setHandlerName(null);
         command.setStatus(null);
+        command.setCompletionPolicy(CompletionPolicy.deadline(command.getTimeout() / 2));
 
         Map<Node, ManageHandlersResult> results = executionContext.execute(command);
 
@@ -187,6 +272,8 @@ public class CellarMBeanImpl extends StandardMBean implements CellarMBean {
     public TabularData consumerStatus() throws Exception {
         ConsumerSwitchCommand command = new ConsumerSwitchCommand(clusterManager.generateId());
         command.setStatus(null);
+        command.setDestination(clusterManager.listNodes());
+        command.setCompletionPolicy(CompletionPolicy.deadline(command.getTimeout() / 2));
 
         Map<Node, ConsumerSwitchResult> results = executionContext.execute(command);
 
@@ -228,7 +315,7 @@ public class CellarMBeanImpl extends StandardMBean implements CellarMBean {
 
         command.setDestination(nodes);
         command.setStatus(SwitchStatus.ON);
-        executionContext.execute(command);
+        executionContext.executeAsync(command);
     }
 
     @Override
@@ -249,13 +336,15 @@ public class CellarMBeanImpl extends StandardMBean implements CellarMBean {
 
         command.setDestination(nodes);
         command.setStatus(SwitchStatus.OFF);
-        executionContext.execute(command);
+        executionContext.executeAsync(command);
     }
 
     @Override
     public TabularData producerStatus() throws Exception {
         ProducerSwitchCommand command = new ProducerSwitchCommand(clusterManager.generateId());
         command.setStatus(null);
+        command.setDestination(clusterManager.listNodes());
+        command.setCompletionPolicy(CompletionPolicy.deadline(command.getTimeout() / 2));
 
         Map<Node, ProducerSwitchResult> results = executionContext.execute(command);
 
@@ -297,7 +386,7 @@ public class CellarMBeanImpl extends StandardMBean implements CellarMBean {
 
         command.setDestination(nodes);
         command.setStatus(SwitchStatus.OFF);
-        executionContext.execute(command);
+        executionContext.executeAsync(command);
     }
 
     @Override
@@ -318,7 +407,7 @@ public class CellarMBeanImpl extends StandardMBean implements CellarMBean {
 
         command.setDestination(nodes);
         command.setStatus(SwitchStatus.ON);
-        executionContext.execute(command);
+        executionContext.executeAsync(command);
     }
 
 }
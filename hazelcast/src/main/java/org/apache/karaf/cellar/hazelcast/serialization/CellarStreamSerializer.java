@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast.serialization;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.StreamSerializer;
+import org.apache.karaf.cellar.core.serialization.CellarCompression;
+
+import java.io.IOException;
+
+/**
+ * Hazelcast serializer of the Cellar objects (cluster events, groups, nodes, resources states, configurations...),
+ * using the compact Cellar encoding. The objects without their own compact form are written with the Java serialization.
+ * The large payloads are compressed.
+ */
+public class CellarStreamSerializer implements StreamSerializer<Object> {
+
+    public static final int TYPE_ID = 1001;
+
+    private final CellarCompression compression;
+
+    public CellarStreamSerializer() {
+        this(new CellarCompression());
+    }
+
+    public CellarStreamSerializer(CellarCompression compression) {
+        this.compression = compression;
+    }
+
+    @Override
+    public void write(ObjectDataOutput out, Object object) throws IOException {
+        compression.write(out, object);
+    }
+
+    @Override
+    public Object read(ObjectDataInput in) throws IOException {
+        return compression.read(in, in.getClassLoader());
+    }
+
+    @Override
+    public int getTypeId() {
+        return TYPE_ID;
+    }
+
+    @Override
+    public void destroy() {
+        // nothing to do
+    }
+
+}
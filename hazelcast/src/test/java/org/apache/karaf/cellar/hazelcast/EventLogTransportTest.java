@@ -0,0 +1,143 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.apache.karaf.cellar.core.Dispatcher;
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventProducer;
+import org.apache.karaf.cellar.hazelcast.factory.HazelcastConfigurationManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Replay the cluster events missed by a consumer from the cluster group event log.
+ */
+@RunWith(JUnit4.class)
+public class EventLogTransportTest {
+
+    private static final long TIMEOUT = 10000;
+
+    private HazelcastInstance instance;
+    private EventLogTransportFactory factory;
+    private final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() throws Exception {
+        System.setProperty("karaf.home", "src/test/resources");
+        Config config = new HazelcastConfigurationManager().getHazelcastConfig();
+        config.getGroupConfig().setName("cellar-event-log");
+        instance = Hazelcast.newHazelcastInstance(config);
+        factory = new EventLogTransportFactory();
+        factory.setInstance(instance);
+        factory.setEnabled(true);
+        factory.setRetention(10);
+        factory.setDispatcher(new Dispatcher<Event>() {
+            @Override
+            public void dispatch(Event event) {
+                received.add(event.getId());
+            }
+        });
+        factory.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        factory.destroy();
+        instance.getLifecycleService().shutdown();
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        EventProducer producer = factory.getEventProducer("replay", true);
+        EventLogConsumer consumer = (EventLogConsumer) factory.getEventConsumer("replay", true);
+        Assert.assertFalse(consumer.isResumed());
+        produce(producer, 0, 5);
+        waitFor(5);
+        Assert.assertEquals(5, consumer.getOffset());
+
+        consumer.stop();
+        produce(producer, 5, 8);
+        consumer.start();
+        Assert.assertTrue(consumer.isResumed());
+        waitFor(8);
+        for (int i = 0; i < 8; i++) {
+            Assert.assertEquals("event" + i, received.get(i));
+        }
+        Assert.assertEquals(8, consumer.getOffset());
+        consumer.destroy();
+    }
+
+    @Test
+    public void testMissedEventsOutOfRetention() throws Exception {
+        EventProducer producer = factory.getEventProducer("retention", true);
+        EventLogConsumer consumer = (EventLogConsumer) factory.getEventConsumer("retention", true);
+        consumer.stop();
+        produce(producer, 0, 15);
+        consumer.start();
+        Assert.assertFalse(consumer.isResumed());
+        Assert.assertEquals(15, consumer.getOffset());
+        produce(producer, 15, 16);
+        waitFor(1);
+        Assert.assertEquals("event15", received.get(0));
+        consumer.destroy();
+    }
+
+    @Test
+    public void testSwitchOff() throws Exception {
+        EventProducer producer = factory.getEventProducer("switch", true);
+        EventLogConsumer consumer = (EventLogConsumer) factory.getEventConsumer("switch", true);
+        consumer.getSwitch().turnOff();
+        produce(producer, 0, 2);
+        Event forced = new Event("forced");
+        forced.setForce(true);
+        producer.produce(forced);
+        produce(producer, 2, 3);
+        waitFor(1);
+        Assert.assertEquals("forced", received.get(0));
+
+        consumer.getSwitch().turnOn();
+        waitFor(4);
+        Assert.assertEquals("event0", received.get(1));
+        Assert.assertEquals("event1", received.get(2));
+        Assert.assertEquals("event2", received.get(3));
+        consumer.destroy();
+    }
+
+    private void produce(EventProducer producer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            producer.produce(new Event("event" + i));
+        }
+    }
+
+    private void waitFor(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (received.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(200);
+        Assert.assertEquals(count, received.size());
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.apache.karaf.cellar.core.Dispatcher;
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.hazelcast.factory.HazelcastConfigurationManager;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consume many queues with a small shared pool of workers.
+ */
+@RunWith(JUnit4.class)
+public class QueueConsumerPoolTest {
+
+    private static final int QUEUES = 50;
+    private static final int EVENTS = 100;
+    private static final int THREADS = 2;
+
+    @Test
+    public void testSharedWorkers() throws Exception {
+        System.setProperty("karaf.home", "src/test/resources");
+        Config config = new HazelcastConfigurationManager().getHazelcastConfig();
+        config.getGroupConfig().setName("cellar-queue-consumer-pool");
+        HazelcastInstance instance = Hazelcast.newHazelcastInstance(config);
+        QueueConsumerPool pool = new QueueConsumerPool();
+        pool.setThreads(THREADS);
+        pool.setBatchSize(10);
+        pool.init();
+        List<QueueConsumer<Event>> consumers = new ArrayList<QueueConsumer<Event>>();
+        try {
+            final Map<String, List<String>> received = new ConcurrentHashMap<String, List<String>>();
+            final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+            final CountDownLatch done = new CountDownLatch(QUEUES * EVENTS);
+            Dispatcher<Event> dispatcher = new Dispatcher<Event>() {
+                @Override
+                public void dispatch(Event event) {
+                    String queue = event.getId().substring(0, event.getId().indexOf('/'));
+                    received.get(queue).add(event.getId());
+                    threads.add(Thread.currentThread().getName());
+                    done.countDown();
+                }
+            };
+            for (int q = 0; q < QUEUES; q++) {
+                String name = "queue" + q;
+                received.put(name, Collections.synchronizedList(new ArrayList<String>()));
+                QueueConsumer<Event> consumer = new QueueConsumer<Event>();
+                consumer.setQueue(instance.<Event>getQueue(Constants.QUEUE + Constants.SEPARATOR + name));
+                consumer.setDispatcher(dispatcher);
+                consumer.setQueueConsumerPool(pool);
+                consumer.init();
+                consumers.add(consumer);
+            }
+            for (int i = 0; i < EVENTS; i++) {
+                for (int q = 0; q < QUEUES; q++) {
+                    String name = "queue" + q;
+                    instance.<Event>getQueue(Constants.QUEUE + Constants.SEPARATOR + name).offer(new Event(name + "/" + i));
+                }
+            }
+
+            Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+            for (int q = 0; q < QUEUES; q++) {
+                List<String> events = received.get("queue" + q);
+                Assert.assertEquals(EVENTS, events.size());
+                for (int i = 0; i < EVENTS; i++) {
+                    Assert.assertEquals("queue" + q + "/" + i, events.get(i));
+                }
+            }
+            Assert.assertTrue(threads.size() <= THREADS);
+            for (String thread : threads) {
+                Assert.assertTrue(thread.startsWith("cellar-queue-consumer-"));
+            }
+        } finally {
+            for (QueueConsumer<Event> consumer : consumers) {
+                consumer.destroy();
+            }
+            pool.destroy();
+            instance.getLifecycleService().shutdown();
+        }
+    }
+
+}
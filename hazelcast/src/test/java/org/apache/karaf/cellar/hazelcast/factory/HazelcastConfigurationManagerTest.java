@@ -13,7 +13,12 @@
  */
 package org.apache.karaf.cellar.hazelcast.factory;
 
+import com.hazelcast.config.Config;
+import com.hazelcast.config.NearCacheConfig;
+import com.hazelcast.config.SerializerConfig;
 import org.apache.karaf.cellar.core.discovery.Discovery;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.hazelcast.serialization.CellarStreamSerializer;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -38,4 +43,36 @@ public class HazelcastConfigurationManagerTest {
         Assert.assertFalse(cm.isUpdated(p));
     }
 
+    @Test
+    public void testNearCacheDefaults() {
+        System.setProperty("karaf.home", "src/test/resources");
+        HazelcastConfigurationManager cm = new HazelcastConfigurationManager();
+        Config config = cm.getHazelcastConfig();
+        NearCacheConfig nearCacheConfig = config.getMapConfig("org.apache.karaf.cellar.bundle.map.default").getNearCacheConfig();
+        Assert.assertNotNull(nearCacheConfig);
+        Assert.assertTrue(nearCacheConfig.isInvalidateOnChange());
+        Assert.assertNotNull(config.getMapConfig("org.apache.karaf.cellar.groups").getNearCacheConfig());
+        Assert.assertNull(config.getMapConfig("org.apache.karaf.cellar.other").getNearCacheConfig());
+    }
+
+    @Test
+    public void testCellarSerializer() {
+        System.setProperty("karaf.home", "src/test/resources");
+        HazelcastConfigurationManager cm = new HazelcastConfigurationManager();
+        Config config = cm.getHazelcastConfig();
+        SerializerConfig cellarSerializerConfig = null;
+        SerializerConfig propertiesSerializerConfig = null;
+        for (SerializerConfig serializerConfig : config.getSerializationConfig().getSerializerConfigs()) {
+            if (CellarSerializable.class.equals(serializerConfig.getTypeClass())) {
+                cellarSerializerConfig = serializerConfig;
+            } else if (Properties.class.equals(serializerConfig.getTypeClass())) {
+                propertiesSerializerConfig = serializerConfig;
+            }
+        }
+        Assert.assertNotNull(cellarSerializerConfig);
+        Assert.assertTrue(cellarSerializerConfig.getImplementation() instanceof CellarStreamSerializer);
+        Assert.assertNotNull(propertiesSerializerConfig);
+        Assert.assertSame(cellarSerializerConfig.getImplementation(), propertiesSerializerConfig.getImplementation());
+    }
+
 }
@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast.factory;
+
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+
+/**
+ * Micro benchmark measuring the latency of the cluster map reads done by the event handlers, with and without the
+ * near cache, on the second member of a two members local cluster.
+ * It's not executed by the build, run it with: java -cp ... org.apache.karaf.cellar.hazelcast.factory.HazelcastNearCacheBenchmark [reads]
+ */
+public class HazelcastNearCacheBenchmark {
+
+    private static final String BUNDLE_MAP = "org.apache.karaf.cellar.bundle.map.default";
+    private static final int ENTRIES = 100;
+
+    public static void main(String[] args) throws Exception {
+        int reads = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+        long withoutNearCache = measure(false, reads);
+        long withNearCache = measure(true, reads);
+        System.out.println("Cluster map read latency: " + withoutNearCache + " ns without near cache, "
+                + withNearCache + " ns with near cache");
+    }
+
+    /**
+     * Start a two members cluster and measure the average latency of the map reads on the second member.
+     *
+     * @param nearCache true to use the near cache.
+     * @param reads the number of reads of each entry.
+     * @return the average read latency in nanoseconds.
+     */
+    private static long measure(boolean nearCache, int reads) {
+        HazelcastInstance owner = Hazelcast.newHazelcastInstance(HazelcastNearCacheTest.createLocalConfig(nearCache, "cellar-near-cache-" + nearCache));
+        HazelcastInstance reader = Hazelcast.newHazelcastInstance(HazelcastNearCacheTest.createLocalConfig(nearCache, "cellar-near-cache-" + nearCache));
+        try {
+            HazelcastNearCacheTest.fill(owner.<String, String>getMap(BUNDLE_MAP), ENTRIES);
+            IMap<String, String> map = reader.getMap(BUNDLE_MAP);
+            // warm up
+            for (int i = 0; i < ENTRIES; i++) {
+                map.get("bundle" + i);
+            }
+            long start = System.nanoTime();
+            for (int r = 0; r < reads; r++) {
+                for (int i = 0; i < ENTRIES; i++) {
+                    if (map.get("bundle" + i) == null) {
+                        throw new IllegalStateException("bundle" + i + " is missing in the cluster map");
+                    }
+                }
+            }
+            return (System.nanoTime() - start) / (reads * ENTRIES);
+        } finally {
+            reader.getLifecycleService().shutdown();
+            owner.getLifecycleService().shutdown();
+        }
+    }
+
+}
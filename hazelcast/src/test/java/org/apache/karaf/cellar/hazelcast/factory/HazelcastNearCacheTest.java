@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast.factory;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Check that the near cache of the cluster maps read by the event handlers is invalidated on update.
+ */
+@RunWith(JUnit4.class)
+public class HazelcastNearCacheTest {
+
+    private static final String BUNDLE_MAP = "org.apache.karaf.cellar.bundle.map.default";
+    private static final int ENTRIES = 10;
+
+    @Test
+    public void testNearCacheInvalidation() throws Exception {
+        Config config = createLocalConfig(true, "cellar-near-cache-invalidation");
+        HazelcastInstance owner = Hazelcast.newHazelcastInstance(config);
+        HazelcastInstance reader = Hazelcast.newHazelcastInstance(config);
+        try {
+            Assert.assertEquals(2, reader.getCluster().getMembers().size());
+            IMap<String, String> ownerMap = owner.getMap(BUNDLE_MAP);
+            IMap<String, String> readerMap = reader.getMap(BUNDLE_MAP);
+            fill(ownerMap, ENTRIES);
+            for (int i = 0; i < ENTRIES; i++) {
+                readerMap.get("bundle" + i);
+                readerMap.get("bundle" + i);
+            }
+            Assert.assertTrue(readerMap.getLocalMapStats().getNearCacheStats().getHits() > 0);
+
+            ownerMap.put("bundle0", "updated");
+            long deadline = System.currentTimeMillis() + 2000;
+            while (!"updated".equals(readerMap.get("bundle0")) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals("updated", readerMap.get("bundle0"));
+        } finally {
+            reader.getLifecycleService().shutdown();
+            owner.getLifecycleService().shutdown();
+        }
+    }
+
+    /**
+     * Create a configuration for a cluster of local members, joining with TCP on the loopback interface only,
+     * with a bounded join.
+     *
+     * @param nearCache true to use the near cache.
+     * @param groupName the cluster group name, isolating the cluster.
+     * @return the Hazelcast configuration.
+     */
+    static Config createLocalConfig(boolean nearCache, String groupName) {
+        System.setProperty("karaf.home", "src/test/resources");
+        Config config = new HazelcastConfigurationManager().getHazelcastConfig();
+        config.getGroupConfig().setName(groupName);
+        config.setProperty("hazelcast.wait.seconds.before.join", "0");
+        config.setProperty("hazelcast.max.join.seconds", "10");
+        config.setProperty("hazelcast.socket.bind.any", "false");
+        config.getNetworkConfig().getInterfaces().setEnabled(true).addInterface("127.0.0.1");
+        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+        config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(true).setConnectionTimeoutSeconds(2).addMember("127.0.0.1");
+        if (!nearCache) {
+            for (String name : HazelcastConfigurationManager.NEAR_CACHED_MAPS) {
+                config.getMapConfig(name).setNearCacheConfig(null);
+            }
+        }
+        return config;
+    }
+
+    static void fill(IMap<String, String> map, int entries) {
+        for (int i = 0; i < entries; i++) {
+            map.put("bundle" + i, "mvn:org.apache.karaf.cellar/bundle" + i + "/1.0.0");
+        }
+    }
+
+}
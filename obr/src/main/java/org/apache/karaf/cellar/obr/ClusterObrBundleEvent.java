@@ -31,6 +31,16 @@ public class ClusterObrBundleEvent extends Event {
         this.deployOptional = deployOptional;
     }
 
+    /**
+     * The cluster OBR bundle events are ordered per bundle ID.
+     *
+     * @return the routing key.
+     */
+    @Override
+    public String getRoutingKey() {
+        return bundleId;
+    }
+
     public String getBundleId() {
         return this.bundleId;
     }
@@ -29,6 +29,16 @@ public class ClusterObrUrlEvent extends Event {
         this.type = type;
     }
 
+    /**
+     * The cluster OBR URL events are ordered per URL.
+     *
+     * @return the routing key.
+     */
+    @Override
+    public String getRoutingKey() {
+        return url;
+    }
+
     public String getUrl() {
         return this.url;
     }
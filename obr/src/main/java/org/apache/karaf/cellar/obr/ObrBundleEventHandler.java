@@ -25,7 +25,6 @@ import org.apache.karaf.cellar.core.event.EventType;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.Version;
-import org.osgi.service.cm.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,10 +44,16 @@ public class ObrBundleEventHandler extends ObrSupport implements EventHandler<Cl
     @Override
     public void init() {
         super.init();
+        if (switchRegistry != null) {
+            switchRegistry.register(eventSwitch, Configurations.HANDLER + "." + this.getClass().getName());
+        }
     }
 
     @Override
     public void destroy() {
+        if (switchRegistry != null) {
+            switchRegistry.unregister(eventSwitch);
+        }
         super.destroy();
     }
 
@@ -173,21 +178,7 @@ public class ObrBundleEventHandler extends ObrSupport implements EventHandler<Cl
 
     @Override
     public Switch getSwitch() {
-        // load the switch status from the config
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.HANDLER + "." + this.getClass().getName()));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
-            }
-        } catch (Exception e) {
-            // ignore
-        }
-        return this.eventSwitch;
+        return eventSwitch;
     }
 
 }
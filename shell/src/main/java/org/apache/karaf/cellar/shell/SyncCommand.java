@@ -16,6 +16,9 @@ package org.apache.karaf.cellar.shell;
 import org.apache.karaf.cellar.core.Configurations;
 import org.apache.karaf.cellar.core.Group;
 import org.apache.karaf.cellar.core.Synchronizer;
+import org.apache.karaf.cellar.core.sync.SyncListener;
+import org.apache.karaf.cellar.core.sync.SyncOrchestrator;
+import org.apache.karaf.cellar.core.sync.SyncStatus;
 import org.apache.karaf.shell.commands.Argument;
 import org.apache.karaf.shell.commands.Command;
 import org.apache.karaf.shell.commands.Option;
@@ -23,10 +26,17 @@ import org.osgi.framework.ServiceReference;
 import org.osgi.service.cm.Configuration;
 import org.osgi.service.cm.ConfigurationAdmin;
 
+import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 @Command(scope = "cluster", name = "sync", description = "Manipulate the synchronizers")
 public class SyncCommand extends ClusterCommandSupport {
@@ -50,6 +60,7 @@ public class SyncCommand extends ClusterCommandSupport {
     private String policy;
 
     private ConfigurationAdmin configurationAdmin;
+    private SyncOrchestrator syncOrchestrator;
 
     @Override
     protected Object doExecute() throws Exception {
@@ -69,7 +80,63 @@ public class SyncCommand extends ClusterCommandSupport {
             }
             groups.add(groupManager.findGroupByName(groupName));
         }
-        if (policy == null || policy.isEmpty()) {
+        if ((policy == null || policy.isEmpty()) && syncOrchestrator != null) {
+            // we are in sync mode, the cluster groups are synchronized concurrently
+            List<String> resources = null;
+            if (!allResources) {
+                resources = new ArrayList<String>();
+                if (obrSync) {
+                    resources.add("obr.urls");
+                }
+                if (featuresSync) {
+                    resources.add("feature");
+                }
+                if (bundleSync) {
+                    resources.add("bundle");
+                }
+                if (configSync) {
+                    resources.add("config");
+                }
+            }
+            long start = System.currentTimeMillis();
+            // the progress is printed by the command thread, bound to the shell session output
+            final BlockingQueue<SyncStatus> progress = new LinkedBlockingQueue<SyncStatus>();
+            final Set<Group> targetGroups = groups;
+            final List<String> targetResources = resources;
+            FutureTask<List<SyncStatus>> task = new FutureTask<List<SyncStatus>>(new Callable<List<SyncStatus>>() {
+                @Override
+                public List<SyncStatus> call() throws Exception {
+                    return syncOrchestrator.sync(targetGroups, targetResources, new SyncListener() {
+                        @Override
+                        public void statusChanged(SyncStatus status) {
+                            if (status.isCompleted()) {
+                                progress.add(status);
+                            }
+                        }
+                    });
+                }
+            });
+            new Thread(task, "cellar-sync-command").start();
+            while (!task.isDone()) {
+                SyncStatus status = progress.poll(100, TimeUnit.MILLISECONDS);
+                if (status != null) {
+                    printStatus(status);
+                }
+            }
+            SyncStatus status;
+            while ((status = progress.poll()) != null) {
+                printStatus(status);
+            }
+            List<SyncStatus> result = task.get();
+            int failed = 0;
+            for (SyncStatus completed : result) {
+                if (completed.getState() == SyncStatus.State.FAILED) {
+                    failed++;
+                }
+            }
+            System.out.println("Synchronized " + groups.size() + " cluster group(s) in " + (System.currentTimeMillis() - start) + " ms"
+                    + ((failed > 0) ? " (" + failed + " failure(s))" : ""));
+        } else if (policy == null || policy.isEmpty()) {
             // we are in sync mode
             // constructing the target cluster groups
             for (Group group : groups) {
@@ -128,6 +195,14 @@ public class SyncCommand extends ClusterCommandSupport {
         }
     }
 
+    private void printStatus(SyncStatus status) {
+        if (status.getState() == SyncStatus.State.FAILED) {
+            System.out.println("\t" + status.getGroup() + "/" + status.getResource() + ": failed (" + status.getDuration() + " ms): " + status.getError());
+        } else {
+            System.out.println("\t" + status.getGroup() + "/" + status.getResource() + ": done (" + status.getDuration() + " ms)");
+        }
+    }
+
     private void updateSync(String resource, Group group, String policy) throws Exception {
         System.out.print("\t" + resource + ": ");
         Configuration configuration = configurationAdmin.getConfiguration(Configurations.GROUP, null);
@@ -144,4 +219,8 @@ public class SyncCommand extends ClusterCommandSupport {
     public void setConfigurationAdmin(ConfigurationAdmin configurationAdmin) {
         this.configurationAdmin = configurationAdmin;
     }
+
+    public void setSyncOrchestrator(SyncOrchestrator syncOrchestrator) {
+        this.syncOrchestrator = syncOrchestrator;
+    }
 }
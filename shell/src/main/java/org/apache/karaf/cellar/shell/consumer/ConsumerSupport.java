@@ -14,6 +14,7 @@
 package org.apache.karaf.cellar.shell.consumer;
 
 import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.command.CompletionPolicy;
 import org.apache.karaf.cellar.core.control.ConsumerSwitchCommand;
 import org.apache.karaf.cellar.core.control.ConsumerSwitchResult;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
@@ -60,6 +61,10 @@ public abstract class ConsumerSupport extends ClusterCommandSupport {
         }
 
         command.setDestination(recipientList);
+        if (status == null) {
+            // in case of status display, don't wait for the slowest nodes
+            command.setCompletionPolicy(CompletionPolicy.deadline(command.getTimeout() / 2));
+        }
         command.setStatus(status);
 
         Map<Node, ConsumerSwitchResult> results = executionContext.execute(command);
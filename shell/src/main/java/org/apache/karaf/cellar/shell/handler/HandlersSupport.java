@@ -14,6 +14,7 @@
 package org.apache.karaf.cellar.shell.handler;
 
 import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.command.CompletionPolicy;
 import org.apache.karaf.cellar.core.control.ManageHandlersCommand;
 import org.apache.karaf.cellar.core.control.ManageHandlersResult;
 import org.apache.karaf.cellar.shell.ClusterCommandSupport;
@@ -59,6 +60,10 @@ public abstract class HandlersSupport extends ClusterCommandSupport {
         }
 
         command.setDestination(recipientList);
+        if (status == null) {
+            // in case of status display, don't wait for the slowest nodes
+            command.setCompletionPolicy(CompletionPolicy.deadline(command.getTimeout() / 2));
+        }
         command.setHandlerName(handlerName);
         command.setStatus(status);
 
@@ -14,6 +14,7 @@
 package org.apache.karaf.cellar.shell.producer;
 
 import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.command.CompletionPolicy;
 import org.apache.karaf.cellar.core.control.ProducerSwitchCommand;
 import org.apache.karaf.cellar.core.control.ProducerSwitchResult;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
@@ -60,6 +61,10 @@ public abstract class ProducerSupport extends ClusterCommandSupport {
         }
 
         command.setDestination(recipientList);
+        if (status == null) {
+            // in case of status display, don't wait for the slowest nodes
+            command.setCompletionPolicy(CompletionPolicy.deadline(command.getTimeout() / 2));
+        }
         command.setStatus(status);
 
         Map<Node, ProducerSwitchResult> results = executionContext.execute(command);